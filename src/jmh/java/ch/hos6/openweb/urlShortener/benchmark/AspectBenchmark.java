@@ -0,0 +1,101 @@
+package ch.hos6.openweb.urlShortener.benchmark;
+
+import ch.hos6.openweb.urlShortener.aspect.LoggingAspect;
+import ch.hos6.openweb.urlShortener.aspect.RecordTime;
+import ch.hos6.openweb.urlShortener.aspect.RecordTimeAspect;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of the Spring AOP proxies applying the {@link LoggingAspect} and the {@link RecordTimeAspect}
+ * to the services, compared with a direct call of the same method.
+ * <p>
+ * The timers of the {@link RecordTimeAspect} are configured with the percentiles, percentile histogram and SLO buckets
+ * of the application properties. The {@link LoggingAspect} logger is raised to WARN by the setup, so that the benchmark
+ * measures the advice and the proxy rather than the console.
+ * </p>
+ *
+ * @author Toubia Oussama
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(time = 1)
+@Measurement(time = 1)
+public class AspectBenchmark {
+    private static final String SHORT_URL = "abc123";
+
+    private ResolveService direct;
+    private ResolveService logged;
+    private ResolveService timed;
+
+    @Setup
+    public void setUp() {
+        LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        loggerContext.getLogger(LoggingAspect.class).setLevel(Level.WARN);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        meterRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder()
+                        .percentiles(0.5, 0.95, 0.99)
+                        .percentilesHistogram(true)
+                        .serviceLevelObjectives(Duration.ofMillis(1).toNanos(), Duration.ofMillis(5).toNanos(),
+                                Duration.ofMillis(10).toNanos(), Duration.ofMillis(50).toNanos(),
+                                Duration.ofMillis(100).toNanos(), Duration.ofMillis(500).toNanos(), Duration.ofSeconds(1).toNanos())
+                        .minimumExpectedValue((double) Duration.ofNanos(100_000).toNanos())
+                        .maximumExpectedValue((double) Duration.ofSeconds(10).toNanos())
+                        .build()
+                        .merge(config);
+            }
+        });
+        direct = new ResolveService();
+        logged = proxy(new LoggingAspect());
+        timed = proxy(new RecordTimeAspect(meterRegistry));
+    }
+
+    @Benchmark
+    public String direct() {
+        return direct.resolve(SHORT_URL);
+    }
+
+    @Benchmark
+    public String loggingAspect() {
+        return logged.resolve(SHORT_URL);
+    }
+
+    @Benchmark
+    public String recordTimeAspect() {
+        return timed.resolve(SHORT_URL);
+    }
+
+    private static ResolveService proxy(Object aspect) {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new ResolveService());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(aspect);
+        return proxyFactory.getProxy();
+    }
+
+    /**
+     * A service advised by both aspects, whose method costs next to nothing.
+     */
+    @Service
+    @RecordTime("url.benchmark")
+    public static class ResolveService {
+
+        public String resolve(String shortUrl) {
+            return shortUrl;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ch.hos6.openweb.urlShortener.benchmark;
+
+import ch.hos6.openweb.urlShortener.cache.UrlCacheCodec;
+import ch.hos6.openweb.urlShortener.config.CacheConfig;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.util.ByteUtils;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the serialization of the entries of the URL cache to and from Redis, with the key prefix and the
+ * serializers of the cache configuration created by {@link CacheConfig}, as the Redis cache writes and reads them.
+ * The values are also serialized with the {@link GenericJackson2JsonRedisSerializer} used before the {@link UrlCacheCodec},
+ * whose size per value is printed by the setup.
+ *
+ * @author Toubia Oussama
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(time = 1)
+@Measurement(time = 1)
+public class CacheSerializerBenchmark {
+    private static final int ENTRY_COUNT = 1024;
+
+    private final String[] keys = new String[ENTRY_COUNT];
+    private final String[] values = new String[ENTRY_COUNT];
+    private final ByteBuffer[] serializedValues = new ByteBuffer[ENTRY_COUNT];
+    private final byte[][] legacyValues = new byte[ENTRY_COUNT][];
+    private final GenericJackson2JsonRedisSerializer legacySerializer = new GenericJackson2JsonRedisSerializer();
+    private String prefix;
+    private RedisSerializationContext.SerializationPair<String> keySerializer;
+    private RedisSerializationContext.SerializationPair<Object> valueSerializer;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        RedisCacheConfiguration cacheConfiguration = new CacheConfig().cacheConfiguration();
+        prefix = cacheConfiguration.getKeyPrefixFor(CacheConfig.URL_CACHE_NAME);
+        keySerializer = cacheConfiguration.getKeySerializationPair();
+        valueSerializer = cacheConfiguration.getValueSerializationPair();
+        SplittableRandom random = new SplittableRandom(42);
+        long size = 0;
+        long legacySize = 0;
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            keys[i] = Long.toString(random.nextLong(56_800_235_584L), 36);
+            values[i] = "https://example.com/articles/" + random.nextLong(1_000_000_000L) + "?ref=" + random.nextInt(1000);
+            serializedValues[i] = valueSerializer.write(values[i]);
+            if (!values[i].equals(valueSerializer.read(serializedValues[i].duplicate()))) {
+                throw new IllegalStateException("Value not read back: " + values[i]);
+            }
+            legacyValues[i] = legacySerializer.serialize(values[i]);
+            size += serializedValues[i].remaining();
+            legacySize += legacyValues[i].length;
+        }
+        System.out.printf("Bytes per value: %.1f, legacy JSON: %.1f%n", size / (double) ENTRY_COUNT, legacySize / (double) ENTRY_COUNT);
+    }
+
+    @Benchmark
+    public byte[] writeKey() {
+        return ByteUtils.getBytes(keySerializer.write(prefix + keys[next()]));
+    }
+
+    @Benchmark
+    public byte[] writeValue() {
+        return ByteUtils.getBytes(valueSerializer.write(values[next()]));
+    }
+
+    @Benchmark
+    public Object readValue() {
+        return valueSerializer.read(serializedValues[next()].duplicate());
+    }
+
+    @Benchmark
+    public byte[] writeValueLegacy() {
+        return legacySerializer.serialize(values[next()]);
+    }
+
+    @Benchmark
+    public Object readValueLegacy() {
+        return legacySerializer.deserialize(legacyValues[next()]);
+    }
+
+    private int next() {
+        index = (index + 1) & (ENTRY_COUNT - 1);
+        return index;
+    }
+}
@@ -0,0 +1,174 @@
+package ch.hos6.openweb.urlShortener.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load test of the redirect and create endpoints of a running instance.
+ * <p>
+ * Run it once against an instance started with {@code app.execution.mode=platform} and once against an instance
+ * started with {@code app.execution.mode=virtual} to compare both execution modes. Each scenario keeps
+ * {@code load.concurrency} requests in flight from as many client virtual threads, for {@code load.warmup} seconds
+ * of warm-up then {@code load.duration} seconds of measurement, and prints the throughput and the latency percentiles
+ * recorded in an HdrHistogram.
+ * </p>
+ * <pre>
+ * ./mvnw -Pbenchmark -DskipTests test-compile exec:exec@load -Dload.target=http://localhost:8080 -Dload.concurrency=500
+ * </pre>
+ *
+ * @author Toubia Oussama
+ */
+public class HttpLoadBenchmark {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int REDIRECT_CODES = 100;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final String target;
+    private final String destination;
+    private final int concurrency;
+    private final Duration warmup;
+    private final Duration duration;
+    private String token;
+
+    private HttpLoadBenchmark(String target, String destination, int concurrency, Duration warmup, Duration duration) {
+        this.target = target;
+        this.destination = destination;
+        this.concurrency = concurrency;
+        this.warmup = warmup;
+        this.duration = duration;
+    }
+
+    public static void main(String[] args) throws Exception {
+        HttpLoadBenchmark benchmark = new HttpLoadBenchmark(
+                System.getProperty("load.target", "http://localhost:8080"),
+                System.getProperty("load.destination", "http://localhost:8000/"),
+                Integer.getInteger("load.concurrency", 200),
+                Duration.ofSeconds(Long.getLong("load.warmup", 10)),
+                Duration.ofSeconds(Long.getLong("load.duration", 30)));
+        benchmark.login();
+
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < REDIRECT_CODES; i++) {
+            codes.add(benchmark.create());
+        }
+        benchmark.run("redirect", () -> benchmark.redirect(codes.get(ThreadLocalRandom.current().nextInt(codes.size()))));
+        benchmark.run("create", benchmark::create);
+    }
+
+    /**
+     * Registers a new user and keeps its token.
+     */
+    private void login() throws IOException, InterruptedException {
+        String username = "load-" + UUID.randomUUID();
+        String password = UUID.randomUUID().toString();
+        send(HttpRequest.newBuilder(URI.create(target + "/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(
+                        MAPPER.createObjectNode().put("username", username).put("password", password)))), 201);
+        String credentials = Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        JsonNode login = MAPPER.readTree(send(HttpRequest.newBuilder(URI.create(target + "/auth/login"))
+                .header("Authorization", "Basic " + credentials)
+                .POST(HttpRequest.BodyPublishers.noBody()), 200));
+        token = login.get("token").asText();
+    }
+
+    private String create() throws IOException, InterruptedException {
+        String body = send(HttpRequest.newBuilder(URI.create(target + "/api/v1/urls"))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "text/plain")
+                .POST(HttpRequest.BodyPublishers.ofString(destination)), 200);
+        return MAPPER.readTree(body).get("shortenedUrl").asText();
+    }
+
+    private void redirect(String code) throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create(target + "/" + code)).GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 3) {
+            throw new IOException("Unexpected status " + response.statusCode() + " for " + code);
+        }
+    }
+
+    private String send(HttpRequest.Builder request, int expectedStatus) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != expectedStatus) {
+            throw new IOException("Unexpected status " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    /**
+     * Runs a scenario with a warm-up phase then a measured phase, and prints its results.
+     *
+     * @param name    the name of the scenario
+     * @param request the request sent in a loop by each client thread
+     */
+    private void run(String name, Request request) throws InterruptedException {
+        phase(request, warmup);
+        Recorder recorder = new Recorder(3);
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        phase(() -> {
+            long requestStart = System.nanoTime();
+            try {
+                request.send();
+                recorder.recordValue(System.nanoTime() - requestStart);
+            } catch (IOException e) {
+                errors.incrementAndGet();
+            }
+        }, duration);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        Histogram histogram = recorder.getIntervalHistogram();
+        System.out.printf("%-8s concurrency=%d requests=%d errors=%d throughput=%.0f req/s p50=%.2f ms p99=%.2f ms p99.9=%.2f ms max=%.2f ms%n",
+                name, concurrency, histogram.getTotalCount(), errors.get(), histogram.getTotalCount() / elapsedSeconds,
+                histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(99) / 1e6,
+                histogram.getValueAtPercentile(99.9) / 1e6, histogram.getMaxValue() / 1e6);
+    }
+
+    /**
+     * Sends requests in a loop from {@link #concurrency} client virtual threads until the duration elapses.
+     */
+    private void phase(Request request, Duration phaseDuration) throws InterruptedException {
+        long end = System.nanoTime() + phaseDuration.toNanos();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                clients.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        try {
+                            request.send();
+                        } catch (IOException e) {
+                            // counted by the measured request, ignored during warm-up
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        void send() throws IOException, InterruptedException;
+    }
+}
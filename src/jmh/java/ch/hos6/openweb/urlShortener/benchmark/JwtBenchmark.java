@@ -0,0 +1,119 @@
+package ch.hos6.openweb.urlShortener.benchmark;
+
+import ch.hos6.openweb.urlShortener.cache.CacheInvalidationBus;
+import ch.hos6.openweb.urlShortener.config.RestSecurityConfig;
+import ch.hos6.openweb.urlShortener.domain.entity.User;
+import ch.hos6.openweb.urlShortener.security.JwtKeySet;
+import ch.hos6.openweb.urlShortener.security.VerifiedJwtCache;
+import ch.hos6.openweb.urlShortener.utils.JwtTokenUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.security.config.crypto.RsaKeyConversionServicePostProcessor;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the issuing of a token by {@link JwtTokenUtils} at login, with the encoder of {@link RestSecurityConfig},
+ * and the decoding of a token by the decoder of the resource server for each authenticated request,
+ * for each signature algorithm of the {@link JwtKeySet}: RS256, ES256 and EdDSA.
+ * They use the keys configured in the application properties.
+ * The decoding of a token already verified is also measured through the {@link VerifiedJwtCache}.
+ *
+ * @author Toubia Oussama
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(time = 1)
+@Measurement(time = 1)
+public class JwtBenchmark {
+    @Param({"RS256", "ES256", "EdDSA"})
+    private String algorithm;
+
+    private AnnotationConfigApplicationContext context;
+    private JwtTokenUtils jwtTokenUtils;
+    private JwtDecoder jwtDecoder;
+    private JwtDecoder cachedJwtDecoder;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources()
+                .addFirst(new MapPropertySource("benchmark", Map.of("security.jwt.algorithm", algorithm)));
+        context.register(JwtConfig.class);
+        context.refresh();
+        jwtTokenUtils = context.getBean(JwtTokenUtils.class);
+        jwtDecoder = context.getBean(JwtKeySet.class).decoder();
+        user = new User();
+        user.setId("64b7f3a2c9e77a1d4c8b4567");
+        user.setUsername("benchmark");
+        token = jwtTokenUtils.token(user);
+        if (!user.getId().equals(jwtDecoder.decode(token).getClaimAsString("userId"))) {
+            throw new IllegalStateException("Token not decoded: " + token);
+        }
+        StringRedisTemplate redisTemplate = Mockito.mock(StringRedisTemplate.class);
+        Mockito.when(redisTemplate.opsForValue()).thenReturn(Mockito.mock(ValueOperations.class));
+        cachedJwtDecoder = new VerifiedJwtCache(Mockito.mock(CacheInvalidationBus.class), redisTemplate, new SimpleMeterRegistry(), 10000, 3600)
+                .decoder(jwtDecoder);
+        cachedJwtDecoder.decode(token);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String token() {
+        return jwtTokenUtils.token(user);
+    }
+
+    @Benchmark
+    public Jwt decode() {
+        return jwtDecoder.decode(token);
+    }
+
+    @Benchmark
+    public Jwt cachedDecode() {
+        return cachedJwtDecoder.decode(token);
+    }
+
+    /**
+     * The JWT keys and encoder of the application and the service issuing the tokens.
+     */
+    @Configuration
+    @PropertySource("classpath:application.properties")
+    @Import({RestSecurityConfig.class, JwtTokenUtils.class})
+    static class JwtConfig {
+
+        @Bean
+        static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
+            return new PropertySourcesPlaceholderConfigurer();
+        }
+
+        @Bean
+        static RsaKeyConversionServicePostProcessor rsaKeyConversionServicePostProcessor() {
+            return new RsaKeyConversionServicePostProcessor();
+        }
+
+        @Bean
+        SimpleMeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package ch.hos6.openweb.urlShortener.benchmark;
+
+import ch.hos6.openweb.urlShortener.UrlShortenerApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load test of the application, booted in-process on {@link StandInServers}, or of a running instance.
+ * <p>
+ * Three scenarios run at the same time, each sending its requests at a fixed arrival rate whatever the response times:
+ * redirects of short URLs picked with a Zipf distribution ({@code load.redirect.rate} per second over
+ * {@code load.redirect.codes} short URLs, exponent {@code load.redirect.zipf}), bursts of {@code load.create.burst}
+ * creations every {@code load.create.interval} seconds, and pages of URLs listed at {@code load.list.rate} per second
+ * with the JWTs of {@code load.list.users} users logged in through {@code /auth/login}.
+ * </p>
+ * <p>
+ * Latencies are measured from the time each request was scheduled to be sent rather than from the time it was sent,
+ * which corrects the coordinated omission of a load generator falling behind a slow server. They are reported next to
+ * the service times, measured from the actual send. The garbage collections and the allocations of the application
+ * during the measurement are read from its actuator metrics; when the application is booted in-process,
+ * they include the load generator sharing its JVM.
+ * </p>
+ * <pre>
+ * ./mvnw -Pbenchmark -DskipTests test-compile exec:exec@loadtest -Dload.redirect.rate=2000 -Dload.heap=512m
+ * </pre>
+ * {@code -Dloadtest.target=http://host:8080} drives a running instance instead, and {@code -Dload.app.args} sets the
+ * arguments of the in-process application, for example {@code --app.execution.mode=virtual}.
+ *
+ * @author Toubia Oussama
+ */
+public class OpenLoadTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int BATCH_SIZE = 500;
+    private static final int PAGE_SIZE = 50;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final String target;
+    private final String destination;
+    private final Duration warmup;
+    private final Duration duration;
+    private final List<String> tokens = new ArrayList<>();
+    private final List<String> codes = new ArrayList<>();
+    private final AtomicLong createdUrls = new AtomicLong();
+
+    private OpenLoadTest(String target, String destination, Duration warmup, Duration duration) {
+        this.target = target;
+        this.destination = destination;
+        this.warmup = warmup;
+        this.duration = duration;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String target = System.getProperty("loadtest.target", "");
+        String destination = System.getProperty("load.destination", "http://localhost:8000/");
+        StandInServers standIns = null;
+        ConfigurableApplicationContext application = null;
+        try {
+            if (target.isBlank()) {
+                standIns = StandInServers.start();
+                destination = standIns.destination();
+                List<String> appArgs = new ArrayList<>();
+                standIns.applicationProperties().forEach((name, value) -> appArgs.add("--" + name + "=" + value));
+                appArgs.add("--server.port=0");
+                String extraArgs = System.getProperty("load.app.args", "").trim();
+                if (!extraArgs.isEmpty()) {
+                    appArgs.addAll(Arrays.asList(extraArgs.split("\\s+")));
+                }
+                // the application is not restarted by the devtools found on the classpath
+                System.setProperty("spring.devtools.restart.enabled", "false");
+                SpringApplication springApplication = new SpringApplication(UrlShortenerApplication.class, StandInConfig.class);
+                springApplication.addInitializers(context -> context.getBeanFactory()
+                        .registerSingleton("benchmarkExcludeFilter", new BenchmarkExcludeFilter()));
+                application = springApplication.run(appArgs.toArray(String[]::new));
+                target = "http://localhost:" + application.getEnvironment().getRequiredProperty("local.server.port");
+            }
+            OpenLoadTest loadTest = new OpenLoadTest(target, destination,
+                    Duration.ofSeconds(Long.getLong("load.warmup", 10)),
+                    Duration.ofSeconds(Long.getLong("load.duration", 30)));
+            loadTest.setUp(Integer.getInteger("load.list.users", 10), Integer.getInteger("load.redirect.codes", 1000));
+            loadTest.run(Double.parseDouble(System.getProperty("load.redirect.rate", "500")),
+                    Double.parseDouble(System.getProperty("load.redirect.zipf", "1.0")),
+                    Integer.getInteger("load.create.burst", 50),
+                    Duration.ofSeconds(Long.getLong("load.create.interval", 5)),
+                    Double.parseDouble(System.getProperty("load.list.rate", "20")));
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+            if (standIns != null) {
+                standIns.close();
+            }
+        }
+    }
+
+    /**
+     * Logs the users in and creates the short URLs of the redirects.
+     *
+     * @param users     the number of users
+     * @param codeCount the number of short URLs
+     */
+    private void setUp(int users, int codeCount) throws IOException, InterruptedException {
+        for (int i = 0; i < users; i++) {
+            tokens.add(login());
+        }
+        for (int start = 0; start < codeCount; start += BATCH_SIZE) {
+            List<String> urls = new ArrayList<>();
+            for (int i = start; i < Math.min(codeCount, start + BATCH_SIZE); i++) {
+                urls.add(destination + "?code=" + i);
+            }
+            JsonNode results = MAPPER.readTree(send(HttpRequest.newBuilder(URI.create(target + "/api/v1/urls/batch"))
+                    .header("Authorization", "Bearer " + tokens.get(0))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(urls))), 200));
+            for (JsonNode result : results) {
+                if (result.hasNonNull("url")) {
+                    codes.add(result.get("url").get("shortenedUrl").asText());
+                }
+            }
+        }
+        System.out.printf("target=%s users=%d short URLs=%d%n", target, tokens.size(), codes.size());
+    }
+
+    /**
+     * Runs the scenarios for the warm-up then the measurement, and prints their results.
+     */
+    private void run(double redirectRate, double zipfExponent, int createBurst, Duration createInterval, double listRate)
+            throws IOException, InterruptedException {
+        ZipfDistribution popularity = new ZipfDistribution(codes.size(), zipfExponent);
+        List<Scenario> scenarios = List.of(
+                new Scenario("redirect", redirectRate, (long) (1e9 / redirectRate), 1,
+                        () -> redirect(codes.get(popularity.sample()))),
+                new Scenario("create", createBurst / (double) createInterval.toSeconds(), createInterval.toNanos(), createBurst,
+                        () -> create(randomToken())),
+                new Scenario("list", listRate, (long) (1e9 / listRate), 1,
+                        () -> list(randomToken())));
+
+        long start = System.nanoTime() + Duration.ofMillis(100).toNanos();
+        long measureStart = start + warmup.toNanos();
+        long end = measureStart + duration.toNanos();
+        JvmStats before = null;
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Thread> schedulers = new ArrayList<>();
+            for (Scenario scenario : scenarios) {
+                schedulers.add(Thread.ofPlatform().name("load-" + scenario.name)
+                        .start(() -> scenario.schedule(requests, start, measureStart, end)));
+            }
+            parkUntil(measureStart);
+            before = jvmStats();
+            for (Thread scheduler : schedulers) {
+                scheduler.join();
+            }
+        }
+        JvmStats after = jvmStats();
+
+        double seconds = duration.toNanos() / 1e9;
+        long totalRequests = 0;
+        for (Scenario scenario : scenarios) {
+            totalRequests += scenario.report(seconds);
+        }
+        after.report(before, seconds, totalRequests);
+    }
+
+    private String randomToken() {
+        return tokens.get(ThreadLocalRandom.current().nextInt(tokens.size()));
+    }
+
+    /**
+     * Registers a new user and returns the token of its login.
+     */
+    private String login() throws IOException, InterruptedException {
+        String username = "load-" + UUID.randomUUID();
+        String password = UUID.randomUUID().toString();
+        send(HttpRequest.newBuilder(URI.create(target + "/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(
+                        MAPPER.createObjectNode().put("username", username).put("password", password)))), 201);
+        String credentials = Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        return MAPPER.readTree(send(HttpRequest.newBuilder(URI.create(target + "/auth/login"))
+                .header("Authorization", "Basic " + credentials)
+                .POST(HttpRequest.BodyPublishers.noBody()), 200)).get("token").asText();
+    }
+
+    private void redirect(String code) throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create(target + "/" + code)).GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 3) {
+            throw new IOException("Unexpected status " + response.statusCode() + " for " + code);
+        }
+    }
+
+    private void create(String token) throws IOException, InterruptedException {
+        send(HttpRequest.newBuilder(URI.create(target + "/api/v1/urls"))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "text/plain")
+                .POST(HttpRequest.BodyPublishers.ofString(destination + "?created=" + createdUrls.incrementAndGet())), 200);
+    }
+
+    private void list(String token) throws IOException, InterruptedException {
+        send(HttpRequest.newBuilder(URI.create(target + "/api/v1/urls/page?size=" + PAGE_SIZE))
+                .header("Authorization", "Bearer " + token)
+                .GET(), 200);
+    }
+
+    private String send(HttpRequest.Builder request, int expectedStatus) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != expectedStatus) {
+            throw new IOException("Unexpected status " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    /**
+     * Reads the garbage collection and allocation metrics of the application.
+     */
+    private JvmStats jvmStats() throws IOException, InterruptedException {
+        return new JvmStats(metric("jvm.gc.pause", "COUNT"), metric("jvm.gc.pause", "TOTAL_TIME"),
+                metric("jvm.gc.pause", "MAX"), metric("jvm.gc.memory.allocated", "COUNT"),
+                metric("jvm.memory.used?tag=area:heap", "VALUE"));
+    }
+
+    /**
+     * Reads a statistic of an actuator metric, 0 if the metric was not recorded yet.
+     * The metrics are only served to authenticated users.
+     */
+    private double metric(String name, String statistic) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(target + "/actuator/metrics/" + name))
+                .header("Authorization", "Bearer " + tokens.get(0))
+                .GET().build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == 404) {
+            return 0;
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Unexpected status " + response.statusCode() + " for metric " + name);
+        }
+        for (JsonNode measurement : MAPPER.readTree(response.body()).get("measurements")) {
+            if (statistic.equals(measurement.get("statistic").asText())) {
+                return measurement.get("value").asDouble();
+            }
+        }
+        return 0;
+    }
+
+    private static void parkUntil(long deadline) {
+        for (long delay = deadline - System.nanoTime(); delay > 0; delay = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(delay);
+        }
+    }
+
+    /**
+     * A stream of requests sent at a fixed rate, and its latencies.
+     */
+    private static final class Scenario {
+        private final String name;
+        private final double rate;
+        private final long intervalNanos;
+        private final int burst;
+        private final Request request;
+        private final Recorder latencies = new Recorder(3);
+        private final Recorder serviceTimes = new Recorder(3);
+        private final AtomicLong errors = new AtomicLong();
+
+        private Scenario(String name, double rate, long intervalNanos, int burst, Request request) {
+            this.name = name;
+            this.rate = rate;
+            this.intervalNanos = intervalNanos;
+            this.burst = burst;
+            this.request = request;
+        }
+
+        /**
+         * Sends {@link #burst} requests every {@link #intervalNanos} from start to end, each on its own virtual thread.
+         * Only the requests scheduled after measureStart are recorded.
+         */
+        private void schedule(ExecutorService requests, long start, long measureStart, long end) {
+            for (long intended = start; intended < end; intended += intervalNanos) {
+                parkUntil(intended);
+                long scheduled = intended;
+                boolean measured = intended >= measureStart;
+                for (int i = 0; i < burst; i++) {
+                    requests.execute(() -> send(scheduled, measured));
+                }
+            }
+        }
+
+        private void send(long scheduled, boolean measured) {
+            long sent = System.nanoTime();
+            try {
+                request.send();
+            } catch (IOException | RuntimeException e) {
+                if (measured) {
+                    errors.incrementAndGet();
+                }
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long received = System.nanoTime();
+            if (measured) {
+                latencies.recordValue(received - scheduled);
+                serviceTimes.recordValue(received - sent);
+            }
+        }
+
+        /**
+         * Prints the throughput and the latency percentiles of the measurement.
+         *
+         * @return the number of successful requests
+         */
+        private long report(double seconds) {
+            Histogram latency = latencies.getIntervalHistogram();
+            Histogram service = serviceTimes.getIntervalHistogram();
+            System.out.printf("%-8s rate=%.0f/s throughput=%.0f req/s requests=%d errors=%d"
+                            + " latency p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f ms"
+                            + " service p50=%.2f p99=%.2f max=%.2f ms%n",
+                    name, rate, latency.getTotalCount() / seconds, latency.getTotalCount(), errors.get(),
+                    millis(latency, 50), millis(latency, 90), millis(latency, 99), millis(latency, 99.9),
+                    latency.getMaxValue() / 1e6, millis(service, 50), millis(service, 99), service.getMaxValue() / 1e6);
+            return latency.getTotalCount();
+        }
+
+        private static double millis(Histogram histogram, double percentile) {
+            return histogram.getValueAtPercentile(percentile) / 1e6;
+        }
+    }
+
+    /**
+     * The garbage collection and allocation metrics of the application at a point in time.
+     */
+    private record JvmStats(double gcPauses, double gcPauseSeconds, double gcMaxPauseSeconds, double allocatedBytes,
+                            double heapUsedBytes) {
+
+        /**
+         * Prints the garbage collections and the allocations since the given stats.
+         */
+        private void report(JvmStats before, double seconds, long requests) {
+            double allocated = allocatedBytes - before.allocatedBytes;
+            System.out.printf("gc       pauses=%.0f pause time=%.0f ms max pause=%.0f ms allocated=%.0f MB (%.1f MB/s, %.1f KB/request)"
+                            + " heap used=%.0f MB%n",
+                    gcPauses - before.gcPauses, (gcPauseSeconds - before.gcPauseSeconds) * 1e3, gcMaxPauseSeconds * 1e3,
+                    allocated / 1e6, allocated / 1e6 / seconds, requests > 0 ? allocated / 1e3 / requests : 0,
+                    heapUsedBytes / 1e6);
+        }
+    }
+
+    /**
+     * Zipf distribution of the ranks 0 to n - 1: the rank k is picked with a probability proportional to 1 / (k + 1)^s.
+     */
+    private static final class ZipfDistribution {
+        private final double[] cumulativeProbabilities;
+
+        private ZipfDistribution(int n, double exponent) {
+            cumulativeProbabilities = new double[n];
+            double sum = 0;
+            for (int k = 0; k < n; k++) {
+                sum += 1 / Math.pow(k + 1, exponent);
+                cumulativeProbabilities[k] = sum;
+            }
+            for (int k = 0; k < n; k++) {
+                cumulativeProbabilities[k] /= sum;
+            }
+        }
+
+        private int sample() {
+            int index = Arrays.binarySearch(cumulativeProbabilities, ThreadLocalRandom.current().nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cumulativeProbabilities.length - 1);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        void send() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Keeps the configurations and services of the benchmarks, found on the classpath of the load test,
+     * out of the component scan of the in-process application.
+     */
+    static class BenchmarkExcludeFilter extends TypeExcludeFilter {
+
+        @Override
+        public boolean match(MetadataReader metadataReader, MetadataReaderFactory metadataReaderFactory) {
+            return metadataReader.getClassMetadata().getClassName().startsWith(OpenLoadTest.class.getPackageName() + ".");
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj != null && getClass() == obj.getClass();
+        }
+
+        @Override
+        public int hashCode() {
+            return getClass().hashCode();
+        }
+    }
+
+    /**
+     * Configuration of the in-process application: the Redis stand-in only speaks the RESP2 protocol.
+     */
+    @Configuration
+    static class StandInConfig {
+
+        @Bean
+        LettuceClientConfigurationBuilderCustomizer resp2ClientCustomizer() {
+            return builder -> builder.clientOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build());
+        }
+    }
+}
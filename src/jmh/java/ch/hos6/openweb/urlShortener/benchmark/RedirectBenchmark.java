@@ -0,0 +1,177 @@
+package ch.hos6.openweb.urlShortener.benchmark;
+
+import ch.hos6.openweb.urlShortener.allocator.ShortCodeAllocator;
+import ch.hos6.openweb.urlShortener.analytics.ClickTracker;
+import ch.hos6.openweb.urlShortener.aspect.LoggingAspect;
+import ch.hos6.openweb.urlShortener.cache.CacheInvalidationBus;
+import ch.hos6.openweb.urlShortener.cache.RefreshAheadPolicy;
+import ch.hos6.openweb.urlShortener.cache.CachePreloader;
+import ch.hos6.openweb.urlShortener.cache.ShortUrlFilter;
+import ch.hos6.openweb.urlShortener.cache.TwoLevelCacheManager;
+import ch.hos6.openweb.urlShortener.config.CacheConfig;
+import ch.hos6.openweb.urlShortener.config.RestSecurityConfig;
+import ch.hos6.openweb.urlShortener.controller.RedirectController;
+import ch.hos6.openweb.urlShortener.controller.RedirectFastLaneFilter;
+import ch.hos6.openweb.urlShortener.domain.repository.UrlRepository;
+import ch.hos6.openweb.urlShortener.errorhandling.GlobalExceptionHandler;
+import ch.hos6.openweb.urlShortener.service.UrlLookupBatcher;
+import ch.hos6.openweb.urlShortener.service.UrlService;
+import ch.hos6.openweb.urlShortener.validation.UrlValidator;
+import ch.hos6.openweb.urlShortener.validation.ValidationMode;
+import ch.hos6.openweb.urlShortener.writebehind.UrlWriteBehind;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.Filter;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Compares the cost of a cached redirect answered by the {@link RedirectFastLaneFilter}
+ * with the same redirect going through the Spring Security filter chain, the DispatcherServlet,
+ * the {@link LoggingAspect} and the {@link RedirectController}.
+ * <p>
+ * Both paths run in-process with MockMvc, on a web application context holding the servlet security configuration
+ * of the application and a {@link UrlService} whose cache and repository are in memory, so that the difference
+ * is the cost of the layers skipped by the fast lane. The in-process cache is warmed up by the setup.
+ * The debug logging of the application and its libraries is raised to WARN by the setup, so that the benchmark measures
+ * the layers rather than the console.
+ * </p>
+ *
+ * @author Toubia Oussama
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+// the full stack takes a few tens of seconds to be compiled
+@Warmup(time = 10)
+@Measurement(time = 1)
+public class RedirectBenchmark {
+    private static final String SHORT_URL = "abc123";
+    private static final String ORIGINAL_URL = "https://example.com/articles/42";
+
+    private AnnotationConfigWebApplicationContext context;
+    private MockMvc fastLane;
+    private MockMvc fullStack;
+
+    @Setup
+    public void setUp() throws Exception {
+        LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        for (String logger : new String[]{"ch", "org", "com", "ch.hos6.openweb.urlShortener"}) {
+            loggerContext.getLogger(logger).setLevel(Level.WARN);
+        }
+        context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.register(RedirectConfig.class);
+        context.refresh();
+
+        Filter securityFilterChain = context.getBean("springSecurityFilterChain", Filter.class);
+        CacheManager cacheManager = context.getBean(CacheManager.class);
+        RedirectFastLaneFilter fastLaneFilter = new RedirectFastLaneFilter(context.getBean(UrlService.class),
+                context.getBean(ClickTracker.class));
+        fastLane = MockMvcBuilders.webAppContextSetup(context).addFilters(fastLaneFilter, securityFilterChain).build();
+        fullStack = MockMvcBuilders.webAppContextSetup(context).addFilters(securityFilterChain).build();
+
+        cacheManager.getCache(CacheConfig.URL_CACHE_NAME).put(SHORT_URL, ORIGINAL_URL);
+        check(fastLane.perform(get("/" + SHORT_URL)).andReturn());
+        check(fullStack.perform(get("/" + SHORT_URL)).andReturn());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult fastLane() throws Exception {
+        return fastLane.perform(get("/" + SHORT_URL)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult fullStack() throws Exception {
+        return fullStack.perform(get("/" + SHORT_URL)).andReturn();
+    }
+
+    private static void check(MvcResult result) {
+        if (result.getResponse().getStatus() != 302 || !ORIGINAL_URL.equals(result.getResponse().getRedirectedUrl())) {
+            throw new IllegalStateException("Unexpected redirect: " + result.getResponse().getStatus()
+                    + " to " + result.getResponse().getRedirectedUrl());
+        }
+    }
+
+    /**
+     * The web layer of the application serving the redirects, with in-memory caches and repository.
+     */
+    @Configuration
+    @EnableWebMvc
+    @EnableCaching
+    @EnableAspectJAutoProxy
+    @PropertySource("classpath:application.properties")
+    @Import({RestSecurityConfig.class, LoggingAspect.class, GlobalExceptionHandler.class, RedirectController.class})
+    static class RedirectConfig {
+
+        @Bean
+        static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
+            return new PropertySourcesPlaceholderConfigurer();
+        }
+
+        @Bean
+        CacheInvalidationBus cacheInvalidationBus() {
+            return Mockito.mock(CacheInvalidationBus.class);
+        }
+
+        @Bean
+        UrlRepository urlRepository() {
+            return Mockito.mock(UrlRepository.class);
+        }
+
+        @Bean
+        CacheManager cacheManager(CacheInvalidationBus invalidationBus) {
+            return new TwoLevelCacheManager(new ConcurrentMapCacheManager(CacheConfig.URL_CACHE_NAME),
+                    Caffeine.newBuilder().maximumSize(10_000), invalidationBus, new SimpleMeterRegistry(),
+                    Duration.ofSeconds(2), RefreshAheadPolicy.disabled());
+        }
+
+        @Bean
+        ShortUrlFilter shortUrlFilter(UrlRepository urlRepository, CacheInvalidationBus invalidationBus) {
+            return new ShortUrlFilter(urlRepository, invalidationBus, true, 1000, 0.01, 30);
+        }
+
+        @Bean
+        ClickTracker clickTracker() {
+            return new ClickTracker(Mockito.mock(MongoTemplate.class), new SimpleMeterRegistry(), false, 16, 1000, 1000);
+        }
+
+        @Bean
+        UrlService urlService(UrlRepository urlRepository, CacheManager cacheManager, ShortUrlFilter shortUrlFilter) {
+            return new UrlService(urlRepository, cacheManager, shortUrlFilter, Mockito.mock(ShortCodeAllocator.class),
+                    Mockito.mock(UrlValidator.class), Mockito.mock(CachePreloader.class),
+                    new UrlLookupBatcher(urlRepository, Mockito.mock(CachePreloader.class), new SimpleMeterRegistry(), false, 200, 100, 4),
+                    Mockito.mock(UrlWriteBehind.class),
+                    ValidationMode.SYNC, 1000, 32, 500, 5, 1000);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ch.hos6.openweb.urlShortener.benchmark;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.sun.net.httpserver.HttpServer;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * In-process stand-ins of the servers the application depends on, for the {@link OpenLoadTest}:
+ * an in-memory MongoDB server behind the repositories, a Redis protocol server behind the caches and the invalidation bus,
+ * and an HTTP server answering 200 to every request, used as destination of the shortened URLs so that their validation
+ * does not leave the machine. Every server listens on a free port of the loopback interface.
+ *
+ * @author Toubia Oussama
+ */
+public class StandInServers implements AutoCloseable {
+    /**
+     * The secret of the short codes, only used by the load test.
+     */
+    private static final String SHORT_CODE_SECRET = "load-test-secret";
+
+    private final MongoServer mongoServer;
+    private final RedisServer redisServer;
+    private final HttpServer destinationServer;
+    private final String mongoConnectionString;
+
+    private StandInServers() throws IOException {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        mongoServer = new MongoServer(new MemoryBackend());
+        mongoConnectionString = mongoServer.bindAndGetConnectionString();
+        redisServer = RedisServer.newRedisServer(0, loopback).start();
+        destinationServer = HttpServer.create(new InetSocketAddress(loopback, 0), 0);
+        destinationServer.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        destinationServer.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        destinationServer.start();
+    }
+
+    /**
+     * Starts the stand-in servers.
+     *
+     * @return the started servers
+     * @throws IOException if a server cannot be started
+     */
+    public static StandInServers start() throws IOException {
+        return new StandInServers();
+    }
+
+    /**
+     * Returns the properties connecting the application to the stand-in servers,
+     * with the settings the application requires from its environment.
+     *
+     * @return the application properties
+     */
+    public Map<String, Object> applicationProperties() {
+        return Map.of(
+                "spring.data.mongodb.uri", mongoConnectionString + "/urlShortener",
+                "spring.data.redis.host", redisServer.getHost(),
+                "spring.data.redis.port", redisServer.getBindPort(),
+                "url.short-code.secret", SHORT_CODE_SECRET);
+    }
+
+    /**
+     * Returns the URL of the destination server.
+     *
+     * @return the URL answering 200 to every request
+     */
+    public String destination() {
+        InetSocketAddress address = destinationServer.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort() + "/";
+    }
+
+    @Override
+    public void close() throws IOException {
+        destinationServer.stop(0);
+        redisServer.stop();
+        mongoServer.shutdownNow();
+    }
+}
@@ -0,0 +1,63 @@
+package ch.hos6.openweb.urlShortener.benchmark;
+
+import ch.hos6.openweb.urlShortener.domain.dto.UrlDto;
+import ch.hos6.openweb.urlShortener.domain.entity.Url;
+import ch.hos6.openweb.urlShortener.domain.entity.ValidationStatus;
+import ch.hos6.openweb.urlShortener.mapper.UrlMapper;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the MapStruct mappings of the URLs to their DTOs returned by the API,
+ * one URL as for a creation and a page of URLs as for a listing.
+ *
+ * @author Toubia Oussama
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(time = 1)
+@Measurement(time = 1)
+public class UrlMapperBenchmark {
+
+    @Param({"50"})
+    private int pageSize;
+
+    private UrlMapper urlMapper;
+    private Url url;
+    private List<Url> page;
+
+    @Setup
+    public void setUp() {
+        urlMapper = Mappers.getMapper(UrlMapper.class);
+        page = new ArrayList<>(pageSize);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < pageSize; i++) {
+            Url pageUrl = new Url();
+            pageUrl.setId(Integer.toHexString(i));
+            pageUrl.setUserId("user");
+            pageUrl.setOriginalUrl("https://example.com/articles/" + i);
+            pageUrl.setShortenedUrl("abc" + i);
+            pageUrl.setCreationDate(now.minusMinutes(i));
+            pageUrl.setExpirationDate(now.plusDays(30));
+            pageUrl.setValidationStatus(ValidationStatus.VALID);
+            page.add(pageUrl);
+        }
+        url = page.get(0);
+    }
+
+    @Benchmark
+    public UrlDto urlToDto() {
+        return urlMapper.urlToDto(url);
+    }
+
+    @Benchmark
+    public Iterable<UrlDto> urlsToDtos() {
+        return urlMapper.urlsToDtos(page);
+    }
+}
@@ -0,0 +1,91 @@
+package ch.hos6.openweb.urlShortener.benchmark;
+
+import ch.hos6.openweb.urlShortener.utils.UrlUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the short URL encoding of {@link UrlUtils} with the previous BigInteger based implementation.
+ * <p>
+ * The setup checks that both implementations give the same short URL for every benchmarked URL,
+ * and the gc profiler ({@code -prof gc}) reports the bytes allocated per operation.
+ * </p>
+ *
+ * @author Toubia Oussama
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(time = 1)
+@Measurement(time = 1)
+public class UrlUtilsBenchmark {
+    private static final String BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final int URL_COUNT = 1024;
+
+    private final String[] urls = new String[URL_COUNT];
+    private final long[] values = new long[URL_COUNT];
+    private final String[] codes = new String[URL_COUNT];
+    private int index;
+
+    @Setup
+    public void setUp() throws NoSuchAlgorithmException {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < URL_COUNT; i++) {
+            urls[i] = "https://example.com/articles/" + random.nextLong(1_000_000_000L) + "?ref=" + random.nextInt(1000);
+            values[i] = random.nextLong(UrlUtils.base62Domain(6));
+            codes[i] = UrlUtils.toBase62(values[i], 6);
+            String legacy = legacyShortenUrl(urls[i]);
+            if (!legacy.equals(UrlUtils.shortenUrl(urls[i]))) {
+                throw new IllegalStateException("Different short URL for " + urls[i] + ": " + legacy + " / " + UrlUtils.shortenUrl(urls[i]));
+            }
+        }
+    }
+
+    @Benchmark
+    public String shortenUrlLegacy() throws NoSuchAlgorithmException {
+        return legacyShortenUrl(urls[next()]);
+    }
+
+    @Benchmark
+    public String shortenUrl() {
+        return UrlUtils.shortenUrl(urls[next()]);
+    }
+
+    @Benchmark
+    public String toBase62() {
+        return UrlUtils.toBase62(values[next()], 6);
+    }
+
+    @Benchmark
+    public long fromBase62() {
+        return UrlUtils.fromBase62(codes[next()]);
+    }
+
+    private int next() {
+        index = (index + 1) & (URL_COUNT - 1);
+        return index;
+    }
+
+    /**
+     * The implementation of {@link UrlUtils#shortenUrl(String)} before the rewrite:
+     * a new digest per call and the conversion of the whole hash through BigInteger.
+     */
+    private static String legacyShortenUrl(String originalUrl) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] hash = digest.digest(originalUrl.getBytes(StandardCharsets.UTF_8));
+        BigInteger value = new BigInteger(1, hash);
+        StringBuilder sb = new StringBuilder();
+        while (value.compareTo(BigInteger.ZERO) > 0) {
+            int index = value.mod(BigInteger.valueOf(62)).intValue();
+            sb.append(BASE62.charAt(index));
+            value = value.divide(BigInteger.valueOf(62));
+        }
+        return sb.toString().substring(0, 6);
+    }
+}
@@ -0,0 +1,47 @@
+package ch.hos6.openweb.urlShortener.allocator;
+
+import ch.hos6.openweb.urlShortener.domain.repository.UrlRepository;
+import ch.hos6.openweb.urlShortener.utils.UrlUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Legacy allocator deriving the short code from a hash of the original URL.
+ * It checks the repository for each candidate, and re-hashes with a random suffix until a free code is found.
+ * Enabled with {@code url.short-code.allocator=hash}.
+ *
+ * @author Toubia Oussama
+ */
+@Component
+@ConditionalOnProperty(name = "url.short-code.allocator", havingValue = "hash")
+public class HashShortCodeAllocator implements ShortCodeAllocator {
+    private final UrlRepository urlRepository;
+
+    /**
+     * Constructs a HashShortCodeAllocator with the provided UrlRepository.
+     *
+     * @param urlRepository the repository used to check the existence of the generated codes
+     */
+    public HashShortCodeAllocator(UrlRepository urlRepository) {
+        this.urlRepository = urlRepository;
+    }
+
+    /**
+     * Generates a unique short URL for the provided original URL.
+     * If a generated short URL already exists, it generates a new one until a unique short URL is found.
+     *
+     * @param originalUrl The original URL to be shortened.
+     * @return A unique short URL.
+     */
+    @Override
+    public String allocate(String originalUrl) {
+        String shortUrl = UrlUtils.shortenUrl(originalUrl);
+
+        // Keep generating new short URLs until we find one that doesn't exist yet
+        while (urlRepository.existsByShortenedUrl(shortUrl)) {
+            shortUrl = UrlUtils.shortenUrl(originalUrl + Math.random());
+        }
+
+        return shortUrl;
+    }
+}
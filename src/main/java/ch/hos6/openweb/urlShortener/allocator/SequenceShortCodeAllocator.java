@@ -0,0 +1,172 @@
+package ch.hos6.openweb.urlShortener.allocator;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Default allocator handing out codes from a sequence shared by all the nodes.
+ * <p>
+ * Each node leases blocks of consecutive sequence numbers from a counter document of the {@code counters} collection,
+ * incremented atomically with findAndModify. The numbers of the current block are then handed out without locking
+ * by an AtomicLong, so that allocating a code does not query MongoDB except once per block.
+ * The numbers are scrambled into base62 codes by a {@link ShortCodePermutation}, so that two nodes never produce
+ * the same code and consecutive codes are not guessable.
+ * </p>
+ * The numbers of a block left unused when a node stops are lost, which only leaves gaps in the sequence.
+ *
+ * @author Toubia Oussama
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "url.short-code.allocator", havingValue = "sequence", matchIfMissing = true)
+public class SequenceShortCodeAllocator implements ShortCodeAllocator {
+    /**
+     * The collection holding the counters.
+     */
+    public static final String COUNTERS_COLLECTION = "counters";
+
+    /**
+     * The id of the counter document of the short codes.
+     */
+    public static final String COUNTER_ID = "shortUrl";
+
+    private static final String SEQUENCE_FIELD = "sequence";
+
+    private final MongoTemplate mongoTemplate;
+    private final ShortCodePermutation permutation;
+    private final long blockSize;
+    private final AtomicReference<Block> block = new AtomicReference<>(new Block(0, 0));
+    /**
+     * Serializes the leases. A lock rather than synchronized, so that virtual threads waiting for the lease
+     * of a block unmount instead of pinning their carrier while the lease queries MongoDB.
+     */
+    private final ReentrantLock leaseLock = new ReentrantLock();
+
+    /**
+     * Constructs a SequenceShortCodeAllocator.
+     *
+     * @param mongoTemplate the template used to lease blocks from the counter
+     * @param secret        the secret of the permutation of the sequence numbers, required
+     * @param minLength     the length of the first codes, longer codes are used once they are exhausted
+     * @param blockSize     the number of sequence numbers leased at once
+     */
+    public SequenceShortCodeAllocator(MongoTemplate mongoTemplate,
+                                      @Value("${url.short-code.secret}") String secret,
+                                      @Value("${url.short-code.length:6}") int minLength,
+                                      @Value("${url.short-code.block-size:1000}") long blockSize) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalArgumentException("Missing short code secret: set URL_SHORT_CODE_SECRET");
+        }
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Invalid short code block size: " + blockSize);
+        }
+        this.mongoTemplate = mongoTemplate;
+        this.permutation = new ShortCodePermutation(secret, minLength);
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Allocates the code of the next sequence number of the current block, leasing a new block if it is exhausted.
+     *
+     * @param originalUrl the URL being shortened, unused
+     * @return the allocated code
+     */
+    @Override
+    public String allocate(String originalUrl) {
+        return permutation.encode(nextSequence());
+    }
+
+    /**
+     * Allocates the codes of a batch. A batch at least as large as a block leases its own block
+     * of exactly the size of the batch with a single findAndModify, leaving the current block untouched.
+     * Smaller batches are served from the current block.
+     *
+     * @param originalUrls the URLs being shortened, only their number is used
+     * @return the allocated codes
+     */
+    @Override
+    public List<String> allocateAll(List<String> originalUrls) {
+        int count = originalUrls.size();
+        if (count < blockSize) {
+            return ShortCodeAllocator.super.allocateAll(originalUrls);
+        }
+        Block batchBlock = leaseBlock(count);
+        List<String> codes = new ArrayList<>(count);
+        for (long sequence = batchBlock.next.get(); sequence < batchBlock.end; sequence++) {
+            codes.add(permutation.encode(sequence));
+        }
+        return codes;
+    }
+
+    /**
+     * Returns the next sequence number of the current block, leasing a new block if it is exhausted.
+     *
+     * @return a sequence number never returned before by any node
+     */
+    private long nextSequence() {
+        while (true) {
+            Block current = block.get();
+            long sequence = current.next.getAndIncrement();
+            if (sequence < current.end) {
+                return sequence;
+            }
+            leaseLock.lock();
+            try {
+                // another thread may have leased a block while this one was waiting
+                if (block.get() == current) {
+                    block.set(leaseBlock(blockSize));
+                }
+            } finally {
+                leaseLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Leases the next block of sequence numbers by atomically incrementing the counter by the size of the block.
+     *
+     * @param size the number of sequence numbers of the block
+     * @return the leased block
+     */
+    private Block leaseBlock(long size) {
+        Document counter = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(COUNTER_ID)),
+                new Update().inc(SEQUENCE_FIELD, size),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Document.class,
+                COUNTERS_COLLECTION);
+        if (counter == null) {
+            throw new IllegalStateException("Unable to lease short codes from counter " + COUNTER_ID);
+        }
+        long end = counter.get(SEQUENCE_FIELD, Number.class).longValue();
+        log.info("Leased short code sequence numbers [{}, {})", end - size, end);
+        return new Block(end - size, end);
+    }
+
+    /**
+     * A block of sequence numbers leased by this node.
+     */
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package ch.hos6.openweb.urlShortener.allocator;
+
+import java.util.List;
+
+/**
+ * Allocates the short code of a new shortened URL.
+ * <p>
+ * The implementation is selected with the {@code url.short-code.allocator} property.
+ * The unique index on the short URL remains the final guarantee of uniqueness:
+ * a code already taken is detected when saving, and another code is allocated.
+ * </p>
+ *
+ * @author Toubia Oussama
+ */
+public interface ShortCodeAllocator {
+
+    /**
+     * Allocates a short code for the given original URL.
+     *
+     * @param originalUrl the URL being shortened
+     * @return a short code that should not be used yet
+     */
+    String allocate(String originalUrl);
+
+    /**
+     * Allocates the short codes of a batch of new shortened URLs.
+     * By default, the codes are allocated one by one.
+     *
+     * @param originalUrls the URLs being shortened
+     * @return the short codes, in the order of the URLs
+     */
+    default List<String> allocateAll(List<String> originalUrls) {
+        return originalUrls.stream().map(this::allocate).toList();
+    }
+}
@@ -0,0 +1,115 @@
+package ch.hos6.openweb.urlShortener.allocator;
+
+import ch.hos6.openweb.urlShortener.utils.UrlUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Keyed bijection from sequence numbers to fixed-length base62 codes.
+ * <p>
+ * Sequence numbers fill the codes of the minimum length first, then the codes one character longer, and so on.
+ * Within a length, the number is scrambled by a four rounds Feistel network over the smallest even power of two
+ * covering the 62^length codes, walking the cycle until the result falls back into range.
+ * Each sequence number therefore maps to exactly one code, and consecutive numbers give unrelated codes
+ * that cannot be guessed without the secret.
+ * </p>
+ *
+ * @author Toubia Oussama
+ */
+public class ShortCodePermutation {
+    /**
+     * The longest code supported, as 62^11 does not fit in a long.
+     */
+    public static final int MAX_LENGTH = 10;
+
+    private static final int ROUNDS = 4;
+
+    private final int minLength;
+    private final long[] roundKeys = new long[ROUNDS];
+
+    /**
+     * Constructs a ShortCodePermutation.
+     *
+     * @param secret    the secret the permutation is derived from
+     * @param minLength the length of the first codes
+     */
+    public ShortCodePermutation(String secret, int minLength) {
+        if (minLength < 1 || minLength > MAX_LENGTH) {
+            throw new IllegalArgumentException("Invalid short code length: " + minLength);
+        }
+        this.minLength = minLength;
+        try {
+            ByteBuffer digest = ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8)));
+            for (int i = 0; i < ROUNDS; i++) {
+                roundKeys[i] = digest.getLong();
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not found", e);
+        }
+    }
+
+    /**
+     * Returns the code of a sequence number.
+     *
+     * @param sequence the sequence number, zero or positive
+     * @return the base62 code of the sequence number
+     */
+    public String encode(long sequence) {
+        if (sequence < 0) {
+            throw new IllegalArgumentException("Negative sequence: " + sequence);
+        }
+        int length = minLength;
+        long domain = UrlUtils.base62Domain(length);
+        while (sequence >= domain) {
+            sequence -= domain;
+            if (++length > MAX_LENGTH) {
+                throw new IllegalStateException("Short code space exhausted");
+            }
+            domain = UrlUtils.base62Domain(length);
+        }
+        return UrlUtils.toBase62(permute(sequence, domain), length);
+    }
+
+    /**
+     * Scrambles a value within [0, domain) by cycle walking a Feistel network.
+     *
+     * @param value  the value to scramble
+     * @param domain the size of the domain
+     * @return the scrambled value, within [0, domain)
+     */
+    private long permute(long value, long domain) {
+        int halfBits = (Long.SIZE - Long.numberOfLeadingZeros(domain - 1) + 1) / 2;
+        long mask = (1L << halfBits) - 1;
+        do {
+            long left = value >>> halfBits;
+            long right = value & mask;
+            for (long key : roundKeys) {
+                long next = left ^ (round(right, key) & mask);
+                left = right;
+                right = next;
+            }
+            value = (left << halfBits) | right;
+        } while (value >= domain);
+        return value;
+    }
+
+    /**
+     * The round function of the Feistel network (a murmur3 finalizer of the half block mixed with the round key).
+     *
+     * @param half the half block
+     * @param key  the round key
+     * @return the pseudo random output
+     */
+    private static long round(long half, long key) {
+        long h = half ^ key;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
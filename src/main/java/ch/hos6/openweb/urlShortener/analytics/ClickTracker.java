@@ -0,0 +1,235 @@
+package ch.hos6.openweb.urlShortener.analytics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.jctools.queues.MpscArrayQueue;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records the clicks of the redirects, and counts them per short URL in the {@code clicks} collection.
+ * <p>
+ * Redirect threads only offer the short URL to a bounded lock-free multi-producer single-consumer ring buffer,
+ * which never blocks: when it is full, the click is dropped and counted in the {@code url.clicks.dropped} metric.
+ * A background drainer thread aggregates the buffered clicks per short URL, and writes them as a single unordered bulk
+ * of {@code $inc} upserts once {@code url.clicks.batch-size} clicks are pending or {@code url.clicks.flush-interval}
+ * milliseconds have elapsed since the last flush. Counts that fail to be written are kept and retried at the next interval.
+ * </p>
+ * The click count of a short URL is stored in the {@code count} field of the document whose id is the short URL,
+ * along with the time of its last click.
+ *
+ * @author Toubia Oussama
+ */
+@Slf4j
+@Component
+public class ClickTracker implements InitializingBean, DisposableBean {
+    /**
+     * The collection holding the click counts.
+     */
+    public static final String CLICKS_COLLECTION = "clicks";
+
+    private static final String COUNT_FIELD = "count";
+    private static final String LAST_CLICK_FIELD = "lastClickDate";
+    private static final long IDLE_PARK_NANOS = Duration.ofMillis(10).toNanos();
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final MpscArrayQueue<String> buffer;
+    private final LongAdder dropped = new LongAdder();
+    private final Map<String, long[]> pending = new HashMap<>();
+    private final Counter flushedClicks;
+    private final Timer flushTimer;
+
+    private long pendingClicks;
+    private long lastFlush = System.nanoTime();
+    private long lastDropReport = lastFlush;
+    private boolean failing;
+    private long reportedDrops;
+    private volatile boolean running;
+    private Thread drainer;
+
+    /**
+     * Constructs a ClickTracker.
+     *
+     * @param mongoTemplate the template used to write the click counts
+     * @param meterRegistry the registry of the click tracking metrics
+     * @param enabled       whether clicks are recorded at all
+     * @param bufferSize    the number of clicks buffered before dropping, rounded up to a power of two
+     * @param batchSize     the number of pending clicks triggering a flush
+     * @param flushInterval the maximum time in milliseconds a click stays pending
+     */
+    public ClickTracker(MongoTemplate mongoTemplate, MeterRegistry meterRegistry,
+                        @Value("${url.clicks.enabled:true}") boolean enabled,
+                        @Value("${url.clicks.buffer-size:65536}") int bufferSize,
+                        @Value("${url.clicks.batch-size:1000}") int batchSize,
+                        @Value("${url.clicks.flush-interval:1000}") long flushInterval) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = Duration.ofMillis(flushInterval).toNanos();
+        this.buffer = new MpscArrayQueue<>(bufferSize);
+        Gauge.builder("url.clicks.buffered", buffer, MpscArrayQueue::size)
+                .description("Clicks waiting in the buffer")
+                .register(meterRegistry);
+        FunctionCounter.builder("url.clicks.dropped", dropped, LongAdder::sum)
+                .description("Clicks dropped because the buffer was full")
+                .register(meterRegistry);
+        this.flushedClicks = Counter.builder("url.clicks.flushed")
+                .description("Clicks written to the clicks collection")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("url.clicks.flush")
+                .description("Bulk writes of the click counts")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records a click of a short URL without blocking, or drops it if the buffer is full.
+     *
+     * @param shortUrl the clicked short URL
+     */
+    public void record(String shortUrl) {
+        if (enabled && !buffer.offer(shortUrl)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Writes all the buffered and pending clicks right away.
+     *
+     * @return true if there was nothing to write or the write succeeded
+     */
+    public synchronized boolean flush() {
+        buffer.drain(this::aggregate);
+        return flushPending();
+    }
+
+    /**
+     * Returns the number of clicks dropped since the start because the buffer was full.
+     *
+     * @return the number of dropped clicks
+     */
+    public long getDroppedClicks() {
+        return dropped.sum();
+    }
+
+    /**
+     * Starts the drainer thread.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        drainer = new Thread(this::drainLoop, "click-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Stops the drainer thread and writes the remaining clicks.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        if (drainer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(drainer);
+        drainer.join(Duration.ofSeconds(10).toMillis());
+        flush();
+    }
+
+    private void drainLoop() {
+        while (running) {
+            try {
+                if (drainOnce() == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            } catch (RuntimeException e) {
+                log.error("Unable to drain the clicks. Ex = {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Drains the buffer and flushes the pending clicks if a threshold is reached.
+     * After a failed flush, only the time threshold applies, so that a failing database is not retried in a loop.
+     * Dropped clicks are reported at most once per flush interval.
+     *
+     * @return the number of clicks drained from the buffer
+     */
+    private synchronized int drainOnce() {
+        int drained = buffer.drain(this::aggregate, batchSize);
+        long now = System.nanoTime();
+        if ((pendingClicks >= batchSize && !failing) || now - lastFlush >= flushIntervalNanos) {
+            failing = !flushPending();
+            lastFlush = now;
+        }
+        if (now - lastDropReport >= flushIntervalNanos) {
+            reportDrops();
+            lastDropReport = now;
+        }
+        return drained;
+    }
+
+    private void aggregate(String shortUrl) {
+        pending.computeIfAbsent(shortUrl, key -> new long[1])[0]++;
+        pendingClicks++;
+    }
+
+    /**
+     * Writes the pending counts as one bulk of upserts, and forgets them if the write succeeded.
+     *
+     * @return true if there was nothing to write or the write succeeded
+     */
+    private boolean flushPending() {
+        if (pending.isEmpty()) {
+            return true;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CLICKS_COLLECTION);
+        pending.forEach((shortUrl, count) -> bulk.upsert(
+                Query.query(Criteria.where("_id").is(shortUrl)),
+                new Update().inc(COUNT_FIELD, count[0]).max(LAST_CLICK_FIELD, now)));
+        try {
+            flushTimer.record(bulk::execute);
+        } catch (RuntimeException e) {
+            log.error("Unable to write {} clicks of {} short URLs, retrying later. Ex = {}",
+                    pendingClicks, pending.size(), e.getMessage());
+            return false;
+        }
+        flushedClicks.increment(pendingClicks);
+        pending.clear();
+        pendingClicks = 0;
+        return true;
+    }
+
+    private void reportDrops() {
+        long drops = dropped.sum();
+        if (drops > reportedDrops) {
+            log.warn("{} clicks dropped because the click buffer was full", drops - reportedDrops);
+            reportedDrops = drops;
+        }
+    }
+}
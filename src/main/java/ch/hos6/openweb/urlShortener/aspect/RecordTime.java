@@ -5,7 +5,20 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * Records the execution time of a method, or of every public method of a class, in a Micrometer timer.
+ * The timer is tagged with the class, the method, the outcome and the exception type, see {@link RecordTimeAspect}.
+ *
+ * @author Toubia Oussama
+ */
 @Retention(RetentionPolicy.RUNTIME)
-@Target(ElementType.METHOD)
+@Target({ElementType.METHOD, ElementType.TYPE})
 public @interface RecordTime {
+
+    /**
+     * The name of the timer. Timers named {@code url.*} share the distribution settings of the {@code url} prefix.
+     *
+     * @return the name of the timer
+     */
+    String value() default "url.method";
 }
@@ -1,18 +1,26 @@
 package ch.hos6.openweb.urlShortener.aspect;
 
+import ch.hos6.openweb.urlShortener.monitoring.OutcomeTimers;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
-import ch.hos6.openweb.urlShortener.aspect.RecordTime;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Aspect class for recording the execution time of methods.
  * <p>
- * This class uses Spring AOP to create an aspect that records the execution time
- * of every method it's applied to. The execution time is logged as an info message.
+ * This class uses Spring AOP to time the methods annotated with {@link RecordTime}, the public methods of the classes
+ * annotated with it, and every call to the URL repository. The durations are measured with {@link System#nanoTime()}
+ * and recorded in Micrometer timers, exposed through the actuator metrics endpoint, and tagged with
+ * {@code class}, {@code method}, {@code outcome} ({@code success} or {@code error}) and {@code exception}.
+ * The timers of a method are resolved on its first call and kept by method, so that the recording does not allocate.
  * </p>
  *
  *  @author Toubia Oussama
@@ -20,32 +28,95 @@ import ch.hos6.openweb.urlShortener.aspect.RecordTime;
 @Aspect
 @Component
 public class RecordTimeAspect {
-    private final Logger log = LoggerFactory.getLogger(this.getClass());
+    /**
+     * The name of the timer of the URL repository calls.
+     */
+    public static final String REPOSITORY_TIMER = "url.repository";
+    private static final String REPOSITORY_CLASS = "UrlRepository";
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<Method, OutcomeTimers> timers = new ConcurrentHashMap<>();
 
     /**
-     * Records the execution time of a method.
-     * <p>
-     * This method is executed before and after the method it's applied to.
-     * It records the time before the method is called, and again after it returns,
-     * and then logs the difference as the execution time.
-     * </p>
+     * Constructs a RecordTimeAspect.
      *
-     * @param joinPoint The join point of the method execution.
+     * @param meterRegistry the registry of the timers
+     */
+    public RecordTimeAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Records the execution time of a method annotated with {@link RecordTime}.
+     *
+     * @param joinPoint  The join point of the method execution.
      * @param recordTime The annotation that was used to apply this aspect.
      * @return The result of the method execution.
      * @throws Throwable if an error occurs during the method execution.
      */
     @Around("@annotation(recordTime)")
-    public Object recordTime(ProceedingJoinPoint joinPoint, RecordTime recordTime)
-            throws Throwable {
-        long start = System.currentTimeMillis();
+    public Object recordTime(ProceedingJoinPoint joinPoint, RecordTime recordTime) throws Throwable {
+        return record(joinPoint, recordTime.value(), null);
+    }
+
+    /**
+     * Records the execution time of a public method of a class annotated with {@link RecordTime}.
+     *
+     * @param joinPoint  The join point of the method execution.
+     * @param recordTime The annotation of the class.
+     * @return The result of the method execution.
+     * @throws Throwable if an error occurs during the method execution.
+     */
+    @Around("@within(recordTime) && !@annotation(ch.hos6.openweb.urlShortener.aspect.RecordTime)")
+    public Object recordClassTime(ProceedingJoinPoint joinPoint, RecordTime recordTime) throws Throwable {
+        return record(joinPoint, recordTime.value(), null);
+    }
+
+    /**
+     * Records the execution time of a call to the URL repository, including the methods inherited
+     * from the Spring Data interfaces.
+     *
+     * @param joinPoint The join point of the method execution.
+     * @return The result of the method execution.
+     * @throws Throwable if an error occurs during the method execution.
+     */
+    @Around("this(ch.hos6.openweb.urlShortener.domain.repository.UrlRepository)")
+    public Object recordRepositoryTime(ProceedingJoinPoint joinPoint) throws Throwable {
+        return record(joinPoint, REPOSITORY_TIMER, REPOSITORY_CLASS);
+    }
+
+    private Object record(ProceedingJoinPoint joinPoint, String name, String className) throws Throwable {
+        OutcomeTimers methodTimers = timersOf(joinPoint, name, className);
+        long start = System.nanoTime();
+        Object result;
         try {
-            return joinPoint.proceed(joinPoint.getArgs());
-        } finally {
-            long end = System.currentTimeMillis();
-            long time = end - start;
-            //log time
-            log.info("{} taking {} ms", joinPoint.toShortString(),time);
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            methodTimers.recordError(e, start);
+            throw e;
+        }
+        methodTimers.record(OutcomeTimers.SUCCESS, start);
+        return result;
+    }
+
+    /**
+     * Returns the timers of the method of a join point, registering them on its first call.
+     *
+     * @param joinPoint the join point of the method execution
+     * @param name      the name of the timers
+     * @param className the class tag of the timers, or null for the class declaring the method
+     * @return the timers of the method
+     */
+    private OutcomeTimers timersOf(ProceedingJoinPoint joinPoint, String name, String className) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        OutcomeTimers methodTimers = timers.get(method);
+        if (methodTimers == null) {
+            methodTimers = timers.computeIfAbsent(method, key -> new OutcomeTimers(meterRegistry, name,
+                    "Execution time of the " + name + " methods",
+                    Tags.of("class", className != null ? className : key.getDeclaringClass().getSimpleName(),
+                            "method", key.getName()),
+                    OutcomeTimers.SUCCESS));
         }
+        return methodTimers;
     }
 }
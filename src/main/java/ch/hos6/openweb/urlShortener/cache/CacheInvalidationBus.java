@@ -0,0 +1,169 @@
+package ch.hos6.openweb.urlShortener.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts invalidation messages between application nodes using Redis pub/sub.
+ * <p>
+ * Every node publishes on a single channel. A message carries the id of the node that sent it,
+ * a topic (for example a cache name) and a key. Messages sent by this node are ignored on reception,
+ * so that a node never invalidates the value it has just written itself.
+ * </p>
+ * Pub/sub is fire-and-forget: a node that is disconnected while a message is sent will miss it.
+ * Local state invalidated through this bus must therefore also expire on its own.
+ * <p>
+ * The subscription is started in the background and retried while Redis is unreachable,
+ * so that the application starts even when Redis is down, as it did before the bus existed.
+ * </p>
+ *
+ * @author Toubia Oussama
+ */
+@Slf4j
+@Component
+public class CacheInvalidationBus implements MessageListener, DisposableBean {
+
+    /**
+     * The Redis channel used to broadcast invalidations.
+     */
+    public static final String CHANNEL = "urlShortener:cache-invalidation";
+
+    private static final char SEPARATOR = '|';
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer container;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, Consumer<String>> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a CacheInvalidationBus with the provided StringRedisTemplate and RedisConnectionFactory.
+     *
+     * @param redisTemplate          the template used to publish messages
+     * @param redisConnectionFactory the factory of the connection used to receive messages
+     */
+    public CacheInvalidationBus(StringRedisTemplate redisTemplate, RedisConnectionFactory redisConnectionFactory) {
+        this.redisTemplate = redisTemplate;
+        this.container = new RedisMessageListenerContainer();
+        this.container.setConnectionFactory(redisConnectionFactory);
+        this.container.addMessageListener(this, new ChannelTopic(CHANNEL));
+        this.container.afterPropertiesSet();
+    }
+
+    /**
+     * Subscribes to the invalidation channel if not subscribed yet.
+     * It runs at startup then periodically, until Redis can be reached.
+     * Once subscribed, the Redis client resubscribes by itself after a reconnection.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${cache.invalidation.retry-interval:10}", timeUnit = TimeUnit.SECONDS)
+    public void listen() {
+        if (container.isListening()) {
+            return;
+        }
+        try {
+            // a failed start leaves the container marked as started
+            container.stop();
+            container.start();
+            log.info("Listening to cache invalidations on {}", CHANNEL);
+        } catch (RuntimeException e) {
+            log.error("Unable to listen to cache invalidations. Ex = {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Stops listening when the application shuts down.
+     */
+    @Override
+    public void destroy() throws Exception {
+        container.destroy();
+    }
+
+    /**
+     * Registers the listener notified when another node publishes on the given topic.
+     *
+     * @param topic    the topic to listen to
+     * @param listener the listener receiving the invalidated key
+     */
+    public void subscribe(String topic, Consumer<String> listener) {
+        listeners.put(topic, listener);
+    }
+
+    /**
+     * Publishes an invalidation of the given key to all the other nodes.
+     * Errors are only logged: a failed broadcast must never fail the operation that triggered it.
+     *
+     * @param topic the topic of the invalidation
+     * @param key   the invalidated key
+     */
+    public void publish(String topic, String key) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, nodeId + SEPARATOR + topic + SEPARATOR + key);
+        } catch (RuntimeException e) {
+            log.error("Unable to broadcast invalidation of {} on topic {}. Ex = {}", key, topic, e.getMessage());
+        }
+    }
+
+    /**
+     * Publishes the invalidations of the given keys to all the other nodes, pipelined in a single round trip.
+     * Errors are only logged, as for {@link #publish(String, String)}.
+     *
+     * @param topic the topic of the invalidations
+     * @param keys  the invalidated keys
+     */
+    public void publishAll(String topic, Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        byte[] channel = CHANNEL.getBytes(StandardCharsets.UTF_8);
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String key : keys) {
+                    connection.publish(channel, (nodeId + SEPARATOR + topic + SEPARATOR + key).getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.error("Unable to broadcast invalidation of {} keys on topic {}. Ex = {}", keys.size(), topic, e.getMessage());
+        }
+    }
+
+    /**
+     * Dispatches a message received from Redis to the listener of its topic.
+     *
+     * @param message the message received
+     * @param pattern the pattern matching the channel, unused
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int nodeEnd = body.indexOf(SEPARATOR);
+        int topicEnd = body.indexOf(SEPARATOR, nodeEnd + 1);
+        if (nodeEnd < 0 || topicEnd < 0) {
+            log.error("Malformed invalidation message {}", body);
+            return;
+        }
+        if (body.regionMatches(0, nodeId, 0, nodeEnd) && nodeEnd == nodeId.length()) {
+            return;
+        }
+        Consumer<String> listener = listeners.get(body.substring(nodeEnd + 1, topicEnd));
+        if (listener != null) {
+            listener.accept(body.substring(topicEnd + 1));
+        }
+    }
+}
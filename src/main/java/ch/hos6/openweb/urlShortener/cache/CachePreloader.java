@@ -0,0 +1,85 @@
+package ch.hos6.openweb.urlShortener.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.util.ByteUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Writes many new entries of a cache at once, for example the URLs of a batch right after their creation.
+ * <p>
+ * The entries are written to the Redis level in a single pipelined round trip of {@code SET EX} commands,
+ * with the key prefix, serializers and time to live of the {@link RedisCacheConfiguration},
+ * so that they are read back by the cache as if they had been put one by one.
+ * Once written there, they are also put in the in-process level of this node, with their expiry as if they had been
+ * put one by one, so that a {@link TwoLevelCache} loading them meanwhile does not write them to Redis again.
+ * No invalidation is broadcast:
+ * the keys are new, so no node can hold a stale value for them.
+ * </p>
+ * Errors are only logged: the entries are then left out of both levels, and written by the cache
+ * or loaded from the repository on their first read instead.
+ *
+ * @author Toubia Oussama
+ */
+@Slf4j
+@Component
+public class CachePreloader {
+    private final RedisConnectionFactory connectionFactory;
+    private final RedisCacheConfiguration cacheConfiguration;
+    private final CacheManager cacheManager;
+
+    /**
+     * Constructs a CachePreloader.
+     *
+     * @param connectionFactory  the factory of the connection the entries are written with
+     * @param cacheConfiguration the configuration of the Redis caches
+     * @param cacheManager       the manager of the caches whose in-process level is filled
+     */
+    public CachePreloader(RedisConnectionFactory connectionFactory, RedisCacheConfiguration cacheConfiguration,
+                          CacheManager cacheManager) {
+        this.connectionFactory = connectionFactory;
+        this.cacheConfiguration = cacheConfiguration;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Writes the entries to both levels of the given cache.
+     *
+     * @param cacheName the name of the cache
+     * @param entries   the entries to write, none of them null
+     * @return whether the entries were written, false if the Redis level failed and nothing was written
+     */
+    public boolean preload(String cacheName, Map<String, ?> entries) {
+        if (entries.isEmpty()) {
+            return true;
+        }
+        String prefix = cacheConfiguration.getKeyPrefixFor(cacheName);
+        Expiration expiration = Expiration.from(cacheConfiguration.getTtl());
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            try {
+                entries.forEach((key, value) -> connection.stringCommands().set(
+                        ByteUtils.getBytes(cacheConfiguration.getKeySerializationPair().write(prefix + key)),
+                        ByteUtils.getBytes(cacheConfiguration.getValueSerializationPair().write(value)),
+                        expiration,
+                        RedisStringCommands.SetOption.upsert()));
+            } finally {
+                connection.closePipeline();
+            }
+        } catch (RuntimeException e) {
+            log.error("Unable to preload {} entries of cache {}. Ex = {}", entries.size(), cacheName, e.getMessage());
+            return false;
+        }
+        if (cacheManager.getCache(cacheName) instanceof TwoLevelCache twoLevelCache) {
+            entries.forEach(twoLevelCache::putLocal);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,32 @@
+package ch.hos6.openweb.urlShortener.cache;
+
+import org.springframework.cache.Cache;
+
+/**
+ * A cached value along with the time its remote entry expires, used to refresh the entry before it expires.
+ * <p>
+ * It is read from Redis by the {@link UrlCacheCodec} and kept as is in the local level of the {@link TwoLevelCache},
+ * which hands it out as the {@link Cache.ValueWrapper} of the value.
+ * </p>
+ *
+ * @param value     the cached value
+ * @param expiresAt the time the remote entry expires, in milliseconds since the epoch
+ * @author Toubia Oussama
+ */
+public record ExpiringValue(Object value, long expiresAt) implements Cache.ValueWrapper {
+
+    @Override
+    public Object get() {
+        return value;
+    }
+
+    /**
+     * Returns the value of a cached object, which is either an ExpiringValue or the value itself.
+     *
+     * @param cached the cached object
+     * @return the cached value
+     */
+    public static Object unwrap(Object cached) {
+        return cached instanceof ExpiringValue expiringValue ? expiringValue.value() : cached;
+    }
+}
@@ -0,0 +1,101 @@
+package ch.hos6.openweb.urlShortener.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides when the cached entries are reloaded ahead of their expiry, so that hot keys never take a synchronous miss.
+ * <p>
+ * A hit is refreshed in the background when its remote entry expires within the refresh window,
+ * or earlier at random following the probabilistic early expiration of XFetch: the entry is refreshed when
+ * {@code now - delta * beta * ln(random)} passes its expiry, where {@code delta} is the time the last refresh took.
+ * The closer to its expiry and the slower to reload, the likelier an entry is refreshed by a hit,
+ * which spreads the refreshes of the entries written together and of the nodes reading the same entry.
+ * A beta of 0 leaves only the window, and a beta above 1 favors earlier refreshes.
+ * </p>
+ *
+ * @author Toubia Oussama
+ */
+public class RefreshAheadPolicy {
+    private static final RefreshAheadPolicy DISABLED = new RefreshAheadPolicy(false, Duration.ZERO, Duration.ZERO, 0,
+            Clock.systemUTC(), Runnable::run);
+
+    private final boolean enabled;
+    private final long timeToLiveMillis;
+    private final long windowMillis;
+    private final double beta;
+    private final Clock clock;
+    private final Executor executor;
+
+    /**
+     * Constructs a RefreshAheadPolicy.
+     *
+     * @param timeToLive the time to live of the remote entries
+     * @param window     the time before the expiry of an entry from which every hit refreshes it
+     * @param beta       the XFetch factor of the early refreshes, 0 to refresh within the window only
+     * @param clock      the clock the expiry is compared to
+     * @param executor   the executor of the refreshes
+     */
+    public RefreshAheadPolicy(Duration timeToLive, Duration window, double beta, Clock clock, Executor executor) {
+        this(true, timeToLive, window, beta, clock, executor);
+    }
+
+    private RefreshAheadPolicy(boolean enabled, Duration timeToLive, Duration window, double beta, Clock clock,
+                               Executor executor) {
+        this.enabled = enabled;
+        this.timeToLiveMillis = timeToLive.toMillis();
+        this.windowMillis = window.toMillis();
+        this.beta = beta;
+        this.clock = clock;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the policy never refreshing an entry.
+     *
+     * @return the disabled policy
+     */
+    public static RefreshAheadPolicy disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Returns the object cached in the local level for a value just written to the remote level:
+     * the value with its expiry when the policy is enabled, the value itself otherwise.
+     *
+     * @param value the value
+     * @return the object to cache locally
+     */
+    Object expiring(Object value) {
+        return enabled && value != null ? new ExpiringValue(value, clock.millis() + timeToLiveMillis) : value;
+    }
+
+    /**
+     * Tells whether a hit refreshes its entry.
+     *
+     * @param value         the hit
+     * @param refreshMillis the time the last refresh took, in milliseconds
+     * @return true if the entry should be refreshed
+     */
+    boolean shouldRefresh(ExpiringValue value, long refreshMillis) {
+        if (!enabled) {
+            return false;
+        }
+        long remaining = value.expiresAt() - clock.millis();
+        if (remaining <= windowMillis) {
+            return true;
+        }
+        return beta > 0 && -refreshMillis * beta * Math.log(1 - ThreadLocalRandom.current().nextDouble()) >= remaining;
+    }
+
+    /**
+     * Returns the executor of the refreshes.
+     *
+     * @return the executor
+     */
+    Executor executor() {
+        return executor;
+    }
+}
@@ -0,0 +1,157 @@
+package ch.hos6.openweb.urlShortener.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe scalable Bloom filter of strings.
+ * <p>
+ * The filter is made of slices. When the current slice reaches its capacity, a new slice twice as large
+ * and with a tighter false positive rate is added, so that the overall false positive rate stays bounded
+ * however many values are inserted. A value is reported as possibly present if any slice may contain it.
+ * </p>
+ * Bits are set with atomic operations, so lookups and insertions never lock.
+ *
+ * @author Toubia Oussama
+ */
+public class ScalableBloomFilter {
+    private static final int GROWTH_FACTOR = 2;
+    private static final double TIGHTENING_RATIO = 0.5;
+
+    private final List<Slice> slices = new CopyOnWriteArrayList<>();
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * Constructs a ScalableBloomFilter.
+     *
+     * @param initialCapacity   the number of values the first slice holds
+     * @param falsePositiveRate the target false positive rate of the whole filter
+     */
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        if (initialCapacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid bloom filter sizing: " + initialCapacity + ", " + falsePositiveRate);
+        }
+        // the rates of the slices form a geometric series summing up to the target rate
+        slices.add(new Slice(initialCapacity, falsePositiveRate * (1 - TIGHTENING_RATIO)));
+    }
+
+    /**
+     * Checks whether the value may have been inserted.
+     *
+     * @param value the value to check
+     * @return false if the value was definitely never inserted, true if it may have been
+     */
+    public boolean mightContain(String value) {
+        long h1 = hash(value, 0x9E3779B97F4A7C15L);
+        long h2 = hash(value, 0xC2B2AE3D27D4EB4FL);
+        for (Slice slice : slices) {
+            if (slice.mightContain(h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Inserts a value, adding a new slice first if the current one is full.
+     *
+     * @param value the value to insert
+     */
+    public void put(String value) {
+        long h1 = hash(value, 0x9E3779B97F4A7C15L);
+        long h2 = hash(value, 0xC2B2AE3D27D4EB4FL);
+        currentSlice().put(h1, h2);
+        size.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of insertions made in this filter.
+     *
+     * @return the number of insertions
+     */
+    public long size() {
+        return size.get();
+    }
+
+    /**
+     * Returns the slice accepting insertions, growing the filter if the last slice is full.
+     *
+     * @return the current slice
+     */
+    private Slice currentSlice() {
+        Slice last = slices.get(slices.size() - 1);
+        if (last.count.get() < last.capacity) {
+            return last;
+        }
+        synchronized (slices) {
+            last = slices.get(slices.size() - 1);
+            if (last.count.get() >= last.capacity) {
+                last = new Slice(last.capacity * GROWTH_FACTOR, last.falsePositiveRate * TIGHTENING_RATIO);
+                slices.add(last);
+            }
+            return last;
+        }
+    }
+
+    /**
+     * Hashes a string into 64 bits with the given seed (FNV-1a over the chars followed by a murmur3 finalizer).
+     *
+     * @param value the value to hash
+     * @param seed  the seed of the hash
+     * @return the 64 bits hash
+     */
+    private static long hash(String value, long seed) {
+        long h = seed ^ 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Fixed-size classic Bloom filter using double hashing to derive its hash functions.
+     */
+    private static final class Slice {
+        private final long capacity;
+        private final double falsePositiveRate;
+        private final long bitCount;
+        private final int hashCount;
+        private final AtomicLongArray bits;
+        private final AtomicLong count = new AtomicLong();
+
+        private Slice(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            long words = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)) / Long.SIZE);
+            this.bits = new AtomicLongArray(Math.toIntExact(Math.max(1, words)));
+            this.bitCount = (long) bits.length() * Long.SIZE;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+        }
+
+        private boolean mightContain(long h1, long h2) {
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void put(long h1, long h2) {
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                bits.accumulateAndGet((int) (bit >>> 6), 1L << bit, (word, mask) -> word | mask);
+            }
+            count.incrementAndGet();
+        }
+    }
+}
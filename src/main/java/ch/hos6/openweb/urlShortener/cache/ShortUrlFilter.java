@@ -0,0 +1,181 @@
+package ch.hos6.openweb.urlShortener.cache;
+
+import ch.hos6.openweb.urlShortener.domain.entity.Url;
+import ch.hos6.openweb.urlShortener.domain.repository.UrlRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Negative cache answering "this short URL does not exist" without querying MongoDB.
+ * <p>
+ * It is only consulted once the URL cache missed, so that a cached short URL keeps resolving on a node
+ * that did not receive the broadcast of its creation.
+ * It combines a {@link ScalableBloomFilter} of every existing short URL, rebuilt periodically from the repository,
+ * with a short-lived cache of the short URLs recently found missing or inactive.
+ * Short URLs created or enabled on any node are added to the filter of every node through the {@link CacheInvalidationBus}.
+ * Until the first build completes, the filter answers that every short URL may exist.
+ * </p>
+ * The short URLs found missing are only remembered by the node that looked them up. A short URL created or enabled
+ * wins over the misses recorded later by any node during the negative TTL, for example by a lookup that read
+ * the repository before the creation, so that a new short URL is never masked.
+ *
+ * @author Toubia Oussama
+ */
+@Slf4j
+@Component
+public class ShortUrlFilter {
+
+    /**
+     * Topic on which the short URLs becoming resolvable are broadcast.
+     */
+    static final String TOPIC = "short-url-filter";
+
+    private final UrlRepository urlRepository;
+    private final CacheInvalidationBus invalidationBus;
+    private final Cache<String, Boolean> missingShortUrls;
+    private final Cache<String, Boolean> existingShortUrls;
+    private final boolean enabled;
+    private final long initialCapacity;
+    private final double falsePositiveRate;
+
+    private volatile ScalableBloomFilter filter;
+    private Set<String> addedDuringRebuild;
+
+    /**
+     * Constructs a ShortUrlFilter.
+     *
+     * @param urlRepository     the repository the filter is built from
+     * @param invalidationBus   the bus sharing the created short URLs between nodes
+     * @param enabled           whether the filter answers at all
+     * @param initialCapacity   the expected number of short URLs
+     * @param falsePositiveRate the target false positive rate of the bloom filter
+     * @param negativeTtl       the time in seconds a short URL found missing is remembered
+     */
+    public ShortUrlFilter(UrlRepository urlRepository, CacheInvalidationBus invalidationBus,
+                          @Value("${url.filter.enabled:true}") boolean enabled,
+                          @Value("${url.filter.initial-capacity:1000000}") long initialCapacity,
+                          @Value("${url.filter.false-positive-rate:0.01}") double falsePositiveRate,
+                          @Value("${url.filter.negative-ttl:30}") long negativeTtl) {
+        this.urlRepository = urlRepository;
+        this.invalidationBus = invalidationBus;
+        this.enabled = enabled;
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.missingShortUrls = Caffeine.newBuilder()
+                .maximumSize(initialCapacity)
+                .expireAfterWrite(Duration.ofSeconds(negativeTtl))
+                .build();
+        this.existingShortUrls = Caffeine.newBuilder()
+                .maximumSize(initialCapacity)
+                .expireAfterWrite(Duration.ofSeconds(negativeTtl))
+                .build();
+        invalidationBus.subscribe(TOPIC, this::addLocal);
+    }
+
+    /**
+     * Checks whether a short URL is known not to resolve.
+     *
+     * @param shortUrl the short URL to check
+     * @return true if the short URL definitely does not exist or was recently found missing or inactive
+     */
+    public boolean isDefinitelyMissing(String shortUrl) {
+        if (!enabled) {
+            return false;
+        }
+        ScalableBloomFilter current = filter;
+        if (current != null && !current.mightContain(shortUrl)) {
+            return true;
+        }
+        return missingShortUrls.getIfPresent(shortUrl) != null;
+    }
+
+    /**
+     * Remembers for a short time that a short URL does not resolve,
+     * unless it was created or enabled during the negative TTL.
+     *
+     * @param shortUrl the short URL found missing or inactive
+     */
+    public synchronized void recordMissing(String shortUrl) {
+        if (enabled && existingShortUrls.getIfPresent(shortUrl) == null) {
+            missingShortUrls.put(shortUrl, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Records on every node that a short URL now resolves, after its creation or activation.
+     *
+     * @param shortUrl the created or enabled short URL
+     */
+    public void recordExisting(String shortUrl) {
+        addLocal(shortUrl);
+        invalidationBus.publish(TOPIC, shortUrl);
+    }
+
+    /**
+     * Records on every node that short URLs now resolve, after their creation in a batch.
+     *
+     * @param shortUrls the created short URLs
+     */
+    public void recordExisting(Collection<String> shortUrls) {
+        shortUrls.forEach(this::addLocal);
+        invalidationBus.publishAll(TOPIC, shortUrls);
+    }
+
+    /**
+     * Rebuilds the bloom filter from all the short URLs of the repository, and replaces the current one.
+     * It runs at startup then periodically, dropping the deleted short URLs the filter cannot remove.
+     * Short URLs added while the rebuild is running are replayed into the new filter.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${url.filter.rebuild-interval:900}", timeUnit = TimeUnit.SECONDS)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            addedDuringRebuild = new HashSet<>();
+        }
+        ScalableBloomFilter rebuilt = new ScalableBloomFilter(initialCapacity, falsePositiveRate);
+        try (Stream<Url> urls = urlRepository.streamAllShortenedUrls()) {
+            urls.forEach(url -> rebuilt.put(url.getShortenedUrl()));
+        } catch (RuntimeException e) {
+            log.error("Unable to rebuild the short URL filter. Ex = {}", e.getMessage());
+            synchronized (this) {
+                addedDuringRebuild = null;
+            }
+            return;
+        }
+        synchronized (this) {
+            addedDuringRebuild.forEach(rebuilt::put);
+            addedDuringRebuild = null;
+            filter = rebuilt;
+        }
+        log.info("Short URL filter rebuilt with {} short URLs", rebuilt.size());
+    }
+
+    /**
+     * Adds a short URL to the local filter, forgets that it was missing and ignores the misses recorded during the negative TTL.
+     *
+     * @param shortUrl the short URL now resolvable
+     */
+    private synchronized void addLocal(String shortUrl) {
+        existingShortUrls.put(shortUrl, Boolean.TRUE);
+        missingShortUrls.invalidate(shortUrl);
+        if (filter != null) {
+            filter.put(shortUrl);
+        }
+        if (addedDuringRebuild != null) {
+            addedDuringRebuild.add(shortUrl);
+        }
+    }
+}
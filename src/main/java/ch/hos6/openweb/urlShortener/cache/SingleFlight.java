@@ -0,0 +1,110 @@
+package ch.hos6.openweb.urlShortener.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces the concurrent loads of the same key into a single load.
+ * <p>
+ * The first caller of a key runs the loader and publishes its outcome in a map of the loads in flight.
+ * The callers of the same key arriving meanwhile wait for that outcome, value or exception, instead of loading it again,
+ * for at most the given timeout, after which they run the loader themselves. The map only holds the keys being loaded,
+ * and callers of different keys never wait for each other.
+ * </p>
+ * The coalesced calls and the waits that timed out are counted in the {@code url.cache.coalesced}
+ * and {@code url.cache.coalesced.timeouts} counters.
+ *
+ * @author Toubia Oussama
+ */
+public class SingleFlight {
+    private final ConcurrentMap<Object, CompletableFuture<Object>> loads = new ConcurrentHashMap<>();
+    private final long timeoutMillis;
+    private final Counter coalescedCalls;
+    private final Counter timedOutCalls;
+
+    /**
+     * Constructs a SingleFlight.
+     *
+     * @param meterRegistry the registry of the counters
+     * @param cacheName     the name of the cache whose loads are coalesced, tagging the counters
+     * @param timeout       the maximum time a caller waits for the load of another caller
+     */
+    public SingleFlight(MeterRegistry meterRegistry, String cacheName, Duration timeout) {
+        this.timeoutMillis = timeout.toMillis();
+        this.coalescedCalls = Counter.builder("url.cache.coalesced")
+                .description("Cache loads served by the load of another caller")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+        this.timedOutCalls = Counter.builder("url.cache.coalesced.timeouts")
+                .description("Callers that stopped waiting for the load of another caller and loaded the key themselves")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads the value of a key, or waits for the load of the same key already in flight.
+     *
+     * @param key    the key
+     * @param loader the loader of the value
+     * @param <T>    the type of the value
+     * @return the loaded value
+     * @throws RuntimeException the exception of the load
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Object key, Supplier<T> loader) {
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loads.putIfAbsent(key, load);
+        if (inFlight != null) {
+            return (T) await(inFlight, loader);
+        }
+        try {
+            T value = loader.get();
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(key, load);
+        }
+    }
+
+    /**
+     * Returns the number of keys being loaded.
+     *
+     * @return the number of loads in flight
+     */
+    public int inFlight() {
+        return loads.size();
+    }
+
+    private Object await(CompletableFuture<Object> inFlight, Supplier<?> loader) {
+        coalescedCalls.increment();
+        try {
+            return inFlight.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            timedOutCalls.increment();
+            return loader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a load in flight", e);
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package ch.hos6.openweb.urlShortener.cache;
+
+import ch.hos6.openweb.urlShortener.monitoring.OutcomeTimers;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.lang.NonNull;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Cache made of an in-process level (L1) backed by a shared remote level (L2).
+ * <p>
+ * Reads are served from the local level when possible, otherwise from the remote level,
+ * in which case the value is promoted to the local level.
+ * The misses of the reads with a value loader are coalesced per key by a {@link SingleFlight}:
+ * a single caller reads the remote level and runs the loader, while the others wait for its value.
+ * Writes and evictions go to both levels, and are broadcast through the {@link CacheInvalidationBus}
+ * so that the other nodes drop their local copy of the key.
+ * </p>
+ * <p>
+ * Once given a loader with {@link #refreshAheadWith(Function)}, the cache reloads in the background the hits
+ * whose remote entry is about to expire, as decided by its {@link RefreshAheadPolicy}, while the current value
+ * keeps being served. A key is refreshed by one task at a time per node, and a key the loader no longer finds is evicted.
+ * The expiry of the entries is read from the remote level as an {@link ExpiringValue},
+ * kept with the value in the local level.
+ * </p>
+ * Keys are broadcast as strings, so this cache is meant for string keys.
+ * The execution time of the reads and writes is recorded in the {@code url.cache} timer, tagged with the operation
+ * and with the level answering the reads ({@code local}, {@code remote} or {@code miss} when the value was loaded),
+ * and the refreshes in the same timer with the {@code refresh} operation.
+ *
+ * @author Toubia Oussama
+ */
+@Slf4j
+public class TwoLevelCache implements Cache {
+
+    /**
+     * Key broadcast when the whole cache is cleared.
+     */
+    static final String CLEAR_ALL = "";
+
+    /**
+     * The name of the timer of the reads and writes.
+     */
+    public static final String TIMER_NAME = "url.cache";
+    private static final String LOCAL_HIT = "local";
+    private static final String REMOTE_HIT = "remote";
+    private static final String MISS = "miss";
+
+    private final String name;
+    private final CaffeineCache localCache;
+    private final Cache remoteCache;
+    private final CacheInvalidationBus invalidationBus;
+    private final OutcomeTimers getTimers;
+    private final OutcomeTimers putTimers;
+    private final SingleFlight singleFlight;
+    private final RefreshAheadPolicy refreshAhead;
+    private final OutcomeTimers refreshTimers;
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+    private volatile Function<Object, ?> refresher;
+    private volatile long refreshMillis;
+
+    /**
+     * Constructs a TwoLevelCache.
+     *
+     * @param name            the name of the cache
+     * @param localCache      the in-process level
+     * @param remoteCache     the shared remote level
+     * @param invalidationBus the bus used to notify the other nodes
+     * @param meterRegistry   the registry of the timers of the reads and writes
+     * @param loadTimeout     the maximum time a read waits for the load of the same key by another caller
+     * @param refreshAhead    the policy refreshing the entries close to their expiry
+     */
+    public TwoLevelCache(String name, CaffeineCache localCache, Cache remoteCache, CacheInvalidationBus invalidationBus,
+                         MeterRegistry meterRegistry, Duration loadTimeout, RefreshAheadPolicy refreshAhead) {
+        this.name = name;
+        this.localCache = localCache;
+        this.remoteCache = remoteCache;
+        this.invalidationBus = invalidationBus;
+        this.getTimers = new OutcomeTimers(meterRegistry, TIMER_NAME, "Execution time of the cache reads and writes",
+                Tags.of("cache", name, "operation", "get"), LOCAL_HIT, REMOTE_HIT, MISS);
+        this.putTimers = new OutcomeTimers(meterRegistry, TIMER_NAME, "Execution time of the cache reads and writes",
+                Tags.of("cache", name, "operation", "put"), OutcomeTimers.SUCCESS);
+        this.refreshTimers = new OutcomeTimers(meterRegistry, TIMER_NAME, "Execution time of the cache reads and writes",
+                Tags.of("cache", name, "operation", "refresh"), OutcomeTimers.SUCCESS);
+        this.singleFlight = new SingleFlight(meterRegistry, name, loadTimeout);
+        this.refreshAhead = refreshAhead;
+    }
+
+    @Override
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    @NonNull
+    public Object getNativeCache() {
+        return remoteCache.getNativeCache();
+    }
+
+    /**
+     * Returns the in-process level of this cache.
+     *
+     * @return the local cache
+     */
+    public CaffeineCache getLocalCache() {
+        return localCache;
+    }
+
+    /**
+     * Returns the shared remote level of this cache.
+     *
+     * @return the remote cache
+     */
+    public Cache getRemoteCache() {
+        return remoteCache;
+    }
+
+    /**
+     * Sets the loader refreshing the entries close to their expiry.
+     *
+     * @param loader the loader of the value of a key, returning null if the key no longer exists
+     */
+    public void refreshAheadWith(Function<Object, ?> loader) {
+        this.refresher = loader;
+    }
+
+    @Override
+    public ValueWrapper get(@NonNull Object key) {
+        long start = System.nanoTime();
+        try {
+            ValueWrapper value = getLocal(key);
+            if (value != null) {
+                getTimers.record(LOCAL_HIT, start);
+                return value;
+            }
+            value = getRemote(key);
+            getTimers.record(value != null ? REMOTE_HIT : MISS, start);
+            return value;
+        } catch (RuntimeException e) {
+            getTimers.recordError(e, start);
+            throw e;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(@NonNull Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(@NonNull Object key, @NonNull Callable<T> valueLoader) {
+        long start = System.nanoTime();
+        try {
+            ValueWrapper value = getLocal(key);
+            if (value != null) {
+                getTimers.record(LOCAL_HIT, start);
+                return (T) value.get();
+            }
+            Loaded<T> loaded = singleFlight.execute(key, () -> load(key, valueLoader));
+            getTimers.record(loaded.level(), start);
+            return loaded.value();
+        } catch (RuntimeException e) {
+            getTimers.recordError(e, start);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a key missing from the local level from the remote level, or loads it into both levels.
+     * Unlike {@link Cache#get(Object, Callable)} of the remote level, it does not lock the other keys.
+     * The loaded value is not written again if the loader already put it in the local level,
+     * which the {@link CachePreloader} only does once it is written to the remote level.
+     * A failure of the remote level is logged and does not fail the read, which is served by the loader instead:
+     * the sync reads of {@code @Cacheable} bypass the {@code CacheErrorHandler}.
+     *
+     * @param key         the key
+     * @param valueLoader the loader of the value
+     * @return the value, with the level that served it: {@code remote}, or {@code miss} if the loader ran
+     * @throws ValueRetrievalException if the loader fails
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Loaded<T> load(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = null;
+        try {
+            cached = getRemote(key);
+        } catch (RuntimeException e) {
+            log.error("Unable to read key {} of cache {} from the remote level, loading it. Ex = {}", key, name, e.getMessage());
+        }
+        if (cached != null) {
+            return new Loaded<>((T) cached.get(), REMOTE_HIT);
+        }
+        T loaded;
+        try {
+            loaded = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        if (loaded != null && !isLocal(key, loaded)) {
+            try {
+                remoteCache.put(key, loaded);
+            } catch (RuntimeException e) {
+                log.error("Unable to write key {} of cache {} to the remote level. Ex = {}", key, name, e.getMessage());
+            }
+            localCache.put(key, refreshAhead.expiring(loaded));
+        }
+        return new Loaded<>(loaded, MISS);
+    }
+
+    /**
+     * Tells whether the local level holds the given value of a key.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return whether the value is cached locally
+     */
+    private boolean isLocal(Object key, Object value) {
+        return value.equals(ExpiringValue.unwrap(localCache.getNativeCache().getIfPresent(key)));
+    }
+
+    /**
+     * Puts a value just written to the remote level by another writer in the local level only,
+     * with its expiry as for the values written by this cache.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    void putLocal(Object key, Object value) {
+        localCache.put(key, refreshAhead.expiring(value));
+    }
+
+    /**
+     * Reads a key from the local level, and refreshes it if it is about to expire.
+     *
+     * @param key the key
+     * @return the value, null if the key is not cached locally
+     */
+    private ValueWrapper getLocal(Object key) {
+        Object cached = localCache.getNativeCache().getIfPresent(key);
+        if (cached instanceof ExpiringValue expiringValue) {
+            refreshIfDue(key, expiringValue);
+            return expiringValue;
+        }
+        return cached != null ? new SimpleValueWrapper(cached) : null;
+    }
+
+    /**
+     * Reads a key from the remote level, promotes it to the local level, and refreshes it if it is about to expire.
+     *
+     * @param key the key
+     * @return the value, null if the key is not cached remotely
+     */
+    private ValueWrapper getRemote(Object key) {
+        ValueWrapper value = remoteCache.get(key);
+        if (value != null && value.get() instanceof ExpiringValue expiringValue) {
+            localCache.put(key, expiringValue);
+            refreshIfDue(key, expiringValue);
+            return expiringValue;
+        }
+        if (value != null && value.get() != null) {
+            localCache.put(key, value.get());
+        }
+        return value;
+    }
+
+    /**
+     * Starts the refresh of a hit in the background if the policy decides so and the key is not being refreshed yet.
+     *
+     * @param key   the key
+     * @param value the hit
+     */
+    private void refreshIfDue(Object key, ExpiringValue value) {
+        Function<Object, ?> loader = refresher;
+        if (loader == null || !refreshAhead.shouldRefresh(value, refreshMillis) || !refreshing.add(key)) {
+            return;
+        }
+        try {
+            refreshAhead.executor().execute(() -> refresh(key, loader));
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+        }
+    }
+
+    /**
+     * Reloads a key into both levels, or evicts it if the loader no longer finds it.
+     * The other nodes drop their local copy, and read the new expiry from the remote level.
+     *
+     * @param key    the key
+     * @param loader the loader of the value
+     */
+    private void refresh(Object key, Function<Object, ?> loader) {
+        long start = System.nanoTime();
+        try {
+            Object value = loader.apply(key);
+            if (value != null) {
+                remoteCache.put(key, value);
+                localCache.put(key, refreshAhead.expiring(value));
+                invalidationBus.publish(name, key.toString());
+            } else {
+                evict(key);
+            }
+            refreshMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            refreshTimers.record(OutcomeTimers.SUCCESS, start);
+        } catch (RuntimeException e) {
+            refreshTimers.recordError(e, start);
+            log.error("Unable to refresh key {} of cache {}. Ex = {}", key, name, e.getMessage());
+        } finally {
+            refreshing.remove(key);
+        }
+    }
+
+    @Override
+    public void put(@NonNull Object key, Object value) {
+        long start = System.nanoTime();
+        try {
+            localCache.put(key, refreshAhead.expiring(value));
+            remoteCache.put(key, value);
+            invalidationBus.publish(name, key.toString());
+        } catch (RuntimeException e) {
+            putTimers.recordError(e, start);
+            throw e;
+        }
+        putTimers.record(OutcomeTimers.SUCCESS, start);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(@NonNull Object key, Object value) {
+        long start = System.nanoTime();
+        ValueWrapper existing;
+        try {
+            existing = remoteCache.putIfAbsent(key, value);
+            if (existing != null && existing.get() instanceof ExpiringValue expiringValue) {
+                existing = expiringValue;
+                localCache.put(key, expiringValue);
+            } else {
+                localCache.put(key, existing != null ? existing.get() : refreshAhead.expiring(value));
+            }
+            invalidationBus.publish(name, key.toString());
+        } catch (RuntimeException e) {
+            putTimers.recordError(e, start);
+            throw e;
+        }
+        putTimers.record(OutcomeTimers.SUCCESS, start);
+        return existing;
+    }
+
+    @Override
+    public void evict(@NonNull Object key) {
+        localCache.evict(key);
+        remoteCache.evict(key);
+        invalidationBus.publish(name, key.toString());
+    }
+
+    @Override
+    public boolean evictIfPresent(@NonNull Object key) {
+        localCache.evict(key);
+        boolean evicted = remoteCache.evictIfPresent(key);
+        invalidationBus.publish(name, key.toString());
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        localCache.clear();
+        remoteCache.clear();
+        invalidationBus.publish(name, CLEAR_ALL);
+    }
+
+    /**
+     * A value read by {@link #load(Object, Callable)}, shared by the coalesced callers.
+     *
+     * @param value the value
+     * @param level the level that served the value, {@code remote} or {@code miss}
+     */
+    private record Loaded<T>(T value, String level) {
+    }
+
+    /**
+     * Drops a key from the local level only, following an invalidation received from another node.
+     *
+     * @param key the invalidated key, or {@link #CLEAR_ALL} to drop every local entry
+     */
+    void evictLocal(String key) {
+        if (CLEAR_ALL.equals(key)) {
+            localCache.clear();
+        } else {
+            localCache.evict(key);
+        }
+    }
+}
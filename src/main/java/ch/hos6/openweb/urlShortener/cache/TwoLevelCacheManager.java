@@ -0,0 +1,84 @@
+package ch.hos6.openweb.urlShortener.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.lang.NonNull;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * CacheManager combining a bounded in-process Caffeine cache (L1) with a remote cache manager (L2).
+ * <p>
+ * Caffeine evicts with W-TinyLFU, which keeps the most frequently used keys in memory
+ * so that hot entries are served without leaving the JVM.
+ * Each cache registers itself on the {@link CacheInvalidationBus} to drop local entries changed by other nodes.
+ * </p>
+ *
+ * @author Toubia Oussama
+ */
+public class TwoLevelCacheManager implements CacheManager {
+
+    private final CacheManager remoteCacheManager;
+    private final Caffeine<Object, Object> localCacheBuilder;
+    private final CacheInvalidationBus invalidationBus;
+    private final MeterRegistry meterRegistry;
+    private final Duration loadTimeout;
+    private final RefreshAheadPolicy refreshAhead;
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a TwoLevelCacheManager.
+     *
+     * @param remoteCacheManager the manager providing the remote level
+     * @param localCacheBuilder  the builder used to create the local level of each cache
+     * @param invalidationBus    the bus used to keep the local levels coherent across nodes
+     * @param meterRegistry      the registry of the timers of the caches
+     * @param loadTimeout        the maximum time a read waits for the load of the same key by another caller
+     * @param refreshAhead       the policy refreshing the entries close to their expiry
+     */
+    public TwoLevelCacheManager(CacheManager remoteCacheManager, Caffeine<Object, Object> localCacheBuilder,
+                                CacheInvalidationBus invalidationBus, MeterRegistry meterRegistry, Duration loadTimeout,
+                                RefreshAheadPolicy refreshAhead) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.localCacheBuilder = localCacheBuilder;
+        this.invalidationBus = invalidationBus;
+        this.meterRegistry = meterRegistry;
+        this.loadTimeout = loadTimeout;
+        this.refreshAhead = refreshAhead;
+    }
+
+    @Override
+    public Cache getCache(@NonNull String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    @NonNull
+    public Collection<String> getCacheNames() {
+        return remoteCacheManager.getCacheNames();
+    }
+
+    /**
+     * Creates the two levels of a cache and subscribes it to remote invalidations.
+     *
+     * @param name the name of the cache
+     * @return the created cache, or null if the remote manager does not know this cache
+     */
+    private TwoLevelCache createCache(String name) {
+        Cache remoteCache = remoteCacheManager.getCache(name);
+        if (remoteCache == null) {
+            return null;
+        }
+        CaffeineCache localCache = new CaffeineCache(name, localCacheBuilder.build(), false);
+        TwoLevelCache cache = new TwoLevelCache(name, localCache, remoteCache, invalidationBus, meterRegistry, loadTimeout,
+                refreshAhead);
+        invalidationBus.subscribe(name, cache::evictLocal);
+        return cache;
+    }
+}
@@ -0,0 +1,194 @@
+package ch.hos6.openweb.urlShortener.cache;
+
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Compact binary codec of the values of the URL cache in Redis.
+ * <p>
+ * An original URL is written as a version byte, the index of the longest matching prefix of {@link #PREFIXES}
+ * (0 for none), and the rest of the URL in UTF-8. The common schemes and hosts are thus stored in one byte,
+ * and reading or writing a URL is a plain copy of its characters, without the JSON quoting and type metadata
+ * of {@link GenericJackson2JsonRedisSerializer}.
+ * </p>
+ * <p>
+ * Given the time to live of the entries, the codec writes the second version, which inserts the time the entry expires,
+ * in seconds since the epoch over 4 bytes, between the version byte and the prefix index. It is read as an
+ * {@link ExpiringValue}, from which the {@link TwoLevelCache} refreshes the entries close to their expiry.
+ * Both versions are always read.
+ * </p>
+ * <p>
+ * Values written by the previous JSON serializer, whose first byte is never a version byte, are still read with it,
+ * so that the entries cached before the codec are served until they expire. Other values than strings
+ * are written in JSON as well.
+ * </p>
+ *
+ * @author Toubia Oussama
+ */
+public class UrlCacheCodec implements RedisSerializer<Object> {
+    static final byte VERSION_1 = 1;
+    static final byte VERSION_2 = 2;
+    private static final int HEADER_LENGTH = 2;
+    private static final int EXPIRY_LENGTH = 4;
+
+    /**
+     * The prefix dictionary. The indexes are stored with the values: the dictionary can only be appended to.
+     */
+    static final String[] PREFIXES = {
+            "",
+            "https://www.",
+            "http://www.",
+            "https://",
+            "http://",
+            "https://www.youtube.com/watch?v=",
+            "https://youtu.be/",
+            "https://github.com/",
+            "https://en.wikipedia.org/wiki/",
+            "https://docs.google.com/",
+            "https://drive.google.com/",
+            "https://www.linkedin.com/",
+            "https://twitter.com/",
+            "https://www.amazon.com/",
+            "https://medium.com/"
+    };
+
+    private final RedisSerializer<Object> legacySerializer;
+    private final Duration timeToLive;
+    private final Clock clock;
+
+    /**
+     * Constructs a UrlCacheCodec writing the first version, without expiry,
+     * and reading and writing the legacy values with a {@link GenericJackson2JsonRedisSerializer}.
+     */
+    public UrlCacheCodec() {
+        this(new GenericJackson2JsonRedisSerializer());
+    }
+
+    /**
+     * Constructs a UrlCacheCodec writing the first version, without expiry.
+     *
+     * @param legacySerializer the serializer of the values written before the codec, and of the values other than strings
+     */
+    public UrlCacheCodec(RedisSerializer<Object> legacySerializer) {
+        this(legacySerializer, null, Clock.systemUTC());
+    }
+
+    /**
+     * Constructs a UrlCacheCodec writing the second version, with the expiry of the entries,
+     * and reading and writing the legacy values with a {@link GenericJackson2JsonRedisSerializer}.
+     *
+     * @param timeToLive the time to live of the entries written
+     */
+    public UrlCacheCodec(Duration timeToLive) {
+        this(new GenericJackson2JsonRedisSerializer(), timeToLive, Clock.systemUTC());
+    }
+
+    /**
+     * Constructs a UrlCacheCodec.
+     *
+     * @param legacySerializer the serializer of the values written before the codec, and of the values other than strings
+     * @param timeToLive       the time to live of the entries written, null to write the first version
+     * @param clock            the clock the expiry of the entries is computed from
+     */
+    public UrlCacheCodec(RedisSerializer<Object> legacySerializer, Duration timeToLive, Clock clock) {
+        this.legacySerializer = legacySerializer;
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (!(ExpiringValue.unwrap(value) instanceof String url)) {
+            return legacySerializer.serialize(value);
+        }
+        int header = timeToLive != null ? HEADER_LENGTH + EXPIRY_LENGTH : HEADER_LENGTH;
+        int prefix = prefixOf(url);
+        int start = PREFIXES[prefix].length();
+        byte[] bytes;
+        if (isAscii(url, start)) {
+            bytes = new byte[header + url.length() - start];
+            for (int i = start; i < url.length(); i++) {
+                bytes[header + i - start] = (byte) url.charAt(i);
+            }
+        } else {
+            byte[] suffix = url.substring(start).getBytes(StandardCharsets.UTF_8);
+            bytes = new byte[header + suffix.length];
+            System.arraycopy(suffix, 0, bytes, header, suffix.length);
+        }
+        if (timeToLive != null) {
+            int expiresAt = (int) ((clock.millis() + timeToLive.toMillis()) / 1000);
+            bytes[0] = VERSION_2;
+            bytes[1] = (byte) (expiresAt >>> 24);
+            bytes[2] = (byte) (expiresAt >>> 16);
+            bytes[3] = (byte) (expiresAt >>> 8);
+            bytes[4] = (byte) expiresAt;
+        } else {
+            bytes[0] = VERSION_1;
+        }
+        bytes[header - 1] = (byte) prefix;
+        return bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] == VERSION_1) {
+            return readUrl(bytes, HEADER_LENGTH);
+        }
+        if (bytes[0] == VERSION_2) {
+            String url = readUrl(bytes, HEADER_LENGTH + EXPIRY_LENGTH);
+            long expiresAt = (bytes[1] & 0xffL) << 24 | (bytes[2] & 0xff) << 16 | (bytes[3] & 0xff) << 8 | (bytes[4] & 0xff);
+            return new ExpiringValue(url, expiresAt * 1000);
+        }
+        return legacySerializer.deserialize(bytes);
+    }
+
+    /**
+     * Reads the URL following the header of a value.
+     *
+     * @param bytes  the value
+     * @param header the length of the header, ending with the prefix index
+     * @return the URL
+     * @throws SerializationException if the value is truncated or its prefix unknown
+     */
+    private static String readUrl(byte[] bytes, int header) {
+        if (bytes.length < header || (bytes[header - 1] & 0xff) >= PREFIXES.length) {
+            throw new SerializationException("Invalid cached URL of " + bytes.length + " bytes");
+        }
+        String prefix = PREFIXES[bytes[header - 1] & 0xff];
+        String suffix = new String(bytes, header, bytes.length - header, StandardCharsets.UTF_8);
+        return prefix.isEmpty() ? suffix : prefix.concat(suffix);
+    }
+
+    /**
+     * Returns the index of the longest prefix of the dictionary starting the URL.
+     *
+     * @param url the URL
+     * @return the index of the prefix, 0 if none matches
+     */
+    private static int prefixOf(String url) {
+        int longest = 0;
+        for (int i = 1; i < PREFIXES.length; i++) {
+            if (PREFIXES[i].length() > PREFIXES[longest].length() && url.startsWith(PREFIXES[i])) {
+                longest = i;
+            }
+        }
+        return longest;
+    }
+
+    private static boolean isAscii(String value, int start) {
+        for (int i = start; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,7 +1,17 @@
 package ch.hos6.openweb.urlShortener.config;
 
+import ch.hos6.openweb.urlShortener.cache.CacheInvalidationBus;
+import ch.hos6.openweb.urlShortener.cache.RefreshAheadPolicy;
+import ch.hos6.openweb.urlShortener.cache.TwoLevelCache;
+import ch.hos6.openweb.urlShortener.cache.TwoLevelCacheManager;
+import ch.hos6.openweb.urlShortener.cache.UrlCacheCodec;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CachingConfigurer;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.interceptor.CacheErrorHandler;
@@ -10,14 +20,15 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import ch.hos6.openweb.urlShortener.errorhandling.CustomCacheErrorHandler;
 
+import java.time.Clock;
 import java.time.Duration;
+import java.util.concurrent.Executors;
 
 /**
- * Configuration class for Redis Cache.
+ * Configuration class for the two level cache: an in-process Caffeine cache in front of Redis.
  *
  * @author Toubia Oussama
  */
@@ -32,33 +43,87 @@ public class CacheConfig implements CachingConfigurer {
     @Value("${spring.cache.redis.time-to-live}")
     private int timeToLiveInHours = 1;
 
+    /**
+     * Maximum number of entries kept in the in-process cache, per cache name.
+     */
+    @Value("${cache.local.maximum-size:10000}")
+    private long localMaximumSize;
+
+    /**
+     * Time to live in seconds of the in-process entries.
+     * It bounds the staleness of a node that missed an invalidation message.
+     */
+    @Value("${cache.local.time-to-live:300}")
+    private long localTimeToLiveInSeconds;
+
+    /**
+     * Maximum time in milliseconds a cache miss waits for the load of the same key by another request,
+     * before loading the key itself.
+     */
+    @Value("${cache.load.timeout:2000}")
+    private long loadTimeoutInMillis;
+
+    /**
+     * Whether the Redis entries close to their expiry are reloaded in the background by the hits.
+     */
+    @Value("${cache.refresh-ahead.enabled:true}")
+    private boolean refreshAheadEnabled;
+
+    /**
+     * Time in seconds before the expiry of a Redis entry from which every hit refreshes it.
+     */
+    @Value("${cache.refresh-ahead.window:3600}")
+    private long refreshAheadWindowInSeconds;
+
+    /**
+     * XFetch factor of the probabilistic refreshes before the window, 0 to refresh within the window only.
+     */
+    @Value("${cache.refresh-ahead.beta:1.0}")
+    private double refreshAheadBeta;
+
     public static final String URL_CACHE_NAME = "urls";
 
     /**
-     * Creates the default cache configuration.
+     * Creates the default cache configuration. The values are written with the compact {@link UrlCacheCodec},
+     * along with their expiry, and the JSON values written before it are still read.
      *
      * @return the cache configuration
      */
     @Bean
     public RedisCacheConfiguration cacheConfiguration() {
+        Duration timeToLive = Duration.ofDays(timeToLiveInHours);
         return RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofDays(timeToLiveInHours))
+                .entryTtl(timeToLive)
                 .disableCachingNullValues()
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()));
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new UrlCacheCodec(timeToLive)));
     }
 
     /**
-     * Creates the cache manager.
+     * Creates the cache manager: a bounded in-process cache backed by Redis.
      *
      * @param redisConnectionFactory the Redis connection factory
      * @param cacheConfiguration     the cache configuration
+     * @param invalidationBus        the bus keeping the in-process caches coherent across nodes
+     * @param meterRegistry          the registry of the timers of the caches
      * @return the cache manager
      */
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory, RedisCacheConfiguration cacheConfiguration) {
+    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory, RedisCacheConfiguration cacheConfiguration,
+                                     CacheInvalidationBus invalidationBus, MeterRegistry meterRegistry) {
         try {
-            return RedisCacheManager.builder(redisConnectionFactory)
+            RedisCacheManager redisCacheManager = RedisCacheManager.builder(redisConnectionFactory)
                     .cacheDefaults(cacheConfiguration).build();
+            redisCacheManager.initializeCaches();
+            Caffeine<Object, Object> localCacheBuilder = Caffeine.newBuilder()
+                    .maximumSize(localMaximumSize)
+                    .expireAfterWrite(Duration.ofSeconds(localTimeToLiveInSeconds))
+                    .recordStats();
+            RefreshAheadPolicy refreshAhead = refreshAheadEnabled
+                    ? new RefreshAheadPolicy(cacheConfiguration.getTtl(), Duration.ofSeconds(refreshAheadWindowInSeconds),
+                    refreshAheadBeta, Clock.systemUTC(), Executors.newVirtualThreadPerTaskExecutor())
+                    : RefreshAheadPolicy.disabled();
+            return new TwoLevelCacheManager(redisCacheManager, localCacheBuilder, invalidationBus, meterRegistry,
+                    Duration.ofMillis(loadTimeoutInMillis), refreshAhead);
         } catch (Exception e) {
             log.error("Unable to build the cache: " + e.getMessage());
             //we can return some fallback cache, but not in this case to keep simple implementation
@@ -68,6 +133,16 @@ public class CacheConfig implements CachingConfigurer {
         }
     }
 
+    /**
+     * Exposes the hit and miss statistics of the in-process level through actuator.
+     *
+     * @return the meter binder provider for the two level caches
+     */
+    @Bean
+    public CacheMeterBinderProvider<TwoLevelCache> twoLevelCacheMeterBinderProvider() {
+        return (cache, tags) -> new CaffeineCacheMetrics<>(cache.getLocalCache().getNativeCache(), cache.getName(), tags);
+    }
+
     /**
      * This method overrides the {@link org.springframework.cache.interceptor.CacheErrorHandler}
      * from the Spring CacheManager and provides a custom error handling strategy.
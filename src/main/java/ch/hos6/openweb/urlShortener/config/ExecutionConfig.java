@@ -0,0 +1,51 @@
+package ch.hos6.openweb.urlShortener.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Configuration class of the virtual thread execution mode, enabled with {@code app.execution.mode=virtual}.
+ * <p>
+ * Tomcat handles each request on a new virtual thread instead of its platform thread pool,
+ * and the application task executor, used for asynchronous request processing and background work,
+ * runs each task on a new virtual thread as well. Blocking calls to MongoDB, Redis or a destination URL
+ * then release their carrier thread instead of holding a pooled thread.
+ * </p>
+ * With the default {@code platform} mode, the Tomcat and task executor pools of Spring Boot are used.
+ *
+ * @author Toubia Oussama
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "app.execution.mode", havingValue = "virtual")
+public class ExecutionConfig {
+
+    /**
+     * Runs Tomcat request handling on virtual threads.
+     *
+     * @return the customizer replacing the executor of the Tomcat protocol handler
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        log.info("Handling requests on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Runs the application tasks on virtual threads.
+     *
+     * @return the application task executor
+     */
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, "taskExecutor"})
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
@@ -0,0 +1,118 @@
+package ch.hos6.openweb.urlShortener.config;
+
+import ch.hos6.openweb.urlShortener.controller.RedirectHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Configuration class of the reactive deployment, enabled by the reactive profile ({@code application-reactive.properties}).
+ * <p>
+ * Redirects are served by a functional router on the Netty event loops, resolved through the reactive MongoDB
+ * and Redis clients. The management API keeps its annotated controllers and blocking services:
+ * its controllers are moved off the event loops to the bounded elastic scheduler, so that they never stall redirects.
+ * </p>
+ *
+ * @author Toubia Oussama
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfig {
+
+    /**
+     * Paths of the management API, served by blocking code.
+     */
+    private static final List<PathPattern> BLOCKING_PATHS = List.of(
+            PathPatternParser.defaultInstance.parse("/api/**"),
+            PathPatternParser.defaultInstance.parse("/auth/**"));
+
+    /**
+     * Serves the reactive stack with Netty. Tomcat is also on the classpath for the servlet stack,
+     * and Spring Boot would otherwise prefer it to host the reactive application.
+     *
+     * @return the Netty web server factory
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Routes the short URLs to the {@link RedirectHandler}.
+     * Actuator endpoints are mapped before the router, and the other paths have more than one segment.
+     *
+     * @param redirectHandler the handler of the redirects
+     * @return the router function
+     */
+    @Bean
+    public RouterFunction<ServerResponse> redirectRouter(RedirectHandler redirectHandler) {
+        return route(GET("/{shortUrl}"), redirectHandler::redirect);
+    }
+
+    /**
+     * Creates the reactive template of the Redis level of the URL cache,
+     * with the serializers of the blocking Redis cache so that both read the same entries.
+     *
+     * @param connectionFactory  the reactive Redis connection factory
+     * @param cacheConfiguration the configuration of the Redis cache
+     * @return the reactive template
+     */
+    @Bean
+    public ReactiveRedisTemplate<String, Object> urlCacheTemplate(ReactiveRedisConnectionFactory connectionFactory,
+                                                                  RedisCacheConfiguration cacheConfiguration) {
+        RedisSerializationContext<String, Object> serializationContext = RedisSerializationContext
+                .<String, Object>newSerializationContext(cacheConfiguration.getKeySerializationPair())
+                .value(cacheConfiguration.getValueSerializationPair())
+                .build();
+        return new ReactiveRedisTemplate<>(connectionFactory, serializationContext);
+    }
+
+    /**
+     * Runs the controllers of the management API on the bounded elastic scheduler.
+     * The filter runs last, since the security filter chain may complete the authentication on another scheduler,
+     * and publishes the request body on the bounded elastic scheduler as well, so that the controller
+     * is not invoked on the event loop once the body is read.
+     *
+     * @return the web filter, ordered after the security filter chain
+     */
+    @Bean
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public WebFilter blockingRequestWebFilter() {
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (BLOCKING_PATHS.stream().noneMatch(pattern -> pattern.matches(request.getPath().pathWithinApplication()))) {
+                return chain.filter(exchange);
+            }
+            ServerHttpRequest offloaded = new ServerHttpRequestDecorator(request) {
+                @Override
+                public Flux<DataBuffer> getBody() {
+                    return super.getBody().publishOn(Schedulers.boundedElastic());
+                }
+            };
+            return chain.filter(exchange.mutate().request(offloaded).build())
+                    .subscribeOn(Schedulers.boundedElastic());
+        };
+    }
+}
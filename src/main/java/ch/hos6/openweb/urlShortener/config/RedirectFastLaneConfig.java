@@ -0,0 +1,46 @@
+package ch.hos6.openweb.urlShortener.config;
+
+import ch.hos6.openweb.urlShortener.analytics.ClickTracker;
+import ch.hos6.openweb.urlShortener.controller.RedirectFastLaneFilter;
+import ch.hos6.openweb.urlShortener.service.UrlService;
+import jakarta.servlet.DispatcherType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Configuration class of the redirect fast lane of the servlet stack, enabled by default
+ * and disabled with {@code url.redirect.fast-lane=false}.
+ *
+ * @author Toubia Oussama
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "url.redirect.fast-lane", havingValue = "true", matchIfMissing = true)
+public class RedirectFastLaneConfig {
+
+    /**
+     * The order of the fast lane: right after the observation filter recording the HTTP server metrics,
+     * and before the Spring Security filter chain.
+     */
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 2;
+
+    /**
+     * Registers the {@link RedirectFastLaneFilter} for the requests coming from the clients.
+     *
+     * @param urlService   the service resolving the short URLs through the URL cache
+     * @param clickTracker the tracker of the clicks
+     * @return the registration of the filter
+     */
+    @Bean
+    public FilterRegistrationBean<RedirectFastLaneFilter> redirectFastLaneFilter(UrlService urlService, ClickTracker clickTracker) {
+        RedirectFastLaneFilter filter = new RedirectFastLaneFilter(urlService, clickTracker);
+        FilterRegistrationBean<RedirectFastLaneFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(ORDER);
+        registration.setDispatcherTypes(DispatcherType.REQUEST);
+        return registration;
+    }
+}
@@ -1,40 +1,79 @@
 package ch.hos6.openweb.urlShortener.config;
 
+import ch.hos6.openweb.urlShortener.errorhandling.exception.PasswordHashingRejectedException;
+import ch.hos6.openweb.urlShortener.security.BoundedPasswordEncoder;
+import ch.hos6.openweb.urlShortener.security.CustomUserDetailService;
+import ch.hos6.openweb.urlShortener.security.JwtKeySet;
+import ch.hos6.openweb.urlShortener.security.VerifiedJwtCache;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKSet;
 import com.nimbusds.jose.jwk.RSAKey;
-import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
-import com.nimbusds.jose.jwk.source.JWKSource;
-import com.nimbusds.jose.proc.SecurityContext;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.oauth2.server.resource.OAuth2ResourceServerConfigurer;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
-import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
-import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.security.oauth2.server.resource.web.BearerTokenAuthenticationEntryPoint;
 import org.springframework.security.oauth2.server.resource.web.access.BearerTokenAccessDeniedHandler;
+import org.springframework.security.oauth2.server.resource.web.access.server.BearerTokenServerAccessDeniedHandler;
+import org.springframework.security.oauth2.server.resource.web.server.BearerTokenServerAuthenticationEntryPoint;
+import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationEntryPoint;
+import org.springframework.security.web.server.ServerAuthenticationEntryPoint;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpBasicServerAuthenticationEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.security.web.server.savedrequest.NoOpServerRequestCache;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Configuration class for REST API security.
+ * The password encoder and the JWT keys are shared, the filter chain depends on the web stack:
+ * {@link ServletSecurity} by default, {@link ReactiveSecurity} with the reactive profile.
+ * Tokens are signed with the {@code security.jwt.algorithm}, RS256, ES256 or EdDSA, by the keys of the {@link JwtKeySet}.
  *
  * @author Toubia Oussama
  */
-@EnableWebSecurity
 @Configuration
 public class RestSecurityConfig {
+    /**
+     * The paths open to everyone, matched before the {@link #AUTHENTICATED_PATHS}.
+     */
+    static final String[] PUBLIC_PATHS = {"/actuator/health/**"};
+    /**
+     * The paths requiring an authenticated user, every other path is open to everyone.
+     */
+    static final String[] AUTHENTICATED_PATHS = {"/api/**", "/actuator/**"};
+
     @Value("${jwt.public.key}")
     RSAPublicKey key;
 
@@ -42,60 +81,211 @@ public class RestSecurityConfig {
     RSAPrivateKey priv;
 
     /**
-     * Configures the security filter chain.
+     * Creates a password encoder, hashing with BCrypt on a bounded executor
+     * so that the authentication load never takes more than {@code security.password.threads} cores.
      *
-     * @param http the HttpSecurity instance
-     * @return the security filter chain
-     * @throws Exception in case of errors during configuration
+     * @param meterRegistry the registry of the hashing metrics
+     * @param threads       the number of threads hashing the passwords, 0 for half of the cores
+     * @param queueCapacity the maximum number of hashings waiting for a thread
+     * @param retryAfter    the delay in seconds after which a rejected client should retry
+     * @return the password encoder
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
-        http
-                .authorizeHttpRequests((authorize) -> authorize
-                        .requestMatchers("/**","/auth/**","/doc/**").permitAll()
-                        .requestMatchers("/api/v1").authenticated()
-                )
-                .csrf((csrf) -> csrf.ignoringRequestMatchers("/auth/login","/auth/register","/doc/**"))
-                .httpBasic(Customizer.withDefaults())
-                .oauth2ResourceServer(OAuth2ResourceServerConfigurer::jwt)
-                .sessionManagement((session) -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
-                .exceptionHandling((exceptions) -> exceptions
-                        .authenticationEntryPoint(new BearerTokenAuthenticationEntryPoint())
-                        .accessDeniedHandler(new BearerTokenAccessDeniedHandler())
-                );
-        return http.build();
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                           @Value("${security.password.threads:0}") int threads,
+                                           @Value("${security.password.queue-capacity:64}") int queueCapacity,
+                                           @Value("${security.password.retry-after:1}") long retryAfter) {
+        int hashingThreads = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), meterRegistry, hashingThreads, queueCapacity,
+                Duration.ofSeconds(retryAfter));
     }
 
     /**
-     * Creates a password encoder.
+     * Creates the key set of the tokens: the RSA key pair, identified by its thumbprint,
+     * and the keys of the JWK set file, if any.
      *
-     * @return the password encoder
+     * @param resourceLoader the loader of the JWK set file
+     * @param algorithm      the algorithm signing the tokens
+     * @param jwks           the location of the JWK set file, empty for none
+     * @param signingKeyId   the key id of the key signing the tokens, empty for the first key of the algorithm
+     * @return the JWT key set
+     * @throws IOException    if the JWK set file cannot be read
+     * @throws ParseException if the JWK set file is invalid
+     * @throws JOSEException  if the thumbprint of the RSA key cannot be computed
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    JwtKeySet jwtKeySet(ResourceLoader resourceLoader,
+                        @Value("${security.jwt.algorithm:RS256}") String algorithm,
+                        @Value("${security.jwt.jwks:}") String jwks,
+                        @Value("${security.jwt.signing-key-id:}") String signingKeyId)
+            throws IOException, ParseException, JOSEException {
+        List<JWK> keys = new ArrayList<>();
+        keys.add(new RSAKey.Builder(this.key).privateKey(this.priv).algorithm(JWSAlgorithm.RS256).keyIDFromThumbprint().build());
+        if (!jwks.isEmpty()) {
+            try (InputStream jwksStream = resourceLoader.getResource(jwks).getInputStream()) {
+                keys.addAll(JWKSet.load(jwksStream).getKeys());
+            }
+        }
+        return new JwtKeySet(keys, JWSAlgorithm.parse(algorithm), signingKeyId.isEmpty() ? null : signingKeyId);
     }
 
-
     /**
-     * Creates a JWT decoder.
+     * Creates a JWT encoder.
      *
-     * @return the JWT decoder
+     * @param jwtKeySet the keys of the tokens
+     * @return the JWT encoder
      */
     @Bean
-    JwtDecoder jwtDecoder() {
-        return NimbusJwtDecoder.withPublicKey(this.key).build();
+    JwtEncoder jwtEncoder(JwtKeySet jwtKeySet) {
+        return jwtKeySet.encoder();
     }
 
     /**
-     * Creates a JWT encoder.
-     *
-     * @return the JWT encoder
+     * Security of the servlet (Tomcat) stack.
      */
-    @Bean
-    JwtEncoder jwtEncoder() {
-        JWK jwk = new RSAKey.Builder(this.key).privateKey(this.priv).build();
-        JWKSource<SecurityContext> jwks = new ImmutableJWKSet<>(new JWKSet(jwk));
-        return new NimbusJwtEncoder(jwks);
+    @EnableWebSecurity
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    static class ServletSecurity {
+
+        /**
+         * Configures the security filter chain, with the same rules as the reactive stack:
+         * the API and the actuator endpoints other than health require an authenticated user.
+         *
+         * @param http the HttpSecurity instance
+         * @return the security filter chain
+         * @throws Exception in case of errors during configuration
+         */
+        @Bean
+        public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+            http
+                    .authorizeHttpRequests((authorize) -> authorize
+                            .requestMatchers(PUBLIC_PATHS).permitAll()
+                            .requestMatchers(AUTHENTICATED_PATHS).authenticated()
+                            .anyRequest().permitAll()
+                    )
+                    .csrf((csrf) -> csrf.ignoringRequestMatchers("/auth/login","/auth/refresh","/auth/register","/auth/revoke","/doc/**"))
+                    .httpBasic((basic) -> basic.authenticationEntryPoint(basicAuthenticationEntryPoint()))
+                    .oauth2ResourceServer(OAuth2ResourceServerConfigurer::jwt)
+                    .sessionManagement((session) -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                    .exceptionHandling((exceptions) -> exceptions
+                            .authenticationEntryPoint(new BearerTokenAuthenticationEntryPoint())
+                            .accessDeniedHandler(new BearerTokenAccessDeniedHandler())
+                    );
+            return http.build();
+        }
+
+        /**
+         * Creates a JWT decoder, verifying each token once then answering from the {@link VerifiedJwtCache}.
+         *
+         * @param jwtKeySet        the keys of the tokens
+         * @param verifiedJwtCache the cache of the verified tokens
+         * @return the JWT decoder
+         */
+        @Bean
+        JwtDecoder jwtDecoder(JwtKeySet jwtKeySet, VerifiedJwtCache verifiedJwtCache) {
+            return verifiedJwtCache.decoder(jwtKeySet.decoder());
+        }
+
+        /**
+         * Creates the entry point of the basic authentication: a 503 status with a Retry-After header
+         * when the password hashing is rejected, the default basic authentication challenge otherwise.
+         *
+         * @return the entry point
+         */
+        private static AuthenticationEntryPoint basicAuthenticationEntryPoint() {
+            BasicAuthenticationEntryPoint challenge = new BasicAuthenticationEntryPoint();
+            challenge.setRealmName("Realm");
+            return (request, response, authException) -> {
+                if (authException instanceof PasswordHashingRejectedException rejected) {
+                    response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(rejected.getRetryAfter().toSeconds()));
+                    response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), rejected.getMessage());
+                } else {
+                    challenge.commence(request, response, authException);
+                }
+            };
+        }
+    }
+
+    /**
+     * Security of the reactive (Netty) stack, enabled by the reactive profile.
+     */
+    @EnableWebFluxSecurity
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    static class ReactiveSecurity {
+
+        /**
+         * Configures the security filter chain, with the same authentication schemes and rules as the servlet stack.
+         * It is stateless like the servlet stack: no security context or request is saved in a session,
+         * which would also create a session for each request, and no CSRF protection is needed without session cookie.
+         *
+         * @param http the ServerHttpSecurity instance
+         * @return the security filter chain
+         */
+        @Bean
+        public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+            return http
+                    .authorizeExchange((authorize) -> authorize
+                            .pathMatchers(PUBLIC_PATHS).permitAll()
+                            .pathMatchers(AUTHENTICATED_PATHS).authenticated()
+                            .anyExchange().permitAll()
+                    )
+                    .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                    .httpBasic((basic) -> basic.authenticationEntryPoint(basicAuthenticationEntryPoint()))
+                    .oauth2ResourceServer((resourceServer) -> resourceServer.jwt(Customizer.withDefaults()))
+                    .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                    .requestCache((requestCache) -> requestCache.requestCache(NoOpServerRequestCache.getInstance()))
+                    .exceptionHandling((exceptions) -> exceptions
+                            .authenticationEntryPoint(new BearerTokenServerAuthenticationEntryPoint())
+                            .accessDeniedHandler(new BearerTokenServerAccessDeniedHandler())
+                    )
+                    .build();
+        }
+
+        /**
+         * Creates a reactive JWT decoder, verifying each token once then answering from the {@link VerifiedJwtCache}.
+         *
+         * @param jwtKeySet        the keys of the tokens
+         * @param verifiedJwtCache the cache of the verified tokens
+         * @return the reactive JWT decoder
+         */
+        @Bean
+        ReactiveJwtDecoder reactiveJwtDecoder(JwtKeySet jwtKeySet, VerifiedJwtCache verifiedJwtCache) {
+            return verifiedJwtCache.reactiveDecoder(jwtKeySet.reactiveDecoder());
+        }
+
+        /**
+         * Creates the entry point of the basic authentication: a 503 status with a Retry-After header
+         * when the password hashing is rejected, the default basic authentication challenge otherwise.
+         *
+         * @return the entry point
+         */
+        private static ServerAuthenticationEntryPoint basicAuthenticationEntryPoint() {
+            ServerAuthenticationEntryPoint challenge = new HttpBasicServerAuthenticationEntryPoint();
+            return (exchange, authException) -> {
+                if (authException instanceof PasswordHashingRejectedException rejected) {
+                    return Mono.fromRunnable(() -> {
+                        exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                        exchange.getResponse().getHeaders()
+                                .set(HttpHeaders.RETRY_AFTER, String.valueOf(rejected.getRetryAfter().toSeconds()));
+                    });
+                }
+                return challenge.commence(exchange, authException);
+            };
+        }
+
+        /**
+         * Loads the users of the basic authentication with the {@link CustomUserDetailService},
+         * on the bounded elastic scheduler since it queries MongoDB with the blocking driver.
+         *
+         * @param userDetailService the blocking user details service
+         * @return the reactive user details service
+         */
+        @Bean
+        ReactiveUserDetailsService reactiveUserDetailsService(CustomUserDetailService userDetailService) {
+            return username -> Mono.fromCallable(() -> userDetailService.loadUserByUsername(username))
+                    .subscribeOn(Schedulers.boundedElastic());
+        }
     }
 }
@@ -0,0 +1,15 @@
+package ch.hos6.openweb.urlShortener.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration class enabling the scheduled tasks, such as the subscription of the {@code CacheInvalidationBus}
+ * to the invalidation channel, retried while Redis is unreachable, and the periodic rebuild of the {@code ShortUrlFilter}.
+ *
+ * @author Toubia Oussama
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
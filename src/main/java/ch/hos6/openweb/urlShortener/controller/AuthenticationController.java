@@ -1,9 +1,14 @@
 package ch.hos6.openweb.urlShortener.controller;
 
 
+import ch.hos6.openweb.urlShortener.domain.dto.RefreshTokenDto;
 import ch.hos6.openweb.urlShortener.domain.dto.UserDto;
+import ch.hos6.openweb.urlShortener.domain.entity.RefreshToken;
 import ch.hos6.openweb.urlShortener.domain.entity.User;
 import ch.hos6.openweb.urlShortener.errorhandling.exception.UsernameAlreadyTakenException;
+import ch.hos6.openweb.urlShortener.security.JwtKeySet;
+import ch.hos6.openweb.urlShortener.security.VerifiedJwtCache;
+import ch.hos6.openweb.urlShortener.service.RefreshTokenService;
 import ch.hos6.openweb.urlShortener.service.UserService;
 import ch.hos6.openweb.urlShortener.utils.JwtTokenUtils;
 import io.swagger.v3.oas.annotations.Operation;
@@ -21,7 +26,7 @@ import java.util.Map;
 
 /**
  * Controller class to handle authentication operations.
- * This includes user login and registration endpoints.
+ * This includes user login, token refresh, registration, token revocation and public keys endpoints.
  *
  * @author Toubia Oussama
  */
@@ -34,27 +39,37 @@ public class AuthenticationController {
 
     private final JwtTokenUtils jwtTokenUtils;
     private final UserService userService;
+    private final VerifiedJwtCache verifiedJwtCache;
+    private final JwtKeySet jwtKeySet;
+    private final RefreshTokenService refreshTokenService;
 
     /**
      * Constructor for the AuthenticationController.
      *
-     * @param jwtTokenUtils utility class for JWT token operations.
-     * @param userService   the service handling user operations.
+     * @param jwtTokenUtils       utility class for JWT token operations.
+     * @param userService         the service handling user operations.
+     * @param verifiedJwtCache    the cache of the verified tokens, revoking them.
+     * @param jwtKeySet           the keys of the tokens.
+     * @param refreshTokenService the service handling refresh tokens.
      */
-    public AuthenticationController(JwtTokenUtils jwtTokenUtils, UserService userService) {
+    public AuthenticationController(JwtTokenUtils jwtTokenUtils, UserService userService, VerifiedJwtCache verifiedJwtCache,
+                                    JwtKeySet jwtKeySet, RefreshTokenService refreshTokenService) {
         this.jwtTokenUtils = jwtTokenUtils;
         this.userService = userService;
+        this.verifiedJwtCache = verifiedJwtCache;
+        this.jwtKeySet = jwtKeySet;
+        this.refreshTokenService = refreshTokenService;
     }
 
     /**
      * Endpoint for user login.
-     * Authenticates the user and returns a JWT token.
+     * Authenticates the user and returns a JWT token, along with a refresh token renewing it.
      *
      * @param authentication Spring Security authentication object.
-     * @return a JWT token.
+     * @return a JWT token and a refresh token.
      */
     @PostMapping("/login")
-    @Operation(summary = "User login", description = "Authenticates the user and returns a JWT token")
+    @Operation(summary = "User login", description = "Authenticates the user and returns a JWT token and a refresh token")
     @SecurityRequirement(name = "basicAuth")
     public ResponseEntity<Map<String, String>> login(Authentication authentication) {
         if(authentication == null){
@@ -63,6 +78,26 @@ public class AuthenticationController {
         User user = (User) authentication.getPrincipal();
         String token = jwtTokenUtils.token(user);
 
+        Map<String, String> response = new HashMap<>();
+        response.put("token", token);
+        response.put("refreshToken", refreshTokenService.issue(user));
+
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint for token refresh.
+     * Returns a new JWT token for the user of a valid refresh token, without authenticating the user again.
+     *
+     * @param refreshToken the refresh token returned at login.
+     * @return a JWT token.
+     */
+    @PostMapping("/refresh")
+    @Operation(summary = "Token refresh", description = "Returns a new JWT token for a refresh token returned at login")
+    public ResponseEntity<Map<String, String>> refresh(@Valid @RequestBody RefreshTokenDto refreshToken) {
+        RefreshToken validToken = refreshTokenService.validate(refreshToken.refreshToken());
+        String token = jwtTokenUtils.token(validToken.getUserId(), validToken.getUsername());
+
         Map<String, String> response = new HashMap<>();
         response.put("token", token);
 
@@ -82,4 +117,36 @@ public class AuthenticationController {
         UserDto createdUser = userService.createUser(user);
         return new ResponseEntity<>(createdUser, HttpStatus.CREATED);
     }
+
+    /**
+     * Endpoint for token revocation.
+     * Revokes every token issued to the authenticated user until now and all their refresh tokens, on all the nodes.
+     *
+     * @param authentication Spring Security authentication object, by token or basic authentication.
+     * @return an empty response.
+     */
+    @PostMapping("/revoke")
+    @Operation(summary = "Token revocation", description = "Revokes every token and refresh token issued to the authenticated user until now")
+    @SecurityRequirement(name = "bearer")
+    @SecurityRequirement(name = "basicAuth")
+    public ResponseEntity<Void> revoke(Authentication authentication) {
+        if(authentication == null){
+            throw new AuthenticationCredentialsNotFoundException("No credential found");
+        }
+        refreshTokenService.revokeAll(authentication.getName());
+        verifiedJwtCache.revoke(authentication.getName());
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Endpoint for the public keys.
+     * Returns the JWK set of the public keys verifying the tokens, identified by their key id.
+     *
+     * @return the public JWK set.
+     */
+    @GetMapping("/jwks")
+    @Operation(summary = "Public keys", description = "Returns the JWK set of the public keys verifying the tokens")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return new ResponseEntity<>(jwtKeySet.getPublicKeys().toJSONObject(), HttpStatus.OK);
+    }
 }
@@ -1,6 +1,6 @@
 package ch.hos6.openweb.urlShortener.controller;
 
-import ch.hos6.openweb.urlShortener.errorhandling.exception.ShortUrlNotFoundException;
+import ch.hos6.openweb.urlShortener.analytics.ClickTracker;
 import ch.hos6.openweb.urlShortener.service.UrlService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -8,6 +8,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -19,11 +20,13 @@ import java.io.IOException;
 
 /**
  * This controller is responsible for redirecting short URLs to their original URLs.
+ * It serves the servlet stack, the reactive profile redirects with the {@link RedirectHandler} instead.
  *
  * @author Toubia Oussama
  */
 @Slf4j
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @CrossOrigin(origins="*", maxAge=3600)
 @Tag(name = "Redirect", description = "Endpoint for redirecting short URLs to their original URLs")
 public class RedirectController {
@@ -35,16 +38,24 @@ public class RedirectController {
     private final UrlService urlService;
 
     /**
-     * Constructs a new instance of RedirectController with the given UrlService.
+     * The tracker recording the clicks of the redirects without blocking.
+     */
+    private final ClickTracker clickTracker;
+
+    /**
+     * Constructs a new instance of RedirectController with the given UrlService and ClickTracker.
      *
-     * @param urlService The service that provides operations related to URLs.
+     * @param urlService   The service that provides operations related to URLs.
+     * @param clickTracker The tracker of the clicks.
      */
-    public RedirectController(UrlService urlService) {
+    public RedirectController(UrlService urlService, ClickTracker clickTracker) {
         this.urlService = urlService;
+        this.clickTracker = clickTracker;
     }
 
     /**
      * Fetches the original URL corresponding to the given short URL and redirects to it.
+     * The click is recorded by the {@link ClickTracker}, which does not write it synchronously.
      *
      * @param shortUrl The short URL that should be redirected to its original URL.
      * @param response The HttpServletResponse to which the redirect should be written.
@@ -55,6 +66,7 @@ public class RedirectController {
     public ResponseEntity<String> getOriginalUrl(@PathVariable String shortUrl, HttpServletResponse response) {
         try {
             String originalUrl = urlService.getOriginalUrl(shortUrl);
+            clickTracker.record(shortUrl);
             response.sendRedirect(originalUrl);
             return new ResponseEntity<>("Redirecting to original URL.", HttpStatus.MOVED_PERMANENTLY);
         }  catch (IOException e) {
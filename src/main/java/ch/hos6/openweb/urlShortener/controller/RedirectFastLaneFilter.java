@@ -0,0 +1,140 @@
+package ch.hos6.openweb.urlShortener.controller;
+
+import ch.hos6.openweb.urlShortener.analytics.ClickTracker;
+import ch.hos6.openweb.urlShortener.errorhandling.exception.ShortUrlNotFoundException;
+import ch.hos6.openweb.urlShortener.service.UrlService;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Servlet filter answering the redirects of resolvable short URLs before the security filter chain,
+ * the DispatcherServlet and the aspects of the controllers.
+ * <p>
+ * A GET of a single path segment made of base62 characters is resolved through {@link UrlService#getOriginalUrl(String)},
+ * which reads the URL cache first. A resolved short URL is answered right away with a bodyless FOUND status
+ * and the original URL as Location header, as the {@link RedirectController} does. A short URL that does not resolve,
+ * or whose lookup fails, is answered right away too, with the status and message the {@link RedirectController}
+ * would answer, so that the lookup is never repeated. Any other request continues down the filter chain unchanged.
+ * </p>
+ * The filter is registered by {@link ch.hos6.openweb.urlShortener.config.RedirectFastLaneConfig}.
+ *
+ * @author Toubia Oussama
+ */
+@Slf4j
+public class RedirectFastLaneFilter implements Filter {
+    /**
+     * The pattern of the redirect path, reported to the HTTP server metrics.
+     */
+    private static final String PATH_PATTERN = "/{shortUrl}";
+
+    /**
+     * The response headers of {@link org.springframework.web.bind.annotation.CrossOrigin} with any origin.
+     */
+    private static final String ANY_ORIGIN = "*";
+    private static final String CORS_VARY = HttpHeaders.ORIGIN + ", " + HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD
+            + ", " + HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS;
+
+    private final UrlService urlService;
+    private final ClickTracker clickTracker;
+
+    /**
+     * Constructs a RedirectFastLaneFilter.
+     *
+     * @param urlService   the service resolving the short URLs through the URL cache
+     * @param clickTracker the tracker recording the clicks without blocking
+     */
+    public RedirectFastLaneFilter(UrlService urlService, ClickTracker clickTracker) {
+        this.urlService = urlService;
+        this.clickTracker = clickTracker;
+    }
+
+    /**
+     * Answers the request if it is the GET of a short URL, or passes it down the chain.
+     *
+     * @param servletRequest  the request
+     * @param servletResponse the response
+     * @param chain           the rest of the filter chain
+     */
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        String shortUrl = "GET".equals(request.getMethod()) ? shortUrlOf(request) : null;
+        if (shortUrl == null) {
+            chain.doFilter(servletRequest, servletResponse);
+            return;
+        }
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+        if (request.getHeader(HttpHeaders.ORIGIN) != null) {
+            response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, ANY_ORIGIN);
+            response.setHeader(HttpHeaders.VARY, CORS_VARY);
+        }
+        ServerHttpObservationFilter.findObservationContext(request)
+                .ifPresent(context -> context.setPathPattern(PATH_PATTERN));
+        String originalUrl;
+        try {
+            originalUrl = urlService.getOriginalUrl(shortUrl);
+        } catch (ShortUrlNotFoundException e) {
+            sendError(response, HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+            return;
+        } catch (RuntimeException e) {
+            log.error("Unable to resolve short URL {} in the fast lane. Ex = {}", shortUrl, e.getMessage());
+            sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
+            return;
+        }
+        clickTracker.record(shortUrl);
+        response.setStatus(HttpServletResponse.SC_FOUND);
+        response.setHeader(HttpHeaders.LOCATION, originalUrl);
+        response.setContentLength(0);
+    }
+
+    /**
+     * Extracts the short URL of a request path made of a single base62 segment.
+     *
+     * @param request the request
+     * @return the short URL, or null if the path is not a short URL
+     */
+    private static String shortUrlOf(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        int start = request.getContextPath().length() + 1;
+        if (uri.length() <= start || uri.charAt(start - 1) != '/') {
+            return null;
+        }
+        for (int i = start; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z')) {
+                return null;
+            }
+        }
+        return uri.substring(start);
+    }
+
+    /**
+     * Answers an error with a plain text message, as the
+     * {@link ch.hos6.openweb.urlShortener.errorhandling.GlobalExceptionHandler} does for the {@link RedirectController}.
+     *
+     * @param response the response
+     * @param status   the status of the error
+     * @param message  the message of the error
+     */
+    private static void sendError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        if (message != null) {
+            response.getWriter().write(message);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ch.hos6.openweb.urlShortener.controller;
+
+import ch.hos6.openweb.urlShortener.analytics.ClickTracker;
+import ch.hos6.openweb.urlShortener.service.ReactiveUrlService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Functional handler redirecting short URLs to their original URLs, the reactive counterpart of {@link RedirectController}.
+ * It is routed by {@link ch.hos6.openweb.urlShortener.config.ReactiveWebConfig} and runs on the Netty event loop,
+ * so it must never block.
+ *
+ * @author Toubia Oussama
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class RedirectHandler {
+
+    private final ReactiveUrlService urlService;
+    private final ClickTracker clickTracker;
+
+    /**
+     * Constructs a new instance of RedirectHandler with the given ReactiveUrlService and ClickTracker.
+     *
+     * @param urlService   The service resolving the short URLs without blocking.
+     * @param clickTracker The tracker recording the clicks without blocking.
+     */
+    public RedirectHandler(ReactiveUrlService urlService, ClickTracker clickTracker) {
+        this.urlService = urlService;
+        this.clickTracker = clickTracker;
+    }
+
+    /**
+     * Redirects to the original URL of the short URL of the path, with the same status as {@link RedirectController},
+     * or answers NOT_FOUND if the short URL is invalid or inactive. The click is recorded by the {@link ClickTracker}.
+     *
+     * @param request the request, whose {@code shortUrl} path variable is resolved
+     * @return the redirect response
+     */
+    public Mono<ServerResponse> redirect(ServerRequest request) {
+        String shortUrl = request.pathVariable("shortUrl");
+        return urlService.getOriginalUrl(shortUrl)
+                .doOnNext(originalUrl -> clickTracker.record(shortUrl))
+                .flatMap(originalUrl -> ServerResponse.status(HttpStatus.FOUND)
+                        .header(HttpHeaders.LOCATION, originalUrl)
+                        .build())
+                .switchIfEmpty(Mono.defer(() -> ServerResponse.status(HttpStatus.NOT_FOUND)
+                        .bodyValue("Invalid or inactive short URL")));
+    }
+}
@@ -1,6 +1,8 @@
 package ch.hos6.openweb.urlShortener.controller;
 
+import ch.hos6.openweb.urlShortener.domain.dto.UrlCreationResultDto;
 import ch.hos6.openweb.urlShortener.domain.dto.UrlDto;
+import ch.hos6.openweb.urlShortener.domain.dto.UrlPageDto;
 import ch.hos6.openweb.urlShortener.domain.entity.Url;
 import ch.hos6.openweb.urlShortener.errorhandling.exception.UrlCreationException;
 import ch.hos6.openweb.urlShortener.mapper.UrlMapper;
@@ -9,15 +11,19 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * This class acts as a REST controller for handling URL related requests.
- * It provides endpoints for creating a short URL, retrieving user URLs, deleting a URL, disabling a URL and enabling a URL.
+ * It provides endpoints for creating a short URL or a batch of short URLs, retrieving user URLs at once, by page or streamed, deleting a URL, disabling a URL and enabling a URL.
  *
  * @author Toubia Oussama
  */
@@ -62,6 +68,21 @@ public class UrlController {
         return ResponseEntity.ok(urlMapper.urlToDto(url));
     }
 
+    /**
+     * Creates short URLs from the given original URLs and returns the outcome of each of them, in the same order.
+     * The URLs that cannot be created are reported with the reason of the failure, without failing the others.
+     * @param originalUrls the original URLs to be shortened, at most {@code url.batch.max-size}
+     * @param jwtAuthenticationToken the JWT token for authenticating the user
+     * @return the DTOs of the outcome of the creation of each URL
+     */
+    @PostMapping("/batch")
+    @Operation(summary = "Create short URLs in batch", description = "Creates short URLs from the given original URLs and reports the outcome of each of them")
+    @SecurityRequirement(name = "bearer")
+    public ResponseEntity<List<UrlCreationResultDto>> createShortUrls(@RequestBody List<String> originalUrls, JwtAuthenticationToken jwtAuthenticationToken) {
+        String userId = getUserIdFromJwtAuth(jwtAuthenticationToken);
+        return ResponseEntity.ok(urlMapper.creationResultsToDtos(urlService.createUrls(originalUrls, userId)));
+    }
+
     /**
      * Retrieves all URLs of the authenticated user and returns their corresponding DTOs.
      * @param jwtAuthenticationToken the JWT token for authenticating the user
@@ -76,6 +97,41 @@ public class UrlController {
         return ResponseEntity.ok(urlMapper.urlsToDtos(urls));
     }
 
+    /**
+     * Retrieves a page of the URLs of the authenticated user, newest first, and returns their corresponding DTOs
+     * with the cursor of the next page.
+     * @param cursor the cursor of the page, returned with the previous page, none for the first page
+     * @param size the maximum number of URLs of the page
+     * @param jwtAuthenticationToken the JWT token for authenticating the user
+     * @return the DTO of the page of the user's URLs
+     */
+    @GetMapping("/page")
+    @Operation(summary = "Get a page of user URLs", description = "Retrieves a page of the URLs of the authenticated user, newest first, with the cursor of the next page")
+    @SecurityRequirement(name = "bearer")
+    public ResponseEntity<UrlPageDto> getUserUrlsPage(@RequestParam(required = false) String cursor,
+                                                      @RequestParam(defaultValue = "50") int size,
+                                                      JwtAuthenticationToken jwtAuthenticationToken) {
+        String userId = getUserIdFromJwtAuth(jwtAuthenticationToken);
+        return ResponseEntity.ok(urlMapper.pageToDto(urlService.getUserUrlsPage(userId, cursor, size)));
+    }
+
+    /**
+     * Streams all URLs of the authenticated user as newline delimited JSON, newest first.
+     * The URLs are read from a MongoDB cursor and written one by one as the client consumes them,
+     * so that the memory used does not depend on the number of URLs of the user.
+     * @param jwtAuthenticationToken the JWT token for authenticating the user
+     * @return the DTOs of the user's URLs, one per line
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream user URLs", description = "Streams all URLs of the authenticated user as newline delimited JSON")
+    @SecurityRequirement(name = "bearer")
+    public Flux<UrlDto> streamUserUrls(JwtAuthenticationToken jwtAuthenticationToken) {
+        String userId = getUserIdFromJwtAuth(jwtAuthenticationToken);
+        return Flux.fromStream(() -> urlService.streamUserUrls(userId))
+                .map(urlMapper::urlToDto)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
     /**
      * Deletes the URL with the given short URL.
      * @param shortUrl the short URL of the URL to be deleted
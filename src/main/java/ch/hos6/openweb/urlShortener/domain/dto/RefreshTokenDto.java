@@ -0,0 +1,6 @@
+package ch.hos6.openweb.urlShortener.domain.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record RefreshTokenDto(@NotBlank(message = "Refresh token is mandatory") String refreshToken) {
+}
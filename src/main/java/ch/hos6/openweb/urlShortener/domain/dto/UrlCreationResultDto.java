@@ -0,0 +1,7 @@
+package ch.hos6.openweb.urlShortener.domain.dto;
+
+public record UrlCreationResultDto(String originalUrl,
+                                   UrlDto url,
+                                   String error,
+                                   boolean retryable) {
+}
@@ -1,10 +1,13 @@
 package ch.hos6.openweb.urlShortener.domain.dto;
 
+import ch.hos6.openweb.urlShortener.domain.entity.ValidationStatus;
+
 import java.time.LocalDateTime;
 
 public record UrlDto(String originalUrl,
                      String shortenedUrl,
                      LocalDateTime creationDate,
                      LocalDateTime expirationDate,
-                     boolean active) {
+                     boolean active,
+                     ValidationStatus validationStatus) {
 }
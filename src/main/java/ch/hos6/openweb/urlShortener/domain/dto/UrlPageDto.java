@@ -0,0 +1,7 @@
+package ch.hos6.openweb.urlShortener.domain.dto;
+
+import java.util.List;
+
+public record UrlPageDto(List<UrlDto> urls,
+                         String nextCursor) {
+}
@@ -0,0 +1,54 @@
+package ch.hos6.openweb.urlShortener.domain.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * RefreshToken is a long-lived token renewing the access tokens of a user without authenticating again.
+ * It is stored in the 'refreshTokens' collection in MongoDB, by the hash of the token only.
+ *
+ * @author Toubia Oussama
+ */
+@Data
+@Document(collection = "refreshTokens")
+public class RefreshToken {
+    /**
+     * Unique identifier of the refresh token.
+     * This field is automatically generated by MongoDB.
+     */
+    @Id
+    private String id;
+
+    /**
+     * The SHA-256 hash of the token, the token itself is only known by the client.
+     */
+    @Indexed(unique = true)
+    private String tokenHash;
+
+    /**
+     * The identifier of the user the token was issued to.
+     */
+    private String userId;
+
+    /**
+     * The username of the user the token was issued to.
+     */
+    @Indexed
+    private String username;
+
+    /**
+     * The date and time when this token was issued.
+     */
+    private Instant creationDate;
+
+    /**
+     * The date and time when this token expires.
+     * After this time, the token will be automatically removed from the collection due to the TTL index.
+     */
+    @Indexed(expireAfterSeconds = 0)
+    private Instant expirationDate;
+}
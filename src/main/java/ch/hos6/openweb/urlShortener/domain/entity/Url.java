@@ -3,6 +3,7 @@ package ch.hos6.openweb.urlShortener.domain.entity;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.DBRef;
@@ -13,11 +14,13 @@ import java.time.LocalDateTime;
 /**
  * Url is a representation of a shortened URL in the system.
  * It is stored in the 'urls' collection in MongoDB.
+ * The URLs of a user are listed newest first through the compound index on the user, creation date and id.
  *
  * @author Toubia Oussama
  */
 @Data
 @Document(collection = "urls")
+@CompoundIndex(name = "user_creation_id", def = "{'userId': 1, 'creationDate': -1, '_id': -1}")
 public class Url {
     /**
      * Unique identifier for the Url.
@@ -62,5 +65,11 @@ public class Url {
      */
     private boolean active = true;
 
+    /**
+     * The state of the validation of the original URL.
+     * Urls saved before validation existed have no status and are considered valid.
+     */
+    private ValidationStatus validationStatus;
+
 
 }
\ No newline at end of file
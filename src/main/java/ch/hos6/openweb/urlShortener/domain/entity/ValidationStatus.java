@@ -0,0 +1,21 @@
+package ch.hos6.openweb.urlShortener.domain.entity;
+
+/**
+ * The state of the validation of the destination of a {@link Url}.
+ *
+ * @author Toubia Oussama
+ */
+public enum ValidationStatus {
+    /**
+     * The destination is being validated in the background, the Url is inactive meanwhile.
+     */
+    PENDING,
+    /**
+     * The destination answered with a 2xx status.
+     */
+    VALID,
+    /**
+     * The destination could not be reached or did not answer with a 2xx status.
+     */
+    INVALID
+}
@@ -0,0 +1,22 @@
+package ch.hos6.openweb.urlShortener.domain.repository;
+
+import ch.hos6.openweb.urlShortener.domain.entity.Url;
+import lombok.NonNull;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link UrlRepository}, used by the reactive redirect stack.
+ * It is only available with the reactive profile, which enables the reactive MongoDB client.
+ *
+ * @author Toubia Oussama
+ */
+public interface ReactiveUrlRepository extends ReactiveMongoRepository<Url, String> {
+
+    /**
+     * Retrieves the active URL with the given shortened URL.
+     * @param shortenedUrl the shortened URL of the URL
+     * @return a Mono emitting the active URL if it exists, empty otherwise
+     */
+    Mono<Url> findByShortenedUrlAndActiveIsTrue(@NonNull String shortenedUrl);
+}
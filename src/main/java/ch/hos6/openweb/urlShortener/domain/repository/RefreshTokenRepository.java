@@ -0,0 +1,31 @@
+package ch.hos6.openweb.urlShortener.domain.repository;
+
+import ch.hos6.openweb.urlShortener.domain.entity.RefreshToken;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Optional;
+
+/**
+ * This interface defines the repository for managing RefreshTokens in the MongoDB database.
+ * It extends the MongoRepository interface provided by Spring Data MongoDB.
+ *
+ * @author Toubia Oussama
+ */
+public interface RefreshTokenRepository extends MongoRepository<RefreshToken, String> {
+
+    /**
+     * Retrieves a RefreshToken by the hash of the token.
+     *
+     * @param tokenHash the hash of the token
+     * @return an Optional containing the RefreshToken if it exists, empty otherwise
+     */
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    /**
+     * Deletes all the RefreshTokens of a user.
+     *
+     * @param username the username of the user
+     * @return the number of deleted tokens
+     */
+    long deleteByUsername(String username);
+}
@@ -2,19 +2,23 @@ package ch.hos6.openweb.urlShortener.domain.repository;
 
 import ch.hos6.openweb.urlShortener.domain.entity.Url;
 import lombok.NonNull;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * This interface defines the repository for managing URLs in the MongoDB database.
  * It extends the MongoRepository interface provided by Spring Data MongoDB.
  * It provides methods for finding URLs by user ID, finding active URLs by their shortened URL,
  * and checking if a URL exists by its shortened URL.
+ * The bulk operations of {@link UrlRepositoryCustom} are implemented by hand.
  *
  * @author Toubia Oussama
  */
-public interface UrlRepository extends MongoRepository<Url,String> {
+public interface UrlRepository extends MongoRepository<Url,String>, UrlRepositoryCustom {
 
     /**
      * Retrieves all URLs associated with the given user ID.
@@ -43,4 +47,22 @@ public interface UrlRepository extends MongoRepository<Url,String> {
      * @return true if a URL with the given shortened URL exists, false otherwise
      */
     Boolean existsByShortenedUrl(@NonNull String shortenedUrl);
+
+    /**
+     * Streams all URLs of the given user, newest first, backed by a MongoDB cursor fetching them in batches.
+     * The stream must be closed once consumed.
+     * @param userId the ID of the user
+     * @return a Stream of the URLs of the user
+     */
+    @Query(value = "{ 'userId' : ?0 }", sort = "{ 'creationDate' : -1, '_id' : -1 }")
+    @Meta(cursorBatchSize = 500)
+    Stream<Url> streamByUserId(@NonNull String userId);
+
+    /**
+     * Streams all URLs with only their shortened URL loaded, backed by a MongoDB cursor.
+     * The stream must be closed once consumed.
+     * @return a Stream of URLs holding only their id and shortened URL
+     */
+    @Query(value = "{}", fields = "{ 'shortenedUrl' : 1 }")
+    Stream<Url> streamAllShortenedUrls();
 }
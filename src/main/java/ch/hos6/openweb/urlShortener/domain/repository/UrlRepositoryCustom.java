@@ -0,0 +1,55 @@
+package ch.hos6.openweb.urlShortener.domain.repository;
+
+import ch.hos6.openweb.urlShortener.domain.entity.Url;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This interface defines the operations of the URL repository that are implemented by hand
+ * in {@link UrlRepositoryCustomImpl}, rather than derived by Spring Data MongoDB.
+ *
+ * @author Toubia Oussama
+ */
+public interface UrlRepositoryCustom {
+
+    /**
+     * Inserts the given URLs with a single unordered bulk insert.
+     * A URL rejected by MongoDB, for example because its short URL is already taken, does not fail the others.
+     * The ids of the URLs are assigned before the insert.
+     * @param urls the URLs to insert
+     * @return the URLs rejected, by position in the list
+     */
+    List<RejectedUrl> insertAllUnordered(List<Url> urls);
+
+    /**
+     * Retrieves a page of the URLs of the given user, newest first, starting after the given URL.
+     * The page is found by a range on the compound index of the user, creation date and id,
+     * so that its cost does not depend on how many pages precede it.
+     * @param userId the ID of the user
+     * @param creationDate the creation date of the last URL of the previous page, null for the first page
+     * @param id the id of the last URL of the previous page, null for the first page
+     * @param limit the maximum number of URLs of the page
+     * @return the URLs of the page
+     */
+    List<Url> findUserUrlsAfter(String userId, LocalDateTime creationDate, String id, int limit);
+
+    /**
+     * Retrieves the original URLs of the given short URLs that are active, with a single {@code $in} query
+     * on the unique index of the short URLs, projected to the fields needed.
+     * @param shortUrls the short URLs
+     * @return the original URLs by short URL, without the short URLs that are invalid or inactive
+     */
+    Map<String, String> findActiveOriginalUrls(Collection<String> shortUrls);
+
+    /**
+     * A URL rejected by a bulk insert.
+     * @param index the position of the URL in the inserted list
+     * @param duplicateShortUrl whether it was rejected because its short URL is already taken
+     * @param reason the error reported by MongoDB
+     */
+    record RejectedUrl(int index, boolean duplicateShortUrl, String reason) {
+    }
+}
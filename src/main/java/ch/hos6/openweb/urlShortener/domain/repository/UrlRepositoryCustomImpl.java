@@ -0,0 +1,103 @@
+package ch.hos6.openweb.urlShortener.domain.repository;
+
+import ch.hos6.openweb.urlShortener.domain.entity.Url;
+import com.mongodb.ErrorCategory;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of the {@link UrlRepositoryCustom} operations with the MongoTemplate.
+ * Spring Data MongoDB adds them to the {@link UrlRepository}.
+ *
+ * @author Toubia Oussama
+ */
+public class UrlRepositoryCustomImpl implements UrlRepositoryCustom {
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Constructs a UrlRepositoryCustomImpl with the provided MongoTemplate.
+     * @param mongoTemplate the template used to write the URLs
+     */
+    public UrlRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Inserts the given URLs with a single unordered bulk insert.
+     * The ids are generated here, since the bulk insert does not set them back on the URLs.
+     * @param urls the URLs to insert
+     * @return the URLs rejected, by position in the list
+     */
+    @Override
+    public List<RejectedUrl> insertAllUnordered(List<Url> urls) {
+        if (urls.isEmpty()) {
+            return List.of();
+        }
+        for (Url url : urls) {
+            if (url.getId() == null) {
+                url.setId(new ObjectId().toHexString());
+            }
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Url.class).insert(urls).execute();
+            return List.of();
+        } catch (BulkOperationException e) {
+            return e.getErrors().stream()
+                    .map(error -> new RejectedUrl(error.getIndex(),
+                            ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY,
+                            error.getMessage()))
+                    .toList();
+        }
+    }
+
+    /**
+     * Retrieves a page of the URLs of the given user, newest first, starting after the given URL.
+     * @param userId the ID of the user
+     * @param creationDate the creation date of the last URL of the previous page, null for the first page
+     * @param id the id of the last URL of the previous page, null for the first page
+     * @param limit the maximum number of URLs of the page
+     * @return the URLs of the page
+     */
+    @Override
+    public List<Url> findUserUrlsAfter(String userId, LocalDateTime creationDate, String id, int limit) {
+        Criteria criteria = Criteria.where("userId").is(userId);
+        if (creationDate != null) {
+            criteria.orOperator(
+                    Criteria.where("creationDate").lt(creationDate),
+                    // ids are only converted to ObjectId by equality criteria, not by range operators
+                    Criteria.where("creationDate").is(creationDate).and("id").lt(ObjectId.isValid(id) ? new ObjectId(id) : id));
+        }
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "creationDate", "id"))
+                .limit(limit);
+        return mongoTemplate.find(query, Url.class);
+    }
+
+    /**
+     * Retrieves the original URLs of the given short URLs that are active, with a single {@code $in} query.
+     * @param shortUrls the short URLs
+     * @return the original URLs by short URL, without the short URLs that are invalid or inactive
+     */
+    @Override
+    public Map<String, String> findActiveOriginalUrls(Collection<String> shortUrls) {
+        if (shortUrls.isEmpty()) {
+            return Map.of();
+        }
+        Query query = Query.query(Criteria.where("shortenedUrl").in(shortUrls).and("active").is(true));
+        query.fields().include("shortenedUrl", "originalUrl", "active");
+        Map<String, String> originalUrls = new HashMap<>(shortUrls.size() * 2);
+        mongoTemplate.find(query, Url.class).forEach(url -> originalUrls.put(url.getShortenedUrl(), url.getOriginalUrl()));
+        return originalUrls;
+    }
+}
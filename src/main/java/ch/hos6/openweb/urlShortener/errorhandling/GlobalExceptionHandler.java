@@ -1,10 +1,16 @@
 package ch.hos6.openweb.urlShortener.errorhandling;
 
+import ch.hos6.openweb.urlShortener.errorhandling.exception.BatchTooLargeException;
+import ch.hos6.openweb.urlShortener.errorhandling.exception.InvalidCursorException;
+import ch.hos6.openweb.urlShortener.errorhandling.exception.InvalidRefreshTokenException;
+import ch.hos6.openweb.urlShortener.errorhandling.exception.PasswordHashingRejectedException;
 import ch.hos6.openweb.urlShortener.errorhandling.exception.ShortUrlNotFoundException;
 import ch.hos6.openweb.urlShortener.errorhandling.exception.UrlCreationException;
+import ch.hos6.openweb.urlShortener.errorhandling.exception.UrlValidationUnavailableException;
 import ch.hos6.openweb.urlShortener.errorhandling.exception.UsernameAlreadyTakenException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.AuthenticationException;
@@ -83,7 +89,67 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    /**
+     * This method handles BatchTooLargeException exceptions.
+     *
+     * @param ex the BatchTooLargeException that was thrown.
+     * @return a ResponseEntity with a message from the exception and a PAYLOAD_TOO_LARGE status.
+     */
+    @ExceptionHandler(BatchTooLargeException.class)
+    public ResponseEntity<String> handleBatchTooLargeException(BatchTooLargeException ex) {
+        log.error("BatchTooLargeException caught: " + ex.getMessage());
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.PAYLOAD_TOO_LARGE);
+    }
 
+    /**
+     * This method handles InvalidCursorException exceptions.
+     *
+     * @param ex the InvalidCursorException that was thrown.
+     * @return a ResponseEntity with a message from the exception and a BAD_REQUEST status.
+     */
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<String> handleInvalidCursorException(InvalidCursorException ex) {
+        log.error("InvalidCursorException caught: " + ex.getMessage());
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
 
+    /**
+     * This method handles InvalidRefreshTokenException exceptions.
+     *
+     * @param ex the InvalidRefreshTokenException that was thrown.
+     * @return a ResponseEntity with a message from the exception and an UNAUTHORIZED status.
+     */
+    @ExceptionHandler(InvalidRefreshTokenException.class)
+    public ResponseEntity<String> handleInvalidRefreshTokenException(InvalidRefreshTokenException ex) {
+        log.error("InvalidRefreshTokenException caught: " + ex.getMessage());
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.UNAUTHORIZED);
+    }
+
+    /**
+     * This method handles PasswordHashingRejectedException exceptions.
+     *
+     * @param ex the PasswordHashingRejectedException that was thrown.
+     * @return a ResponseEntity with a message from the exception, a Retry-After header and a SERVICE_UNAVAILABLE status.
+     */
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    public ResponseEntity<String> handlePasswordHashingRejectedException(PasswordHashingRejectedException ex) {
+        log.error("PasswordHashingRejectedException caught: " + ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfter().toSeconds()))
+                .body(ex.getMessage());
+    }
 
+    /**
+     * This method handles UrlValidationUnavailableException exceptions.
+     *
+     * @param ex the UrlValidationUnavailableException that was thrown.
+     * @return a ResponseEntity with a message from the exception, a Retry-After header and a SERVICE_UNAVAILABLE status.
+     */
+    @ExceptionHandler(UrlValidationUnavailableException.class)
+    public ResponseEntity<String> handleUrlValidationUnavailableException(UrlValidationUnavailableException ex) {
+        log.error("UrlValidationUnavailableException caught: " + ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfter().toSeconds()))
+                .body(ex.getMessage());
+    }
 }
@@ -0,0 +1,7 @@
+package ch.hos6.openweb.urlShortener.errorhandling.exception;
+
+public class BatchTooLargeException extends RuntimeException {
+    public BatchTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ch.hos6.openweb.urlShortener.errorhandling.exception;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
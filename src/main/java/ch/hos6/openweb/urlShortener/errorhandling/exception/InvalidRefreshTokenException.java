@@ -0,0 +1,10 @@
+package ch.hos6.openweb.urlShortener.errorhandling.exception;
+
+import org.springframework.security.core.AuthenticationException;
+
+public class InvalidRefreshTokenException extends AuthenticationException {
+
+    public InvalidRefreshTokenException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,18 @@
+package ch.hos6.openweb.urlShortener.errorhandling.exception;
+
+import org.springframework.security.core.AuthenticationException;
+
+import java.time.Duration;
+
+public class PasswordHashingRejectedException extends AuthenticationException {
+    private final Duration retryAfter;
+
+    public PasswordHashingRejectedException(String msg, Duration retryAfter) {
+        super(msg);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,16 @@
+package ch.hos6.openweb.urlShortener.errorhandling.exception;
+
+import java.time.Duration;
+
+public class UrlValidationUnavailableException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public UrlValidationUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -1,11 +1,17 @@
 package ch.hos6.openweb.urlShortener.mapper;
 
+import ch.hos6.openweb.urlShortener.domain.dto.UrlCreationResultDto;
 import ch.hos6.openweb.urlShortener.domain.dto.UrlDto;
+import ch.hos6.openweb.urlShortener.domain.dto.UrlPageDto;
 import ch.hos6.openweb.urlShortener.domain.entity.Url;
+import ch.hos6.openweb.urlShortener.service.UrlCreationResult;
+import ch.hos6.openweb.urlShortener.service.UrlPage;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
 
+import java.util.List;
+
 /**
  * This interface defines the mapper for converting between Url and UrlDto objects.
  * It uses the MapStruct library to automatically generate the implementation at compile time.
@@ -40,4 +46,16 @@ public interface UrlMapper {
      * @return the corresponding Iterable of Url entities
      */
     Iterable<Url> DtosToUrls(Iterable<UrlDto> urlDtos);
+    /**
+     * Converts the results of the creation of a batch of URLs to their DTOs.
+     * @param results the results of the creation of the URLs
+     * @return the corresponding list of UrlCreationResultDto objects
+     */
+    List<UrlCreationResultDto> creationResultsToDtos(List<UrlCreationResult> results);
+    /**
+     * Converts a page of Url entities to a UrlPageDto object.
+     * @param page the page of Url entities
+     * @return the corresponding UrlPageDto object
+     */
+    UrlPageDto pageToDto(UrlPage page);
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package ch.hos6.openweb.urlShortener.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The timers of an operation, one per outcome, tagged with {@code outcome} and {@code exception}.
+ * <p>
+ * The timers of the outcomes known in advance are registered at construction,
+ * and the timer of a failure is registered on the first failure with the same exception type.
+ * Durations are measured with {@link System#nanoTime()} and recorded in the timer already resolved for the outcome,
+ * so that recording neither looks up the registry nor allocates.
+ * The percentiles, percentile histogram and SLO buckets of the timers are configured through the
+ * {@code management.metrics.distribution.*} properties of their name.
+ * </p>
+ *
+ * @author Toubia Oussama
+ */
+public class OutcomeTimers {
+    public static final String SUCCESS = "success";
+    public static final String ERROR = "error";
+    private static final String NO_EXCEPTION = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final String name;
+    private final String description;
+    private final Tags tags;
+    private final Map<String, Timer> outcomeTimers = new HashMap<>();
+    private final ConcurrentMap<Class<?>, Timer> errorTimers = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs the timers of an operation.
+     *
+     * @param meterRegistry the registry of the timers
+     * @param name          the name of the timers
+     * @param description   the description of the timers
+     * @param tags          the tags identifying the operation
+     * @param outcomes      the outcomes of the operation other than a failure
+     */
+    public OutcomeTimers(MeterRegistry meterRegistry, String name, String description, Tags tags, String... outcomes) {
+        this.meterRegistry = meterRegistry;
+        this.name = name;
+        this.description = description;
+        this.tags = tags;
+        for (String outcome : outcomes) {
+            outcomeTimers.put(outcome, register(outcome, NO_EXCEPTION));
+        }
+    }
+
+    /**
+     * Records the duration of an operation ended with the given outcome.
+     *
+     * @param outcome    one of the outcomes given at construction
+     * @param startNanos the value of {@link System#nanoTime()} when the operation started
+     */
+    public void record(String outcome, long startNanos) {
+        outcomeTimers.get(outcome).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the duration of an operation ended with an exception.
+     *
+     * @param exception  the exception thrown by the operation
+     * @param startNanos the value of {@link System#nanoTime()} when the operation started
+     */
+    public void recordError(Throwable exception, long startNanos) {
+        long duration = System.nanoTime() - startNanos;
+        Timer timer = errorTimers.get(exception.getClass());
+        if (timer == null) {
+            timer = errorTimers.computeIfAbsent(exception.getClass(), type -> register(ERROR, type.getSimpleName()));
+        }
+        timer.record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer register(String outcome, String exception) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .register(meterRegistry);
+    }
+}
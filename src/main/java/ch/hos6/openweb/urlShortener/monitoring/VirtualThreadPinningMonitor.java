@@ -0,0 +1,117 @@
+package ch.hos6.openweb.urlShortener.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads pinned to their carrier thread, in the virtual thread execution mode.
+ * <p>
+ * A virtual thread blocking inside a synchronized block or a native frame cannot unmount from its carrier,
+ * which is then unavailable to other virtual threads. Such pinning, for example inside the locks of a database client,
+ * is the main hazard of running blocking code on virtual threads. This monitor listens to the
+ * {@code jdk.VirtualThreadPinned} events of Java Flight Recorder lasting longer than
+ * {@code app.execution.pinned-threshold} milliseconds. It counts them in the {@code jvm.threads.virtual.pinned} timer,
+ * and logs the stack trace of each distinct pinning site once.
+ * </p>
+ *
+ * @author Toubia Oussama
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.execution.mode", havingValue = "virtual")
+public class VirtualThreadPinningMonitor implements InitializingBean, DisposableBean {
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 64;
+    private static final int MAX_REPORTED_SITES = 1000;
+
+    private final Duration threshold;
+    private final Timer pinnedTimer;
+    private final Counter unreportedSites;
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private RecordingStream recordingStream;
+
+    /**
+     * Constructs a VirtualThreadPinningMonitor.
+     *
+     * @param meterRegistry the registry of the pinning metrics
+     * @param threshold     the minimum duration in milliseconds of the reported pinning
+     */
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${app.execution.pinned-threshold:20}") long threshold) {
+        this.threshold = Duration.ofMillis(threshold);
+        this.pinnedTimer = Timer.builder("jvm.threads.virtual.pinned")
+                .description("Virtual threads pinned to their carrier thread while blocking")
+                .register(meterRegistry);
+        this.unreportedSites = Counter.builder("jvm.threads.virtual.pinned.unreported")
+                .description("Pinning events not logged because too many distinct sites were already logged")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts listening to the pinning events in the background.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::report);
+        recordingStream.startAsync();
+        log.info("Reporting virtual threads pinned for more than {} ms", threshold.toMillis());
+    }
+
+    /**
+     * Stops listening to the pinning events.
+     */
+    @Override
+    public void destroy() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    /**
+     * Counts a pinning event, and logs its stack trace if its site was not logged yet.
+     *
+     * @param event the pinning event
+     */
+    private void report(RecordedEvent event) {
+        pinnedTimer.record(event.getDuration());
+        String site = stackTrace(event);
+        if (reportedSites.size() >= MAX_REPORTED_SITES) {
+            unreportedSites.increment();
+        } else if (reportedSites.add(site)) {
+            log.warn("Virtual thread pinned for {} ms on {}:\n{}", event.getDuration().toMillis(),
+                    event.getThread() == null ? "unknown thread" : event.getThread().getJavaName(), site);
+        }
+    }
+
+    private static String stackTrace(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null) {
+            return "\tno stack trace";
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        return frames.stream()
+                .limit(LOGGED_FRAMES)
+                .map(frame -> "\tat " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + "(line " + frame.getLineNumber() + ")")
+                .collect(Collectors.joining("\n"));
+    }
+}
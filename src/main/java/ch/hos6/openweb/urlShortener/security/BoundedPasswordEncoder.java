@@ -0,0 +1,120 @@
+package ch.hos6.openweb.urlShortener.security;
+
+import ch.hos6.openweb.urlShortener.errorhandling.exception.PasswordHashingRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Password encoder running the hashing and the verification of the passwords on a dedicated bounded executor,
+ * so that a burst of logins or registrations never takes more CPU than the threads of the executor.
+ * <p>
+ * The calling thread waits for the hashing done by one of the threads of the executor. When all of them are busy,
+ * the hashing is queued, and when the queue is full it is rejected at once with a
+ * {@link PasswordHashingRejectedException}, answered by a 503 status and a Retry-After header.
+ * </p>
+ * The queued hashings are published as the {@code security.password.queue} gauge, the hashing latencies
+ * as the {@code security.password.hashing} timer, tagged by operation, and the rejections
+ * as the {@code security.password.rejected} counter.
+ *
+ * @author Toubia Oussama
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final Duration retryAfter;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejectedHashings;
+
+    /**
+     * Constructs a BoundedPasswordEncoder.
+     *
+     * @param delegate      the encoder hashing the passwords
+     * @param meterRegistry the registry of the hashing metrics
+     * @param threads       the number of threads hashing the passwords
+     * @param queueCapacity the maximum number of hashings waiting for a thread
+     * @param retryAfter    the delay after which a rejected client should retry
+     */
+    public BoundedPasswordEncoder(PasswordEncoder delegate, MeterRegistry meterRegistry, int threads, int queueCapacity,
+                                  Duration retryAfter) {
+        this.delegate = delegate;
+        this.retryAfter = retryAfter;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), Thread.ofPlatform().name("password-hashing-", 0).daemon().factory());
+        Gauge.builder("security.password.queue", executor, pool -> pool.getQueue().size())
+                .description("Password hashings waiting for a thread")
+                .register(meterRegistry);
+        this.encodeTimer = Timer.builder("security.password.hashing")
+                .description("Latency of the password hashing")
+                .tag("operation", "encode")
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("security.password.hashing")
+                .description("Latency of the password hashing")
+                .tag("operation", "matches")
+                .register(meterRegistry);
+        this.rejectedHashings = Counter.builder("security.password.rejected")
+                .description("Password hashings rejected because the queue was full")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Stops the hashing threads when the application shuts down.
+     */
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private <T> T execute(Timer timer, Supplier<T> hashing) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timer.record(hashing));
+        } catch (RejectedExecutionException e) {
+            rejectedHashings.increment();
+            throw new PasswordHashingRejectedException("Too many authentication requests, retry later", retryAfter);
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the password hashing", e);
+        }
+    }
+}
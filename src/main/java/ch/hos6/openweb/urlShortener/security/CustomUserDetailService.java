@@ -1,38 +1,83 @@
 package ch.hos6.openweb.urlShortener.security;
 
+import ch.hos6.openweb.urlShortener.cache.CacheInvalidationBus;
+import ch.hos6.openweb.urlShortener.domain.entity.User;
 import ch.hos6.openweb.urlShortener.domain.repository.UserRepository;
 import ch.hos6.openweb.urlShortener.errorhandling.exception.CustomUsernameNotFoundException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.Optional;
+
 /**
  * This service class provides custom implementation of the UserDetailsService interface for authentication.
  * It is used by Spring Security to load user-specific data during security operations.
  * The class uses a UserRepository to retrieve user data from the database.
+ * <p>
+ * Users are cached by username, so that most authentications skip the database. Unknown usernames are cached too,
+ * for a shorter time, so that a flood of logins with made-up usernames does not reach the database either.
+ * The cache is bounded by {@code security.user-cache.maximum-size} and its statistics are published
+ * as the {@code security.users} cache metrics. A user created or changed must be evicted with {@link #evict(String)},
+ * which also evicts it on the other nodes through the {@link CacheInvalidationBus}.
+ * The cached users are shared between authentications: their credentials are never erased,
+ * since the User entity is not a CredentialsContainer.
+ * </p>
  *
  * @author Toubia Oussama
  */
 
 @Service
 public class CustomUserDetailService implements UserDetailsService {
+
+    /**
+     * The topic of the evictions on the invalidation bus, whose key is the username.
+     */
+    public static final String INVALIDATION_TOPIC = "user-details";
+
     private final UserRepository userRepository;
+    private final CacheInvalidationBus invalidationBus;
+    private final Cache<String, Optional<User>> users;
 
     /**
      * Constructor for the CustomUserDetailService.
-     * It initializes the UserRepository, which is used to retrieve user data from the database.
+     * It initializes the UserRepository, which is used to retrieve user data from the database, and the cache of the users.
      *
-     * @param userRepository A UserRepository instance
+     * @param userRepository      A UserRepository instance
+     * @param invalidationBus     the bus broadcasting the evictions between nodes
+     * @param meterRegistry       the registry of the cache metrics
+     * @param maximumSize         the maximum number of usernames cached
+     * @param timeToLive          the time in seconds a user is cached
+     * @param negativeTimeToLive  the time in seconds an unknown username is cached
      */
-    public CustomUserDetailService(UserRepository userRepository) {
+    public CustomUserDetailService(UserRepository userRepository, CacheInvalidationBus invalidationBus,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${security.user-cache.maximum-size:10000}") long maximumSize,
+                                   @Value("${security.user-cache.time-to-live:300}") long timeToLive,
+                                   @Value("${security.user-cache.negative-time-to-live:30}") long negativeTimeToLive) {
         this.userRepository = userRepository;
+        this.invalidationBus = invalidationBus;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new UserExpiry(Duration.ofSeconds(timeToLive), Duration.ofSeconds(negativeTimeToLive)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "security.users");
+        invalidationBus.subscribe(INVALIDATION_TOPIC, users::invalidate);
     }
 
     /**
      * This method loads the user details by the given username.
      * It overrides the loadUserByUsername method of the UserDetailsService interface.
-     * The method uses the UserRepository to find the user in the database.
+     * The method uses the cache of the users, then the UserRepository to find the user in the database.
      * If the user is not found, it throws a CustomUsernameNotFoundException.
      * The exception can't be caught easily because it's thrown too deep from spring
      *
@@ -42,9 +87,38 @@ public class CustomUserDetailService implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByUsername(username)
+        return users.get(username, userRepository::findByUsername)
                 .orElseThrow(() -> new CustomUsernameNotFoundException("User not found: " + username));
     }
 
+    /**
+     * Evicts a user created or changed from the cache, on this node and on the other nodes.
+     *
+     * @param username The username of the user
+     */
+    public void evict(String username) {
+        users.invalidate(username);
+        invalidationBus.publish(INVALIDATION_TOPIC, username);
+    }
+
+    /**
+     * Expires the users and the unknown usernames after different delays.
+     */
+    private record UserExpiry(Duration timeToLive, Duration negativeTimeToLive) implements Expiry<String, Optional<User>> {
+
+        @Override
+        public long expireAfterCreate(String username, Optional<User> user, long currentTime) {
+            return (user.isPresent() ? timeToLive : negativeTimeToLive).toNanos();
+        }
 
+        @Override
+        public long expireAfterUpdate(String username, Optional<User> user, long currentTime, long currentDuration) {
+            return expireAfterCreate(username, user, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String username, Optional<User> user, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
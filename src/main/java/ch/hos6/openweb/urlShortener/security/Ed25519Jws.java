@@ -0,0 +1,159 @@
+package ch.hos6.openweb.urlShortener.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.util.Base64URL;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Set;
+
+/**
+ * EdDSA (Ed25519) signature of the tokens with the Ed25519 implementation of the JDK.
+ * <p>
+ * Nimbus only signs and verifies Ed25519 through the Tink library. The JDK implementation produces the same raw
+ * 64 bytes signature as required by RFC 8037, so the signer and verifier here plug it into Nimbus instead.
+ * The raw keys of an {@link OctetKeyPair} are converted to JDK keys by prefixing them with their fixed DER header.
+ * </p>
+ *
+ * @author Toubia Oussama
+ */
+final class Ed25519Jws {
+    private static final String ALGORITHM = "Ed25519";
+    private static final byte[] PUBLIC_KEY_PREFIX = {0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70, 0x03, 0x21, 0x00};
+    private static final byte[] PRIVATE_KEY_PREFIX = {0x30, 0x2e, 0x02, 0x01, 0x00, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70,
+            0x04, 0x22, 0x04, 0x20};
+
+    private Ed25519Jws() {
+    }
+
+    /**
+     * Converts the public key of an Ed25519 JWK.
+     *
+     * @param jwk the Ed25519 JWK
+     * @return the JDK public key
+     * @throws GeneralSecurityException if the key is not a valid Ed25519 key
+     */
+    static PublicKey publicKey(OctetKeyPair jwk) throws GeneralSecurityException {
+        checkCurve(jwk);
+        return KeyFactory.getInstance(ALGORITHM)
+                .generatePublic(new X509EncodedKeySpec(concat(PUBLIC_KEY_PREFIX, jwk.getDecodedX())));
+    }
+
+    /**
+     * Converts the private key of an Ed25519 JWK.
+     *
+     * @param jwk the Ed25519 JWK
+     * @return the JDK private key
+     * @throws GeneralSecurityException if the key is not a valid Ed25519 private key
+     */
+    static PrivateKey privateKey(OctetKeyPair jwk) throws GeneralSecurityException {
+        checkCurve(jwk);
+        if (jwk.getD() == null) {
+            throw new GeneralSecurityException("No private key in JWK " + jwk.getKeyID());
+        }
+        return KeyFactory.getInstance(ALGORITHM)
+                .generatePrivate(new PKCS8EncodedKeySpec(concat(PRIVATE_KEY_PREFIX, jwk.getDecodedD())));
+    }
+
+    private static void checkCurve(OctetKeyPair jwk) throws GeneralSecurityException {
+        if (!Curve.Ed25519.equals(jwk.getCurve())) {
+            throw new GeneralSecurityException("Unsupported curve " + jwk.getCurve() + " of JWK " + jwk.getKeyID());
+        }
+    }
+
+    private static byte[] concat(byte[] prefix, byte[] key) {
+        byte[] encoded = new byte[prefix.length + key.length];
+        System.arraycopy(prefix, 0, encoded, 0, prefix.length);
+        System.arraycopy(key, 0, encoded, prefix.length, key.length);
+        return encoded;
+    }
+
+    /**
+     * Signs tokens with an Ed25519 private key.
+     */
+    static final class Signer implements JWSSigner {
+        private final PrivateKey privateKey;
+        private final JCAContext jcaContext = new JCAContext();
+
+        Signer(PrivateKey privateKey) {
+            this.privateKey = privateKey;
+        }
+
+        @Override
+        public Base64URL sign(JWSHeader header, byte[] signingInput) throws JOSEException {
+            if (!JWSAlgorithm.EdDSA.equals(header.getAlgorithm())) {
+                throw new JOSEException("Unsupported JWS algorithm " + header.getAlgorithm());
+            }
+            try {
+                Signature signature = Signature.getInstance(ALGORITHM);
+                signature.initSign(privateKey);
+                signature.update(signingInput);
+                return Base64URL.encode(signature.sign());
+            } catch (GeneralSecurityException e) {
+                throw new JOSEException("Unable to sign with Ed25519: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+            return Set.of(JWSAlgorithm.EdDSA);
+        }
+
+        @Override
+        public JCAContext getJCAContext() {
+            return jcaContext;
+        }
+    }
+
+    /**
+     * Verifies the signature of tokens with an Ed25519 public key.
+     */
+    static final class Verifier implements JWSVerifier {
+        private final PublicKey publicKey;
+        private final JCAContext jcaContext = new JCAContext();
+
+        Verifier(PublicKey publicKey) {
+            this.publicKey = publicKey;
+        }
+
+        @Override
+        public boolean verify(JWSHeader header, byte[] signedContent, Base64URL signature) throws JOSEException {
+            if (!JWSAlgorithm.EdDSA.equals(header.getAlgorithm())) {
+                return false;
+            }
+            try {
+                Signature verifier = Signature.getInstance(ALGORITHM);
+                verifier.initVerify(publicKey);
+                verifier.update(signedContent);
+                return verifier.verify(signature.decode());
+            } catch (SignatureException e) {
+                return false;
+            } catch (GeneralSecurityException e) {
+                throw new JOSEException("Unable to verify with Ed25519: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+            return Set.of(JWSAlgorithm.EdDSA);
+        }
+
+        @Override
+        public JCAContext getJCAContext() {
+            return jcaContext;
+        }
+    }
+}
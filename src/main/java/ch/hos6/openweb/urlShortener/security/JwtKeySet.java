@@ -0,0 +1,276 @@
+package ch.hos6.openweb.urlShortener.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.crypto.factories.DefaultJWSVerifierFactory;
+import com.nimbusds.jose.crypto.impl.ECDSA;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jose.proc.JWSVerifierFactory;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncodingException;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.interfaces.EdECPublicKey;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The local JSON Web Key set signing and verifying the tokens.
+ * <p>
+ * Every key is identified by its key id ({@code kid}) and has a signature algorithm: RS256, ES256 or EdDSA (Ed25519).
+ * Tokens are signed by a single key of the configured algorithm and carry its key id, and are verified by the key
+ * of their key id, so that several keys can be active at once. A key is rotated without downtime by adding the new key
+ * to the set on every node, then signing with it, then removing the old key once the tokens it signed have expired.
+ * Tokens without key id, issued before the key ids, are verified by the keys of their algorithm.
+ * </p>
+ * With the JDK implementations, ES256 and EdDSA sign the tokens several times faster than RS256, which speeds up logins,
+ * but verify them slower: the decoders are wrapped in the {@link VerifiedJwtCache}, which verifies each token once.
+ *
+ * @author Toubia Oussama
+ */
+public class JwtKeySet {
+    private final JWKSet publicKeys;
+    private final Map<String, VerificationKey> verificationKeys = new LinkedHashMap<>();
+    private final Map<String, SigningKey> signingKeys = new LinkedHashMap<>();
+    private final String signingKeyId;
+    private final DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+
+    /**
+     * Constructs a JwtKeySet.
+     *
+     * @param keys         the keys, each with a key id
+     * @param algorithm    the algorithm signing the tokens
+     * @param signingKeyId the key id of the key signing the tokens, or null for the first private key of the algorithm
+     * @throws IllegalArgumentException if a key is invalid or no key of the algorithm can sign the tokens
+     */
+    public JwtKeySet(List<JWK> keys, JWSAlgorithm algorithm, String signingKeyId) {
+        for (JWK key : keys) {
+            if (key.getKeyID() == null) {
+                throw new IllegalArgumentException("JWK without key id: " + key.toPublicJWK());
+            }
+            if (verificationKeys.containsKey(key.getKeyID())) {
+                throw new IllegalArgumentException("Duplicate JWK key id " + key.getKeyID());
+            }
+            try {
+                JWSAlgorithm keyAlgorithm = algorithm(key);
+                verificationKeys.put(key.getKeyID(), new VerificationKey(keyAlgorithm, publicKey(key)));
+                if (key.isPrivate()) {
+                    signingKeys.put(key.getKeyID(), new SigningKey(keyAlgorithm, signer(key)));
+                }
+            } catch (JOSEException | GeneralSecurityException e) {
+                throw new IllegalArgumentException("Invalid JWK " + key.getKeyID() + ": " + e.getMessage(), e);
+            }
+        }
+        this.publicKeys = new JWKSet(keys).toPublicJWKSet();
+        this.signingKeyId = signingKeyId != null ? signingKeyId : signingKeys.entrySet().stream()
+                .filter(entry -> entry.getValue().algorithm().equals(algorithm))
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No private JWK for the algorithm " + algorithm));
+        SigningKey signingKey = signingKeys.get(this.signingKeyId);
+        if (signingKey == null || !signingKey.algorithm().equals(algorithm)) {
+            throw new IllegalArgumentException("No private " + algorithm + " JWK of key id " + this.signingKeyId);
+        }
+        jwtProcessor.setJWSKeySelector((header, context) -> selectKeys(header));
+        jwtProcessor.setJWSVerifierFactory(new VerifierFactory());
+        // the claims are validated by the Spring decoders, like with the decoders of their builders
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+    }
+
+    /**
+     * Returns the key id of the key signing the tokens.
+     *
+     * @return the key id
+     */
+    public String getSigningKeyId() {
+        return signingKeyId;
+    }
+
+    /**
+     * Returns the public keys, as published on the JWKS endpoint.
+     *
+     * @return the public JWK set
+     */
+    public JWKSet getPublicKeys() {
+        return publicKeys;
+    }
+
+    /**
+     * Creates the encoder of the tokens. It signs with the key of the key id of the JWS header if given,
+     * with the signing key otherwise, in the algorithm of the key.
+     *
+     * @return the JWT encoder
+     */
+    public JwtEncoder encoder() {
+        return parameters -> {
+            JwsHeader jwsHeader = parameters.getJwsHeader();
+            String keyId = jwsHeader != null && jwsHeader.getKeyId() != null ? jwsHeader.getKeyId() : signingKeyId;
+            SigningKey signingKey = signingKeys.get(keyId);
+            if (signingKey == null) {
+                throw new JwtEncodingException("No private JWK of key id " + keyId);
+            }
+            JWSHeader header = new JWSHeader.Builder(signingKey.algorithm()).keyID(keyId).build();
+            JwtClaimsSet claims = parameters.getClaims();
+            SignedJWT signedJwt = new SignedJWT(header, claimsSet(claims));
+            try {
+                signedJwt.sign(signingKey.signer());
+            } catch (JOSEException e) {
+                throw new JwtEncodingException("Unable to sign the token: " + e.getMessage(), e);
+            }
+            return new Jwt(signedJwt.serialize(), claims.getIssuedAt(), claims.getExpiresAt(),
+                    header.toJSONObject(), claims.getClaims());
+        };
+    }
+
+    /**
+     * Creates the decoder of the tokens, verifying them with the key of their key id.
+     *
+     * @return the JWT decoder
+     */
+    public JwtDecoder decoder() {
+        return new NimbusJwtDecoder(jwtProcessor);
+    }
+
+    /**
+     * Creates the reactive decoder of the tokens, verifying them with the key of their key id.
+     *
+     * @return the reactive JWT decoder
+     */
+    public ReactiveJwtDecoder reactiveDecoder() {
+        return new NimbusReactiveJwtDecoder(jwt -> Mono.fromCallable(() -> {
+            try {
+                return jwtProcessor.process(jwt, null);
+            } catch (BadJOSEException e) {
+                throw new BadJwtException("Failed to validate the token: " + e.getMessage(), e);
+            } catch (JOSEException e) {
+                throw new JwtException("Failed to validate the token: " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    private List<Key> selectKeys(JWSHeader header) {
+        if (header.getKeyID() != null) {
+            VerificationKey key = verificationKeys.get(header.getKeyID());
+            return key != null && key.algorithm().equals(header.getAlgorithm()) ? List.of(key.key()) : List.of();
+        }
+        return verificationKeys.values().stream()
+                .filter(key -> key.algorithm().equals(header.getAlgorithm()))
+                .map(VerificationKey::key)
+                .toList();
+    }
+
+    private static JWSAlgorithm algorithm(JWK key) throws JOSEException {
+        if (key.getAlgorithm() != null) {
+            return JWSAlgorithm.parse(key.getAlgorithm().getName());
+        }
+        if (key instanceof RSAKey) {
+            return JWSAlgorithm.RS256;
+        }
+        if (key instanceof ECKey ecKey) {
+            return ECDSA.resolveAlgorithm(ecKey.getCurve());
+        }
+        if (key instanceof OctetKeyPair) {
+            return JWSAlgorithm.EdDSA;
+        }
+        throw new JOSEException("Unsupported key type " + key.getKeyType());
+    }
+
+    private static Key publicKey(JWK key) throws JOSEException, GeneralSecurityException {
+        if (key instanceof RSAKey rsaKey) {
+            return rsaKey.toRSAPublicKey();
+        }
+        if (key instanceof ECKey ecKey) {
+            return ecKey.toECPublicKey();
+        }
+        if (key instanceof OctetKeyPair octetKeyPair) {
+            return Ed25519Jws.publicKey(octetKeyPair);
+        }
+        throw new JOSEException("Unsupported key type " + key.getKeyType());
+    }
+
+    private static JWSSigner signer(JWK key) throws JOSEException, GeneralSecurityException {
+        if (key instanceof RSAKey rsaKey) {
+            return new RSASSASigner(rsaKey);
+        }
+        if (key instanceof ECKey ecKey) {
+            return new ECDSASigner(ecKey);
+        }
+        if (key instanceof OctetKeyPair octetKeyPair) {
+            return new Ed25519Jws.Signer(Ed25519Jws.privateKey(octetKeyPair));
+        }
+        throw new JOSEException("Unsupported key type " + key.getKeyType());
+    }
+
+    private static JWTClaimsSet claimsSet(JwtClaimsSet claims) {
+        JWTClaimsSet.Builder builder = new JWTClaimsSet.Builder();
+        claims.getClaims().forEach((name, value) ->
+                builder.claim(name, value instanceof Instant instant ? Date.from(instant) : value));
+        return builder.build();
+    }
+
+    private record VerificationKey(JWSAlgorithm algorithm, Key key) {
+    }
+
+    private record SigningKey(JWSAlgorithm algorithm, JWSSigner signer) {
+    }
+
+    /**
+     * Creates the verifiers of the selected keys: the JDK Ed25519 verifier for the Ed25519 keys,
+     * the verifiers of Nimbus otherwise.
+     */
+    private static final class VerifierFactory implements JWSVerifierFactory {
+        private final DefaultJWSVerifierFactory defaultFactory = new DefaultJWSVerifierFactory();
+
+        @Override
+        public JWSVerifier createJWSVerifier(JWSHeader header, Key key) throws JOSEException {
+            if (key instanceof EdECPublicKey publicKey) {
+                return new Ed25519Jws.Verifier(publicKey);
+            }
+            return defaultFactory.createJWSVerifier(header, key);
+        }
+
+        @Override
+        public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+            Set<JWSAlgorithm> algorithms = new HashSet<>(defaultFactory.supportedJWSAlgorithms());
+            algorithms.add(JWSAlgorithm.EdDSA);
+            return algorithms;
+        }
+
+        @Override
+        public JCAContext getJCAContext() {
+            return defaultFactory.getJCAContext();
+        }
+    }
+}
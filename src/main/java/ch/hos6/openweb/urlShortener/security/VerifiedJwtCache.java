@@ -0,0 +1,261 @@
+package ch.hos6.openweb.urlShortener.security;
+
+import ch.hos6.openweb.urlShortener.cache.CacheInvalidationBus;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Caches the tokens whose signature and claims have been verified, so that a token reused across requests
+ * is only verified once instead of going through the RSA signature verification on every request.
+ * <p>
+ * Tokens are keyed by the SHA-256 digest of their raw value, so the cache never holds a usable token,
+ * and each entry expires at the expiry of its token. The cache is bounded by {@code security.jwt.cache.maximum-size},
+ * and its statistics are published as the {@code security.jwt} cache metrics.
+ * </p>
+ * <p>
+ * The tokens of a user can be revoked: every token of the user issued up to the revocation is rejected,
+ * whether cached or not, and the revocation is broadcast to the other nodes through the {@link CacheInvalidationBus}.
+ * A revocation is kept for the lifetime of a token, {@code security.jwt.expiration} seconds,
+ * after which the tokens it covers have expired anyway.
+ * </p>
+ * <p>
+ * Each revocation is persisted in Redis under {@code urlShortener:jwt-revocation:<subject>}, expiring with it,
+ * so that a node that restarts or misses the broadcast still rejects the revoked tokens:
+ * the revocations are loaded from Redis at startup, and the revocation of the subject is read from Redis
+ * on the first verification of a token. The revocations held in memory answer the tokens already verified.
+ * A token whose revocation could not be read from Redis is not cached, so it is checked again on its next use.
+ * </p>
+ *
+ * @author Toubia Oussama
+ */
+@Slf4j
+@Component
+public class VerifiedJwtCache implements InitializingBean {
+
+    /**
+     * The topic of the revocations on the invalidation bus.
+     */
+    public static final String REVOCATION_TOPIC = "jwt-revocation";
+
+    private static final char SEPARATOR = ':';
+    private static final String KEY_PREFIX = "urlShortener:jwt-revocation:";
+
+    private final Cache<String, Jwt> verifiedTokens;
+    private final Cache<String, Instant> revocations;
+    private final CacheInvalidationBus invalidationBus;
+    private final StringRedisTemplate redisTemplate;
+    private final Duration revocationLifetime;
+
+    /**
+     * Constructs a VerifiedJwtCache.
+     *
+     * @param invalidationBus the bus broadcasting the revocations between nodes
+     * @param redisTemplate   the template persisting the revocations in Redis
+     * @param meterRegistry   the registry of the cache metrics
+     * @param maximumSize     the maximum number of verified tokens cached
+     * @param tokenLifetime   the lifetime of a token in seconds, for which a revocation is kept
+     */
+    public VerifiedJwtCache(CacheInvalidationBus invalidationBus, StringRedisTemplate redisTemplate, MeterRegistry meterRegistry,
+                            @Value("${security.jwt.cache.maximum-size:10000}") long maximumSize,
+                            @Value("${security.jwt.expiration}") long tokenLifetime) {
+        this.invalidationBus = invalidationBus;
+        this.redisTemplate = redisTemplate;
+        this.revocationLifetime = Duration.ofSeconds(tokenLifetime);
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        this.revocations = Caffeine.newBuilder()
+                .expireAfterWrite(revocationLifetime)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "security.jwt");
+        invalidationBus.subscribe(REVOCATION_TOPIC, this::onRevocation);
+    }
+
+    /**
+     * Loads the revocations persisted in Redis.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        List<String> keys = new ArrayList<>();
+        try (Cursor<String> cursor = redisTemplate.scan(ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(1000).build())) {
+            cursor.forEachRemaining(keys::add);
+            if (keys.isEmpty()) {
+                return;
+            }
+            List<String> revokedAt = redisTemplate.opsForValue().multiGet(keys);
+            for (int i = 0; i < keys.size(); i++) {
+                if (revokedAt != null && revokedAt.get(i) != null) {
+                    revokeLocally(keys.get(i).substring(KEY_PREFIX.length()), Instant.ofEpochSecond(Long.parseLong(revokedAt.get(i))));
+                }
+            }
+            log.info("{} token revocations loaded", keys.size());
+        } catch (RuntimeException e) {
+            log.error("Error while loading the token revocations. Ex = {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Wraps a decoder so that the tokens it verified are answered from the cache.
+     *
+     * @param delegate the decoder verifying the tokens
+     * @return the caching decoder
+     */
+    public JwtDecoder decoder(JwtDecoder delegate) {
+        return token -> {
+            String key = digest(token);
+            Jwt jwt = verifiedTokens.getIfPresent(key);
+            if (jwt != null) {
+                return checkNotRevoked(key, jwt);
+            }
+            Jwt decoded = delegate.decode(token);
+            return cache(key, decoded, loadRevocation(decoded));
+        };
+    }
+
+    /**
+     * Wraps a reactive decoder so that the tokens it verified are answered from the cache.
+     *
+     * @param delegate the reactive decoder verifying the tokens
+     * @return the caching reactive decoder
+     */
+    public ReactiveJwtDecoder reactiveDecoder(ReactiveJwtDecoder delegate) {
+        return token -> Mono.defer(() -> {
+            String key = digest(token);
+            Jwt jwt = verifiedTokens.getIfPresent(key);
+            if (jwt != null) {
+                return Mono.just(checkNotRevoked(key, jwt));
+            }
+            return delegate.decode(token).flatMap(decoded -> Mono.fromCallable(() -> loadRevocation(decoded))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .map(loaded -> cache(key, decoded, loaded)));
+        });
+    }
+
+    /**
+     * Revokes every token of the user issued until now, on this node and on the other nodes.
+     *
+     * @param subject the subject of the tokens, the username
+     * @throws org.springframework.dao.DataAccessException if the revocation could not be persisted in Redis
+     */
+    public void revoke(String subject) {
+        Instant revokedAt = Instant.now();
+        revokeLocally(subject, revokedAt);
+        invalidationBus.publish(REVOCATION_TOPIC, revokedAt.getEpochSecond() + String.valueOf(SEPARATOR) + subject);
+        // a revocation not persisted is not reported as done: it would be lost by the nodes restarting
+        redisTemplate.opsForValue().set(KEY_PREFIX + subject, String.valueOf(revokedAt.getEpochSecond()), revocationLifetime);
+    }
+
+    /**
+     * Reads the revocation of the subject of the token from Redis into the revocations held in memory.
+     *
+     * @param jwt the token verified for the first time
+     * @return whether the revocation could be read, false if Redis is unavailable
+     */
+    private boolean loadRevocation(Jwt jwt) {
+        if (jwt.getSubject() == null) {
+            return true;
+        }
+        try {
+            String revokedAt = redisTemplate.opsForValue().get(KEY_PREFIX + jwt.getSubject());
+            if (revokedAt != null) {
+                revokeLocally(jwt.getSubject(), Instant.ofEpochSecond(Long.parseLong(revokedAt)));
+            }
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Error while reading the token revocation of {}. Ex = {}", jwt.getSubject(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void onRevocation(String revocation) {
+        int separator = revocation.indexOf(SEPARATOR);
+        try {
+            revokeLocally(revocation.substring(separator + 1),
+                    Instant.ofEpochSecond(Long.parseLong(revocation.substring(0, separator))));
+        } catch (RuntimeException e) {
+            log.error("Malformed token revocation {}", revocation);
+        }
+    }
+
+    private void revokeLocally(String subject, Instant revokedAt) {
+        revocations.asMap().merge(subject, revokedAt, (previous, current) -> previous.isAfter(current) ? previous : current);
+    }
+
+    private Jwt cache(String key, Jwt jwt, boolean revocationLoaded) {
+        checkNotRevoked(key, jwt);
+        if (revocationLoaded) {
+            verifiedTokens.put(key, jwt);
+        }
+        return jwt;
+    }
+
+    private Jwt checkNotRevoked(String key, Jwt jwt) {
+        Instant revokedAt = jwt.getSubject() == null ? null : revocations.getIfPresent(jwt.getSubject());
+        // issuedAt has a precision of a second: a token issued in the second of the revocation is revoked too
+        if (revokedAt != null && (jwt.getIssuedAt() == null || jwt.getIssuedAt().getEpochSecond() <= revokedAt.getEpochSecond())) {
+            verifiedTokens.invalidate(key);
+            throw new BadJwtException("Token revoked");
+        }
+        return jwt;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Expires each verified token at its expiry.
+     */
+    private static final class TokenExpiry implements Expiry<String, Jwt> {
+
+        @Override
+        public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+            if (jwt.getExpiresAt() == null) {
+                return 0;
+            }
+            return Math.max(0, Duration.between(Instant.now(), jwt.getExpiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, jwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
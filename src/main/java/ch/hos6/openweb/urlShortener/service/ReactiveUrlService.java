@@ -0,0 +1,122 @@
+package ch.hos6.openweb.urlShortener.service;
+
+import ch.hos6.openweb.urlShortener.cache.ExpiringValue;
+import ch.hos6.openweb.urlShortener.cache.ShortUrlFilter;
+import ch.hos6.openweb.urlShortener.cache.TwoLevelCache;
+import ch.hos6.openweb.urlShortener.config.CacheConfig;
+import ch.hos6.openweb.urlShortener.domain.entity.Url;
+import ch.hos6.openweb.urlShortener.domain.repository.ReactiveUrlRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Non-blocking resolution of short URLs, used by the reactive redirect stack.
+ * <p>
+ * It reads the same caches as {@link UrlService#getOriginalUrl(String)}: the in-process level of the URL cache first,
+ * then its Redis level through a ReactiveRedisTemplate, and finally MongoDB through the {@link ReactiveUrlRepository},
+ * unless the {@link ShortUrlFilter} knows the short URL does not exist. Redis entries are read and written with the key prefix,
+ * serializers and time to live of the Redis cache, so both stacks share them.
+ * Creations and updates still go through {@link UrlService}, whose evictions apply to the entries read here.
+ * </p>
+ *
+ * @author Toubia Oussama
+ */
+@Slf4j
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUrlService {
+
+    private final ReactiveUrlRepository urlRepository;
+    private final ReactiveRedisTemplate<String, Object> urlCacheTemplate;
+    private final ShortUrlFilter shortUrlFilter;
+    private final CaffeineCache localCache;
+    private final String keyPrefix;
+    private final Duration timeToLive;
+
+    /**
+     * Constructor for the ReactiveUrlService.
+     *
+     * @param urlRepository      The reactive repository for URL entities.
+     * @param urlCacheTemplate   The reactive template reading and writing the Redis level of the URL cache.
+     * @param cacheConfiguration The configuration of the Redis cache, giving the key prefix and the time to live.
+     * @param cacheManager       The manager of the URL cache, whose in-process level is read first.
+     * @param shortUrlFilter     The negative cache of the short URLs that do not resolve.
+     */
+    public ReactiveUrlService(ReactiveUrlRepository urlRepository, ReactiveRedisTemplate<String, Object> urlCacheTemplate,
+                              RedisCacheConfiguration cacheConfiguration, CacheManager cacheManager,
+                              ShortUrlFilter shortUrlFilter) {
+        this.urlRepository = urlRepository;
+        this.urlCacheTemplate = urlCacheTemplate;
+        this.shortUrlFilter = shortUrlFilter;
+        Cache cache = cacheManager.getCache(CacheConfig.URL_CACHE_NAME);
+        this.localCache = cache instanceof TwoLevelCache twoLevelCache ? twoLevelCache.getLocalCache() : null;
+        this.keyPrefix = cacheConfiguration.getKeyPrefixFor(CacheConfig.URL_CACHE_NAME);
+        this.timeToLive = cacheConfiguration.getTtl();
+    }
+
+    /**
+     * Retrieves the original URL from a shortened URL.
+     * The {@link ShortUrlFilter} is only consulted once both cache levels missed, to spare MongoDB the short URLs
+     * known not to exist, and a short URL that does not resolve is remembered by it for a short time.
+     * Redis errors are logged and fall back to MongoDB, like the errors of the blocking cache.
+     *
+     * @param shortUrl the shortened URL
+     * @return a Mono emitting the original URL, empty if the short URL is invalid or inactive
+     */
+    public Mono<String> getOriginalUrl(String shortUrl) {
+        if (localCache != null) {
+            Cache.ValueWrapper local = localCache.get(shortUrl);
+            if (local != null && ExpiringValue.unwrap(local.get()) instanceof String originalUrl) {
+                return Mono.just(originalUrl);
+            }
+        }
+        return getFromRedis(shortUrl)
+                .switchIfEmpty(Mono.defer(() -> getFromRepository(shortUrl)));
+    }
+
+    private Mono<String> getFromRedis(String shortUrl) {
+        return urlCacheTemplate.opsForValue().get(keyPrefix + shortUrl)
+                .map(ExpiringValue::unwrap)
+                .ofType(String.class)
+                .doOnNext(originalUrl -> putLocal(shortUrl, originalUrl))
+                .onErrorResume(e -> {
+                    log.error("Unable to read short URL {} from the cache. Ex = {}", shortUrl, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<String> getFromRepository(String shortUrl) {
+        if (shortUrlFilter.isDefinitelyMissing(shortUrl)) {
+            return Mono.empty();
+        }
+        return urlRepository.findByShortenedUrlAndActiveIsTrue(shortUrl)
+                .map(Url::getOriginalUrl)
+                .flatMap(originalUrl -> putRedis(shortUrl, originalUrl)
+                        .doOnSuccess(stored -> putLocal(shortUrl, originalUrl))
+                        .thenReturn(originalUrl))
+                .switchIfEmpty(Mono.fromRunnable(() -> shortUrlFilter.recordMissing(shortUrl)));
+    }
+
+    private Mono<Boolean> putRedis(String shortUrl, String originalUrl) {
+        return urlCacheTemplate.opsForValue().set(keyPrefix + shortUrl, originalUrl, timeToLive)
+                .onErrorResume(e -> {
+                    log.error("Unable to cache short URL {}. Ex = {}", shortUrl, e.getMessage());
+                    return Mono.just(false);
+                });
+    }
+
+    private void putLocal(String shortUrl, String originalUrl) {
+        if (localCache != null) {
+            localCache.put(shortUrl, originalUrl);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package ch.hos6.openweb.urlShortener.service;
+
+import ch.hos6.openweb.urlShortener.cache.CacheInvalidationBus;
+import ch.hos6.openweb.urlShortener.domain.entity.RefreshToken;
+import ch.hos6.openweb.urlShortener.domain.entity.User;
+import ch.hos6.openweb.urlShortener.domain.repository.RefreshTokenRepository;
+import ch.hos6.openweb.urlShortener.errorhandling.exception.InvalidRefreshTokenException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Service for managing refresh tokens, which renew the short-lived access tokens of a user
+ * without authenticating again, so without the password hash verification of a login.
+ * <p>
+ * A refresh token is an opaque random value. Only its SHA-256 hash is stored, in the {@code refreshTokens} collection,
+ * whose TTL index removes the expired tokens. Tokens are looked up by hash through a local cache bounded by
+ * {@code security.refresh-token.cache.maximum-size}, so that renewing an access token usually costs a hash only.
+ * A token stays valid until it expires or all the tokens of its user are revoked. A revocation is broadcast
+ * to the other nodes through the {@link CacheInvalidationBus}, and the cached tokens also expire after
+ * {@code security.refresh-token.cache.time-to-live} seconds in case a node misses the broadcast.
+ * Each node also remembers when it last revoked the tokens of a user, for as long as a token stays cached,
+ * and rejects the cached tokens whose load started before, which a load racing with the revocation could have cached.
+ * Cache statistics are published as the {@code security.refresh-token} cache metrics.
+ * </p>
+ *
+ * @author Toubia Oussama
+ */
+@Slf4j
+@Service
+public class RefreshTokenService {
+
+    /**
+     * The topic of the revocations on the invalidation bus, whose key is the username.
+     */
+    public static final String REVOCATION_TOPIC = "refresh-token-revocation";
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final CacheInvalidationBus invalidationBus;
+    private final Duration expiration;
+    private final Cache<String, CachedToken> tokens;
+    private final Cache<String, Long> revocations;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Constructs a RefreshTokenService.
+     *
+     * @param refreshTokenRepository the repository of the refresh tokens
+     * @param invalidationBus        the bus broadcasting the revocations between nodes
+     * @param meterRegistry          the registry of the cache metrics
+     * @param expiration             the lifetime of a refresh token in seconds
+     * @param cacheMaximumSize       the maximum number of refresh tokens cached
+     * @param cacheTimeToLive        the time in seconds a refresh token is cached
+     */
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, CacheInvalidationBus invalidationBus,
+                               MeterRegistry meterRegistry,
+                               @Value("${security.refresh-token.expiration:2592000}") long expiration,
+                               @Value("${security.refresh-token.cache.maximum-size:10000}") long cacheMaximumSize,
+                               @Value("${security.refresh-token.cache.time-to-live:300}") long cacheTimeToLive) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.invalidationBus = invalidationBus;
+        this.expiration = Duration.ofSeconds(expiration);
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTimeToLive))
+                .recordStats()
+                .build();
+        this.revocations = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(cacheTimeToLive))
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, tokens, "security.refresh-token");
+        invalidationBus.subscribe(REVOCATION_TOPIC, this::evict);
+    }
+
+    /**
+     * Issues a new refresh token to the user.
+     *
+     * @param user the authenticated user
+     * @return the refresh token, to be handed to the client
+     */
+    public String issue(User user) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        Instant now = Instant.now();
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(hash(token));
+        refreshToken.setUserId(user.getId());
+        refreshToken.setUsername(user.getUsername());
+        refreshToken.setCreationDate(now);
+        refreshToken.setExpirationDate(now.plus(expiration));
+        refreshTokenRepository.save(refreshToken);
+        return token;
+    }
+
+    /**
+     * Validates a refresh token.
+     *
+     * @param token the refresh token presented by the client
+     * @return the stored refresh token, with the user it was issued to
+     * @throws InvalidRefreshTokenException if the token is unknown, revoked or expired
+     */
+    public RefreshToken validate(String token) throws InvalidRefreshTokenException {
+        String tokenHash = hash(token);
+        CachedToken cached = tokens.get(tokenHash, this::load);
+        if (cached == null) {
+            throw new InvalidRefreshTokenException("Invalid refresh token");
+        }
+        RefreshToken refreshToken = cached.refreshToken();
+        Long revokedAt = revocations.getIfPresent(refreshToken.getUsername());
+        if (revokedAt != null && revokedAt - cached.loadedAt() >= 0) {
+            tokens.invalidate(tokenHash);
+            throw new InvalidRefreshTokenException("Revoked refresh token");
+        }
+        // the TTL index only removes the expired tokens once a minute
+        if (!refreshToken.getExpirationDate().isAfter(Instant.now())) {
+            tokens.invalidate(tokenHash);
+            throw new InvalidRefreshTokenException("Expired refresh token");
+        }
+        return refreshToken;
+    }
+
+    /**
+     * Revokes all the refresh tokens of a user, on this node and on the other nodes.
+     *
+     * @param username the username of the user
+     */
+    public void revokeAll(String username) {
+        long deleted = refreshTokenRepository.deleteByUsername(username);
+        evict(username);
+        invalidationBus.publish(REVOCATION_TOPIC, username);
+        log.info("Revoked {} refresh tokens of {}", deleted, username);
+    }
+
+    /**
+     * Loads a refresh token from the repository, along with the time the load started.
+     *
+     * @param tokenHash the hash of the refresh token
+     * @return the refresh token, null if it is unknown
+     */
+    private CachedToken load(String tokenHash) {
+        long loadedAt = System.nanoTime();
+        return refreshTokenRepository.findByTokenHash(tokenHash)
+                .map(refreshToken -> new CachedToken(refreshToken, loadedAt))
+                .orElse(null);
+    }
+
+    private void evict(String username) {
+        revocations.put(username, System.nanoTime());
+        tokens.asMap().values().removeIf(cached -> username.equals(cached.refreshToken().getUsername()));
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A cached refresh token.
+     *
+     * @param refreshToken the stored refresh token
+     * @param loadedAt     the {@link System#nanoTime()} at which its load from the repository started
+     */
+    private record CachedToken(RefreshToken refreshToken, long loadedAt) {
+    }
+}
@@ -0,0 +1,47 @@
+package ch.hos6.openweb.urlShortener.service;
+
+import ch.hos6.openweb.urlShortener.domain.entity.Url;
+
+/**
+ * The outcome of the creation of one URL of a batch.
+ *
+ * @param originalUrl the URL to shorten
+ * @param url         the created URL, null if the creation failed
+ * @param error       why the creation failed, null if the URL was created
+ * @param retryable   whether the creation failed for a transient reason, so that it may succeed if retried later
+ * @author Toubia Oussama
+ */
+public record UrlCreationResult(String originalUrl, Url url, String error, boolean retryable) {
+
+    /**
+     * Creates the result of a created URL.
+     *
+     * @param url the created URL
+     * @return a successful result
+     */
+    public static UrlCreationResult created(Url url) {
+        return new UrlCreationResult(url.getOriginalUrl(), url, null, false);
+    }
+
+    /**
+     * Creates the result of a URL that could not be created.
+     *
+     * @param originalUrl the URL to shorten
+     * @param error       why the creation failed
+     * @return a failed result
+     */
+    public static UrlCreationResult failed(String originalUrl, String error) {
+        return new UrlCreationResult(originalUrl, null, error, false);
+    }
+
+    /**
+     * Creates the result of a URL that could not be created for a transient reason.
+     *
+     * @param originalUrl the URL to shorten
+     * @param error       why the creation failed
+     * @return a failed, retryable result
+     */
+    public static UrlCreationResult retryable(String originalUrl, String error) {
+        return new UrlCreationResult(originalUrl, null, error, true);
+    }
+}
@@ -0,0 +1,186 @@
+package ch.hos6.openweb.urlShortener.service;
+
+import ch.hos6.openweb.urlShortener.cache.CachePreloader;
+import ch.hos6.openweb.urlShortener.config.CacheConfig;
+import ch.hos6.openweb.urlShortener.domain.entity.Url;
+import ch.hos6.openweb.urlShortener.domain.repository.UrlRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up the original URLs of the short URLs missing from the cache in micro-batches.
+ * <p>
+ * The distinct short URLs looked up concurrently are collected for {@code url.lookup.batch.window} microseconds
+ * after the first one, or until {@code url.lookup.batch.max-size} of them are pending, and resolved with a single
+ * {@code $in} query of the repository. The original URLs found are written back to both levels of the URL cache
+ * in a single pipelined round trip by the {@link CachePreloader}, before the waiting callers are answered.
+ * A batch of a single short URL is looked up by the point query of the repository.
+ * The batches ended by their window are looked up on platform threads: the pool of the pipelined Redis connections
+ * blocks in synchronized code, which would pin the carriers of virtual threads. At most
+ * {@code url.lookup.batch.max-concurrency} of them are looked up at once, the next ones by the thread ending their window.
+ * </p>
+ * When the cache is cold, for example after a deploy or a Redis failover, the number of queries then grows with
+ * the number of batches rather than with the number of redirects. The sizes of the batches are recorded in the
+ * {@code url.lookup.batch.size} distribution summary.
+ *
+ * @author Toubia Oussama
+ */
+@Slf4j
+@Component
+public class UrlLookupBatcher implements DisposableBean {
+    private final UrlRepository urlRepository;
+    private final CachePreloader cachePreloader;
+    private final boolean enabled;
+    private final long windowMicros;
+    private final int maxSize;
+    private final DistributionSummary batchSizes;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService executor;
+    private final Object lock = new Object();
+
+    private Map<String, CompletableFuture<Optional<String>>> pending = new HashMap<>();
+
+    /**
+     * Constructs a UrlLookupBatcher.
+     *
+     * @param urlRepository  the repository the URLs are looked up in
+     * @param cachePreloader the writer of the URLs found to the cache
+     * @param meterRegistry  the registry of the batch size metric
+     * @param enabled        whether the lookups are batched, otherwise each lookup queries the repository right away
+     * @param windowMicros   the time in microseconds a batch collects short URLs after the first one
+     * @param maxSize        the number of short URLs triggering the lookup of a batch before the end of its window
+     * @param maxConcurrency the maximum number of batches ended by their window looked up concurrently
+     */
+    public UrlLookupBatcher(UrlRepository urlRepository, CachePreloader cachePreloader, MeterRegistry meterRegistry,
+                            @Value("${url.lookup.batch.enabled:true}") boolean enabled,
+                            @Value("${url.lookup.batch.window:200}") long windowMicros,
+                            @Value("${url.lookup.batch.max-size:100}") int maxSize,
+                            @Value("${url.lookup.batch.max-concurrency:16}") int maxConcurrency) {
+        this.urlRepository = urlRepository;
+        this.cachePreloader = cachePreloader;
+        this.enabled = enabled;
+        this.windowMicros = windowMicros;
+        this.maxSize = maxSize;
+        this.batchSizes = DistributionSummary.builder("url.lookup.batch.size")
+                .description("Number of short URLs looked up by a single query")
+                .register(meterRegistry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("url-lookup-batcher").daemon().factory());
+        this.executor = new ThreadPoolExecutor(0, maxConcurrency, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                Thread.ofPlatform().name("url-lookup-", 0).daemon().factory());
+    }
+
+    /**
+     * Looks up the original URL of an active short URL, along with the other short URLs looked up meanwhile.
+     *
+     * @param shortUrl the short URL
+     * @return the original URL, empty if the short URL is invalid or inactive
+     */
+    public Optional<String> findOriginalUrl(String shortUrl) {
+        if (!enabled) {
+            return urlRepository.findByShortenedUrlAndActiveIsTrue(shortUrl).map(Url::getOriginalUrl);
+        }
+        CompletableFuture<Optional<String>> lookup;
+        Map<String, CompletableFuture<Optional<String>>> full = null;
+        Map<String, CompletableFuture<Optional<String>>> started = null;
+        synchronized (lock) {
+            lookup = pending.get(shortUrl);
+            if (lookup == null) {
+                lookup = new CompletableFuture<>();
+                pending.put(shortUrl, lookup);
+                if (pending.size() >= maxSize) {
+                    full = pending;
+                    pending = new HashMap<>();
+                } else if (pending.size() == 1) {
+                    started = pending;
+                }
+            }
+        }
+        if (full != null) {
+            lookup(full);
+        } else if (started != null) {
+            Map<String, CompletableFuture<Optional<String>>> batch = started;
+            try {
+                scheduler.schedule(() -> flush(batch), windowMicros, TimeUnit.MICROSECONDS);
+            } catch (RejectedExecutionException e) {
+                flush(batch);
+            }
+        }
+        try {
+            return lookup.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Looks up a batch at the end of its window, unless it was already looked up when it got full.
+     * The batch is looked up by the calling thread when every lookup thread is busy.
+     *
+     * @param batch the batch
+     */
+    private void flush(Map<String, CompletableFuture<Optional<String>>> batch) {
+        synchronized (lock) {
+            if (pending != batch) {
+                return;
+            }
+            pending = new HashMap<>();
+        }
+        try {
+            executor.execute(() -> lookup(batch));
+        } catch (RejectedExecutionException e) {
+            lookup(batch);
+        }
+    }
+
+    /**
+     * Queries the original URLs of a batch, writes them to the cache, and answers the waiting callers.
+     *
+     * @param batch the futures of the callers by short URL
+     */
+    private void lookup(Map<String, CompletableFuture<Optional<String>>> batch) {
+        batchSizes.record(batch.size());
+        try {
+            Map<String, String> found;
+            if (batch.size() == 1) {
+                String shortUrl = batch.keySet().iterator().next();
+                found = urlRepository.findByShortenedUrlAndActiveIsTrue(shortUrl)
+                        .map(url -> Map.of(shortUrl, url.getOriginalUrl()))
+                        .orElse(Map.of());
+            } else {
+                found = urlRepository.findActiveOriginalUrls(batch.keySet());
+            }
+            cachePreloader.preload(CacheConfig.URL_CACHE_NAME, found);
+            batch.forEach((shortUrl, lookup) -> lookup.complete(Optional.ofNullable(found.get(shortUrl))));
+        } catch (RuntimeException e) {
+            log.error("Unable to look up a batch of {} short URLs. Ex = {}", batch.size(), e.getMessage());
+            batch.values().forEach(lookup -> lookup.completeExceptionally(e));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+}
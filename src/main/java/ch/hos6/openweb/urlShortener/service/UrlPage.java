@@ -0,0 +1,15 @@
+package ch.hos6.openweb.urlShortener.service;
+
+import ch.hos6.openweb.urlShortener.domain.entity.Url;
+
+import java.util.List;
+
+/**
+ * A page of the URLs of a user, newest first.
+ *
+ * @param urls       the URLs of the page
+ * @param nextCursor the opaque cursor of the next page, null if this page is the last one
+ * @author Toubia Oussama
+ */
+public record UrlPage(List<Url> urls, String nextCursor) {
+}
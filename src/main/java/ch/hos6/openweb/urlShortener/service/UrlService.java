@@ -1,81 +1,271 @@
 package ch.hos6.openweb.urlShortener.service;
 
+import ch.hos6.openweb.urlShortener.allocator.ShortCodeAllocator;
 import ch.hos6.openweb.urlShortener.aspect.RecordTime;
+import ch.hos6.openweb.urlShortener.cache.CachePreloader;
+import ch.hos6.openweb.urlShortener.cache.ShortUrlFilter;
+import ch.hos6.openweb.urlShortener.cache.TwoLevelCache;
 import ch.hos6.openweb.urlShortener.config.CacheConfig;
 import ch.hos6.openweb.urlShortener.domain.entity.Url;
+import ch.hos6.openweb.urlShortener.domain.entity.ValidationStatus;
 import ch.hos6.openweb.urlShortener.domain.repository.UrlRepository;
+import ch.hos6.openweb.urlShortener.domain.repository.UrlRepositoryCustom.RejectedUrl;
+import ch.hos6.openweb.urlShortener.errorhandling.exception.BatchTooLargeException;
+import ch.hos6.openweb.urlShortener.errorhandling.exception.InvalidCursorException;
 import ch.hos6.openweb.urlShortener.errorhandling.exception.InvalidUrlException;
 import ch.hos6.openweb.urlShortener.errorhandling.exception.ShortUrlNotFoundException;
-import ch.hos6.openweb.urlShortener.utils.UrlUtils;
+import ch.hos6.openweb.urlShortener.errorhandling.exception.UrlCreationException;
+import ch.hos6.openweb.urlShortener.errorhandling.exception.UrlValidationUnavailableException;
+import ch.hos6.openweb.urlShortener.validation.UrlValidator;
+import ch.hos6.openweb.urlShortener.validation.ValidationMode;
+import ch.hos6.openweb.urlShortener.validation.ValidationResult;
+import ch.hos6.openweb.urlShortener.writebehind.UrlWriteBehind;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * UrlService provides services related to the Url entity.
  * It includes functionality to create, retrieve, disable, and delete Urls.
+ * The execution time of its public methods is recorded in the {@code url.service} timer.
  *
  * @author Toubia Oussama
  */
 @Slf4j
 @Service
+@RecordTime("url.service")
 public class UrlService {
+    /**
+     * Number of short codes tried before giving up the creation of a URL.
+     */
+    private static final int MAX_ALLOCATION_ATTEMPTS = 10;
+
+    /**
+     * Separator of the creation date and the id in a page cursor.
+     */
+    private static final char CURSOR_SEPARATOR = '|';
+
+    /**
+     * The action run with a URL saved right away when nothing follows its save.
+     */
+    private static final Consumer<Url> NOTHING_AFTER_SAVE = url -> {
+    };
+
     private final UrlRepository urlRepository;
     private final CacheManager cacheManager;
+    private final ShortUrlFilter shortUrlFilter;
+    private final ShortCodeAllocator shortCodeAllocator;
+    private final UrlValidator urlValidator;
+    private final CachePreloader cachePreloader;
+    private final UrlLookupBatcher urlLookupBatcher;
+    private final UrlWriteBehind urlWriteBehind;
+    private final ValidationMode validationMode;
+    private final int batchMaxSize;
+    private final int batchValidationParallelism;
+    private final int maxPageSize;
+    private final int validationMaxAttempts;
+    private final long validationRetryDelay;
 
     /**
      * Constructor for the UrlService.
      *
-     * @param urlRepository The repository for URL entities.
-     * @param cacheManager  The manager for caching URL data.
+     * @param urlRepository  The repository for URL entities.
+     * @param cacheManager   The manager for caching URL data.
+     * @param shortUrlFilter The negative cache of the short URLs that do not resolve.
+     * @param shortCodeAllocator The allocator of the short codes.
+     * @param urlValidator The validator of the original URLs.
+     * @param cachePreloader The writer of the cache entries of the URLs created in batch.
+     * @param urlLookupBatcher The batcher of the lookups of the short URLs missing from the cache.
+     * @param urlWriteBehind The journal of the URLs created and inserted later, when enabled.
+     * @param validationMode Whether original URLs are validated before saving them or in the background.
+     * @param batchMaxSize The maximum number of URLs created in one batch.
+     * @param batchValidationParallelism The maximum number of original URLs of a batch validated concurrently.
+     * @param maxPageSize The maximum number of URLs of a page of the URLs of a user.
+     * @param validationMaxAttempts The maximum number of attempts of a background validation that could not be carried out.
+     * @param validationRetryDelay The delay in milliseconds before the first retry of such a validation, doubled at each retry.
      */
-    public UrlService(UrlRepository urlRepository, CacheManager cacheManager) {
+    public UrlService(UrlRepository urlRepository, CacheManager cacheManager, ShortUrlFilter shortUrlFilter,
+                      ShortCodeAllocator shortCodeAllocator, UrlValidator urlValidator, CachePreloader cachePreloader,
+                      UrlLookupBatcher urlLookupBatcher, UrlWriteBehind urlWriteBehind,
+                      @Value("${url.validation.mode:sync}") ValidationMode validationMode,
+                      @Value("${url.batch.max-size:1000}") int batchMaxSize,
+                      @Value("${url.batch.validation-parallelism:32}") int batchValidationParallelism,
+                      @Value("${url.page.max-size:500}") int maxPageSize,
+                      @Value("${url.validation.retry.max-attempts:5}") int validationMaxAttempts,
+                      @Value("${url.validation.retry.initial-delay:1000}") long validationRetryDelay) {
         this.urlRepository = urlRepository;
         this.cacheManager = cacheManager;
+        this.shortUrlFilter = shortUrlFilter;
+        this.shortCodeAllocator = shortCodeAllocator;
+        this.urlValidator = urlValidator;
+        this.cachePreloader = cachePreloader;
+        this.urlLookupBatcher = urlLookupBatcher;
+        this.urlWriteBehind = urlWriteBehind;
+        this.validationMode = validationMode;
+        this.batchMaxSize = batchMaxSize;
+        this.batchValidationParallelism = batchValidationParallelism;
+        this.maxPageSize = maxPageSize;
+        this.validationMaxAttempts = validationMaxAttempts;
+        this.validationRetryDelay = validationRetryDelay;
+        if (cacheManager.getCache(CacheConfig.URL_CACHE_NAME) instanceof TwoLevelCache urlCache) {
+            urlCache.refreshAheadWith(shortUrl -> findByShortenedUrlAndActive(shortUrl.toString())
+                    .map(Url::getOriginalUrl)
+                    .orElse(null));
+        }
+        urlWriteBehind.onInserted(this::completeInserted);
     }
 
 
     /**
      * Creates a new URL entity and saves it to the repository.
+     * In {@link ValidationMode#SYNC} mode, the original URL is validated first and rejected if it is not reachable,
+     * or the creation is refused as temporarily unavailable if the validation could not be carried out.
+     * In {@link ValidationMode#BACKGROUND} mode, the URL is saved right away as pending and inactive,
+     * and activated once its original URL is validated.
+     * <p>
+     * When the {@link UrlWriteBehind} is enabled, the URL is journaled and inserted later instead of being saved
+     * before returning. A valid URL is written to the URL cache right away, so that it resolves at once,
+     * and again once inserted. A pending URL is validated once inserted.
+     * </p>
      *
      * @param originalUrl The original URL to be shortened.
      * @param userId      The user ID associated with the URL.
      * @return The saved URL entity.
+     * @throws InvalidUrlException if the URL is not valid
+     * @throws UrlValidationUnavailableException if the URL could not be validated for a transient reason
+     * @throws UrlCreationException if no free short code could be allocated
      */
     @Transactional
-    @RecordTime
-    public Url createUrl(String originalUrl, String userId) throws IOException {
-        try {
-            UrlUtils.isValidUrl(originalUrl);
-            String shortUrl = generateUniqueShortUrl(originalUrl);
-            return saveUrl(originalUrl, userId, shortUrl);
-        } catch (IOException e) {
+    public Url createUrl(String originalUrl, String userId) throws InvalidUrlException, UrlCreationException {
+        if (validationMode == ValidationMode.BACKGROUND) {
+            if (!urlValidator.isWellFormed(originalUrl)) {
+                log.error("Invalid URL {}", originalUrl);
+                throw new InvalidUrlException("Invalid URL");
+            }
+            return persistUrl(newUrl(originalUrl, userId, ValidationStatus.PENDING), this::validateInBackground);
+        }
+        ValidationResult validation = urlValidator.validate(originalUrl);
+        if (validation.retryable()) {
+            log.warn("URL {} not validated: {}", originalUrl, validation.reason());
+            throw new UrlValidationUnavailableException("Unable to validate URL: " + validation.reason(),
+                    Duration.ofMillis(Math.max(validationRetryDelay, 1000)));
+        }
+        if (!validation.valid()) {
             log.error("Invalid URL {}", originalUrl);
-            throw new InvalidUrlException("Invalid URL", e);
+            throw new InvalidUrlException("Invalid URL: " + validation.reason());
+        }
+        Url url = persistUrl(newUrl(originalUrl, userId, ValidationStatus.VALID), NOTHING_AFTER_SAVE);
+        if (urlWriteBehind.isEnabled()) {
+            cachePreloader.preload(CacheConfig.URL_CACHE_NAME, Map.of(url.getShortenedUrl(), url.getOriginalUrl()));
         }
+        shortUrlFilter.recordExisting(url.getShortenedUrl());
+        return url;
     }
 
 
+    /**
+     * Creates a batch of URLs, and reports the outcome of each of them in the order of the original URLs.
+     * A URL that cannot be created does not fail the others.
+     * <p>
+     * In {@link ValidationMode#SYNC} mode, the original URLs are validated concurrently, at most
+     * {@code url.batch.validation-parallelism} at a time. In {@link ValidationMode#BACKGROUND} mode,
+     * they are only checked to be well-formed, and validated once saved as for {@link #createUrl(String, String)}.
+     * The short codes of the accepted URLs are allocated together, and the URLs are saved with a single
+     * unordered bulk insert. The URLs whose short code is already taken are retried together with new codes.
+     * The created active URLs are written to the URL cache with pipelined writes, ready for their first redirect.
+     * </p>
+     *
+     * @param originalUrls The original URLs to be shortened.
+     * @param userId       The user ID associated with the URLs.
+     * @return The outcome of the creation of each URL, in the order of the original URLs.
+     * @throws BatchTooLargeException if there are more than {@code url.batch.max-size} URLs
+     */
+    public List<UrlCreationResult> createUrls(List<String> originalUrls, String userId) {
+        if (originalUrls.size() > batchMaxSize) {
+            throw new BatchTooLargeException("Too many URLs: " + originalUrls.size() + ", at most " + batchMaxSize + " per batch");
+        }
+        UrlCreationResult[] results = validateAll(originalUrls);
+        ValidationStatus validationStatus = validationMode == ValidationMode.BACKGROUND ? ValidationStatus.PENDING : ValidationStatus.VALID;
+        List<Url> urls = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                urls.add(newUrl(originalUrls.get(i), userId, validationStatus));
+                positions.add(i);
+            }
+        }
+
+        String[] errors = insertAll(urls);
+        List<Url> created = new ArrayList<>(urls.size());
+        for (int i = 0; i < errors.length; i++) {
+            Url url = urls.get(i);
+            if (errors[i] != null) {
+                results[positions.get(i)] = UrlCreationResult.failed(url.getOriginalUrl(), errors[i]);
+            } else {
+                results[positions.get(i)] = UrlCreationResult.created(url);
+                created.add(url);
+            }
+        }
+
+        if (validationStatus == ValidationStatus.PENDING) {
+            created.forEach(this::validateInBackground);
+        } else if (!created.isEmpty()) {
+            Map<String, String> entries = new HashMap<>(created.size() * 2);
+            created.forEach(url -> entries.put(url.getShortenedUrl(), url.getOriginalUrl()));
+            cachePreloader.preload(CacheConfig.URL_CACHE_NAME, entries);
+            shortUrlFilter.recordExisting(entries.keySet());
+        }
+        log.info("Created {} URLs out of a batch of {}", created.size(), originalUrls.size());
+        return List.of(results);
+    }
+
     /**
      * Retrieves the original URL from a shortened URL.
+     * The {@link ShortUrlFilter} is only consulted on a miss of both cache levels, to spare the repository the short URLs
+     * known not to exist, and a short URL that does not resolve is remembered by it for a short time.
+     * The cache is read in sync mode: concurrent misses of the same short URL, for example when a hot link is created
+     * or its cache entry expires, are coalesced into a single query of the repository.
+     * The misses of different short URLs are looked up together by the {@link UrlLookupBatcher}.
+     * The cache entries close to their expiry are reloaded from the repository in the background,
+     * so that the hot links do not expire.
      *
      * @param shortUrl the shortened URL
      * @return the original URL
      * @throws ShortUrlNotFoundException if the short URL is invalid or inactive
      */
-    @Cacheable(value = CacheConfig.URL_CACHE_NAME, key = "#shortUrl")
+    @Cacheable(value = CacheConfig.URL_CACHE_NAME, key = "#shortUrl", sync = true)
     public String getOriginalUrl(String shortUrl) throws ShortUrlNotFoundException {
-        return findByShortenedUrlAndActive(shortUrl)
-                .orElseThrow(() -> new ShortUrlNotFoundException("Invalid or inactive short URL"))
-                .getOriginalUrl();
+        if (shortUrlFilter.isDefinitelyMissing(shortUrl)) {
+            throw new ShortUrlNotFoundException("Invalid or inactive short URL");
+        }
+        return urlLookupBatcher.findOriginalUrl(shortUrl)
+                .orElseThrow(() -> {
+                    shortUrlFilter.recordMissing(shortUrl);
+                    return new ShortUrlNotFoundException("Invalid or inactive short URL");
+                });
     }
 
     /**
@@ -88,6 +278,63 @@ public class UrlService {
         return urlRepository.findByUserId(userId);
     }
 
+    /**
+     * Retrieves a page of the Urls of a user, newest first.
+     * Pages are chained by keyset: the cursor of the next page holds the creation date and id of the last Url
+     * of the page, and the next page starts right after it on the compound index of the user, creation date and id.
+     * Unlike an offset, the cost of a page does not grow with its position, and Urls created meanwhile do not shift the pages.
+     *
+     * @param userId the ID of the user
+     * @param cursor the cursor returned with the previous page, null for the first page
+     * @param size   the maximum number of Urls of the page, at most {@code url.page.max-size}
+     * @return the page of Urls
+     * @throws InvalidCursorException if the cursor was not returned by this method
+     */
+    public UrlPage getUserUrlsPage(String userId, String cursor, int size) {
+        int limit = Math.max(1, Math.min(size, maxPageSize));
+        LocalDateTime creationDate = null;
+        String id = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String decoded;
+            try {
+                decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+            int separator = decoded.indexOf(CURSOR_SEPARATOR);
+            if (separator < 0) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+            try {
+                creationDate = LocalDateTime.parse(decoded.substring(0, separator));
+            } catch (DateTimeParseException e) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+            id = decoded.substring(separator + 1);
+        }
+        // one more Url than the page size tells whether there is a next page
+        List<Url> urls = urlRepository.findUserUrlsAfter(userId, creationDate, id, limit + 1);
+        if (urls.size() <= limit) {
+            return new UrlPage(urls, null);
+        }
+        List<Url> page = urls.subList(0, limit);
+        Url last = page.get(limit - 1);
+        String nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                (last.getCreationDate().toString() + CURSOR_SEPARATOR + last.getId()).getBytes(StandardCharsets.UTF_8));
+        return new UrlPage(page, nextCursor);
+    }
+
+    /**
+     * Streams all the Urls of a user, newest first, read from a MongoDB cursor as the stream is consumed.
+     * The stream must be closed once consumed.
+     *
+     * @param userId the ID of the user
+     * @return a stream of the Urls of the user
+     */
+    public Stream<Url> streamUserUrls(String userId) {
+        return urlRepository.streamByUserId(userId);
+    }
+
     /**
      * Deletes a Url.
      *
@@ -101,6 +348,7 @@ public class UrlService {
         Url url = findByShortenedUrlAnbUserId(shortUrl,userId)
                 .orElseThrow(() -> new ShortUrlNotFoundException("Invalid short URL"));
         urlRepository.delete(url);
+        shortUrlFilter.recordMissing(shortUrl);
     }
 
     /**
@@ -129,48 +377,247 @@ public class UrlService {
     }
 
     /**
-     * Generates a unique short URL for the provided original URL.
-     * It uses UrlUtils to shorten the URL and checks the URL repository to ensure uniqueness.
-     * If a generated short URL already exists, it generates a new one until a unique short URL is found.
+     * Persists a new URL with a short URL from the {@link ShortCodeAllocator}.
+     * When the {@link UrlWriteBehind} is enabled and its journal is not full, the URL is journaled and inserted later,
+     * then completed by {@link #completeInserted(List)}, otherwise it is saved right away.
      *
-     * @param originalUrl The original URL to be shortened.
-     * @return A unique short URL.
+     * @param url The new URL.
+     * @param onSaved The action run with the URL if it is saved right away.
+     * @return The journaled or saved URL object.
+     * @throws UrlCreationException if the URL is saved right away and no free short URL was found
      */
-    private String generateUniqueShortUrl(String originalUrl) {
-        String shortUrl = UrlUtils.shortenUrl(originalUrl);
-
-        // Keep generating new short URLs until we find one that doesn't exist yet
-        while (urlRepository.existsByShortenedUrl(shortUrl)) {
-            shortUrl = UrlUtils.shortenUrl(originalUrl + Math.random());
+    private Url persistUrl(Url url, Consumer<Url> onSaved) throws UrlCreationException {
+        if (urlWriteBehind.isEnabled()) {
+            url.setShortenedUrl(shortCodeAllocator.allocate(url.getOriginalUrl()));
+            if (urlWriteBehind.submit(url).isPresent()) {
+                return url;
+            }
         }
-
-        return shortUrl;
+        Url saved = saveUrl(url);
+        onSaved.accept(saved);
+        return saved;
     }
 
     /**
      * Saves the URL to the URL repository.
-     * The method creates a new URL object, sets its properties, and saves it to the URL repository.
+     * The method saves the new URL to the URL repository with a short URL from the {@link ShortCodeAllocator}.
+     * If the short URL is already taken, the unique index rejects it and another short URL is allocated.
+     *
+     * @param url The new URL.
+     * @return The saved URL object.
+     * @throws UrlCreationException if no free short URL was found after {@value #MAX_ALLOCATION_ATTEMPTS} attempts
+     */
+    private Url saveUrl(Url url) throws UrlCreationException {
+        String originalUrl = url.getOriginalUrl();
+        for (int attempt = 1; attempt <= MAX_ALLOCATION_ATTEMPTS; attempt++) {
+            url.setShortenedUrl(shortCodeAllocator.allocate(originalUrl));
+            try {
+                return urlRepository.save(url);
+            } catch (DuplicateKeyException e) {
+                log.warn("Short URL {} already taken, attempt {}", url.getShortenedUrl(), attempt);
+            }
+        }
+        throw new UrlCreationException("Unable to allocate a short URL for " + originalUrl);
+    }
+
+    /**
+     * Creates a new URL object, without short URL yet. A pending URL is inactive.
      *
      * @param originalUrl The original URL.
      * @param userId The ID of the user who created the URL.
-     * @param shortUrl The shortened version of the original URL.
-     * @return The saved URL object.
+     * @param validationStatus The state of the validation of the original URL.
+     * @return The new URL object.
      */
-    private Url saveUrl(String originalUrl, String userId, String shortUrl) {
+    private Url newUrl(String originalUrl, String userId, ValidationStatus validationStatus) {
         Url url = new Url();
         url.setOriginalUrl(originalUrl);
         url.setUserId(userId);
-        url.setShortenedUrl(shortUrl);
+        url.setValidationStatus(validationStatus);
+        url.setActive(validationStatus != ValidationStatus.PENDING);
         url.setCreationDate(LocalDateTime.now());
         url.setExpirationDate(LocalDateTime.now().plusMonths(1));
+        return url;
+    }
+
+    /**
+     * Checks the original URLs of a batch before saving them.
+     * Malformed URLs are always rejected. In {@link ValidationMode#SYNC} mode, the well-formed ones are validated
+     * concurrently, at most {@code url.batch.validation-parallelism} at a time, and the invalid ones are rejected.
+     * The ones whose validation could not be carried out, for example because their host is too busy, are rejected
+     * as retryable rather than invalid.
+     *
+     * @param originalUrls The original URLs of the batch.
+     * @return The failed result of each rejected original URL, or null for the accepted ones, in the order of the original URLs.
+     */
+    private UrlCreationResult[] validateAll(List<String> originalUrls) {
+        UrlCreationResult[] rejections = new UrlCreationResult[originalUrls.size()];
+        Semaphore permits = new Semaphore(batchValidationParallelism);
+        List<CompletableFuture<Void>> validations = new ArrayList<>();
+        for (int i = 0; i < rejections.length; i++) {
+            String originalUrl = originalUrls.get(i);
+            if (originalUrl == null || !urlValidator.isWellFormed(originalUrl)) {
+                rejections[i] = UrlCreationResult.failed(originalUrl, "Invalid URL");
+                continue;
+            }
+            if (validationMode == ValidationMode.BACKGROUND) {
+                continue;
+            }
+            int position = i;
+            permits.acquireUninterruptibly();
+            validations.add(urlValidator.validateAsync(originalUrl)
+                    .whenComplete((result, e) -> permits.release())
+                    .thenAccept(result -> {
+                        if (result.retryable()) {
+                            rejections[position] = UrlCreationResult.retryable(originalUrl, "Unable to validate URL: " + result.reason());
+                        } else if (!result.valid()) {
+                            rejections[position] = UrlCreationResult.failed(originalUrl, "Invalid URL: " + result.reason());
+                        }
+                    })
+                    .exceptionally(e -> {
+                        log.error("Unable to validate URL {}", originalUrl, e);
+                        rejections[position] = UrlCreationResult.retryable(originalUrl, "Unable to validate URL");
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(validations.toArray(CompletableFuture[]::new)).join();
+        return rejections;
+    }
+
+    /**
+     * Allocates the short URLs of new URLs and saves them with a bulk insert.
+     * The URLs rejected because their short URL is already taken are retried with new short URLs,
+     * up to {@value #MAX_ALLOCATION_ATTEMPTS} times. If the insert fails as a whole, for example because MongoDB
+     * is unreachable, the URLs not saved yet are reported as such.
+     *
+     * @param urls The URLs to save.
+     * @return Why each URL could not be saved, or null for the saved ones, in the order of the URLs.
+     */
+    private String[] insertAll(List<Url> urls) {
+        String[] errors = new String[urls.size()];
+        List<Integer> pending = IntStream.range(0, urls.size()).boxed().toList();
+        for (int attempt = 1; attempt <= MAX_ALLOCATION_ATTEMPTS && !pending.isEmpty(); attempt++) {
+            List<Url> batch = pending.stream().map(urls::get).toList();
+            List<String> shortUrls = shortCodeAllocator.allocateAll(batch.stream().map(Url::getOriginalUrl).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setShortenedUrl(shortUrls.get(i));
+            }
+            List<RejectedUrl> rejectedUrls;
+            try {
+                rejectedUrls = urlRepository.insertAllUnordered(batch);
+            } catch (RuntimeException e) {
+                log.error("Unable to save {} URLs, attempt {}", batch.size(), attempt, e);
+                for (int position : pending) {
+                    errors[position] = "Unable to save URL";
+                }
+                return errors;
+            }
+            List<Integer> retried = new ArrayList<>();
+            for (RejectedUrl rejected : rejectedUrls) {
+                int position = pending.get(rejected.index());
+                if (rejected.duplicateShortUrl()) {
+                    log.warn("Short URL {} already taken, attempt {}", urls.get(position).getShortenedUrl(), attempt);
+                    retried.add(position);
+                } else {
+                    log.error("Unable to save URL {}: {}", urls.get(position).getOriginalUrl(), rejected.reason());
+                    errors[position] = "Unable to save URL";
+                }
+            }
+            pending = retried;
+        }
+        for (int position : pending) {
+            errors[position] = "Unable to allocate a short URL";
+        }
+        return errors;
+    }
 
-        return urlRepository.save(url);
+    /**
+     * Completes the URLs inserted behind their creation by the {@link UrlWriteBehind},
+     * including the ones replayed from its journal after a restart.
+     * The pending URLs are validated in the background. The active ones are written to the URL cache again
+     * and recorded as existing, since a lookup before their insert may have found them missing.
+     *
+     * @param urls The inserted URLs.
+     */
+    private void completeInserted(List<Url> urls) {
+        Map<String, String> entries = new HashMap<>(urls.size() * 2);
+        for (Url url : urls) {
+            if (url.getValidationStatus() == ValidationStatus.PENDING) {
+                validateInBackground(url);
+            } else if (url.isActive()) {
+                entries.put(url.getShortenedUrl(), url.getOriginalUrl());
+            }
+        }
+        if (!entries.isEmpty()) {
+            cachePreloader.preload(CacheConfig.URL_CACHE_NAME, entries);
+            shortUrlFilter.recordExisting(entries.keySet());
+        }
+    }
+
+    /**
+     * Validates the original URL of a pending URL in the background, and records the result once it completes.
+     *
+     * @param url The saved pending URL.
+     */
+    private void validateInBackground(Url url) {
+        validateInBackground(url, 1);
+    }
+
+    /**
+     * Runs an attempt of the background validation of a pending URL.
+     *
+     * @param url The saved pending URL.
+     * @param attempt The number of the attempt, starting at 1.
+     */
+    private void validateInBackground(Url url, int attempt) {
+        urlValidator.validateAsync(url.getOriginalUrl())
+                .thenAccept(result -> completeValidation(url, result, attempt))
+                .exceptionally(e -> {
+                    log.error("Unable to complete the validation of URL {}", url.getOriginalUrl(), e);
+                    return null;
+                });
+    }
+
+    /**
+     * Records the result of the background validation of a pending URL.
+     * A valid URL is activated, an invalid one stays inactive.
+     * A validation that could not be carried out leaves the URL pending and is retried with an exponential backoff,
+     * at most {@code url.validation.retry.max-attempts} times in all.
+     * The URL is left unchanged if it was deleted or is no longer pending meanwhile.
+     *
+     * @param pending The validated URL.
+     * @param result The result of the validation of its original URL.
+     * @param attempt The number of the attempt that produced the result.
+     */
+    private void completeValidation(Url pending, ValidationResult result, int attempt) {
+        if (result.retryable()) {
+            if (attempt >= validationMaxAttempts) {
+                log.error("URL {} left pending, not validated after {} attempts: {}", pending.getOriginalUrl(), attempt, result.reason());
+                return;
+            }
+            long delay = validationRetryDelay << Math.min(attempt - 1, 20);
+            log.warn("URL {} not validated: {}, retried in {} ms", pending.getOriginalUrl(), result.reason(), delay);
+            CompletableFuture.runAsync(() -> validateInBackground(pending, attempt + 1),
+                    CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+            return;
+        }
+        urlRepository.findById(pending.getId())
+                .filter(url -> url.getValidationStatus() == ValidationStatus.PENDING)
+                .ifPresent(url -> {
+                    url.setValidationStatus(result.valid() ? ValidationStatus.VALID : ValidationStatus.INVALID);
+                    url.setActive(result.valid());
+                    urlRepository.save(url);
+                    if (result.valid()) {
+                        shortUrlFilter.recordExisting(url.getShortenedUrl());
+                    } else {
+                        log.error("Invalid URL {}: {}", url.getOriginalUrl(), result.reason());
+                    }
+                });
     }
 
     /**
      * Updates the status of the URL in the URL repository.
      * The method finds the URL in the repository, updates its status, and saves the updated URL.
-     * If the URL is set to active, it is also added to the cache.
+     * If the URL is set to active, it is also added to the cache and removed from the negative cache.
      *
      * @param shortUrl The short URL of the URL to be updated.
      * @param status The new status of the URL.
@@ -185,6 +632,7 @@ public class UrlService {
 
         if (status) {
             Objects.requireNonNull(cacheManager.getCache(CacheConfig.URL_CACHE_NAME)).put(shortUrl, url.getOriginalUrl());
+            shortUrlFilter.recordExisting(shortUrl);
         }
     }
 
@@ -5,6 +5,7 @@ import ch.hos6.openweb.urlShortener.domain.entity.User;
 import ch.hos6.openweb.urlShortener.domain.repository.UserRepository;
 import ch.hos6.openweb.urlShortener.errorhandling.exception.UsernameAlreadyTakenException;
 import ch.hos6.openweb.urlShortener.mapper.UserMapper;
+import ch.hos6.openweb.urlShortener.security.CustomUserDetailService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -23,23 +24,28 @@ public class UserService {
     private final UserRepository userRepository;
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
+    private final CustomUserDetailService userDetailService;
 
     /**
-     * Constructs a UserService with the provided UserRepository, UserMapper, and PasswordEncoder.
+     * Constructs a UserService with the provided UserRepository, UserMapper, PasswordEncoder and CustomUserDetailService.
      *
      * @param userRepository the repository to use for user data access
      * @param userMapper the mapper to use for converting between User and UserDto objects
      * @param passwordEncoder the encoder to use for encoding user passwords
+     * @param userDetailService the service caching the users for authentication, evicting the users saved
      */
-    public UserService(UserRepository userRepository, UserMapper userMapper, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, UserMapper userMapper, PasswordEncoder passwordEncoder,
+                       CustomUserDetailService userDetailService) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
         this.passwordEncoder = passwordEncoder;
+        this.userDetailService = userDetailService;
     }
 
     /**
      * Creates a new user with the details provided in the UserDto object.
-     * The user password is encoded before the user is saved to the repository.
+     * The user password is encoded before the user is saved to the repository,
+     * and the username is evicted from the cache of the authentication, which may have cached it as unknown.
      * If a user with the same username already exists, a UsernameAlreadyTakenException is thrown.
      *
      * @param userDto the details of the user to create
@@ -51,6 +57,7 @@ public class UserService {
             User user = userMapper.DtoToUser(userDto);
             user.setPassword(passwordEncoder.encode(user.getPassword()));
             user = this.userRepository.save(user);
+            userDetailService.evict(user.getUsername());
             return userMapper.userToDto(user);
         }catch (DuplicateKeyException ex){
             log.error("Username already taken {} ", userDto.username(), ex);
@@ -40,14 +40,25 @@ public class JwtTokenUtils {
      * @return a string representing the encoded JWT
      */
     public String token(User user) {
+        return token(user.getId(), user.getUsername());
+    }
+
+    /**
+     * Generates a JWT for the user of the provided ID and username, as {@link #token(User)} does.
+     *
+     * @param userId   the ID of the user
+     * @param username the username of the user
+     * @return a string representing the encoded JWT
+     */
+    public String token(String userId, String username) {
         Instant now = Instant.now();
 
         JwtClaimsSet claims = JwtClaimsSet.builder()
                 .issuer("self")
                 .issuedAt(now)
                 .expiresAt(now.plusSeconds(jwtExpiration))
-                .subject(user.getUsername())
-                .claim("userId", user.getId())
+                .subject(username)
+                .claim("userId", userId)
                 .build();
 
         return jwtEncoder.encode(JwtEncoderParameters.from(claims)).getTokenValue();
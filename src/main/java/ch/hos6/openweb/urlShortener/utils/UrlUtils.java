@@ -1,96 +1,112 @@
 package ch.hos6.openweb.urlShortener.utils;
 
-import ch.hos6.openweb.urlShortener.errorhandling.exception.InvalidUrlException;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.IOException;
-import java.math.BigInteger;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 
 
 @Slf4j
 public class UrlUtils {
     private static final String HASH_ALGORITHM = "SHA-256";
-    private static final String BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
-    private static final String USER_AGENT = "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/110.0.0.0 Safari/537.36 OPR/96.0.0.0";
-
+    private static final char[] BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+    private static final byte[] BASE62_DIGITS = new byte['z' + 1];
+    private static final int MAX_BASE62_LENGTH = 10;
+    private static final int SHORT_URL_LENGTH = 6;
+    private static final long SHORT_URL_DOMAIN = base62Domain(SHORT_URL_LENGTH);
 
     /**
-     * Validates the provided URL by checking if it matches a valid URL format and then attempting to open a connection to it.
-     *
-     * @param url the URL to validate
-     * @throws InvalidUrlException if the URL is not valid or a connection cannot be opened
+     * MessageDigest instances are not thread-safe, so each thread reuses its own.
      */
-    public static void isValidUrl(String url) throws InvalidUrlException {
-        URL longUrl;
-        HttpURLConnection connection = null;
+    private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(() -> {
         try {
-            longUrl = new URL(url);
-            connection = (HttpURLConnection) longUrl.openConnection();
-            //add user agent to prevent unauthorized response
-            connection.addRequestProperty("User-Agent",USER_AGENT);
-            connection.connect();
-            int statusCode = connection.getResponseCode();
-            if (statusCode < 200 || statusCode > 299) {
-                log.error("Unreachable URL {}", url);
-                throw new InvalidUrlException("Unreachable URL: " + url);
-            }
-        } catch (MalformedURLException e) {
-            log.error("Malformed URL {} ", url, e);
-            throw new InvalidUrlException("Malformed URL: " + url, e);
-        } catch (IOException e) {
-            log.error("Failed to open connection to URL {} ", url, e);
-            throw new InvalidUrlException("Failed to open connection to URL: " + url, e);
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            log.error("Hash not found {} ", HASH_ALGORITHM, e);
+            throw new IllegalStateException(HASH_ALGORITHM + " not found", e);
+        }
+    });
+
+    static {
+        Arrays.fill(BASE62_DIGITS, (byte) -1);
+        for (int i = 0; i < BASE62.length; i++) {
+            BASE62_DIGITS[BASE62[i]] = (byte) i;
         }
     }
 
     /**
      * Shortens the provided URL by generating a SHA-256 hash of it and then converting the hash to a base 62 string.
+     * <p>
+     * The short URL is made of the {@value #SHORT_URL_LENGTH} least significant base62 digits of the hash,
+     * least significant first. They are computed from the hash modulo 62^{@value #SHORT_URL_LENGTH},
+     * without converting the whole hash, and the digest of the calling thread is reused.
      *
      * @param originalUrl the URL to shorten
      * @return a shortened version of the URL
-     * @throws RuntimeException if the SHA-256 hash algorithm is not found
      */
     public static String shortenUrl(String originalUrl){
-        MessageDigest digest = null;
-        try {
-            digest = MessageDigest.getInstance(HASH_ALGORITHM);
-            byte[] hash = digest.digest(originalUrl.getBytes(StandardCharsets.UTF_8));
-            BigInteger hashInt = new BigInteger(1, hash);
-            return toBase62(hashInt).substring(0, 6);
+        MessageDigest digest = DIGESTS.get();
+        byte[] hash = digest.digest(originalUrl.getBytes(StandardCharsets.UTF_8));
+        long remainder = 0;
+        for (byte b : hash) {
+            remainder = ((remainder << 8) | (b & 0xFF)) % SHORT_URL_DOMAIN;
+        }
+        return toBase62(remainder, SHORT_URL_LENGTH);
+    }
 
-        } catch (NoSuchAlgorithmException e) {
-            log.error("Hash not found {} ", HASH_ALGORITHM, e);
-            throw new RuntimeException(HASH_ALGORITHM + " not found",e);
+    /**
+     * Converts a positive long to a base62 string of the given length, padded with zeros.
+     * Like {@link #shortenUrl(String)}, the least significant digit comes first.
+     *
+     * @param value  the value to convert, lower than 62^length
+     * @param length the number of characters of the result
+     * @return the base62 string representation of the value
+     */
+    public static String toBase62(long value, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = BASE62[(int) (value % 62)];
+            value /= 62;
         }
+        return new String(chars);
     }
 
     /**
-     * Converts a BigInteger to a base62 string.
-     * <p>
-     * The conversion is done by repeatedly dividing the number by 62 and
-     * then mapping the remainder to a character in the base62 alphabet
-     * (0-9, a-z, A-Z). The process continues until the BigInteger reaches zero.
+     * Converts a base62 string written by {@link #toBase62(long, int)} back to its value.
+     *
+     * @param value the base62 string, least significant digit first, at most 10 characters
+     * @return the value of the base62 string
+     * @throws IllegalArgumentException if the string is too long or contains a character outside the base62 alphabet
+     */
+    public static long fromBase62(String value) {
+        if (value.length() > MAX_BASE62_LENGTH) {
+            throw new IllegalArgumentException("Base62 value too long: " + value);
+        }
+        long result = 0;
+        for (int i = value.length() - 1; i >= 0; i--) {
+            char c = value.charAt(i);
+            int digit = c < BASE62_DIGITS.length ? BASE62_DIGITS[c] : -1;
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid base62 character '" + c + "' in " + value);
+            }
+            result = result * 62 + digit;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of base62 strings of the given length, 62^length.
      *
-     * @param value the BigInteger to convert
-     * @return the base62 string representation of the BigInteger
+     * @param length the length of the strings, at most 10
+     * @return the number of strings of that length
      */
-    private static String toBase62(BigInteger value) {
-        StringBuilder sb = new StringBuilder();
-        while (value.compareTo(BigInteger.ZERO) > 0) {
-            int index = value.mod(BigInteger.valueOf(62)).intValue();
-            sb.append(BASE62.charAt(index));
-            value = value.divide(BigInteger.valueOf(62));
+    public static long base62Domain(int length) {
+        long domain = 1;
+        for (int i = 0; i < length; i++) {
+            domain *= 62;
         }
-        return sb.toString();
+        return domain;
     }
 }
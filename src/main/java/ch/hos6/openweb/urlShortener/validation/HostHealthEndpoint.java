@@ -0,0 +1,49 @@
+package ch.hos6.openweb.urlShortener.validation;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint exposing the health of the hosts whose URLs are validated, at {@code /actuator/hosthealth}.
+ *
+ * @author Toubia Oussama
+ */
+@Component
+@Endpoint(id = "hosthealth")
+public class HostHealthEndpoint {
+    private final HostHealthRegistry hostHealthRegistry;
+
+    /**
+     * Constructs a HostHealthEndpoint with the provided HostHealthRegistry.
+     *
+     * @param hostHealthRegistry the registry of the health of the hosts
+     */
+    public HostHealthEndpoint(HostHealthRegistry hostHealthRegistry) {
+        this.hostHealthRegistry = hostHealthRegistry;
+    }
+
+    /**
+     * Returns the health summaries of all the hosts validated recently.
+     *
+     * @return the summaries by host
+     */
+    @ReadOperation
+    public Map<String, HostHealthRegistry.HostHealthSummary> hosts() {
+        return hostHealthRegistry.summaries();
+    }
+
+    /**
+     * Returns the health summary of a host.
+     *
+     * @param host the host
+     * @return the summary, or a 404 response if the host was not validated recently
+     */
+    @ReadOperation
+    public HostHealthRegistry.HostHealthSummary host(@Selector String host) {
+        return hostHealthRegistry.summary(host);
+    }
+}
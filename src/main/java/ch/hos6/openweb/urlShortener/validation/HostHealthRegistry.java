@@ -0,0 +1,165 @@
+package ch.hos6.openweb.urlShortener.validation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps a health summary of the hosts whose URLs are validated: recent status codes, latency and failure streak.
+ * <p>
+ * A host failing {@code url.validation.host.failure-threshold} times in a row is short-circuited:
+ * its URLs are reported invalid without being requested for {@code url.validation.host.open-duration} seconds.
+ * The next validation after that delay is sent, and closes the circuit if it succeeds.
+ * Connection failures, timeouts and 5xx statuses count as failures of the host; other statuses only concern the URL.
+ * </p>
+ *
+ * @author Toubia Oussama
+ */
+@Component
+public class HostHealthRegistry {
+    private static final int RECENT_STATUS_CODES = 16;
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final Cache<String, HostHealth> hosts;
+    private final int failureThreshold;
+    private final Duration openDuration;
+
+    /**
+     * Constructs a HostHealthRegistry.
+     *
+     * @param failureThreshold the number of consecutive failures after which a host is short-circuited
+     * @param openDuration     the time in seconds a failing host is short-circuited
+     * @param maximumHosts     the number of hosts tracked, the least recently validated ones are forgotten
+     */
+    public HostHealthRegistry(@Value("${url.validation.host.failure-threshold:5}") int failureThreshold,
+                              @Value("${url.validation.host.open-duration:30}") long openDuration,
+                              @Value("${url.validation.host.maximum-size:1000}") long maximumHosts) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = Duration.ofSeconds(openDuration);
+        this.hosts = Caffeine.newBuilder()
+                .maximumSize(maximumHosts)
+                .expireAfterAccess(Duration.ofHours(1))
+                .build();
+    }
+
+    /**
+     * Records the outcome of a request sent to a host.
+     *
+     * @param host         the requested host
+     * @param statusCode   the status received, 0 if no response was received
+     * @param latencyNanos the time taken by the request
+     */
+    public void record(String host, int statusCode, long latencyNanos) {
+        hosts.get(key(host), key -> new HostHealth()).record(statusCode, latencyNanos, failureThreshold, openDuration);
+    }
+
+    /**
+     * Checks whether the URLs of a host must not be requested because the host keeps failing.
+     *
+     * @param host the host to check
+     * @return true if the host is short-circuited
+     */
+    public boolean isShortCircuited(String host) {
+        HostHealth health = hosts.getIfPresent(key(host));
+        return health != null && health.isShortCircuited();
+    }
+
+    /**
+     * Returns the health summary of a host.
+     *
+     * @param host the host
+     * @return the summary, null if the host was not validated recently
+     */
+    public HostHealthSummary summary(String host) {
+        HostHealth health = hosts.getIfPresent(key(host));
+        return health == null ? null : health.summary();
+    }
+
+    /**
+     * Returns the health summaries of all the hosts validated recently.
+     *
+     * @return the summaries by host, sorted by host
+     */
+    public Map<String, HostHealthSummary> summaries() {
+        Map<String, HostHealthSummary> summaries = new TreeMap<>();
+        hosts.asMap().forEach((host, health) -> summaries.put(host, health.summary()));
+        return summaries;
+    }
+
+    private static String key(String host) {
+        return host.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The health summary of a host.
+     *
+     * @param recentStatusCodes     the last status codes received, oldest first, 0 when no response was received
+     * @param lastLatencyMillis     the latency of the last request
+     * @param averageLatencyMillis  the exponentially weighted moving average of the latency
+     * @param maxLatencyMillis      the highest latency observed
+     * @param failureStreak         the number of consecutive failures
+     * @param shortCircuited        whether the URLs of the host are currently not requested
+     * @param lastRequest           when the host was last requested
+     * @param lastFailure           when the host last failed, null if it never failed
+     */
+    public record HostHealthSummary(List<Integer> recentStatusCodes, double lastLatencyMillis,
+                                    double averageLatencyMillis, double maxLatencyMillis, int failureStreak,
+                                    boolean shortCircuited, Instant lastRequest, Instant lastFailure) {
+    }
+
+    /**
+     * The mutable health of a host.
+     */
+    private static final class HostHealth {
+        private final int[] statusCodes = new int[RECENT_STATUS_CODES];
+        private long requests;
+        private long lastLatencyNanos;
+        private double averageLatencyNanos;
+        private long maxLatencyNanos;
+        private int failureStreak;
+        private Instant lastRequest;
+        private Instant lastFailure;
+        private Instant openUntil;
+
+        private synchronized void record(int statusCode, long latencyNanos, int failureThreshold, Duration openDuration) {
+            statusCodes[(int) (requests++ % RECENT_STATUS_CODES)] = statusCode;
+            lastLatencyNanos = latencyNanos;
+            averageLatencyNanos = requests == 1 ? latencyNanos : averageLatencyNanos + LATENCY_SMOOTHING * (latencyNanos - averageLatencyNanos);
+            maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+            lastRequest = Instant.now();
+            if (statusCode == 0 || statusCode >= 500) {
+                failureStreak++;
+                lastFailure = lastRequest;
+                if (failureStreak >= failureThreshold) {
+                    openUntil = lastRequest.plus(openDuration);
+                }
+            } else {
+                failureStreak = 0;
+                openUntil = null;
+            }
+        }
+
+        private synchronized boolean isShortCircuited() {
+            return openUntil != null && Instant.now().isBefore(openUntil);
+        }
+
+        private synchronized HostHealthSummary summary() {
+            int count = (int) Math.min(requests, RECENT_STATUS_CODES);
+            List<Integer> recent = new ArrayList<>(count);
+            for (long i = requests - count; i < requests; i++) {
+                recent.add(statusCodes[(int) (i % RECENT_STATUS_CODES)]);
+            }
+            return new HostHealthSummary(recent, lastLatencyNanos / 1e6, averageLatencyNanos / 1e6,
+                    maxLatencyNanos / 1e6, failureStreak, isShortCircuited(), lastRequest, lastFailure);
+        }
+    }
+}
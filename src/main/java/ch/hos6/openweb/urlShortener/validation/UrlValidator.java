@@ -0,0 +1,350 @@
+package ch.hos6.openweb.urlShortener.validation;
+
+import ch.hos6.openweb.urlShortener.aspect.RecordTime;
+import ch.hos6.openweb.urlShortener.monitoring.OutcomeTimers;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates destination URLs by checking that they answer with a 2xx status.
+ * <p>
+ * Requests are sent with the JDK HttpClient, first as HEAD then as GET if the destination does not accept HEAD,
+ * with connect and request timeouts. Each validation runs on its own virtual thread, so waiting for a slow destination
+ * never holds a request thread, and the number of concurrent validations per host is bounded.
+ * The permits of a host are kept as long as one of its validations holds or waits for them, and dropped after.
+ * </p>
+ * <p>
+ * Results are cached by normalized URL, valid ones for {@code url.validation.cache.time-to-live} seconds
+ * and invalid ones for {@code url.validation.cache.invalid-time-to-live} seconds, and concurrent validations
+ * of the same URL share a single request. The validations that could not be carried out, because the host
+ * had no permit free or the validation was interrupted, are retryable and never cached. Every request is recorded in the {@link HostHealthRegistry},
+ * and the URLs of a host short-circuited by the registry are reported invalid without being requested.
+ * Cache statistics are published as the {@code url.validation} cache metrics,
+ * request latencies as the {@code url.validation.requests} timer,
+ * and the execution time of {@link #validate(String)} and {@link #isWellFormed(String)} as the {@code url.validator} timer.
+ * </p>
+ *
+ * @author Toubia Oussama
+ */
+@Slf4j
+@Component
+public class UrlValidator implements DisposableBean {
+    private static final String VALID = "valid";
+    private static final String INVALID = "invalid";
+    private static final String ERROR = "error";
+    private static final String USER_AGENT = "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/110.0.0.0 Safari/537.36 OPR/96.0.0.0";
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final int maxConnectionsPerHost;
+    private final ConcurrentMap<String, HostPermits> hostPermits = new ConcurrentHashMap<>();
+    private final AsyncCache<String, ValidationResult> results;
+    private final HostHealthRegistry hostHealthRegistry;
+    private final OutcomeTimers requestTimers;
+
+    /**
+     * Constructs a UrlValidator.
+     *
+     * @param hostHealthRegistry    the registry of the health of the validated hosts
+     * @param meterRegistry         the registry of the validation metrics
+     * @param connectTimeout        the timeout in milliseconds to connect to a destination
+     * @param requestTimeout        the timeout in milliseconds to receive the response of a destination
+     * @param maxConnectionsPerHost the maximum number of concurrent validations per host
+     * @param cacheMaximumSize      the maximum number of validation results cached
+     * @param cacheTimeToLive       the time in seconds a valid result is cached
+     * @param invalidTimeToLive     the time in seconds an invalid result is cached
+     */
+    public UrlValidator(HostHealthRegistry hostHealthRegistry, MeterRegistry meterRegistry,
+                        @Value("${url.validation.connect-timeout:2000}") long connectTimeout,
+                        @Value("${url.validation.request-timeout:5000}") long requestTimeout,
+                        @Value("${url.validation.max-connections-per-host:8}") int maxConnectionsPerHost,
+                        @Value("${url.validation.cache.maximum-size:10000}") long cacheMaximumSize,
+                        @Value("${url.validation.cache.time-to-live:600}") long cacheTimeToLive,
+                        @Value("${url.validation.cache.invalid-time-to-live:60}") long invalidTimeToLive) {
+        this.hostHealthRegistry = hostHealthRegistry;
+        this.requestTimers = new OutcomeTimers(meterRegistry, "url.validation.requests",
+                "Latency of the requests validating destination URLs", Tags.empty(), VALID, INVALID, ERROR);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeout))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+        this.requestTimeout = Duration.ofMillis(requestTimeout);
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.results = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfter(new ResultExpiry(Duration.ofSeconds(cacheTimeToLive), Duration.ofSeconds(invalidTimeToLive)))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, results.synchronous(), "url.validation");
+    }
+
+    /**
+     * Validates the URL on a virtual thread, or answers from the cache.
+     *
+     * @param url the URL to validate
+     * @return a future completed with the result of the validation, never completed exceptionally
+     */
+    public CompletableFuture<ValidationResult> validateAsync(String url) {
+        URI uri;
+        try {
+            uri = parse(url);
+        } catch (URISyntaxException e) {
+            log.error("Malformed URL {} ", url);
+            return CompletableFuture.completedFuture(ValidationResult.invalid(url, 0, "Malformed URL: " + e.getMessage()));
+        }
+        if (hostHealthRegistry.isShortCircuited(uri.getHost())) {
+            log.error("Host {} keeps failing, URL {} not requested", uri.getHost(), url);
+            return CompletableFuture.completedFuture(ValidationResult.invalid(url, 0, "Host failing: " + uri.getHost()));
+        }
+        return results.get(normalize(uri), (key, cacheExecutor) -> CompletableFuture.supplyAsync(() -> request(uri), executor))
+                .thenApply(result -> result.url().equals(url) ? result
+                        : new ValidationResult(url, result.valid(), result.statusCode(), result.reason(), result.retryable()));
+    }
+
+    /**
+     * Validates the URL, or answers from the cache, waiting for the result.
+     *
+     * @param url the URL to validate
+     * @return the result of the validation
+     */
+    @RecordTime("url.validator")
+    public ValidationResult validate(String url) {
+        return validateAsync(url).join();
+    }
+
+    /**
+     * Requests the URL and records the outcome in the host health registry.
+     *
+     * @param uri the URL to request
+     * @return the result of the validation
+     */
+    private ValidationResult request(URI uri) {
+        String host = uri.getHost().toLowerCase(Locale.ROOT);
+        HostPermits permits = hostPermits.compute(host, (key, current) ->
+                (current == null ? new HostPermits(new Semaphore(maxConnectionsPerHost)) : current).retain());
+        try {
+            return request(uri, permits.semaphore());
+        } finally {
+            hostPermits.computeIfPresent(host, (key, current) -> current.release());
+        }
+    }
+
+    /**
+     * Requests the URL once a permit of its host is acquired, and records the outcome in the host health registry.
+     *
+     * @param uri     the URL to request
+     * @param permits the permits of the host of the URL
+     * @return the result of the validation
+     */
+    private ValidationResult request(URI uri, Semaphore permits) {
+        String url = uri.toString();
+        try {
+            if (!permits.tryAcquire(requestTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.error("Too many concurrent validations of host {}", uri.getHost());
+                return ValidationResult.retryable(url, "Too many concurrent validations of host " + uri.getHost());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ValidationResult.retryable(url, "Validation interrupted");
+        }
+        long start = System.nanoTime();
+        int statusCode = 0;
+        try {
+            statusCode = send(uri, "HEAD");
+            if (!isSuccess(statusCode)) {
+                // some servers reject or do not implement HEAD
+                statusCode = send(uri, "GET");
+            }
+            if (!isSuccess(statusCode)) {
+                log.error("Unreachable URL {}", url);
+                return ValidationResult.invalid(url, statusCode, "Unreachable URL, status " + statusCode);
+            }
+            return ValidationResult.valid(url, statusCode);
+        } catch (IOException e) {
+            log.error("Failed to open connection to URL {} ", url, e);
+            return ValidationResult.invalid(url, 0, "Failed to open connection to URL: " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ValidationResult.retryable(url, "Validation interrupted");
+        } finally {
+            permits.release();
+            hostHealthRegistry.record(uri.getHost(), statusCode, System.nanoTime() - start);
+            requestTimers.record(isSuccess(statusCode) ? VALID : statusCode == 0 ? ERROR : INVALID, start);
+        }
+    }
+
+    /**
+     * Checks whether the URL is an absolute http or https URL, without contacting it.
+     *
+     * @param url the URL to check
+     * @return true if the URL is well-formed
+     */
+    @RecordTime("url.validator")
+    public boolean isWellFormed(String url) {
+        try {
+            parse(url);
+            return true;
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stops the validations in progress when the application shuts down.
+     */
+    @Override
+    public void destroy() {
+        httpClient.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Parses an absolute http or https URL.
+     *
+     * @param url the URL to parse
+     * @return the parsed URL
+     * @throws URISyntaxException if the URL is not an absolute http or https URL
+     */
+    private static URI parse(String url) throws URISyntaxException {
+        if (url == null) {
+            throw new URISyntaxException("null", "Missing URL");
+        }
+        URI uri = new URI(url.trim());
+        String scheme = uri.getScheme();
+        if (scheme == null || !(scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https"))) {
+            throw new URISyntaxException(url, "Only http and https URLs are supported");
+        }
+        if (uri.getHost() == null) {
+            throw new URISyntaxException(url, "Missing host");
+        }
+        return uri;
+    }
+
+    /**
+     * Sends a request without body and closes the response as soon as its status is received,
+     * so that the body of a GET is not downloaded.
+     *
+     * @param uri    the destination
+     * @param method the HTTP method, HEAD or GET
+     * @return the status of the response
+     */
+    private int send(URI uri, String method) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .timeout(requestTimeout)
+                .header("User-Agent", USER_AGENT)
+                .build();
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        response.body().close();
+        return response.statusCode();
+    }
+
+    /**
+     * Normalizes a URL into its cache key: lower case scheme and host, no default port, no fragment,
+     * and "/" for an empty path.
+     *
+     * @param uri the URL to normalize
+     * @return the normalized URL
+     */
+    public static String normalize(URI uri) {
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        int port = uri.getPort();
+        boolean defaultPort = port == -1 || (scheme.equals("http") && port == 80) || (scheme.equals("https") && port == 443);
+        String path = uri.getRawPath();
+        StringBuilder key = new StringBuilder(scheme).append("://");
+        if (uri.getRawUserInfo() != null) {
+            key.append(uri.getRawUserInfo()).append('@');
+        }
+        key.append(uri.getHost().toLowerCase(Locale.ROOT));
+        if (!defaultPort) {
+            key.append(':').append(port);
+        }
+        key.append(path == null || path.isEmpty() ? "/" : path);
+        if (uri.getRawQuery() != null) {
+            key.append('?').append(uri.getRawQuery());
+        }
+        return key.toString();
+    }
+
+    private static boolean isSuccess(int statusCode) {
+        return statusCode >= 200 && statusCode <= 299;
+    }
+
+    /**
+     * The permits of a host, counting the validations holding or waiting for them,
+     * so that they are removed from the map only once no validation uses them.
+     * The count is only changed inside the atomic computations of the map.
+     */
+    private static final class HostPermits {
+        private final Semaphore semaphore;
+        private int users;
+
+        private HostPermits(Semaphore semaphore) {
+            this.semaphore = semaphore;
+        }
+
+        private Semaphore semaphore() {
+            return semaphore;
+        }
+
+        private HostPermits retain() {
+            users++;
+            return this;
+        }
+
+        private HostPermits release() {
+            return --users == 0 ? null : this;
+        }
+    }
+
+    /**
+     * Expires valid and invalid validation results after different delays, and retryable ones at once.
+     */
+    private record ResultExpiry(Duration validTimeToLive, Duration invalidTimeToLive) implements Expiry<String, ValidationResult> {
+
+        @Override
+        public long expireAfterCreate(String key, ValidationResult result, long currentTime) {
+            if (result.retryable()) {
+                return 0;
+            }
+            return (result.valid() ? validTimeToLive : invalidTimeToLive).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, ValidationResult result, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, result, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, ValidationResult result, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ch.hos6.openweb.urlShortener.validation;
+
+/**
+ * When the destination of a new URL is validated, set with the {@code url.validation.mode} property.
+ *
+ * @author Toubia Oussama
+ */
+public enum ValidationMode {
+    /**
+     * The destination is validated before the URL is saved, and an invalid destination is rejected.
+     */
+    SYNC,
+    /**
+     * The URL is saved right away as pending and inactive, and activated once its destination is validated.
+     */
+    BACKGROUND
+}
@@ -0,0 +1,49 @@
+package ch.hos6.openweb.urlShortener.validation;
+
+/**
+ * The outcome of the validation of a destination URL.
+ *
+ * @param url        the validated URL
+ * @param valid      whether the URL answered with a 2xx status
+ * @param statusCode the HTTP status received, 0 if no response was received
+ * @param reason     why the URL is invalid, null if it is valid
+ * @param retryable  whether the validation could not be carried out for a transient reason, so that it is not cached
+ * @author Toubia Oussama
+ */
+public record ValidationResult(String url, boolean valid, int statusCode, String reason, boolean retryable) {
+
+    /**
+     * Creates the result of a URL that answered with a 2xx status.
+     *
+     * @param url        the validated URL
+     * @param statusCode the HTTP status received
+     * @return a valid result
+     */
+    public static ValidationResult valid(String url, int statusCode) {
+        return new ValidationResult(url, true, statusCode, null, false);
+    }
+
+    /**
+     * Creates the result of an invalid URL.
+     *
+     * @param url        the validated URL
+     * @param statusCode the HTTP status received, 0 if no response was received
+     * @param reason     why the URL is invalid
+     * @return an invalid result
+     */
+    public static ValidationResult invalid(String url, int statusCode, String reason) {
+        return new ValidationResult(url, false, statusCode, reason, false);
+    }
+
+    /**
+     * Creates the result of a validation that could not be carried out for a transient reason,
+     * which reports the URL invalid but must be retried rather than cached.
+     *
+     * @param url    the URL not validated
+     * @param reason why the URL was not validated
+     * @return an invalid, retryable result
+     */
+    public static ValidationResult retryable(String url, String reason) {
+        return new ValidationResult(url, false, 0, reason, true);
+    }
+}
@@ -0,0 +1,301 @@
+package ch.hos6.openweb.urlShortener.writebehind;
+
+import ch.hos6.openweb.urlShortener.domain.entity.Url;
+import ch.hos6.openweb.urlShortener.domain.entity.ValidationStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Circular journal of the URLs created but not inserted into MongoDB yet, in a memory-mapped file.
+ * <p>
+ * The file starts with a header holding the checkpoint: the position of the first URL not known to be inserted.
+ * Each URL is then appended as a record of its length, the CRC32C of its content and its content.
+ * A record is published by writing its length last, over the zero length ending the journal, so that a crash
+ * in the middle of an append leaves the journal ending before that record. The records from the checkpoint
+ * to the first zero length or corrupted record are replayed when the journal is opened again.
+ * Once all the appended URLs are inserted, the journal is reset to its start.
+ * </p>
+ * <p>
+ * The space before the checkpoint is reused, so that a journal whose URLs keep being inserted never fills up
+ * even if it is never entirely inserted: a URL that does not fit at the end of the file is appended at its start,
+ * if it fits before the checkpoint, and is published by writing a wrap marker over the zero length ending the journal.
+ * The positions of the URLs appended after the wrap are lower than the ones before it, and the checkpoint
+ * goes back to the start of the file once it passes the wrap marker.
+ * </p>
+ * The records written to the mapping survive a crash of the process. They survive a crash of the system
+ * once forced to the disk with {@link #force()}.
+ * A journal is not thread-safe: its appends and checkpoints must be serialized by its owner.
+ *
+ * @author Toubia Oussama
+ */
+public class UrlJournal implements Closeable {
+    private static final int MAGIC = 0x55524C4A;
+    private static final int CHECKPOINT_OFFSET = Integer.BYTES;
+    /**
+     * The size of the header: the magic number and the checkpoint.
+     */
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES + Integer.BYTES;
+    /**
+     * The length marking the end of the records at the end of the file, continued at its start.
+     */
+    private static final int WRAP = -1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private long checkpoint;
+    private long position;
+    /**
+     * The position of the wrap marker, while the journal continues at the start of the file.
+     */
+    private long wrap;
+
+    /**
+     * Opens the journal of the given file, creating it if it does not exist.
+     *
+     * @param path     the file of the journal
+     * @param capacity the size of a new journal in bytes, an existing journal keeps its size if it is larger
+     * @throws IOException if the file cannot be opened or is not a journal
+     */
+    public UrlJournal(Path path, int capacity) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), capacity));
+        int magic = buffer.getInt(0);
+        if (magic == 0) {
+            buffer.putInt(HEADER_SIZE, 0);
+            buffer.putLong(CHECKPOINT_OFFSET, HEADER_SIZE);
+            buffer.putInt(0, MAGIC);
+        } else if (magic != MAGIC) {
+            channel.close();
+            throw new IOException("Not a URL journal: " + path);
+        }
+        this.checkpoint = buffer.getLong(CHECKPOINT_OFFSET);
+        this.position = checkpoint;
+    }
+
+    /**
+     * Reads the URLs appended after the checkpoint, and moves the end of the journal after the last one.
+     *
+     * @return the URLs not known to be inserted, with the position following each of them, in the order of their appends
+     */
+    public List<Entry> replay() {
+        List<Entry> entries = new ArrayList<>();
+        position = checkpoint;
+        while (position + RECORD_HEADER_SIZE <= limit()) {
+            int length = buffer.getInt((int) position);
+            if (length == WRAP && checkpoint > HEADER_SIZE && !isWrapped()) {
+                wrap = position;
+                position = HEADER_SIZE;
+                continue;
+            }
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > limit()) {
+                break;
+            }
+            byte[] content = new byte[length];
+            buffer.get((int) position + RECORD_HEADER_SIZE, content);
+            if (crc(content) != buffer.getInt((int) position + Integer.BYTES)) {
+                break;
+            }
+            position += RECORD_HEADER_SIZE + length;
+            entries.add(new Entry(read(content), position));
+        }
+        if (position + Integer.BYTES <= limit()) {
+            buffer.putInt((int) position, 0);
+        }
+        return entries;
+    }
+
+    /**
+     * Appends a URL at the end of the journal.
+     *
+     * @param url the URL, with its id and short URL
+     * @return the position following the URL in the journal, or -1 if the journal is full
+     */
+    public long append(Url url) {
+        byte[] content = write(url);
+        int size = RECORD_HEADER_SIZE + content.length;
+        if (position + size + Integer.BYTES <= limit()) {
+            position = write(position, content);
+            return position;
+        }
+        // the zero length ending the journal must not overwrite the length of the record at the checkpoint
+        if (isWrapped() || HEADER_SIZE + size + Integer.BYTES > checkpoint) {
+            return -1;
+        }
+        long next = write(HEADER_SIZE, content);
+        buffer.putInt((int) position, WRAP);
+        wrap = position;
+        position = next;
+        return next;
+    }
+
+    /**
+     * Records that the URLs before the given position are inserted, so that they are not replayed.
+     * The journal is reset to its start if no URL was appended after them.
+     *
+     * @param inserted the position following the last URL inserted
+     */
+    public void checkpoint(long inserted) {
+        if (inserted == position) {
+            buffer.putInt(HEADER_SIZE, 0);
+            position = HEADER_SIZE;
+            inserted = HEADER_SIZE;
+        } else if (isWrapped() && inserted == wrap) {
+            inserted = HEADER_SIZE;
+        }
+        buffer.putLong(CHECKPOINT_OFFSET, inserted);
+        checkpoint = inserted;
+    }
+
+    /**
+     * Returns the number of bytes of the URLs appended after the checkpoint.
+     *
+     * @return the number of bytes not known to be inserted
+     */
+    public long pendingBytes() {
+        return isWrapped() ? wrap - checkpoint + position - HEADER_SIZE : position - checkpoint;
+    }
+
+    /**
+     * Forces the journal to the disk.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    /**
+     * Forces the journal to the disk and closes its file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * Writes a record and the zero length following it, and publishes it by writing its length last.
+     *
+     * @return the position following the record
+     */
+    private long write(long start, byte[] content) {
+        long next = start + RECORD_HEADER_SIZE + content.length;
+        buffer.put((int) start + RECORD_HEADER_SIZE, content);
+        buffer.putInt((int) start + Integer.BYTES, crc(content));
+        buffer.putInt((int) next, 0);
+        buffer.putInt((int) start, content.length);
+        return next;
+    }
+
+    /**
+     * Returns whether the journal continues at the start of the file, before the checkpoint.
+     */
+    private boolean isWrapped() {
+        return position < checkpoint;
+    }
+
+    /**
+     * Returns the end of the space the records can be appended to: the checkpoint once wrapped, the end of the file otherwise.
+     */
+    private long limit() {
+        return isWrapped() ? checkpoint : buffer.capacity();
+    }
+
+    private static int crc(byte[] content) {
+        CRC32C crc = new CRC32C();
+        crc.update(content);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] write(Url url) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeString(out, url.getId());
+            writeString(out, url.getUserId());
+            writeString(out, url.getOriginalUrl());
+            writeString(out, url.getShortenedUrl());
+            writeDate(out, url.getCreationDate());
+            writeDate(out, url.getExpirationDate());
+            out.writeBoolean(url.isActive());
+            writeString(out, url.getValidationStatus() == null ? null : url.getValidationStatus().name());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Url read(byte[] content) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(content))) {
+            Url url = new Url();
+            url.setId(readString(in));
+            url.setUserId(readString(in));
+            url.setOriginalUrl(readString(in));
+            url.setShortenedUrl(readString(in));
+            url.setCreationDate(readDate(in));
+            url.setExpirationDate(readDate(in));
+            url.setActive(in.readBoolean());
+            String validationStatus = readString(in);
+            url.setValidationStatus(validationStatus == null ? null : ValidationStatus.valueOf(validationStatus));
+            return url;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        return length < 0 ? null : new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDateTime date) throws IOException {
+        out.writeBoolean(date != null);
+        if (date != null) {
+            out.writeLong(date.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(date.getNano());
+        }
+    }
+
+    private static LocalDateTime readDate(DataInputStream in) throws IOException {
+        return in.readBoolean() ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC) : null;
+    }
+
+    /**
+     * A URL of the journal.
+     *
+     * @param url      the URL
+     * @param position the position following the URL in the journal
+     */
+    public record Entry(Url url, long position) {
+    }
+}
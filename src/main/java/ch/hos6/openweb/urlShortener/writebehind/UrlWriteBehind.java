@@ -0,0 +1,408 @@
+package ch.hos6.openweb.urlShortener.writebehind;
+
+import ch.hos6.openweb.urlShortener.allocator.SequenceShortCodeAllocator;
+import ch.hos6.openweb.urlShortener.allocator.ShortCodeAllocator;
+import ch.hos6.openweb.urlShortener.config.CacheConfig;
+import ch.hos6.openweb.urlShortener.domain.entity.Url;
+import ch.hos6.openweb.urlShortener.domain.repository.UrlRepository;
+import ch.hos6.openweb.urlShortener.domain.repository.UrlRepositoryCustom.RejectedUrl;
+import ch.hos6.openweb.urlShortener.errorhandling.exception.UrlCreationException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Inserts the created URLs into MongoDB behind the requests creating them, when enabled with {@code url.write-behind.enabled}.
+ * <p>
+ * A submitted URL gets its id on the client, so that inserting it again is detected, and is appended to the
+ * {@link UrlJournal} of the file {@code url.write-behind.journal-path} before the request completes.
+ * A background flusher thread inserts the journaled URLs with unordered bulk inserts of at most
+ * {@code url.write-behind.batch-size} URLs, once that many are pending or {@code url.write-behind.flush-interval}
+ * milliseconds have elapsed since the last flush, and then moves the checkpoint of the journal past them.
+ * A bulk insert that fails is retried at the next interval. The journal is forced to the disk at each interval.
+ * The URLs journaled but not inserted when the application stopped or crashed are replayed at the next start.
+ * The inserted URLs, replayed ones included, are handed to the listener registered with {@link #onInserted(Consumer)},
+ * and the flusher thread only starts once all the singletons are created, so that the listener is registered
+ * before the first insert.
+ * </p>
+ * A URL already inserted by a replay is not inserted twice. A URL rejected by MongoDB is dropped and evicted from
+ * the URL cache. Short URLs are only guaranteed to be free with the {@link SequenceShortCodeAllocator},
+ * which is required. When the journal is full, URLs are not accepted, and the caller saves them itself.
+ * Until a URL is inserted, it is only resolved through the URL cache, and cannot be listed, changed or deleted.
+ * <p>
+ * The URLs not inserted yet are published as the {@code url.write-behind.pending} gauge, the inserted ones as the
+ * {@code url.write-behind.inserted} counter, the rejected ones as the {@code url.write-behind.rejected} counter,
+ * the ones refused because the journal was full as the {@code url.write-behind.refused} counter,
+ * and the bulk inserts as the {@code url.write-behind.flush} timer.
+ * </p>
+ *
+ * @author Toubia Oussama
+ */
+@Slf4j
+@Component
+public class UrlWriteBehind implements InitializingBean, SmartInitializingSingleton, DisposableBean {
+    private static final long IDLE_PARK_NANOS = Duration.ofMillis(10).toNanos();
+
+    private final UrlRepository urlRepository;
+    private final CacheManager cacheManager;
+    private final ShortCodeAllocator shortCodeAllocator;
+    private final boolean enabled;
+    private final Path journalPath;
+    private final int journalSize;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Queue<PendingUrl> queue = new ConcurrentLinkedQueue<>();
+    private final List<PendingUrl> batch = new ArrayList<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    /**
+     * Serializes the appends and checkpoints of the journal. A lock rather than synchronized, so that virtual threads
+     * waiting for an append unmount instead of pinning their carrier.
+     */
+    private final ReentrantLock journalLock = new ReentrantLock();
+    private final Counter insertedUrls;
+    private final Counter rejectedUrls;
+    private final Counter refusedUrls;
+    private final Timer flushTimer;
+
+    private volatile Consumer<List<Url>> insertedListener;
+    private UrlJournal journal;
+    private boolean appended;
+    private long lastFlush = System.nanoTime();
+    private boolean failing;
+    private volatile boolean running;
+    private Thread flusher;
+
+    /**
+     * Constructs a UrlWriteBehind.
+     *
+     * @param urlRepository      the repository the URLs are inserted into
+     * @param cacheManager       the manager of the URL cache, from which the rejected URLs are evicted
+     * @param shortCodeAllocator the allocator of the short codes, which must be the sequence allocator
+     * @param meterRegistry      the registry of the write-behind metrics
+     * @param enabled            whether the URLs are inserted behind the requests
+     * @param journalPath        the file of the journal
+     * @param journalSize        the size of the journal in bytes
+     * @param batchSize          the number of pending URLs triggering a flush, and the maximum size of a bulk insert
+     * @param flushInterval      the maximum time in milliseconds a URL stays pending
+     */
+    public UrlWriteBehind(UrlRepository urlRepository, CacheManager cacheManager, ShortCodeAllocator shortCodeAllocator,
+                          MeterRegistry meterRegistry,
+                          @Value("${url.write-behind.enabled:false}") boolean enabled,
+                          @Value("${url.write-behind.journal-path:journal/urls.journal}") String journalPath,
+                          @Value("${url.write-behind.journal-size:67108864}") int journalSize,
+                          @Value("${url.write-behind.batch-size:500}") int batchSize,
+                          @Value("${url.write-behind.flush-interval:100}") long flushInterval) {
+        this.urlRepository = urlRepository;
+        this.cacheManager = cacheManager;
+        this.shortCodeAllocator = shortCodeAllocator;
+        this.enabled = enabled;
+        this.journalPath = Path.of(journalPath);
+        this.journalSize = journalSize;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = Duration.ofMillis(flushInterval).toNanos();
+        Gauge.builder("url.write-behind.pending", pending, AtomicInteger::get)
+                .description("URLs journaled but not inserted yet")
+                .register(meterRegistry);
+        this.insertedUrls = Counter.builder("url.write-behind.inserted")
+                .description("URLs inserted behind their creation")
+                .register(meterRegistry);
+        this.rejectedUrls = Counter.builder("url.write-behind.rejected")
+                .description("URLs rejected by MongoDB after their creation")
+                .register(meterRegistry);
+        this.refusedUrls = Counter.builder("url.write-behind.refused")
+                .description("URLs saved by the request because the journal was full")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("url.write-behind.flush")
+                .description("Bulk inserts of the journaled URLs")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns whether the URLs are inserted behind the requests.
+     *
+     * @return true if the write-behind is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Registers the listener of the inserted URLs, called on the flusher thread with each batch of URLs inserted,
+     * including the URLs replayed from the journal at startup. Its failures are logged.
+     *
+     * @param listener the listener of the inserted URLs
+     */
+    public void onInserted(Consumer<List<Url>> listener) {
+        this.insertedListener = listener;
+    }
+
+    /**
+     * Journals a new URL, to be inserted later. An id is assigned to the URL if it has none.
+     *
+     * @param url the URL, with its short URL
+     * @return a future completed once the URL is inserted, or empty if the write-behind is disabled or the journal is full
+     */
+    public Optional<CompletableFuture<Url>> submit(Url url) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        if (url.getId() == null) {
+            url.setId(new ObjectId().toHexString());
+        }
+        journalLock.lock();
+        try {
+            long position = journal.append(url);
+            if (position < 0) {
+                refusedUrls.increment();
+                log.warn("URL journal full, saving URL {} right away", url.getShortenedUrl());
+                return Optional.empty();
+            }
+            appended = true;
+            CompletableFuture<Url> inserted = new CompletableFuture<>();
+            queue.add(new PendingUrl(url, position, inserted));
+            pending.incrementAndGet();
+            return Optional.of(inserted);
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    /**
+     * Inserts all the pending URLs right away.
+     *
+     * @return true if there was nothing to insert or all the inserts succeeded
+     */
+    public synchronized boolean flush() {
+        while (fillBatch() > 0) {
+            if (!insertBatch()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Opens the journal and queues the URLs it still holds.
+     *
+     * @throws IOException if the journal cannot be opened
+     */
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (!(shortCodeAllocator instanceof SequenceShortCodeAllocator)) {
+            throw new IllegalStateException("The write-behind of the URLs requires the sequence short code allocator");
+        }
+        journal = new UrlJournal(journalPath, journalSize);
+        List<UrlJournal.Entry> entries = journal.replay();
+        entries.forEach(entry -> queue.add(new PendingUrl(entry.url(), entry.position(), new CompletableFuture<>())));
+        pending.addAndGet(entries.size());
+        if (!entries.isEmpty()) {
+            log.info("Replaying {} URLs of the journal {}", entries.size(), journalPath);
+        }
+    }
+
+    /**
+     * Starts the flusher thread, once the listener of the inserted URLs is registered.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "url-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Stops the flusher thread, inserts the remaining URLs and closes the journal.
+     * The URLs that cannot be inserted stay in the journal.
+     *
+     * @throws InterruptedException if interrupted while waiting for the flusher thread
+     * @throws IOException if the journal cannot be closed
+     */
+    @Override
+    public void destroy() throws InterruptedException, IOException {
+        if (journal == null) {
+            return;
+        }
+        if (flusher != null) {
+            running = false;
+            LockSupport.unpark(flusher);
+            flusher.join(Duration.ofSeconds(10).toMillis());
+        }
+        if (!flush()) {
+            log.warn("{} URLs left in the journal {}", pending.get(), journalPath);
+        }
+        journalLock.lock();
+        try {
+            journal.close();
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            try {
+                if (!flushOnce()) {
+                    LockSupport.parkNanos(Math.min(IDLE_PARK_NANOS, flushIntervalNanos));
+                }
+            } catch (RuntimeException e) {
+                log.error("Unable to insert the journaled URLs. Ex = {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Inserts the pending URLs if a threshold is reached, and forces the journal at each interval.
+     * After a failed insert, only the time threshold applies, so that a failing database is not retried in a loop.
+     *
+     * @return true if URLs were inserted
+     */
+    private synchronized boolean flushOnce() {
+        int size = fillBatch();
+        long now = System.nanoTime();
+        if (now - lastFlush < flushIntervalNanos && (size < batchSize || failing)) {
+            return false;
+        }
+        lastFlush = now;
+        forceJournal();
+        if (size == 0) {
+            return false;
+        }
+        failing = !insertBatch();
+        return !failing;
+    }
+
+    private int fillBatch() {
+        PendingUrl next;
+        while (batch.size() < batchSize && (next = queue.poll()) != null) {
+            batch.add(next);
+        }
+        return batch.size();
+    }
+
+    private void forceJournal() {
+        journalLock.lock();
+        try {
+            if (!appended) {
+                return;
+            }
+            appended = false;
+        } finally {
+            journalLock.unlock();
+        }
+        journal.force();
+    }
+
+    /**
+     * Inserts the URLs of the batch with a single unordered bulk insert, and moves the checkpoint of the journal past them.
+     * A URL rejected as a duplicate is checked to be inserted already, by an earlier attempt or before a crash.
+     *
+     * @return true if the batch was inserted, false if it must be retried
+     */
+    private boolean insertBatch() {
+        List<Url> urls = batch.stream().map(PendingUrl::url).toList();
+        String[] rejections = new String[urls.size()];
+        try {
+            for (RejectedUrl rejected : flushTimer.record(() -> urlRepository.insertAllUnordered(urls))) {
+                Url url = urls.get(rejected.index());
+                if (!rejected.duplicateShortUrl() || !isInserted(url)) {
+                    rejections[rejected.index()] = rejected.reason();
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Unable to insert {} journaled URLs, retrying later. Ex = {}", urls.size(), e.getMessage());
+            return false;
+        }
+
+        journalLock.lock();
+        try {
+            journal.checkpoint(batch.get(batch.size() - 1).position());
+        } finally {
+            journalLock.unlock();
+        }
+        List<Url> inserted = new ArrayList<>(rejections.length);
+        for (int i = 0; i < rejections.length; i++) {
+            PendingUrl pendingUrl = batch.get(i);
+            if (rejections[i] == null) {
+                insertedUrls.increment();
+                inserted.add(pendingUrl.url());
+                pendingUrl.inserted().complete(pendingUrl.url());
+            } else {
+                reject(pendingUrl, rejections[i]);
+            }
+        }
+        pending.addAndGet(-batch.size());
+        batch.clear();
+        notifyInserted(inserted);
+        return true;
+    }
+
+    private void notifyInserted(List<Url> inserted) {
+        Consumer<List<Url>> listener = insertedListener;
+        if (listener == null || inserted.isEmpty()) {
+            return;
+        }
+        try {
+            listener.accept(inserted);
+        } catch (RuntimeException e) {
+            log.error("Unable to complete {} inserted URLs. Ex = {}", inserted.size(), e.getMessage());
+        }
+    }
+
+    private boolean isInserted(Url url) {
+        return urlRepository.findById(url.getId())
+                .filter(saved -> url.getShortenedUrl().equals(saved.getShortenedUrl()))
+                .isPresent();
+    }
+
+    private void reject(PendingUrl pendingUrl, String reason) {
+        Url url = pendingUrl.url();
+        log.error("Unable to insert URL {} of short URL {}: {}", url.getOriginalUrl(), url.getShortenedUrl(), reason);
+        rejectedUrls.increment();
+        Cache cache = cacheManager.getCache(CacheConfig.URL_CACHE_NAME);
+        if (cache != null) {
+            cache.evict(url.getShortenedUrl());
+        }
+        pendingUrl.inserted().completeExceptionally(new UrlCreationException("Unable to save URL " + url.getOriginalUrl()));
+    }
+
+    /**
+     * A URL journaled but not inserted yet.
+     *
+     * @param url      the URL
+     * @param position the position following the URL in the journal
+     * @param inserted the future completed once the URL is inserted
+     */
+    private record PendingUrl(Url url, long position, CompletableFuture<Url> inserted) {
+    }
+}
@@ -3,7 +3,7 @@ package ch.hos6.openweb.urlShortener;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "url.short-code.secret=test-short-code-secret")
 class UrlShortenerApplicationTests {
 
 	@Test
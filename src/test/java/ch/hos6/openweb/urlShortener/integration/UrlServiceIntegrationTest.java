@@ -26,7 +26,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 
-@SpringBootTest
+@SpringBootTest(properties = "url.short-code.secret=test-short-code-secret")
 @AutoConfigureMockMvc(addFilters = false)
 public class UrlServiceIntegrationTest {
     @Autowired
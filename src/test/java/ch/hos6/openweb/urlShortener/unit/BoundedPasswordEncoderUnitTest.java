@@ -0,0 +1,85 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.errorhandling.exception.PasswordHashingRejectedException;
+import ch.hos6.openweb.urlShortener.security.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+public class BoundedPasswordEncoderUnitTest {
+    private PasswordEncoder delegate;
+    private SimpleMeterRegistry meterRegistry;
+    private BoundedPasswordEncoder passwordEncoder;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        delegate = Mockito.mock(PasswordEncoder.class);
+        meterRegistry = new SimpleMeterRegistry();
+        passwordEncoder = new BoundedPasswordEncoder(delegate, meterRegistry, 1, 1, Duration.ofSeconds(2));
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        passwordEncoder.destroy();
+    }
+
+    @Test
+    public void testEncodeMatches_DelegatedOnHashingThread() {
+        when(delegate.encode("password")).thenAnswer(invocation -> Thread.currentThread().getName());
+        when(delegate.matches("password", "encoded")).thenReturn(true);
+
+        assertTrue(passwordEncoder.encode("password").startsWith("password-hashing-"));
+        assertTrue(passwordEncoder.matches("password", "encoded"));
+        assertEquals(1, meterRegistry.get("security.password.hashing").tag("operation", "encode").timer().count());
+        assertEquals(1, meterRegistry.get("security.password.hashing").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    public void testMatches_QueueFull_RejectedAtOnce() throws Exception {
+        CountDownLatch hashing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.matches(any(), anyString())).thenAnswer(invocation -> {
+            hashing.countDown();
+            release.await();
+            return true;
+        });
+        Future<Boolean> running = executor.submit(() -> passwordEncoder.matches("password", "encoded"));
+        hashing.await();
+        Future<Boolean> queued = executor.submit(() -> passwordEncoder.matches("password", "encoded"));
+        while (meterRegistry.get("security.password.queue").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        PasswordHashingRejectedException rejected = assertThrows(PasswordHashingRejectedException.class,
+                () -> passwordEncoder.matches("password", "encoded"));
+        assertEquals(Duration.ofSeconds(2), rejected.getRetryAfter());
+        assertEquals(1, meterRegistry.get("security.password.rejected").counter().count());
+        release.countDown();
+        assertTrue(running.get());
+        assertTrue(queued.get());
+    }
+
+    @Test
+    public void testEncode_DelegateFails_ExceptionRethrown() {
+        when(delegate.encode("password")).thenThrow(new IllegalArgumentException("Invalid password"));
+
+        assertThrows(IllegalArgumentException.class, () -> passwordEncoder.encode("password"));
+    }
+}
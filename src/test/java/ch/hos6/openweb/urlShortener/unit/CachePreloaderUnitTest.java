@@ -0,0 +1,75 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.cache.CacheInvalidationBus;
+import ch.hos6.openweb.urlShortener.cache.CachePreloader;
+import ch.hos6.openweb.urlShortener.cache.ExpiringValue;
+import ch.hos6.openweb.urlShortener.cache.RefreshAheadPolicy;
+import ch.hos6.openweb.urlShortener.cache.TwoLevelCache;
+import ch.hos6.openweb.urlShortener.cache.TwoLevelCacheManager;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CachePreloaderUnitTest {
+    private ConcurrentMapCacheManager remoteCacheManager;
+    private RedisConnectionFactory connectionFactory;
+    private TwoLevelCache cache;
+    private CachePreloader cachePreloader;
+
+    @BeforeEach
+    public void setUp() {
+        RefreshAheadPolicy refreshAhead = new RefreshAheadPolicy(Duration.ofHours(1), Duration.ZERO, 0, Clock.systemUTC(), Runnable::run);
+        remoteCacheManager = new ConcurrentMapCacheManager("urls");
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(remoteCacheManager,
+                Caffeine.newBuilder().maximumSize(100), Mockito.mock(CacheInvalidationBus.class), new SimpleMeterRegistry(),
+                Duration.ofSeconds(2), refreshAhead);
+        connectionFactory = Mockito.mock(RedisConnectionFactory.class);
+        cachePreloader = new CachePreloader(connectionFactory, RedisCacheConfiguration.defaultCacheConfig(), cacheManager);
+        cache = (TwoLevelCache) cacheManager.getCache("urls");
+    }
+
+    @Test
+    public void testPreload_Written_LocalLevelHoldsExpiringValues() {
+        RedisConnection connection = Mockito.mock(RedisConnection.class);
+        RedisStringCommands stringCommands = Mockito.mock(RedisStringCommands.class);
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        when(connection.stringCommands()).thenReturn(stringCommands);
+
+        assertTrue(cachePreloader.preload("urls", Map.of("abc123", "https://example.com")));
+
+        verify(stringCommands).set(any(byte[].class), any(byte[].class), any(), any());
+        Object local = cache.getLocalCache().getNativeCache().getIfPresent("abc123");
+        assertInstanceOf(ExpiringValue.class, local);
+        assertEquals("https://example.com", ((ExpiringValue) local).value());
+        assertEquals("https://example.com", cache.get("abc123", String.class));
+    }
+
+    @Test
+    public void testPreload_RedisDown_NothingCachedAndWrittenByTheNextLoad() {
+        when(connectionFactory.getConnection()).thenThrow(new RedisConnectionFailureException("redis down"));
+
+        assertEquals("https://example.com", cache.get("abc123", () -> {
+            assertFalse(cachePreloader.preload("urls", Map.of("abc123", "https://example.com")));
+            assertNull(cache.getLocalCache().getNativeCache().getIfPresent("abc123"));
+            return "https://example.com";
+        }));
+
+        assertEquals("https://example.com", remoteCacheManager.getCache("urls").get("abc123").get());
+    }
+}
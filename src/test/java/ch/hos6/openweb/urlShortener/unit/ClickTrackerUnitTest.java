@@ -0,0 +1,128 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.analytics.ClickTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ClickTrackerUnitTest {
+    private MongoTemplate mongoTemplate;
+    private BulkOperations bulkOperations;
+    private SimpleMeterRegistry meterRegistry;
+    private ClickTracker clickTracker;
+
+    @BeforeEach
+    public void setUp() {
+        mongoTemplate = Mockito.mock(MongoTemplate.class);
+        bulkOperations = Mockito.mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickTracker.CLICKS_COLLECTION)).thenReturn(bulkOperations);
+        meterRegistry = new SimpleMeterRegistry();
+        clickTracker = new ClickTracker(mongoTemplate, meterRegistry, true, 16, 1000, 1000);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        clickTracker.destroy();
+    }
+
+    @Test
+    public void testFlush_AggregatesClicksPerShortUrl() {
+        clickTracker.record("abc123");
+        clickTracker.record("abc123");
+        clickTracker.record("abc123");
+        clickTracker.record("def456");
+
+        assertTrue(clickTracker.flush());
+
+        Map<String, Object> increments = capturedIncrements(2);
+        assertEquals(3L, increments.get("abc123"));
+        assertEquals(1L, increments.get("def456"));
+        verify(bulkOperations).execute();
+        assertEquals(4.0, meterRegistry.get("url.clicks.flushed").counter().count());
+    }
+
+    @Test
+    public void testFlush_NothingRecorded_NoWrite() {
+        assertTrue(clickTracker.flush());
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    public void testRecord_BufferFull_DropsAndCounts() {
+        for (int i = 0; i < 20; i++) {
+            clickTracker.record("abc123");
+        }
+
+        assertEquals(4, clickTracker.getDroppedClicks());
+        assertEquals(4.0, meterRegistry.get("url.clicks.dropped").functionCounter().count());
+        assertTrue(clickTracker.flush());
+        assertEquals(16L, capturedIncrements(1).get("abc123"));
+    }
+
+    @Test
+    public void testFlush_WriteFails_ClicksKeptForNextFlush() {
+        when(bulkOperations.execute()).thenThrow(new RuntimeException("down")).thenReturn(null);
+        clickTracker.record("abc123");
+        assertFalse(clickTracker.flush());
+
+        clickTracker.record("abc123");
+        assertTrue(clickTracker.flush());
+
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(2)).upsert(any(Query.class), updates.capture());
+        assertEquals(2L, ((Document) updates.getAllValues().get(1).getUpdateObject().get("$inc")).get("count"));
+    }
+
+    @Test
+    public void testDrainer_FlushesOnInterval() {
+        clickTracker = new ClickTracker(mongoTemplate, meterRegistry, true, 16, 1000, 50);
+        clickTracker.afterPropertiesSet();
+
+        clickTracker.record("abc123");
+
+        verify(bulkOperations, timeout(2000)).execute();
+        verify(bulkOperations).upsert(any(Query.class), any(Update.class));
+    }
+
+    @Test
+    public void testRecord_Disabled_NothingBuffered() {
+        clickTracker = new ClickTracker(mongoTemplate, meterRegistry, false, 16, 1000, 1000);
+
+        clickTracker.record("abc123");
+
+        assertTrue(clickTracker.flush());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    private Map<String, Object> capturedIncrements(int upserts) {
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(upserts)).upsert(queries.capture(), updates.capture());
+        verify(mongoTemplate).bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(ClickTracker.CLICKS_COLLECTION));
+        List<Query> capturedQueries = queries.getAllValues();
+        Map<String, Object> increments = new HashMap<>();
+        for (int i = 0; i < upserts; i++) {
+            String shortUrl = (String) capturedQueries.get(i).getQueryObject().get("_id");
+            increments.put(shortUrl, ((Document) updates.getAllValues().get(i).getUpdateObject().get("$inc")).get("count"));
+        }
+        return increments;
+    }
+}
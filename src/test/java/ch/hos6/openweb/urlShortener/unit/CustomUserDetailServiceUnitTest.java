@@ -0,0 +1,81 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.cache.CacheInvalidationBus;
+import ch.hos6.openweb.urlShortener.domain.entity.User;
+import ch.hos6.openweb.urlShortener.domain.repository.UserRepository;
+import ch.hos6.openweb.urlShortener.errorhandling.exception.CustomUsernameNotFoundException;
+import ch.hos6.openweb.urlShortener.security.CustomUserDetailService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class CustomUserDetailServiceUnitTest {
+    private UserRepository userRepository;
+    private CacheInvalidationBus invalidationBus;
+    private CustomUserDetailService userDetailService;
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        userRepository = Mockito.mock(UserRepository.class);
+        invalidationBus = Mockito.mock(CacheInvalidationBus.class);
+        userDetailService = new CustomUserDetailService(userRepository, invalidationBus, new SimpleMeterRegistry(),
+                100, 300, 30);
+        user = new User();
+        user.setUsername("user");
+        user.setPassword("encodedPassword");
+    }
+
+    @Test
+    public void testLoadUserByUsername_KnownUser_Cached() {
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
+
+        assertEquals("encodedPassword", userDetailService.loadUserByUsername("user").getPassword());
+        assertEquals("encodedPassword", userDetailService.loadUserByUsername("user").getPassword());
+        verify(userRepository, times(1)).findByUsername("user");
+    }
+
+    @Test
+    public void testLoadUserByUsername_UnknownUser_NegativelyCached() {
+        when(userRepository.findByUsername("unknown")).thenReturn(Optional.empty());
+
+        assertThrows(CustomUsernameNotFoundException.class, () -> userDetailService.loadUserByUsername("unknown"));
+        assertThrows(CustomUsernameNotFoundException.class, () -> userDetailService.loadUserByUsername("unknown"));
+        verify(userRepository, times(1)).findByUsername("unknown");
+    }
+
+    @Test
+    public void testEvict_CreatedUser_LoadedAgain() {
+        when(userRepository.findByUsername("user")).thenReturn(Optional.empty());
+        assertThrows(CustomUsernameNotFoundException.class, () -> userDetailService.loadUserByUsername("user"));
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
+
+        userDetailService.evict("user");
+
+        assertEquals("user", userDetailService.loadUserByUsername("user").getUsername());
+        verify(invalidationBus).publish(CustomUserDetailService.INVALIDATION_TOPIC, "user");
+    }
+
+    @Test
+    public void testEvict_FromOtherNode_LoadedAgain() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(invalidationBus).subscribe(eq(CustomUserDetailService.INVALIDATION_TOPIC), listener.capture());
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
+        userDetailService.loadUserByUsername("user");
+
+        listener.getValue().accept("user");
+        userDetailService.loadUserByUsername("user");
+
+        verify(userRepository, times(2)).findByUsername("user");
+    }
+}
@@ -0,0 +1,108 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.security.JwtKeySet;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtKeySetUnitTest {
+    private RSAKey rsaKey;
+    private List<JWK> keys;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        rsaKey = new RSAKeyGenerator(2048).keyID("rsa").algorithm(JWSAlgorithm.RS256).generate();
+        keys = new ArrayList<>(List.of(rsaKey));
+        try (InputStream jwks = getClass().getResourceAsStream("/jwks.json")) {
+            keys.addAll(JWKSet.load(jwks).getKeys());
+        }
+    }
+
+    @Test
+    public void testEncodeDecode_EveryAlgorithm_RoundTrip() {
+        for (JWSAlgorithm algorithm : List.of(JWSAlgorithm.RS256, JWSAlgorithm.ES256, JWSAlgorithm.EdDSA)) {
+            JwtKeySet jwtKeySet = new JwtKeySet(keys, algorithm, null);
+            Jwt token = jwtKeySet.encoder().encode(JwtEncoderParameters.from(claims(Instant.now().plusSeconds(60))));
+
+            Jwt decoded = jwtKeySet.decoder().decode(token.getTokenValue());
+            assertEquals(algorithm.getName(), decoded.getHeaders().get("alg"));
+            assertEquals(jwtKeySet.getSigningKeyId(), decoded.getHeaders().get("kid"));
+            assertEquals("user", decoded.getSubject());
+            assertEquals("64b7f3a2c9e77a1d4c8b4567", decoded.getClaimAsString("userId"));
+            assertEquals(decoded.getClaims(), jwtKeySet.reactiveDecoder().decode(token.getTokenValue()).block().getClaims());
+        }
+    }
+
+    @Test
+    public void testDecode_SigningKeyRotated_OldTokensStillValid() {
+        JwtKeySet before = new JwtKeySet(keys, JWSAlgorithm.ES256, null);
+        String oldToken = before.encoder().encode(JwtEncoderParameters.from(claims(Instant.now().plusSeconds(60)))).getTokenValue();
+        String ed25519KeyId = keys.get(2).getKeyID();
+
+        JwtKeySet after = new JwtKeySet(keys, JWSAlgorithm.EdDSA, ed25519KeyId);
+        String newToken = after.encoder().encode(JwtEncoderParameters.from(claims(Instant.now().plusSeconds(60)))).getTokenValue();
+
+        assertEquals("user", after.decoder().decode(oldToken).getSubject());
+        assertEquals(ed25519KeyId, after.decoder().decode(newToken).getHeaders().get("kid"));
+        JwtKeySet withoutOldKey = new JwtKeySet(List.of(rsaKey, keys.get(2)), JWSAlgorithm.EdDSA, null);
+        assertThrows(BadJwtException.class, () -> withoutOldKey.decoder().decode(oldToken));
+    }
+
+    @Test
+    public void testDecode_InvalidTokens_Rejected() throws Exception {
+        JwtKeySet jwtKeySet = new JwtKeySet(keys, JWSAlgorithm.EdDSA, null);
+        String token = jwtKeySet.encoder().encode(JwtEncoderParameters.from(claims(Instant.now().plusSeconds(60)))).getTokenValue();
+        String tampered = token.substring(0, token.lastIndexOf('.') + 1) + new StringBuilder(token.substring(token.lastIndexOf('.') + 1)).reverse();
+        String expired = jwtKeySet.encoder().encode(JwtEncoderParameters.from(claims(Instant.now().minusSeconds(120)))).getTokenValue();
+        RSAKey otherKey = new RSAKeyGenerator(2048).keyID("rsa").generate();
+        String otherKeyToken = new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(otherKey)))
+                .encode(JwtEncoderParameters.from(JwsHeader.with(() -> "RS256").keyId("rsa").build(), claims(Instant.now().plusSeconds(60))))
+                .getTokenValue();
+
+        assertThrows(BadJwtException.class, () -> jwtKeySet.decoder().decode(tampered));
+        assertThrows(JwtValidationException.class, () -> jwtKeySet.decoder().decode(expired));
+        assertThrows(BadJwtException.class, () -> jwtKeySet.decoder().decode(otherKeyToken));
+        assertThrows(BadJwtException.class, () -> jwtKeySet.reactiveDecoder().decode(tampered).block());
+    }
+
+    @Test
+    public void testDecode_TokenWithoutKeyId_VerifiedByKeysOfItsAlgorithm() {
+        JwtKeySet jwtKeySet = new JwtKeySet(keys, JWSAlgorithm.ES256, null);
+        String legacyToken = new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(new RSAKey.Builder(rsaKey).keyID(null).build())))
+                .encode(JwtEncoderParameters.from(claims(Instant.now().plusSeconds(60))))
+                .getTokenValue();
+
+        assertEquals("user", jwtKeySet.decoder().decode(legacyToken).getSubject());
+        assertFalse(jwtKeySet.getPublicKeys().toJSONObject().toString().contains("\"d\""));
+        assertThrows(IllegalArgumentException.class, () -> new JwtKeySet(List.of(rsaKey), JWSAlgorithm.ES256, null));
+    }
+
+    private static JwtClaimsSet claims(Instant expiresAt) {
+        return JwtClaimsSet.builder()
+                .issuer("self")
+                .issuedAt(expiresAt.minusSeconds(3600))
+                .expiresAt(expiresAt)
+                .subject("user")
+                .claim("userId", "64b7f3a2c9e77a1d4c8b4567")
+                .build();
+    }
+}
@@ -0,0 +1,120 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.cache.CacheInvalidationBus;
+import ch.hos6.openweb.urlShortener.cache.RefreshAheadPolicy;
+import ch.hos6.openweb.urlShortener.cache.ShortUrlFilter;
+import ch.hos6.openweb.urlShortener.cache.TwoLevelCache;
+import ch.hos6.openweb.urlShortener.cache.TwoLevelCacheManager;
+import ch.hos6.openweb.urlShortener.domain.entity.Url;
+import ch.hos6.openweb.urlShortener.domain.repository.ReactiveUrlRepository;
+import ch.hos6.openweb.urlShortener.service.ReactiveUrlService;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ReactiveUrlServiceUnitTest {
+    private ReactiveUrlRepository urlRepository;
+    private ReactiveValueOperations<String, Object> valueOperations;
+    private ShortUrlFilter shortUrlFilter;
+    private TwoLevelCache cache;
+    private ReactiveUrlService urlService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        urlRepository = Mockito.mock(ReactiveUrlRepository.class);
+        ReactiveRedisTemplate<String, Object> urlCacheTemplate = Mockito.mock(ReactiveRedisTemplate.class);
+        valueOperations = Mockito.mock(ReactiveValueOperations.class);
+        when(urlCacheTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenReturn(Mono.empty());
+        when(valueOperations.set(anyString(), any(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(urlRepository.findByShortenedUrlAndActiveIsTrue(anyString())).thenReturn(Mono.empty());
+        shortUrlFilter = Mockito.mock(ShortUrlFilter.class);
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(new ConcurrentMapCacheManager("urls"),
+                Caffeine.newBuilder().maximumSize(100), Mockito.mock(CacheInvalidationBus.class), new SimpleMeterRegistry(),
+                Duration.ofSeconds(2), RefreshAheadPolicy.disabled());
+        cache = (TwoLevelCache) cacheManager.getCache("urls");
+        urlService = new ReactiveUrlService(urlRepository, urlCacheTemplate,
+                RedisCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofHours(1)), cacheManager, shortUrlFilter);
+    }
+
+    @Test
+    public void testGetOriginalUrl_DefinitelyMissing_ReturnsEmptyWithoutRepository() {
+        when(shortUrlFilter.isDefinitelyMissing("abc123")).thenReturn(true);
+
+        assertNull(urlService.getOriginalUrl("abc123").block());
+        verify(valueOperations).get("urls::abc123");
+        verifyNoInteractions(urlRepository);
+    }
+
+    @Test
+    public void testGetOriginalUrl_DefinitelyMissingButCached_StillResolved() {
+        when(shortUrlFilter.isDefinitelyMissing("abc123")).thenReturn(true);
+        when(valueOperations.get("urls::abc123")).thenReturn(Mono.just("https://example.com"));
+
+        assertEquals("https://example.com", urlService.getOriginalUrl("abc123").block());
+        verifyNoInteractions(urlRepository);
+    }
+
+    @Test
+    public void testGetOriginalUrl_LocalHit_DoesNotReadRedis() {
+        cache.getLocalCache().put("abc123", "https://example.com");
+
+        assertEquals("https://example.com", urlService.getOriginalUrl("abc123").block());
+        verifyNoInteractions(valueOperations, urlRepository);
+    }
+
+    @Test
+    public void testGetOriginalUrl_RedisHit_PromotedToLocal() {
+        when(valueOperations.get("urls::abc123")).thenReturn(Mono.just("https://example.com"));
+
+        assertEquals("https://example.com", urlService.getOriginalUrl("abc123").block());
+        assertEquals("https://example.com", cache.getLocalCache().get("abc123", String.class));
+        verifyNoInteractions(urlRepository);
+    }
+
+    @Test
+    public void testGetOriginalUrl_RepositoryHit_CachedInBothLevels() {
+        Url url = new Url();
+        url.setShortenedUrl("abc123");
+        url.setOriginalUrl("https://example.com");
+        when(urlRepository.findByShortenedUrlAndActiveIsTrue("abc123")).thenReturn(Mono.just(url));
+
+        assertEquals("https://example.com", urlService.getOriginalUrl("abc123").block());
+        verify(valueOperations).set("urls::abc123", "https://example.com", Duration.ofHours(1));
+        assertEquals("https://example.com", cache.getLocalCache().get("abc123", String.class));
+    }
+
+    @Test
+    public void testGetOriginalUrl_Unknown_RecordedMissing() {
+        assertNull(urlService.getOriginalUrl("abc123").block());
+        verify(shortUrlFilter).recordMissing("abc123");
+        verify(valueOperations, never()).set(anyString(), any(), any(Duration.class));
+    }
+
+    @Test
+    public void testGetOriginalUrl_RedisDown_FallsBackToRepository() {
+        Url url = new Url();
+        url.setShortenedUrl("abc123");
+        url.setOriginalUrl("https://example.com");
+        when(valueOperations.get("urls::abc123")).thenReturn(Mono.error(new RedisConnectionFailureException("down")));
+        when(valueOperations.set(anyString(), any(), any(Duration.class))).thenReturn(Mono.error(new RedisConnectionFailureException("down")));
+        when(urlRepository.findByShortenedUrlAndActiveIsTrue("abc123")).thenReturn(Mono.just(url));
+
+        assertEquals("https://example.com", urlService.getOriginalUrl("abc123").block());
+    }
+}
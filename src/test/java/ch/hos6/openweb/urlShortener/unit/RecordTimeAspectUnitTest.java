@@ -0,0 +1,68 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.aspect.RecordTime;
+import ch.hos6.openweb.urlShortener.aspect.RecordTimeAspect;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordTimeAspectUnitTest {
+    private SimpleMeterRegistry meterRegistry;
+    private TimedService timedService;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new TimedService());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new RecordTimeAspect(meterRegistry));
+        timedService = proxyFactory.getProxy();
+    }
+
+    @Test
+    public void testRecordTime_ClassAnnotated_TimesEachCallBySuccess() {
+        timedService.succeed();
+        timedService.succeed();
+
+        Timer timer = meterRegistry.get("url.test").tags("class", "TimedService", "method", "succeed",
+                "outcome", "success", "exception", "none").timer();
+        assertEquals(2, timer.count());
+    }
+
+    @Test
+    public void testRecordTime_Failure_TaggedWithExceptionType() {
+        assertThrows(IllegalStateException.class, timedService::fail);
+
+        Timer timer = meterRegistry.get("url.test").tags("method", "fail",
+                "outcome", "error", "exception", "IllegalStateException").timer();
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    public void testRecordTime_MethodAnnotationOverridesClassName() {
+        timedService.named();
+
+        assertEquals(1, meterRegistry.get("url.named").tags("method", "named").timer().count());
+        assertTrue(meterRegistry.find("url.test").tags("method", "named").timers().isEmpty());
+    }
+
+    @RecordTime("url.test")
+    public static class TimedService {
+
+        public String succeed() {
+            return "ok";
+        }
+
+        public void fail() {
+            throw new IllegalStateException("failed");
+        }
+
+        @RecordTime("url.named")
+        public void named() {
+        }
+    }
+}
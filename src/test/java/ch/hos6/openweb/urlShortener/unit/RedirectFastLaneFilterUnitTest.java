@@ -0,0 +1,89 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.analytics.ClickTracker;
+import ch.hos6.openweb.urlShortener.controller.RedirectFastLaneFilter;
+import ch.hos6.openweb.urlShortener.errorhandling.exception.ShortUrlNotFoundException;
+import ch.hos6.openweb.urlShortener.service.UrlService;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class RedirectFastLaneFilterUnitTest {
+    private UrlService urlService;
+    private ClickTracker clickTracker;
+    private FilterChain chain;
+    private RedirectFastLaneFilter filter;
+
+    @BeforeEach
+    public void setUp() {
+        urlService = Mockito.mock(UrlService.class);
+        clickTracker = Mockito.mock(ClickTracker.class);
+        chain = Mockito.mock(FilterChain.class);
+        filter = new RedirectFastLaneFilter(urlService, clickTracker);
+    }
+
+    @Test
+    public void testDoFilter_ResolvedShortUrl_RedirectsWithoutChain() throws Exception {
+        when(urlService.getOriginalUrl("abc123")).thenReturn("https://example.com");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/abc123");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(302, response.getStatus());
+        assertEquals("https://example.com", response.getHeader("Location"));
+        assertEquals(0, response.getContentAsByteArray().length);
+        verify(clickTracker).record("abc123");
+        verify(urlService, times(1)).getOriginalUrl("abc123");
+        verifyNoInteractions(chain);
+    }
+
+    @Test
+    public void testDoFilter_UnknownShortUrl_AnsweredNotFound() throws Exception {
+        when(urlService.getOriginalUrl("abc123")).thenThrow(new ShortUrlNotFoundException("Invalid or inactive short URL"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/abc123"), response, chain);
+
+        assertEquals(404, response.getStatus());
+        assertEquals("Invalid or inactive short URL", response.getContentAsString());
+        verifyNoInteractions(chain, clickTracker);
+    }
+
+    @Test
+    public void testDoFilter_LookupFailure_AnsweredWithoutRepeatingIt() throws Exception {
+        when(urlService.getOriginalUrl("abc123")).thenThrow(new RedisConnectionFailureException("redis down"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/abc123"), response, chain);
+
+        assertEquals(500, response.getStatus());
+        verify(urlService, times(1)).getOriginalUrl("abc123");
+        verifyNoInteractions(chain, clickTracker);
+    }
+
+    @Test
+    public void testDoFilter_OtherRequests_PassedDownTheChain() throws Exception {
+        for (MockHttpServletRequest request : new MockHttpServletRequest[]{
+                new MockHttpServletRequest("POST", "/abc123"),
+                new MockHttpServletRequest("GET", "/api/v1/urls"),
+                new MockHttpServletRequest("GET", "/swagger-ui.html"),
+                new MockHttpServletRequest("GET", "/")}) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            filter.doFilter(request, response, chain);
+
+            verify(chain).doFilter(request, response);
+        }
+        verify(urlService, never()).getOriginalUrl(anyString());
+        verifyNoInteractions(clickTracker);
+    }
+}
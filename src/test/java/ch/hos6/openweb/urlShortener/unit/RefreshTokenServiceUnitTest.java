@@ -0,0 +1,139 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.cache.CacheInvalidationBus;
+import ch.hos6.openweb.urlShortener.domain.entity.RefreshToken;
+import ch.hos6.openweb.urlShortener.domain.entity.User;
+import ch.hos6.openweb.urlShortener.domain.repository.RefreshTokenRepository;
+import ch.hos6.openweb.urlShortener.errorhandling.exception.InvalidRefreshTokenException;
+import ch.hos6.openweb.urlShortener.service.RefreshTokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class RefreshTokenServiceUnitTest {
+    private RefreshTokenRepository refreshTokenRepository;
+    private CacheInvalidationBus invalidationBus;
+    private RefreshTokenService refreshTokenService;
+    private Map<String, RefreshToken> storedTokens;
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        refreshTokenRepository = Mockito.mock(RefreshTokenRepository.class);
+        invalidationBus = Mockito.mock(CacheInvalidationBus.class);
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, invalidationBus, new SimpleMeterRegistry(),
+                3600, 100, 300);
+        storedTokens = new HashMap<>();
+        when(refreshTokenRepository.save(any(RefreshToken.class))).thenAnswer(invocation -> {
+            RefreshToken refreshToken = invocation.getArgument(0);
+            storedTokens.put(refreshToken.getTokenHash(), refreshToken);
+            return refreshToken;
+        });
+        when(refreshTokenRepository.findByTokenHash(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(storedTokens.get(invocation.<String>getArgument(0))));
+        user = new User();
+        user.setId("64b7f3a2c9e77a1d4c8b4567");
+        user.setUsername("user");
+    }
+
+    @Test
+    public void testValidate_IssuedToken_StoredHashedAndCached() {
+        String token = refreshTokenService.issue(user);
+
+        RefreshToken stored = storedTokens.values().iterator().next();
+        assertNotEquals(token, stored.getTokenHash());
+        assertFalse(stored.getTokenHash().contains(token));
+        assertTrue(stored.getExpirationDate().isAfter(Instant.now().plusSeconds(3500)));
+        assertEquals("user", refreshTokenService.validate(token).getUsername());
+        assertEquals("64b7f3a2c9e77a1d4c8b4567", refreshTokenService.validate(token).getUserId());
+        verify(refreshTokenRepository, times(1)).findByTokenHash(anyString());
+        assertNotEquals(token, refreshTokenService.issue(user));
+    }
+
+    @Test
+    public void testValidate_UnknownOrExpiredToken_Rejected() {
+        String token = refreshTokenService.issue(user);
+        storedTokens.values().iterator().next().setExpirationDate(Instant.now().minusSeconds(1));
+
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.validate("unknown"));
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.validate(token));
+    }
+
+    @Test
+    public void testRevokeAll_CachedTokensRejected() {
+        String token = refreshTokenService.issue(user);
+        refreshTokenService.validate(token);
+        when(refreshTokenRepository.deleteByUsername("user")).thenAnswer(invocation -> {
+            storedTokens.clear();
+            return 1L;
+        });
+
+        refreshTokenService.revokeAll("user");
+
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.validate(token));
+        verify(invalidationBus).publish(RefreshTokenService.REVOCATION_TOPIC, "user");
+    }
+
+    @Test
+    public void testRevokeAll_DuringLoad_LoadedTokenRejected() throws Exception {
+        String token = refreshTokenService.issue(user);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch revoked = new CountDownLatch(1);
+        when(refreshTokenRepository.findByTokenHash(anyString())).thenAnswer(invocation -> {
+            Optional<RefreshToken> found = Optional.ofNullable(storedTokens.get(invocation.<String>getArgument(0)));
+            loading.countDown();
+            revoked.await();
+            return found;
+        });
+        when(refreshTokenRepository.deleteByUsername("user")).thenAnswer(invocation -> {
+            storedTokens.clear();
+            return 1L;
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<RefreshToken> validation = executor.submit(() -> refreshTokenService.validate(token));
+            loading.await();
+            refreshTokenService.revokeAll("user");
+            revoked.countDown();
+
+            ExecutionException thrown = assertThrows(ExecutionException.class, validation::get);
+            assertInstanceOf(InvalidRefreshTokenException.class, thrown.getCause());
+            assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.validate(token));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRevokeAll_FromOtherNode_CacheEvicted() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(invalidationBus).subscribe(eq(RefreshTokenService.REVOCATION_TOPIC), listener.capture());
+        String token = refreshTokenService.issue(user);
+        refreshTokenService.validate(token);
+
+        storedTokens.clear();
+        listener.getValue().accept("user");
+
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.validate(token));
+    }
+}
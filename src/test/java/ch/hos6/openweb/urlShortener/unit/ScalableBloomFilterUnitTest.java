@@ -0,0 +1,48 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.cache.ScalableBloomFilter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScalableBloomFilterUnitTest {
+
+    @Test
+    public void testMightContain_InsertedValues_NoFalseNegative() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01);
+
+        // ten times the initial capacity, forcing the filter to grow
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("code" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("code" + i));
+        }
+        assertEquals(10_000, filter.size());
+    }
+
+    @Test
+    public void testMightContain_UnknownValues_FalsePositiveRateBounded() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("code" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("unknown" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 2_000, "False positives: " + falsePositives);
+    }
+
+    @Test
+    public void testMightContain_EmptyFilter_False() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01);
+
+        assertFalse(filter.mightContain("abc123"));
+    }
+}
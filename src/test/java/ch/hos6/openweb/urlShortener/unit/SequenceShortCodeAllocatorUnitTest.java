@@ -0,0 +1,112 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.allocator.SequenceShortCodeAllocator;
+import ch.hos6.openweb.urlShortener.allocator.ShortCodePermutation;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class SequenceShortCodeAllocatorUnitTest {
+    private MongoTemplate mongoTemplate;
+    private long counter;
+
+    @BeforeEach
+    public void setUp() {
+        mongoTemplate = Mockito.mock(MongoTemplate.class);
+        counter = 0;
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(SequenceShortCodeAllocator.COUNTERS_COLLECTION)))
+                .thenAnswer(invocation -> {
+                    Update update = invocation.getArgument(1);
+                    counter += ((Document) update.getUpdateObject().get("$inc")).get("sequence", Number.class).longValue();
+                    return new Document("sequence", counter);
+                });
+    }
+
+    @Test
+    public void testAllocate_LeasesBlocksAndNeverRepeats() {
+        SequenceShortCodeAllocator allocator = new SequenceShortCodeAllocator(mongoTemplate, "secret", 6, 100);
+        Set<String> codes = new HashSet<>();
+
+        for (int i = 0; i < 250; i++) {
+            String code = allocator.allocate("https://example.com");
+            assertEquals(6, code.length());
+            assertTrue(codes.add(code));
+        }
+
+        verify(mongoTemplate, times(3)).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(SequenceShortCodeAllocator.COUNTERS_COLLECTION));
+    }
+
+    @Test
+    public void testConstructor_MissingSecret_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> new SequenceShortCodeAllocator(mongoTemplate, "", 6, 100));
+    }
+
+    @Test
+    public void testAllocateAll_LargeBatchLeasesItsOwnBlock() {
+        SequenceShortCodeAllocator allocator = new SequenceShortCodeAllocator(mongoTemplate, "secret", 6, 100);
+        Set<String> codes = new HashSet<>();
+        assertTrue(codes.add(allocator.allocate("https://example.com")));
+
+        List<String> batch = allocator.allocateAll(Collections.nCopies(250, "https://example.com"));
+
+        assertEquals(250, batch.size());
+        assertTrue(codes.addAll(batch));
+        assertEquals(251, codes.size());
+        assertEquals(350, counter);
+        // the current block is left untouched by the batch
+        assertTrue(codes.add(allocator.allocate("https://example.com")));
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(SequenceShortCodeAllocator.COUNTERS_COLLECTION));
+    }
+
+    @Test
+    public void testAllocate_TwoNodesNeverCollide() {
+        SequenceShortCodeAllocator node1 = new SequenceShortCodeAllocator(mongoTemplate, "secret", 6, 100);
+        SequenceShortCodeAllocator node2 = new SequenceShortCodeAllocator(mongoTemplate, "secret", 6, 100);
+        Set<String> codes = new HashSet<>();
+
+        for (int i = 0; i < 150; i++) {
+            assertTrue(codes.add(node1.allocate("https://example.com")));
+            assertTrue(codes.add(node2.allocate("https://example.com")));
+        }
+    }
+
+    @Test
+    public void testPermutation_IsBijectiveAndGrowsLength() {
+        ShortCodePermutation permutation = new ShortCodePermutation("secret", 2);
+        int domain = 62 * 62;
+        Set<String> codes = new HashSet<>();
+
+        for (int sequence = 0; sequence < domain; sequence++) {
+            String code = permutation.encode(sequence);
+            assertEquals(2, code.length());
+            codes.add(code);
+        }
+
+        assertEquals(domain, codes.size());
+        assertEquals(3, permutation.encode(domain).length());
+    }
+
+    @Test
+    public void testPermutation_DependsOnSecret() {
+        assertEquals(new ShortCodePermutation("secret", 6).encode(42), new ShortCodePermutation("secret", 6).encode(42));
+        assertNotEquals(new ShortCodePermutation("secret", 6).encode(42), new ShortCodePermutation("other", 6).encode(42));
+    }
+}
@@ -0,0 +1,54 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.cache.CacheInvalidationBus;
+import ch.hos6.openweb.urlShortener.cache.ShortUrlFilter;
+import ch.hos6.openweb.urlShortener.domain.repository.UrlRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
+
+public class ShortUrlFilterUnitTest {
+    private CacheInvalidationBus invalidationBus;
+    private ShortUrlFilter shortUrlFilter;
+
+    @BeforeEach
+    public void setUp() {
+        invalidationBus = Mockito.mock(CacheInvalidationBus.class);
+        shortUrlFilter = new ShortUrlFilter(Mockito.mock(UrlRepository.class), invalidationBus, true, 1000, 0.01, 30);
+    }
+
+    @Test
+    public void testRecordMissing_UnknownShortUrl_Remembered() {
+        shortUrlFilter.recordMissing("abc123");
+
+        assertTrue(shortUrlFilter.isDefinitelyMissing("abc123"));
+    }
+
+    @Test
+    public void testRecordMissing_AfterCreation_Ignored() {
+        shortUrlFilter.recordMissing("abc123");
+        shortUrlFilter.recordExisting("abc123");
+        shortUrlFilter.recordMissing("abc123");
+
+        assertFalse(shortUrlFilter.isDefinitelyMissing("abc123"));
+    }
+
+    @Test
+    public void testRecordMissing_AfterCreationOnOtherNode_Ignored() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(invalidationBus).subscribe(anyString(), listener.capture());
+
+        listener.getValue().accept("abc123");
+        shortUrlFilter.recordMissing("abc123");
+
+        assertFalse(shortUrlFilter.isDefinitelyMissing("abc123"));
+    }
+}
@@ -0,0 +1,128 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.cache.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightUnitTest {
+    private SimpleMeterRegistry meterRegistry;
+    private ExecutorService executor;
+    private CountDownLatch loading;
+    private CountDownLatch release;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = Executors.newFixedThreadPool(8);
+        loading = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testExecute_ConcurrentCalls_SingleLoad() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(meterRegistry, "urls", Duration.ofSeconds(5));
+        AtomicInteger loads = new AtomicInteger();
+        Future<String> leader = executor.submit(() -> singleFlight.execute("abc123", blockingLoader(loads, "https://example.com")));
+        loading.await();
+        Future<?>[] followers = new Future<?>[5];
+        for (int i = 0; i < followers.length; i++) {
+            followers[i] = executor.submit(() -> singleFlight.execute("abc123", () -> {
+                loads.incrementAndGet();
+                return "https://other.com";
+            }));
+        }
+        awaitCoalesced(followers.length);
+        release.countDown();
+
+        assertEquals("https://example.com", leader.get());
+        for (Future<?> follower : followers) {
+            assertEquals("https://example.com", follower.get());
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    public void testExecute_LoaderFails_ExceptionSharedWithWaitingCalls() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(meterRegistry, "urls", Duration.ofSeconds(5));
+        Future<String> leader = executor.submit(() -> singleFlight.execute("abc123", () -> {
+            loading.countDown();
+            await(release);
+            throw new IllegalArgumentException("Invalid or inactive short URL");
+        }));
+        loading.await();
+        Future<String> follower = executor.submit(() -> singleFlight.execute("abc123", () -> "https://other.com"));
+        awaitCoalesced(1);
+        release.countDown();
+
+        ExecutionException leaderException = assertThrows(ExecutionException.class, leader::get);
+        ExecutionException followerException = assertThrows(ExecutionException.class, follower::get);
+        assertInstanceOf(IllegalArgumentException.class, leaderException.getCause());
+        assertSame(leaderException.getCause(), followerException.getCause());
+        assertEquals("https://example.com", singleFlight.execute("abc123", () -> "https://example.com"));
+    }
+
+    @Test
+    public void testExecute_LoadTooSlow_WaitingCallLoadsItself() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(meterRegistry, "urls", Duration.ofMillis(50));
+        AtomicInteger loads = new AtomicInteger();
+        Future<String> leader = executor.submit(() -> singleFlight.execute("abc123", blockingLoader(loads, "https://example.com")));
+        loading.await();
+
+        assertEquals("https://other.com", singleFlight.execute("abc123", () -> "https://other.com"));
+        assertEquals(1, meterRegistry.counter("url.cache.coalesced.timeouts", "cache", "urls").count());
+        release.countDown();
+        assertEquals("https://example.com", leader.get());
+    }
+
+    @Test
+    public void testExecute_DifferentKeys_NotCoalesced() {
+        SingleFlight singleFlight = new SingleFlight(meterRegistry, "urls", Duration.ofSeconds(5));
+
+        assertEquals("https://example.com", singleFlight.execute("abc123", () -> "https://example.com"));
+        assertEquals("https://other.com", singleFlight.execute("def456", () -> "https://other.com"));
+        assertEquals(0, meterRegistry.counter("url.cache.coalesced", "cache", "urls").count());
+    }
+
+    private Supplier<String> blockingLoader(AtomicInteger loads, String value) {
+        return () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return value;
+        };
+    }
+
+    private void awaitCoalesced(int calls) {
+        while (meterRegistry.counter("url.cache.coalesced", "cache", "urls").count() < calls) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.cache.CacheInvalidationBus;
+import ch.hos6.openweb.urlShortener.cache.RefreshAheadPolicy;
+import ch.hos6.openweb.urlShortener.cache.TwoLevelCache;
+import ch.hos6.openweb.urlShortener.cache.TwoLevelCacheManager;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TwoLevelCacheUnitTest {
+    private ConcurrentMapCacheManager remoteCacheManager;
+    private CacheInvalidationBus invalidationBus;
+    private SimpleMeterRegistry meterRegistry;
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        remoteCacheManager = new ConcurrentMapCacheManager("urls");
+        invalidationBus = Mockito.mock(CacheInvalidationBus.class);
+        meterRegistry = new SimpleMeterRegistry();
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(remoteCacheManager, Caffeine.newBuilder().maximumSize(100),
+                invalidationBus, meterRegistry, Duration.ofSeconds(2), RefreshAheadPolicy.disabled());
+        cache = (TwoLevelCache) cacheManager.getCache("urls");
+    }
+
+    @Test
+    public void testGet_RemoteHit_PromotedToLocal() {
+        remoteCacheManager.getCache("urls").put("abc123", "https://example.com");
+
+        assertEquals("https://example.com", cache.get("abc123", String.class));
+        assertNotNull(cache.getLocalCache().get("abc123"));
+    }
+
+    @Test
+    public void testGet_LocalHit_DoesNotReadRemote() {
+        cache.put("abc123", "https://example.com");
+        remoteCacheManager.getCache("urls").evict("abc123");
+
+        assertEquals("https://example.com", cache.get("abc123", String.class));
+    }
+
+    @Test
+    public void testEvict_BothLevelsAndBroadcast() {
+        cache.put("abc123", "https://example.com");
+
+        cache.evict("abc123");
+
+        assertNull(cache.get("abc123"));
+        assertNull(remoteCacheManager.getCache("urls").get("abc123"));
+        verify(invalidationBus, Mockito.times(2)).publish("urls", "abc123");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRemoteInvalidation_DropsLocalEntryOnly() {
+        ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(invalidationBus).subscribe(eq("urls"), listener.capture());
+        cache.put("abc123", "https://example.com");
+
+        listener.getValue().accept("abc123");
+
+        assertNull(cache.getLocalCache().get("abc123"));
+        assertNotNull(remoteCacheManager.getCache("urls").get("abc123"));
+        verify(invalidationBus, Mockito.times(1)).publish(any(), any());
+    }
+
+    @Test
+    public void testGet_TimedByAnsweringLevel() {
+        remoteCacheManager.getCache("urls").put("abc123", "https://example.com");
+
+        cache.get("abc123");
+        cache.get("abc123");
+        cache.get("def456");
+
+        assertEquals(1, meterRegistry.get(TwoLevelCache.TIMER_NAME).tags("operation", "get", "outcome", "remote").timer().count());
+        assertEquals(1, meterRegistry.get(TwoLevelCache.TIMER_NAME).tags("operation", "get", "outcome", "local").timer().count());
+        assertEquals(1, meterRegistry.get(TwoLevelCache.TIMER_NAME).tags("operation", "get", "outcome", "miss").timer().count());
+    }
+
+    @Test
+    public void testGetWithLoader_TimedByAnsweringLevel() {
+        remoteCacheManager.getCache("urls").put("abc123", "https://example.com");
+
+        cache.get("abc123", () -> "https://other.com");
+        cache.get("def456", () -> "https://example.org");
+
+        assertEquals(1, meterRegistry.get(TwoLevelCache.TIMER_NAME).tags("operation", "get", "outcome", "remote").timer().count());
+        assertEquals(1, meterRegistry.get(TwoLevelCache.TIMER_NAME).tags("operation", "get", "outcome", "miss").timer().count());
+    }
+
+    @Test
+    public void testGetWithLoader_RemoteLevelDown_ServedByLoader() {
+        Cache remoteCache = Mockito.mock(Cache.class);
+        when(remoteCache.get(any())).thenThrow(new RedisConnectionFailureException("redis down"));
+        doThrow(new RedisConnectionFailureException("redis down")).when(remoteCache).put(any(), any());
+        TwoLevelCache degradedCache = new TwoLevelCache("urls", new CaffeineCache("urls", Caffeine.newBuilder().build()),
+                remoteCache, invalidationBus, meterRegistry, Duration.ofSeconds(2), RefreshAheadPolicy.disabled());
+
+        assertEquals("https://example.com", degradedCache.get("abc123", () -> "https://example.com"));
+        assertNotNull(degradedCache.getLocalCache().get("abc123"));
+        assertEquals(1, meterRegistry.get(TwoLevelCache.TIMER_NAME).tags("operation", "get", "outcome", "miss").timer().count());
+    }
+
+    @Test
+    public void testGetWithLoader_LoaderFillsLocalLevel_NotWrittenRemotelyAgain() {
+        assertEquals("https://example.com", cache.get("abc123", () -> {
+            cache.getLocalCache().put("abc123", "https://example.com");
+            return "https://example.com";
+        }));
+
+        assertNull(remoteCacheManager.getCache("urls").get("abc123"));
+    }
+
+    @Test
+    public void testGetWithLoader_ConcurrentMisses_LoadedOnce() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> leader = executor.submit(() -> cache.get("abc123", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                release.await();
+                return "https://example.com";
+            }));
+            loading.await();
+            Future<String> follower = executor.submit(() -> cache.get("abc123", () -> {
+                loads.incrementAndGet();
+                return "https://other.com";
+            }));
+            while (meterRegistry.counter("url.cache.coalesced", "cache", "urls").count() < 1) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            assertEquals("https://example.com", leader.get());
+            assertEquals("https://example.com", follower.get());
+            assertEquals(1, loads.get());
+            assertEquals("https://example.com", remoteCacheManager.getCache("urls").get("abc123").get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRefreshAhead_HitWithinWindow_ReloadedInBackground() {
+        TwoLevelCache refreshingCache = refreshingCache(Duration.ofHours(2));
+        AtomicInteger loads = new AtomicInteger();
+        refreshingCache.refreshAheadWith(key -> "https://example.com/" + loads.incrementAndGet());
+        refreshingCache.put("abc123", "https://example.com/0");
+
+        assertEquals("https://example.com/0", refreshingCache.get("abc123", String.class));
+        assertEquals("https://example.com/1", remoteCacheManager.getCache("urls").get("abc123").get());
+        assertEquals("https://example.com/1", refreshingCache.get("abc123", String.class));
+        assertEquals(2, meterRegistry.get(TwoLevelCache.TIMER_NAME).tags("operation", "refresh", "outcome", "success").timer().count());
+    }
+
+    @Test
+    public void testRefreshAhead_KeyGone_Evicted() {
+        TwoLevelCache refreshingCache = refreshingCache(Duration.ofHours(2));
+        refreshingCache.refreshAheadWith(key -> null);
+        refreshingCache.put("abc123", "https://example.com");
+
+        refreshingCache.get("abc123");
+
+        assertNull(refreshingCache.getLocalCache().get("abc123"));
+        assertNull(remoteCacheManager.getCache("urls").get("abc123"));
+    }
+
+    @Test
+    public void testRefreshAhead_HitFarFromExpiry_NotReloaded() {
+        TwoLevelCache refreshingCache = refreshingCache(Duration.ZERO);
+        AtomicInteger loads = new AtomicInteger();
+        refreshingCache.refreshAheadWith(key -> "https://example.com/" + loads.incrementAndGet());
+        refreshingCache.put("abc123", "https://example.com/0");
+
+        assertEquals("https://example.com/0", refreshingCache.get("abc123", String.class));
+        assertEquals(0, loads.get());
+    }
+
+    private TwoLevelCache refreshingCache(Duration window) {
+        RefreshAheadPolicy refreshAhead = new RefreshAheadPolicy(Duration.ofHours(1), window, 0, Clock.systemUTC(), Runnable::run);
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(remoteCacheManager, Caffeine.newBuilder().maximumSize(100),
+                invalidationBus, meterRegistry, Duration.ofSeconds(2), refreshAhead);
+        return (TwoLevelCache) cacheManager.getCache("urls");
+    }
+}
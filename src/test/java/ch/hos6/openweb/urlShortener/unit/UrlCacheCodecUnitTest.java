@@ -0,0 +1,78 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.cache.ExpiringValue;
+import ch.hos6.openweb.urlShortener.cache.UrlCacheCodec;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UrlCacheCodecUnitTest {
+    private final UrlCacheCodec codec = new UrlCacheCodec();
+
+    @Test
+    public void testSerialize_CommonPrefix_StoredAsOneByte() {
+        String url = "https://www.example.com/articles/42";
+
+        byte[] bytes = codec.serialize(url);
+
+        assertEquals(2 + "example.com/articles/42".length(), bytes.length);
+        assertEquals(url, codec.deserialize(bytes));
+    }
+
+    @Test
+    public void testSerialize_LongestPrefixAndUnknownScheme_RoundTrip() {
+        for (String url : new String[]{"https://www.youtube.com/watch?v=dQw4w9WgXcQ", "ftp://example.com/file", "",
+                "https://example.com/café/日本"}) {
+            assertEquals(url, codec.deserialize(codec.serialize(url)));
+        }
+        assertEquals(2 + "dQw4w9WgXcQ".length(), codec.serialize("https://www.youtube.com/watch?v=dQw4w9WgXcQ").length);
+    }
+
+    @Test
+    public void testDeserialize_LegacyJsonValue_ReadWithJson() {
+        byte[] legacy = new GenericJackson2JsonRedisSerializer().serialize("https://example.com/articles/42");
+
+        assertEquals("https://example.com/articles/42", codec.deserialize(legacy));
+    }
+
+    @Test
+    public void testSerialize_NotAString_WrittenAsJson() {
+        Map<String, String> value = new HashMap<>(Map.of("originalUrl", "https://example.com"));
+
+        byte[] bytes = codec.serialize(value);
+
+        assertEquals('{', new String(bytes, StandardCharsets.UTF_8).charAt(0));
+        assertEquals(value, codec.deserialize(bytes));
+    }
+
+    @Test
+    public void testDeserialize_UnknownPrefix_Throws() {
+        assertThrows(SerializationException.class, () -> codec.deserialize(new byte[]{1, (byte) 200, 'a'}));
+        assertNull(codec.deserialize(new byte[0]));
+    }
+
+    @Test
+    public void testSerialize_WithTimeToLive_ReadWithExpiry() {
+        Clock clock = Clock.fixed(Instant.parse("2026-10-18T10:00:00Z"), ZoneOffset.UTC);
+        UrlCacheCodec expiringCodec = new UrlCacheCodec(new GenericJackson2JsonRedisSerializer(), Duration.ofHours(24), clock);
+
+        byte[] bytes = expiringCodec.serialize("https://www.example.com/articles/42");
+
+        assertEquals(6 + "example.com/articles/42".length(), bytes.length);
+        assertEquals(new ExpiringValue("https://www.example.com/articles/42", Instant.parse("2026-10-19T10:00:00Z").toEpochMilli()),
+                expiringCodec.deserialize(bytes));
+        assertEquals("https://www.example.com/articles/42",
+                expiringCodec.deserialize(codec.serialize("https://www.example.com/articles/42")));
+        assertThrows(SerializationException.class, () -> expiringCodec.deserialize(new byte[]{2, 0, 0}));
+    }
+}
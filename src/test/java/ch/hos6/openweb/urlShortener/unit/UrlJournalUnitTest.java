@@ -0,0 +1,148 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.domain.entity.Url;
+import ch.hos6.openweb.urlShortener.domain.entity.ValidationStatus;
+import ch.hos6.openweb.urlShortener.writebehind.UrlJournal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UrlJournalUnitTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void testReplay_AfterReopen_UrlsAfterCheckpointReplayed() throws IOException {
+        Path path = directory.resolve("urls.journal");
+        Url first = url("abc123");
+        try (UrlJournal journal = new UrlJournal(path, 4096)) {
+            assertTrue(journal.replay().isEmpty());
+            long position = journal.append(first);
+            journal.append(url("def456"));
+            journal.checkpoint(position);
+        }
+
+        try (UrlJournal journal = new UrlJournal(path, 4096)) {
+            List<UrlJournal.Entry> entries = journal.replay();
+            assertEquals(1, entries.size());
+            Url replayed = entries.get(0).url();
+            assertEquals("def456", replayed.getShortenedUrl());
+            assertEquals(first.getOriginalUrl(), replayed.getOriginalUrl());
+            assertEquals(first.getCreationDate(), replayed.getCreationDate());
+            assertEquals(ValidationStatus.VALID, replayed.getValidationStatus());
+            assertTrue(replayed.isActive());
+        }
+    }
+
+    @Test
+    public void testCheckpoint_AllInserted_JournalReset() throws IOException {
+        Path path = directory.resolve("urls.journal");
+        try (UrlJournal journal = new UrlJournal(path, 4096)) {
+            journal.replay();
+            long position = journal.append(url("abc123"));
+            journal.checkpoint(position);
+            assertEquals(0, journal.pendingBytes());
+            assertEquals(position, journal.append(url("def456")));
+        }
+
+        try (UrlJournal journal = new UrlJournal(path, 4096)) {
+            assertEquals("def456", journal.replay().get(0).url().getShortenedUrl());
+        }
+    }
+
+    @Test
+    public void testReplay_CorruptedRecord_ReplayStopsBeforeIt() throws IOException {
+        Path path = directory.resolve("urls.journal");
+        long corrupted;
+        try (UrlJournal journal = new UrlJournal(path, 4096)) {
+            journal.replay();
+            corrupted = journal.append(url("abc123"));
+            journal.append(url("def456"));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(corrupted + 12);
+            file.write('x');
+        }
+
+        try (UrlJournal journal = new UrlJournal(path, 4096)) {
+            List<UrlJournal.Entry> entries = journal.replay();
+            assertEquals(1, entries.size());
+            assertEquals("abc123", entries.get(0).url().getShortenedUrl());
+        }
+    }
+
+    @Test
+    public void testAppend_JournalFull_Refused() throws IOException {
+        try (UrlJournal journal = new UrlJournal(directory.resolve("urls.journal"), 256)) {
+            journal.replay();
+            assertTrue(journal.append(url("abc123")) > 0);
+            assertEquals(-1, journal.append(url("def456")));
+        }
+    }
+
+    @Test
+    public void testAppend_CheckpointedButNeverDrained_SpaceReused() throws IOException {
+        Path path = directory.resolve("urls.journal");
+        Deque<Long> positions = new ArrayDeque<>();
+        try (UrlJournal journal = new UrlJournal(path, 2048)) {
+            journal.replay();
+            for (int i = 0; i < 100; i++) {
+                long position = journal.append(url(String.format("%06d", i)));
+                assertTrue(position > 0, "URL " + i + " refused");
+                positions.add(position);
+                if (positions.size() > 3) {
+                    journal.checkpoint(positions.poll());
+                }
+            }
+            assertTrue(journal.pendingBytes() > 0);
+        }
+
+        try (UrlJournal journal = new UrlJournal(path, 2048)) {
+            List<UrlJournal.Entry> entries = journal.replay();
+            assertEquals(List.of("000097", "000098", "000099"),
+                    entries.stream().map(entry -> entry.url().getShortenedUrl()).toList());
+            assertEquals(List.copyOf(positions), entries.stream().map(UrlJournal.Entry::position).toList());
+        }
+    }
+
+    @Test
+    public void testAppend_NotFittingBeforeCheckpoint_RefusedUntilCheckpointMoves() throws IOException {
+        Path path = directory.resolve("urls.journal");
+        try (UrlJournal journal = new UrlJournal(path, 700)) {
+            journal.replay();
+            long first = journal.append(url("abc123"));
+            long second = journal.append(url("def456"));
+            journal.append(url("ghi789"));
+            journal.checkpoint(first);
+            assertEquals(-1, journal.append(url("jkl012")));
+            journal.checkpoint(second);
+            assertEquals(first, journal.append(url("jkl012")));
+        }
+
+        try (UrlJournal journal = new UrlJournal(path, 700)) {
+            assertEquals(List.of("ghi789", "jkl012"),
+                    journal.replay().stream().map(entry -> entry.url().getShortenedUrl()).toList());
+        }
+    }
+
+    private static Url url(String shortUrl) {
+        Url url = new Url();
+        url.setId("64b7f3a2c9e77a1d4c8b4567");
+        url.setUserId("12345");
+        url.setOriginalUrl("https://example.com/a/long/path/to/shorten/" + "x".repeat(64));
+        url.setShortenedUrl(shortUrl);
+        url.setCreationDate(LocalDateTime.of(2024, 7, 19, 10, 15, 30, 123456789));
+        url.setExpirationDate(url.getCreationDate().plusMonths(1));
+        url.setValidationStatus(ValidationStatus.VALID);
+        return url;
+    }
+}
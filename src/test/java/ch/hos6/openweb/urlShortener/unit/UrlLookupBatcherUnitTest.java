@@ -0,0 +1,141 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.cache.CachePreloader;
+import ch.hos6.openweb.urlShortener.config.CacheConfig;
+import ch.hos6.openweb.urlShortener.domain.entity.Url;
+import ch.hos6.openweb.urlShortener.domain.repository.UrlRepository;
+import ch.hos6.openweb.urlShortener.service.UrlLookupBatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class UrlLookupBatcherUnitTest {
+    private UrlRepository urlRepository;
+    private CachePreloader cachePreloader;
+    private SimpleMeterRegistry meterRegistry;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        urlRepository = Mockito.mock(UrlRepository.class);
+        cachePreloader = Mockito.mock(CachePreloader.class);
+        meterRegistry = new SimpleMeterRegistry();
+        executor = Executors.newFixedThreadPool(4);
+        when(urlRepository.findActiveOriginalUrls(anyCollection())).thenAnswer(invocation -> {
+            Map<String, String> found = new HashMap<>();
+            for (String shortUrl : invocation.<Collection<String>>getArgument(0)) {
+                if (!shortUrl.startsWith("missing")) {
+                    found.put(shortUrl, "https://example.com/" + shortUrl);
+                }
+            }
+            return found;
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testFindOriginalUrl_FullBatch_SingleQueryAndBackFill() throws Exception {
+        UrlLookupBatcher batcher = new UrlLookupBatcher(urlRepository, cachePreloader, meterRegistry, true, 10_000_000, 4, 4);
+        List<Future<Optional<String>>> lookups = List.of(
+                executor.submit(() -> batcher.findOriginalUrl("abc123")),
+                executor.submit(() -> batcher.findOriginalUrl("def456")),
+                executor.submit(() -> batcher.findOriginalUrl("missing1")),
+                executor.submit(() -> batcher.findOriginalUrl("ghi789")));
+
+        assertEquals(Optional.of("https://example.com/abc123"), lookups.get(0).get());
+        assertEquals(Optional.of("https://example.com/def456"), lookups.get(1).get());
+        assertEquals(Optional.empty(), lookups.get(2).get());
+        assertEquals(Optional.of("https://example.com/ghi789"), lookups.get(3).get());
+        verify(urlRepository).findActiveOriginalUrls(Set.of("abc123", "def456", "missing1", "ghi789"));
+        verify(urlRepository, never()).findByShortenedUrlAndActiveIsTrue(anyString());
+        verify(cachePreloader).preload(CacheConfig.URL_CACHE_NAME, Map.of(
+                "abc123", "https://example.com/abc123",
+                "def456", "https://example.com/def456",
+                "ghi789", "https://example.com/ghi789"));
+        assertEquals(4, meterRegistry.get("url.lookup.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    public void testFindOriginalUrl_SingleLookup_PointQueryAfterWindow() {
+        Url url = new Url();
+        url.setShortenedUrl("abc123");
+        url.setOriginalUrl("https://example.com");
+        when(urlRepository.findByShortenedUrlAndActiveIsTrue("abc123")).thenReturn(Optional.of(url));
+        UrlLookupBatcher batcher = new UrlLookupBatcher(urlRepository, cachePreloader, meterRegistry, true, 200, 100, 4);
+
+        assertEquals(Optional.of("https://example.com"), batcher.findOriginalUrl("abc123"));
+        verify(urlRepository, never()).findActiveOriginalUrls(anyCollection());
+        verify(cachePreloader).preload(CacheConfig.URL_CACHE_NAME, Map.of("abc123", "https://example.com"));
+    }
+
+    @Test
+    public void testFindOriginalUrl_QueryFails_ExceptionToEveryCaller() throws Exception {
+        when(urlRepository.findActiveOriginalUrls(anyCollection())).thenThrow(new IllegalStateException("Mongo is down"));
+        UrlLookupBatcher batcher = new UrlLookupBatcher(urlRepository, cachePreloader, meterRegistry, true, 10_000_000, 2, 4);
+        Future<Optional<String>> first = executor.submit(() -> batcher.findOriginalUrl("abc123"));
+        Future<Optional<String>> second = executor.submit(() -> batcher.findOriginalUrl("def456"));
+
+        assertInstanceOf(IllegalStateException.class, assertThrows(Exception.class, first::get).getCause());
+        assertInstanceOf(IllegalStateException.class, assertThrows(Exception.class, second::get).getCause());
+        verifyNoInteractions(cachePreloader);
+    }
+
+    @Test
+    public void testFindOriginalUrl_LookupThreadsBusy_LookedUpByWindowThread() throws Exception {
+        CountDownLatch querying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Url slow = new Url();
+        slow.setOriginalUrl("https://example.com/slow");
+        Url fast = new Url();
+        fast.setOriginalUrl("https://example.com/fast");
+        when(urlRepository.findByShortenedUrlAndActiveIsTrue("slow")).thenAnswer(invocation -> {
+            querying.countDown();
+            release.await();
+            return Optional.of(slow);
+        });
+        List<String> fastThreads = new CopyOnWriteArrayList<>();
+        when(urlRepository.findByShortenedUrlAndActiveIsTrue("fast")).thenAnswer(invocation -> {
+            fastThreads.add(Thread.currentThread().getName());
+            return Optional.of(fast);
+        });
+        UrlLookupBatcher batcher = new UrlLookupBatcher(urlRepository, cachePreloader, meterRegistry, true, 200, 100, 1);
+        try {
+            Future<Optional<String>> slowLookup = executor.submit(() -> batcher.findOriginalUrl("slow"));
+            assertTrue(querying.await(5, TimeUnit.SECONDS));
+
+            assertEquals(Optional.of("https://example.com/fast"),
+                    executor.submit(() -> batcher.findOriginalUrl("fast")).get(5, TimeUnit.SECONDS));
+            assertEquals(List.of("url-lookup-batcher"), fastThreads);
+            assertFalse(slowLookup.isDone());
+            release.countDown();
+            assertEquals(Optional.of("https://example.com/slow"), slowLookup.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            batcher.destroy();
+        }
+    }
+}
@@ -1,36 +1,77 @@
 package ch.hos6.openweb.urlShortener.unit;
 
+import ch.hos6.openweb.urlShortener.allocator.ShortCodeAllocator;
+import ch.hos6.openweb.urlShortener.cache.CachePreloader;
+import ch.hos6.openweb.urlShortener.cache.ShortUrlFilter;
 import ch.hos6.openweb.urlShortener.domain.entity.Url;
+import ch.hos6.openweb.urlShortener.domain.entity.ValidationStatus;
 import ch.hos6.openweb.urlShortener.domain.repository.UrlRepository;
+import ch.hos6.openweb.urlShortener.domain.repository.UrlRepositoryCustom.RejectedUrl;
+import ch.hos6.openweb.urlShortener.errorhandling.exception.BatchTooLargeException;
+import ch.hos6.openweb.urlShortener.errorhandling.exception.InvalidCursorException;
 import ch.hos6.openweb.urlShortener.errorhandling.exception.InvalidUrlException;
 import ch.hos6.openweb.urlShortener.errorhandling.exception.ShortUrlNotFoundException;
+import ch.hos6.openweb.urlShortener.errorhandling.exception.UrlValidationUnavailableException;
+import ch.hos6.openweb.urlShortener.service.UrlCreationResult;
+import ch.hos6.openweb.urlShortener.service.UrlLookupBatcher;
+import ch.hos6.openweb.urlShortener.service.UrlPage;
 import ch.hos6.openweb.urlShortener.service.UrlService;
+import ch.hos6.openweb.urlShortener.validation.UrlValidator;
+import ch.hos6.openweb.urlShortener.validation.ValidationMode;
+import ch.hos6.openweb.urlShortener.validation.ValidationResult;
+import ch.hos6.openweb.urlShortener.writebehind.UrlWriteBehind;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 public class UrlServiceUnitTest {
     private UrlRepository urlRepository;
     private CacheManager cacheManager;
+    private ShortUrlFilter shortUrlFilter;
+    private ShortCodeAllocator shortCodeAllocator;
+    private CachePreloader cachePreloader;
+    private UrlLookupBatcher urlLookupBatcher;
+    private UrlWriteBehind urlWriteBehind;
+    private UrlValidator urlValidator;
     private UrlService urlService;
 
     @BeforeEach
     public void setUp() {
         urlRepository = Mockito.mock(UrlRepository.class);
         cacheManager = Mockito.mock(CacheManager.class);
-        urlService = new UrlService(urlRepository, cacheManager);
+        shortUrlFilter = Mockito.mock(ShortUrlFilter.class);
+        shortCodeAllocator = Mockito.mock(ShortCodeAllocator.class);
+        cachePreloader = Mockito.mock(CachePreloader.class);
+        urlValidator = Mockito.mock(UrlValidator.class);
+        urlLookupBatcher = new UrlLookupBatcher(urlRepository, cachePreloader, new SimpleMeterRegistry(), true, 200, 100, 4);
+        urlWriteBehind = new UrlWriteBehind(urlRepository, cacheManager, shortCodeAllocator, new SimpleMeterRegistry(),
+                false, "journal/urls.journal", 1024, 10, 100);
+        when(shortCodeAllocator.allocate(anyString())).thenReturn("abc123");
+        urlService = new UrlService(urlRepository, cacheManager, shortUrlFilter, shortCodeAllocator,
+                urlValidator, cachePreloader, urlLookupBatcher, urlWriteBehind, ValidationMode.SYNC, 3, 2, 2, 3, 1);
     }
 
     @Test
@@ -46,6 +87,7 @@ public class UrlServiceUnitTest {
         url.setCreationDate(LocalDateTime.now());
         url.setExpirationDate(LocalDateTime.now().plusMonths(1));
 
+        when(urlValidator.validate(originalUrl)).thenReturn(ValidationResult.valid(originalUrl, 200));
         when(urlRepository.existsByShortenedUrl(anyString())).thenReturn(false);
         when(urlRepository.save(any(Url.class))).thenReturn(url);
 
@@ -63,6 +105,7 @@ public class UrlServiceUnitTest {
     public void testCreateUrl_InvalidUrl_ThrowsInvalidUrlException() throws IOException {
         String originalUrl = "invalidurl";
         String userId = "12345";
+        when(urlValidator.validate(originalUrl)).thenReturn(ValidationResult.invalid(originalUrl, 0, "Malformed URL"));
 
         assertThrows(InvalidUrlException.class, () -> urlService.createUrl(originalUrl, userId));
 
@@ -76,6 +119,7 @@ public class UrlServiceUnitTest {
         String userId = "12345";
         String shortUrl = "abc123";
 
+        when(urlValidator.validate(originalUrl)).thenReturn(ValidationResult.valid(originalUrl, 200));
         when(urlRepository.existsByShortenedUrl(shortUrl)).thenReturn(false, true);
         when(urlRepository.save(any(Url.class))).thenReturn(new Url());
 
@@ -87,6 +131,254 @@ public class UrlServiceUnitTest {
         verify(urlRepository, atLeastOnce()).save(any(Url.class));
     }
 
+    @Test
+    public void testCreateUrl_ShortUrlTaken_AllocatesAnother() throws IOException {
+        String originalUrl = "https://example.com";
+        String userId = "12345";
+        urlService = new UrlService(urlRepository, cacheManager, shortUrlFilter, shortCodeAllocator,
+                urlValidator, cachePreloader, urlLookupBatcher, urlWriteBehind, ValidationMode.SYNC, 3, 2, 2, 3, 1);
+        when(urlValidator.validate(originalUrl)).thenReturn(ValidationResult.valid(originalUrl, 200));
+
+        when(shortCodeAllocator.allocate(anyString())).thenReturn("abc123", "def456");
+        when(urlRepository.save(any(Url.class)))
+                .thenThrow(new DuplicateKeyException("duplicate key"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        Url createdUrl = urlService.createUrl(originalUrl, userId);
+
+        assertEquals("def456", createdUrl.getShortenedUrl());
+        verify(urlRepository, times(2)).save(any(Url.class));
+        verify(shortUrlFilter, times(1)).recordExisting("def456");
+    }
+
+    @Test
+    public void testCreateUrl_BackgroundValidation_SavedPendingThenActivated() throws IOException {
+        String originalUrl = "https://example.com";
+        String userId = "12345";
+        CompletableFuture<ValidationResult> validation = new CompletableFuture<>();
+        urlService = new UrlService(urlRepository, cacheManager, shortUrlFilter, shortCodeAllocator,
+                urlValidator, cachePreloader, urlLookupBatcher, urlWriteBehind, ValidationMode.BACKGROUND, 3, 2, 2, 3, 1);
+
+        when(urlValidator.isWellFormed(originalUrl)).thenReturn(true);
+        when(urlValidator.validateAsync(originalUrl)).thenReturn(validation);
+        when(urlRepository.save(any(Url.class))).thenAnswer(invocation -> {
+            Url saved = invocation.getArgument(0);
+            saved.setId("id");
+            return saved;
+        });
+
+        Url createdUrl = urlService.createUrl(originalUrl, userId);
+
+        assertEquals(ValidationStatus.PENDING, createdUrl.getValidationStatus());
+        assertFalse(createdUrl.isActive());
+        verify(shortUrlFilter, never()).recordExisting(anyString());
+
+        when(urlRepository.findById("id")).thenReturn(Optional.of(createdUrl));
+        validation.complete(ValidationResult.valid(originalUrl, 200));
+
+        assertEquals(ValidationStatus.VALID, createdUrl.getValidationStatus());
+        assertTrue(createdUrl.isActive());
+        verify(shortUrlFilter, times(1)).recordExisting("abc123");
+    }
+
+    @Test
+    public void testCreateUrl_BackgroundValidation_MalformedUrlRejected() {
+        urlService = new UrlService(urlRepository, cacheManager, shortUrlFilter, shortCodeAllocator,
+                urlValidator, cachePreloader, urlLookupBatcher, urlWriteBehind, ValidationMode.BACKGROUND, 3, 2, 2, 3, 1);
+
+        when(urlValidator.isWellFormed(anyString())).thenReturn(false);
+
+        assertThrows(InvalidUrlException.class, () -> urlService.createUrl("invalidurl", "12345"));
+        verify(urlRepository, never()).save(any(Url.class));
+        verify(urlValidator, never()).validateAsync(anyString());
+    }
+
+    @Test
+    public void testCreateUrl_ValidationNotCarriedOut_ThrowsUrlValidationUnavailableException() {
+        when(urlValidator.validate("https://example.com"))
+                .thenReturn(ValidationResult.retryable("https://example.com", "Too many concurrent validations of host example.com"));
+
+        assertThrows(UrlValidationUnavailableException.class, () -> urlService.createUrl("https://example.com", "12345"));
+        verify(urlRepository, never()).save(any(Url.class));
+    }
+
+    @Test
+    public void testCreateUrl_BackgroundValidationNotCarriedOut_LeftPendingAndRetried() throws IOException {
+        String originalUrl = "https://example.com";
+        urlService = new UrlService(urlRepository, cacheManager, shortUrlFilter, shortCodeAllocator,
+                urlValidator, cachePreloader, urlLookupBatcher, urlWriteBehind, ValidationMode.BACKGROUND, 3, 2, 2, 3, 1);
+        when(urlValidator.isWellFormed(originalUrl)).thenReturn(true);
+        when(urlValidator.validateAsync(originalUrl)).thenReturn(
+                CompletableFuture.completedFuture(ValidationResult.retryable(originalUrl, "Too many concurrent validations of host example.com")),
+                CompletableFuture.completedFuture(ValidationResult.valid(originalUrl, 200)));
+        when(urlRepository.save(any(Url.class))).thenAnswer(invocation -> {
+            Url saved = invocation.getArgument(0);
+            saved.setId("id");
+            return saved;
+        });
+
+        Url createdUrl = urlService.createUrl(originalUrl, "12345");
+        when(urlRepository.findById("id")).thenReturn(Optional.of(createdUrl));
+
+        verify(shortUrlFilter, timeout(1000)).recordExisting("abc123");
+        verify(urlValidator, times(2)).validateAsync(originalUrl);
+        assertEquals(ValidationStatus.VALID, createdUrl.getValidationStatus());
+        assertTrue(createdUrl.isActive());
+    }
+
+    @Test
+    public void testCreateUrl_BackgroundValidationNeverCarriedOut_LeftPending() throws Exception {
+        String originalUrl = "https://example.com";
+        urlService = new UrlService(urlRepository, cacheManager, shortUrlFilter, shortCodeAllocator,
+                urlValidator, cachePreloader, urlLookupBatcher, urlWriteBehind, ValidationMode.BACKGROUND, 3, 2, 2, 3, 1);
+        when(urlValidator.isWellFormed(originalUrl)).thenReturn(true);
+        when(urlValidator.validateAsync(originalUrl)).thenReturn(
+                CompletableFuture.completedFuture(ValidationResult.retryable(originalUrl, "Validation interrupted")));
+        when(urlRepository.save(any(Url.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Url createdUrl = urlService.createUrl(originalUrl, "12345");
+
+        verify(urlValidator, timeout(1000).times(3)).validateAsync(originalUrl);
+        Thread.sleep(50);
+        verify(urlValidator, times(3)).validateAsync(originalUrl);
+        verify(urlRepository, times(1)).save(any(Url.class));
+        assertEquals(ValidationStatus.PENDING, createdUrl.getValidationStatus());
+        assertFalse(createdUrl.isActive());
+    }
+
+    @Test
+    public void testCreateUrl_WriteBehind_CachedAndJournaled() throws IOException {
+        UrlWriteBehind journaling = Mockito.mock(UrlWriteBehind.class);
+        urlService = new UrlService(urlRepository, cacheManager, shortUrlFilter, shortCodeAllocator,
+                urlValidator, cachePreloader, urlLookupBatcher, journaling, ValidationMode.SYNC, 3, 2, 2, 3, 1);
+        when(urlValidator.validate("https://example.com")).thenReturn(ValidationResult.valid("https://example.com", 200));
+        when(journaling.isEnabled()).thenReturn(true);
+        when(journaling.submit(any(Url.class))).thenReturn(Optional.of(new CompletableFuture<>()));
+
+        Url createdUrl = urlService.createUrl("https://example.com", "12345");
+
+        assertEquals("abc123", createdUrl.getShortenedUrl());
+        verify(journaling).submit(createdUrl);
+        verify(cachePreloader).preload("urls", Map.of("abc123", "https://example.com"));
+        verify(shortUrlFilter).recordExisting("abc123");
+        verify(urlRepository, never()).save(any(Url.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testWriteBehind_InsertedUrls_ValidatedOrCachedAgain() {
+        UrlWriteBehind journaling = Mockito.mock(UrlWriteBehind.class);
+        urlService = new UrlService(urlRepository, cacheManager, shortUrlFilter, shortCodeAllocator,
+                urlValidator, cachePreloader, urlLookupBatcher, journaling, ValidationMode.BACKGROUND, 3, 2, 2, 3, 1);
+        ArgumentCaptor<Consumer<List<Url>>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(journaling).onInserted(listener.capture());
+        Url pending = new Url();
+        pending.setId("pending");
+        pending.setOriginalUrl("https://example.com");
+        pending.setShortenedUrl("abc123");
+        pending.setValidationStatus(ValidationStatus.PENDING);
+        Url active = new Url();
+        active.setOriginalUrl("https://example.org");
+        active.setShortenedUrl("def456");
+        active.setValidationStatus(ValidationStatus.VALID);
+        active.setActive(true);
+        when(urlValidator.validateAsync("https://example.com")).thenReturn(new CompletableFuture<>());
+
+        listener.getValue().accept(List.of(pending, active));
+
+        verify(urlValidator).validateAsync("https://example.com");
+        verify(cachePreloader).preload("urls", Map.of("def456", "https://example.org"));
+        verify(shortUrlFilter).recordExisting(Set.of("def456"));
+    }
+
+    @Test
+    public void testCreateUrls_PartialFailures_ReportedPerUrl() {
+        urlService = new UrlService(urlRepository, cacheManager, shortUrlFilter, shortCodeAllocator,
+                urlValidator, cachePreloader, urlLookupBatcher, urlWriteBehind, ValidationMode.SYNC, 3, 2, 2, 3, 1);
+        when(urlValidator.isWellFormed(anyString())).thenAnswer(invocation -> !"invalidurl".equals(invocation.getArgument(0)));
+        when(urlValidator.validateAsync(anyString())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(ValidationResult.valid(invocation.getArgument(0), 200)));
+        when(shortCodeAllocator.allocateAll(anyList())).thenReturn(List.of("abc123", "def456"), List.of("ghi789"));
+        when(urlRepository.insertAllUnordered(anyList()))
+                .thenReturn(List.of(new RejectedUrl(1, true, "duplicate key")))
+                .thenReturn(List.of());
+
+        List<UrlCreationResult> results = urlService.createUrls(
+                List.of("https://example.com", "invalidurl", "https://example.org"), "12345");
+
+        assertEquals(3, results.size());
+        assertEquals("abc123", results.get(0).url().getShortenedUrl());
+        assertNull(results.get(1).url());
+        assertEquals("invalidurl", results.get(1).originalUrl());
+        assertNotNull(results.get(1).error());
+        assertEquals("ghi789", results.get(2).url().getShortenedUrl());
+        assertEquals("https://example.org", results.get(2).url().getOriginalUrl());
+        verify(urlRepository, times(2)).insertAllUnordered(anyList());
+        verify(cachePreloader).preload("urls", Map.of("abc123", "https://example.com", "ghi789", "https://example.org"));
+        verify(shortUrlFilter).recordExisting(Set.of("abc123", "ghi789"));
+    }
+
+    @Test
+    public void testCreateUrls_InvalidAndUnsavedUrls_NothingCached() {
+        urlService = new UrlService(urlRepository, cacheManager, shortUrlFilter, shortCodeAllocator,
+                urlValidator, cachePreloader, urlLookupBatcher, urlWriteBehind, ValidationMode.SYNC, 3, 2, 2, 3, 1);
+        when(urlValidator.isWellFormed(anyString())).thenReturn(true);
+        when(urlValidator.validateAsync("https://example.com")).thenReturn(
+                CompletableFuture.completedFuture(ValidationResult.invalid("https://example.com", 404, "Unreachable URL, status 404")));
+        when(urlValidator.validateAsync("https://example.org")).thenReturn(
+                CompletableFuture.completedFuture(ValidationResult.valid("https://example.org", 200)));
+        when(shortCodeAllocator.allocateAll(anyList())).thenReturn(List.of("abc123"));
+        when(urlRepository.insertAllUnordered(anyList())).thenReturn(List.of(new RejectedUrl(0, false, "write error")));
+
+        List<UrlCreationResult> results = urlService.createUrls(List.of("https://example.com", "https://example.org"), "12345");
+
+        assertTrue(results.get(0).error().contains("404"));
+        assertEquals("Unable to save URL", results.get(1).error());
+        verify(cachePreloader, never()).preload(anyString(), any());
+        verify(shortUrlFilter, never()).recordExisting(anyCollection());
+    }
+
+    @Test
+    public void testCreateUrls_ValidationAndInsertFailures_ReportedPerUrl() {
+        when(urlValidator.isWellFormed(anyString())).thenReturn(true);
+        when(urlValidator.validateAsync("https://example.com")).thenReturn(
+                CompletableFuture.failedFuture(new IllegalStateException("validator down")));
+        when(urlValidator.validateAsync("https://example.org")).thenReturn(
+                CompletableFuture.completedFuture(ValidationResult.valid("https://example.org", 200)));
+        when(shortCodeAllocator.allocateAll(anyList())).thenReturn(List.of("abc123"));
+        when(urlRepository.insertAllUnordered(anyList())).thenThrow(new DataAccessResourceFailureException("mongo down"));
+
+        List<UrlCreationResult> results = urlService.createUrls(List.of("https://example.com", "https://example.org"), "12345");
+
+        assertEquals("Unable to validate URL", results.get(0).error());
+        assertTrue(results.get(0).retryable());
+        assertEquals("Unable to save URL", results.get(1).error());
+        verify(cachePreloader, never()).preload(anyString(), any());
+    }
+
+    @Test
+    public void testCreateUrls_ValidationNotCarriedOut_ReportedRetryable() {
+        when(urlValidator.isWellFormed(anyString())).thenReturn(true);
+        when(urlValidator.validateAsync("https://example.com")).thenReturn(CompletableFuture.completedFuture(
+                ValidationResult.retryable("https://example.com", "Too many concurrent validations of host example.com")));
+        when(urlValidator.validateAsync("https://example.org")).thenReturn(
+                CompletableFuture.completedFuture(ValidationResult.invalid("https://example.org", 404, "Unreachable URL, status 404")));
+
+        List<UrlCreationResult> results = urlService.createUrls(List.of("https://example.com", "https://example.org"), "12345");
+
+        assertEquals("Unable to validate URL: Too many concurrent validations of host example.com", results.get(0).error());
+        assertTrue(results.get(0).retryable());
+        assertEquals("Invalid URL: Unreachable URL, status 404", results.get(1).error());
+        assertFalse(results.get(1).retryable());
+        verify(urlRepository, never()).insertAllUnordered(anyList());
+    }
+
+    @Test
+    public void testCreateUrls_TooManyUrls_ThrowsBatchTooLargeException() {
+        assertThrows(BatchTooLargeException.class, () -> urlService.createUrls(Collections.nCopies(4, "https://example.com"), "12345"));
+        verifyNoInteractions(urlRepository);
+    }
+
     @Test
     public void testGetOriginalUrl_ValidShortUrl_Success() throws ShortUrlNotFoundException {
         String shortUrl = "abc123";
@@ -111,6 +403,15 @@ public class UrlServiceUnitTest {
         when(urlRepository.findByShortenedUrlAndActiveIsTrue(anyString())).thenReturn(Optional.empty());
 
         assertThrows(ShortUrlNotFoundException.class, () -> urlService.getOriginalUrl(shortUrl));
+        verify(shortUrlFilter, times(1)).recordMissing(shortUrl);
+    }
+
+    @Test
+    public void testGetOriginalUrl_DefinitelyMissing_ThrowsWithoutRepository() {
+        when(shortUrlFilter.isDefinitelyMissing("abc123")).thenReturn(true);
+
+        assertThrows(ShortUrlNotFoundException.class, () -> urlService.getOriginalUrl("abc123"));
+        verifyNoInteractions(urlRepository);
     }
 
     @Test
@@ -137,6 +438,40 @@ public class UrlServiceUnitTest {
         assertEquals(url1, resultUrls.iterator().next());
     }
 
+    @Test
+    public void testGetUserUrlsPage_CursorResumesAfterLastUrl() {
+        String userId = "12345";
+        LocalDateTime now = LocalDateTime.now();
+        Url first = new Url();
+        first.setId("id1");
+        first.setCreationDate(now);
+        Url second = new Url();
+        second.setId("id2");
+        second.setCreationDate(now.minusMinutes(1));
+        Url third = new Url();
+        third.setId("id3");
+        third.setCreationDate(now.minusMinutes(2));
+        when(urlRepository.findUserUrlsAfter(userId, null, null, 3)).thenReturn(List.of(first, second, third));
+        when(urlRepository.findUserUrlsAfter(userId, second.getCreationDate(), "id2", 3)).thenReturn(List.of(third));
+
+        UrlPage page = urlService.getUserUrlsPage(userId, null, 10);
+
+        assertEquals(List.of(first, second), page.urls());
+        assertNotNull(page.nextCursor());
+
+        UrlPage lastPage = urlService.getUserUrlsPage(userId, page.nextCursor(), 10);
+
+        assertEquals(List.of(third), lastPage.urls());
+        assertNull(lastPage.nextCursor());
+    }
+
+    @Test
+    public void testGetUserUrlsPage_InvalidCursor_ThrowsInvalidCursorException() {
+        assertThrows(InvalidCursorException.class, () -> urlService.getUserUrlsPage("12345", "not a cursor", 10));
+        assertThrows(InvalidCursorException.class, () -> urlService.getUserUrlsPage("12345", "bm90IGEgY3Vyc29y", 10));
+        verifyNoInteractions(urlRepository);
+    }
+
     @Test
     public void testDeleteUrl_Success() throws ShortUrlNotFoundException {
         String shortUrl = "abc123";
@@ -0,0 +1,42 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.utils.UrlUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UrlUtilsUnitTest {
+
+    @Test
+    public void testShortenUrl_SameAsBigIntegerEncoding() {
+        // expected values computed with the previous BigInteger based implementation
+        assertEquals("JJrx2J", UrlUtils.shortenUrl("https://example.com"));
+        assertEquals("Fwb7YE", UrlUtils.shortenUrl("https://www.google.com/search?q=url+shortener"));
+        assertEquals("dDRBIO", UrlUtils.shortenUrl("http://localhost:8000/"));
+        assertEquals("TusLPj", UrlUtils.shortenUrl("https://example.com0.123456789"));
+        assertEquals("E7lx4r", UrlUtils.shortenUrl("https://example.com/héllo/ünïcode"));
+    }
+
+    @Test
+    public void testToBase62_FixedLengthLeastSignificantFirst() {
+        assertEquals("000000", UrlUtils.toBase62(0, 6));
+        assertEquals("100000", UrlUtils.toBase62(1, 6));
+        assertEquals("01", UrlUtils.toBase62(62, 2));
+        assertEquals("zzzzzz", UrlUtils.toBase62(UrlUtils.base62Domain(6) - 1, 6));
+    }
+
+    @Test
+    public void testFromBase62_RoundTrip() {
+        for (long value : new long[]{0, 1, 61, 62, 3843, 56_800_235_583L, UrlUtils.base62Domain(10) - 1}) {
+            assertEquals(value, UrlUtils.fromBase62(UrlUtils.toBase62(value, 10)));
+        }
+        assertEquals("JJrx2J", UrlUtils.toBase62(UrlUtils.fromBase62("JJrx2J"), 6));
+    }
+
+    @Test
+    public void testFromBase62_InvalidCharacter_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> UrlUtils.fromBase62("abc-12"));
+        assertThrows(IllegalArgumentException.class, () -> UrlUtils.fromBase62("abcé12"));
+        assertThrows(IllegalArgumentException.class, () -> UrlUtils.fromBase62("01234567890"));
+    }
+}
@@ -0,0 +1,173 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.validation.HostHealthRegistry;
+import ch.hos6.openweb.urlShortener.validation.UrlValidator;
+import ch.hos6.openweb.urlShortener.validation.ValidationResult;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UrlValidatorUnitTest {
+    private HttpServer server;
+    private String baseUrl;
+    private HostHealthRegistry hostHealthRegistry;
+    private SimpleMeterRegistry meterRegistry;
+    private UrlValidator urlValidator;
+    private final List<String> methods = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/ok", exchange -> {
+            methods.add(exchange.getRequestMethod());
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.createContext("/no-head", exchange -> {
+            methods.add(exchange.getRequestMethod());
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+            } else {
+                byte[] body = "hello".getBytes();
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.createContext("/missing", exchange -> {
+            methods.add(exchange.getRequestMethod());
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.createContext("/error", exchange -> {
+            methods.add(exchange.getRequestMethod());
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+        hostHealthRegistry = new HostHealthRegistry(2, 30, 100);
+        meterRegistry = new SimpleMeterRegistry();
+        urlValidator = new UrlValidator(hostHealthRegistry, meterRegistry, 500, 500, 8, 100, 600, 60);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        urlValidator.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    public void testValidate_HeadAccepted_Valid() {
+        ValidationResult result = urlValidator.validate(baseUrl + "/ok");
+
+        assertTrue(result.valid());
+        assertEquals(200, result.statusCode());
+        assertEquals(List.of("HEAD"), methods);
+    }
+
+    @Test
+    public void testValidate_HeadRejected_FallsBackToGet() {
+        ValidationResult result = urlValidator.validate(baseUrl + "/no-head");
+
+        assertTrue(result.valid());
+        assertEquals(List.of("HEAD", "GET"), methods);
+    }
+
+    @Test
+    public void testValidate_NotFound_Invalid() {
+        ValidationResult result = urlValidator.validate(baseUrl + "/missing");
+
+        assertFalse(result.valid());
+        assertEquals(404, result.statusCode());
+    }
+
+    @Test
+    public void testValidate_SlowDestination_TimesOut() {
+        long start = System.nanoTime();
+
+        ValidationResult result = urlValidator.validateAsync(baseUrl + "/slow").join();
+
+        assertFalse(result.valid());
+        assertTrue(System.nanoTime() - start < 1_900_000_000L);
+    }
+
+    @Test
+    public void testValidate_MalformedUrl_InvalidWithoutRequest() {
+        assertFalse(urlValidator.validate("invalidurl").valid());
+        assertFalse(urlValidator.validate("ftp://localhost/file").valid());
+        assertFalse(urlValidator.isWellFormed("http://"));
+        assertTrue(urlValidator.isWellFormed(baseUrl + "/ok"));
+        assertTrue(methods.isEmpty());
+    }
+
+    @Test
+    public void testValidate_SameNormalizedUrl_AnsweredFromCache() {
+        urlValidator.validate(baseUrl + "/ok");
+
+        ValidationResult result = urlValidator.validate(baseUrl.replace("localhost", "LOCALHOST") + "/ok#section");
+
+        assertTrue(result.valid());
+        assertEquals(baseUrl.replace("localhost", "LOCALHOST") + "/ok#section", result.url());
+        assertEquals(List.of("HEAD"), methods);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "url.validation").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    public void testValidate_FailingHost_ShortCircuited() {
+        urlValidator.validate(baseUrl + "/error?attempt=1");
+        urlValidator.validate(baseUrl + "/error?attempt=2");
+        methods.clear();
+
+        ValidationResult result = urlValidator.validate(baseUrl + "/ok");
+
+        assertFalse(result.valid());
+        assertTrue(methods.isEmpty());
+        HostHealthRegistry.HostHealthSummary summary = hostHealthRegistry.summary("localhost");
+        assertEquals(List.of(503, 503), summary.recentStatusCodes());
+        assertEquals(2, summary.failureStreak());
+        assertTrue(summary.shortCircuited());
+    }
+
+    @Test
+    public void testValidate_SinglePermitPerHost_ReleasedAfterEachRequest() {
+        UrlValidator singlePermit = new UrlValidator(hostHealthRegistry, meterRegistry, 500, 500, 1, 100, 600, 60);
+        try {
+            for (int attempt = 0; attempt < 3; attempt++) {
+                assertTrue(singlePermit.validate(baseUrl + "/ok?attempt=" + attempt).valid());
+            }
+            assertEquals(List.of("HEAD", "HEAD", "HEAD"), methods);
+        } finally {
+            singlePermit.destroy();
+        }
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("http://example.com/", UrlValidator.normalize(URI.create("HTTP://Example.COM:80")));
+        assertEquals("https://example.com:8443/a%20b?q=1", UrlValidator.normalize(URI.create("https://example.com:8443/a%20b?q=1#top")));
+    }
+}
@@ -0,0 +1,163 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.allocator.SequenceShortCodeAllocator;
+import ch.hos6.openweb.urlShortener.domain.entity.Url;
+import ch.hos6.openweb.urlShortener.domain.entity.ValidationStatus;
+import ch.hos6.openweb.urlShortener.domain.repository.UrlRepository;
+import ch.hos6.openweb.urlShortener.domain.repository.UrlRepositoryCustom.RejectedUrl;
+import ch.hos6.openweb.urlShortener.writebehind.UrlWriteBehind;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class UrlWriteBehindUnitTest {
+    @TempDir
+    private Path directory;
+    private UrlRepository urlRepository;
+    private Cache cache;
+    private CacheManager cacheManager;
+    private List<UrlWriteBehind> started;
+
+    @BeforeEach
+    public void setUp() {
+        urlRepository = Mockito.mock(UrlRepository.class);
+        cache = Mockito.mock(Cache.class);
+        cacheManager = Mockito.mock(CacheManager.class);
+        when(cacheManager.getCache(anyString())).thenReturn(cache);
+        started = new ArrayList<>();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (UrlWriteBehind urlWriteBehind : started) {
+            urlWriteBehind.destroy();
+        }
+    }
+
+    @Test
+    public void testSubmit_Flushed_InsertedWithClientId() throws Exception {
+        when(urlRepository.insertAllUnordered(anyList())).thenReturn(List.of());
+        UrlWriteBehind urlWriteBehind = start();
+        Url url = url("abc123");
+
+        CompletableFuture<Url> inserted = urlWriteBehind.submit(url).orElseThrow();
+        assertNotNull(url.getId());
+        assertFalse(inserted.isDone());
+        assertTrue(urlWriteBehind.flush());
+
+        assertSame(url, inserted.getNow(null));
+        verify(urlRepository).insertAllUnordered(List.of(url));
+    }
+
+    @Test
+    public void testFlush_DatabaseDown_ReplayedAfterRestart() throws Exception {
+        when(urlRepository.insertAllUnordered(anyList())).thenThrow(new DataAccessResourceFailureException("down"));
+        UrlWriteBehind crashed = start();
+        Url url = url("abc123");
+        crashed.submit(url);
+        assertFalse(crashed.flush());
+
+        reset(urlRepository);
+        when(urlRepository.insertAllUnordered(anyList())).thenReturn(List.of());
+        UrlWriteBehind restarted = start();
+        assertTrue(restarted.flush());
+
+        verify(urlRepository).insertAllUnordered(argThat(urls -> urls.size() == 1
+                && url.getId().equals(urls.get(0).getId()) && "abc123".equals(urls.get(0).getShortenedUrl())));
+    }
+
+    @Test
+    public void testFlush_ReplayedAfterRestart_HandedToListener() throws Exception {
+        when(urlRepository.insertAllUnordered(anyList())).thenThrow(new DataAccessResourceFailureException("down"));
+        UrlWriteBehind crashed = start();
+        Url url = url("abc123");
+        url.setValidationStatus(ValidationStatus.PENDING);
+        crashed.submit(url);
+        assertFalse(crashed.flush());
+
+        reset(urlRepository);
+        when(urlRepository.insertAllUnordered(anyList())).thenReturn(List.of());
+        List<Url> inserted = new ArrayList<>();
+        UrlWriteBehind restarted = new UrlWriteBehind(urlRepository, cacheManager,
+                Mockito.mock(SequenceShortCodeAllocator.class), new SimpleMeterRegistry(), true,
+                directory.resolve("urls.journal").toString(), 4096, 10, 60000);
+        restarted.afterPropertiesSet();
+        started.add(restarted);
+        restarted.onInserted(inserted::addAll);
+        restarted.afterSingletonsInstantiated();
+        assertTrue(restarted.flush());
+
+        assertEquals(1, inserted.size());
+        assertEquals(url.getId(), inserted.get(0).getId());
+        assertEquals(ValidationStatus.PENDING, inserted.get(0).getValidationStatus());
+    }
+
+    @Test
+    public void testFlush_DuplicateShortUrl_AlreadyInsertedOrRejected() throws Exception {
+        UrlWriteBehind urlWriteBehind = start();
+        Url replayed = url("abc123");
+        Url collision = url("def456");
+        CompletableFuture<Url> replayedInserted = urlWriteBehind.submit(replayed).orElseThrow();
+        CompletableFuture<Url> collisionInserted = urlWriteBehind.submit(collision).orElseThrow();
+        when(urlRepository.insertAllUnordered(anyList())).thenReturn(List.of(
+                new RejectedUrl(0, true, "E11000 duplicate key"), new RejectedUrl(1, true, "E11000 duplicate key")));
+        when(urlRepository.findById(replayed.getId())).thenReturn(Optional.of(replayed));
+        when(urlRepository.findById(collision.getId())).thenReturn(Optional.empty());
+
+        assertTrue(urlWriteBehind.flush());
+
+        assertSame(replayed, replayedInserted.getNow(null));
+        assertTrue(collisionInserted.isCompletedExceptionally());
+        verify(cache).evict("def456");
+        verify(cache, never()).evict("abc123");
+    }
+
+    @Test
+    public void testSubmit_Disabled_NotJournaled() throws Exception {
+        UrlWriteBehind urlWriteBehind = new UrlWriteBehind(urlRepository, cacheManager,
+                Mockito.mock(SequenceShortCodeAllocator.class), new SimpleMeterRegistry(), false,
+                directory.resolve("urls.journal").toString(), 4096, 10, 60000);
+        urlWriteBehind.afterPropertiesSet();
+
+        assertFalse(urlWriteBehind.isEnabled());
+        assertTrue(urlWriteBehind.submit(url("abc123")).isEmpty());
+    }
+
+    private UrlWriteBehind start() throws Exception {
+        UrlWriteBehind urlWriteBehind = new UrlWriteBehind(urlRepository, cacheManager,
+                Mockito.mock(SequenceShortCodeAllocator.class), new SimpleMeterRegistry(), true,
+                directory.resolve("urls.journal").toString(), 4096, 10, 60000);
+        urlWriteBehind.afterPropertiesSet();
+        urlWriteBehind.afterSingletonsInstantiated();
+        started.add(urlWriteBehind);
+        return urlWriteBehind;
+    }
+
+    private static Url url(String shortUrl) {
+        Url url = new Url();
+        url.setUserId("12345");
+        url.setOriginalUrl("https://example.com");
+        url.setShortenedUrl(shortUrl);
+        url.setCreationDate(LocalDateTime.now());
+        url.setExpirationDate(LocalDateTime.now().plusMonths(1));
+        return url;
+    }
+}
@@ -6,6 +6,7 @@ import ch.hos6.openweb.urlShortener.service.UserService;
 import ch.hos6.openweb.urlShortener.domain.repository.UserRepository;
 import ch.hos6.openweb.urlShortener.errorhandling.exception.UsernameAlreadyTakenException;
 import ch.hos6.openweb.urlShortener.mapper.UserMapper;
+import ch.hos6.openweb.urlShortener.security.CustomUserDetailService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -14,6 +15,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -21,6 +23,7 @@ public class UserServiceUnitTest {
     private UserRepository userRepository;
     private UserMapper userMapper;
     private PasswordEncoder passwordEncoder;
+    private CustomUserDetailService userDetailService;
     private UserService userService;
 
     @BeforeEach
@@ -28,7 +31,8 @@ public class UserServiceUnitTest {
         userRepository = Mockito.mock(UserRepository.class);
         userMapper = Mockito.mock(UserMapper.class);
         passwordEncoder = Mockito.mock(PasswordEncoder.class);
-        userService = new UserService(userRepository, userMapper, passwordEncoder);
+        userDetailService = Mockito.mock(CustomUserDetailService.class);
+        userService = new UserService(userRepository, userMapper, passwordEncoder, userDetailService);
     }
 
     @Test
@@ -51,6 +55,7 @@ public class UserServiceUnitTest {
         assertNotNull(createdUser);
         assertEquals("test", createdUser.username());
         assertEquals("encodedPassword", createdUser.password());
+        verify(userDetailService).evict("test");
     }
 
     @Test
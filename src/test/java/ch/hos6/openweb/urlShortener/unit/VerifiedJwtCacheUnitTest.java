@@ -0,0 +1,182 @@
+package ch.hos6.openweb.urlShortener.unit;
+
+import ch.hos6.openweb.urlShortener.cache.CacheInvalidationBus;
+import ch.hos6.openweb.urlShortener.security.VerifiedJwtCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class VerifiedJwtCacheUnitTest {
+    private CacheInvalidationBus invalidationBus;
+    private StringRedisTemplate redisTemplate;
+    private ValueOperations<String, String> valueOperations;
+    private JwtDecoder delegate;
+    private VerifiedJwtCache verifiedJwtCache;
+
+    @SuppressWarnings("unchecked")
+    @BeforeEach
+    public void setUp() {
+        invalidationBus = Mockito.mock(CacheInvalidationBus.class);
+        redisTemplate = Mockito.mock(StringRedisTemplate.class);
+        valueOperations = Mockito.mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        delegate = Mockito.mock(JwtDecoder.class);
+        verifiedJwtCache = new VerifiedJwtCache(invalidationBus, redisTemplate, new SimpleMeterRegistry(), 100, 3600);
+    }
+
+    @Test
+    public void testDecode_SameToken_VerifiedOnce() {
+        Jwt jwt = jwt("user", Instant.now().minusSeconds(10));
+        when(delegate.decode("token")).thenReturn(jwt);
+        JwtDecoder decoder = verifiedJwtCache.decoder(delegate);
+
+        assertSame(jwt, decoder.decode("token"));
+        assertSame(jwt, decoder.decode("token"));
+        verify(delegate, times(1)).decode("token");
+
+        ReactiveJwtDecoder reactiveDelegate = Mockito.mock(ReactiveJwtDecoder.class);
+        assertSame(jwt, verifiedJwtCache.reactiveDecoder(reactiveDelegate).decode("token").block());
+        verifyNoInteractions(reactiveDelegate);
+    }
+
+    @Test
+    public void testDecode_InvalidToken_NotCached() {
+        when(delegate.decode("token")).thenThrow(new BadJwtException("Invalid signature"));
+        JwtDecoder decoder = verifiedJwtCache.decoder(delegate);
+
+        assertThrows(BadJwtException.class, () -> decoder.decode("token"));
+        assertThrows(BadJwtException.class, () -> decoder.decode("token"));
+        verify(delegate, times(2)).decode("token");
+    }
+
+    @Test
+    public void testRevoke_TokensIssuedBefore_Rejected() {
+        Jwt revoked = jwt("user", Instant.now().minusSeconds(10));
+        Jwt other = jwt("other", Instant.now().minusSeconds(10));
+        Jwt reissued = jwt("user", Instant.now().plusSeconds(5));
+        when(delegate.decode("revoked")).thenReturn(revoked);
+        when(delegate.decode("other")).thenReturn(other);
+        when(delegate.decode("reissued")).thenReturn(reissued);
+        JwtDecoder decoder = verifiedJwtCache.decoder(delegate);
+        decoder.decode("revoked");
+        decoder.decode("other");
+
+        verifiedJwtCache.revoke("user");
+
+        assertThrows(BadJwtException.class, () -> decoder.decode("revoked"));
+        assertSame(other, decoder.decode("other"));
+        assertSame(reissued, decoder.decode("reissued"));
+        verify(invalidationBus).publish(eq(VerifiedJwtCache.REVOCATION_TOPIC), endsWith(":user"));
+        verify(valueOperations).set(eq("urlShortener:jwt-revocation:user"), anyString(), eq(Duration.ofSeconds(3600)));
+    }
+
+    @Test
+    public void testRevoke_RedisDown_RevokedLocallyAndFailureReported() {
+        Jwt revoked = jwt("user", Instant.now().minusSeconds(10));
+        when(delegate.decode("revoked")).thenReturn(revoked);
+        doThrow(new RedisConnectionFailureException("redis down")).when(valueOperations).set(anyString(), anyString(), any(Duration.class));
+
+        assertThrows(RedisConnectionFailureException.class, () -> verifiedJwtCache.revoke("user"));
+
+        assertThrows(BadJwtException.class, () -> verifiedJwtCache.decoder(delegate).decode("revoked"));
+        verify(invalidationBus).publish(eq(VerifiedJwtCache.REVOCATION_TOPIC), endsWith(":user"));
+    }
+
+    @Test
+    public void testDecode_RevocationPersisted_RejectedOnFirstVerification() {
+        Instant issuedAt = Instant.now().minusSeconds(10);
+        when(delegate.decode("token")).thenReturn(jwt("user", issuedAt));
+        when(valueOperations.get("urlShortener:jwt-revocation:user")).thenReturn(String.valueOf(issuedAt.getEpochSecond() + 1));
+        ReactiveJwtDecoder reactiveDelegate = Mockito.mock(ReactiveJwtDecoder.class);
+        when(reactiveDelegate.decode("token")).thenReturn(Mono.just(jwt("user", issuedAt)));
+
+        assertThrows(BadJwtException.class, () -> verifiedJwtCache.decoder(delegate).decode("token"));
+        assertThrows(BadJwtException.class, () -> verifiedJwtCache.reactiveDecoder(reactiveDelegate).decode("token").block());
+    }
+
+    @Test
+    public void testDecode_RevocationNotReadable_TokenNotCached() {
+        when(delegate.decode("token")).thenReturn(jwt("user", Instant.now().minusSeconds(10)));
+        when(valueOperations.get(anyString())).thenThrow(new RedisConnectionFailureException("redis down"));
+        JwtDecoder decoder = verifiedJwtCache.decoder(delegate);
+
+        decoder.decode("token");
+        decoder.decode("token");
+
+        verify(delegate, times(2)).decode("token");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAfterPropertiesSet_RevocationsPersisted_Loaded() {
+        Instant issuedAt = Instant.now().minusSeconds(10);
+        Iterator<String> keys = List.of("urlShortener:jwt-revocation:user:1").iterator();
+        Cursor<String> cursor = Mockito.mock(Cursor.class);
+        doAnswer(invocation -> {
+            ((Consumer<String>) invocation.getArgument(0)).accept(keys.next());
+            return null;
+        }).when(cursor).forEachRemaining(any());
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(cursor);
+        when(valueOperations.multiGet(List.of("urlShortener:jwt-revocation:user:1")))
+                .thenReturn(List.of(String.valueOf(issuedAt.getEpochSecond())));
+
+        verifiedJwtCache.afterPropertiesSet();
+
+        when(delegate.decode("token")).thenReturn(jwt("user:1", issuedAt));
+        when(valueOperations.get(anyString())).thenThrow(new RedisConnectionFailureException("redis down"));
+        assertThrows(BadJwtException.class, () -> verifiedJwtCache.decoder(delegate).decode("token"));
+        verify(cursor).close();
+    }
+
+    @Test
+    public void testRevoke_FromOtherNode_CachedTokenRejected() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(invalidationBus).subscribe(eq(VerifiedJwtCache.REVOCATION_TOPIC), listener.capture());
+        Instant issuedAt = Instant.now().minusSeconds(10);
+        ReactiveJwtDecoder reactiveDelegate = Mockito.mock(ReactiveJwtDecoder.class);
+        when(reactiveDelegate.decode(anyString())).thenReturn(Mono.just(jwt("user:1", issuedAt)));
+        ReactiveJwtDecoder decoder = verifiedJwtCache.reactiveDecoder(reactiveDelegate);
+        decoder.decode("token").block();
+
+        listener.getValue().accept(issuedAt.getEpochSecond() + ":user:1");
+        listener.getValue().accept("malformed");
+
+        assertThrows(BadJwtException.class, () -> decoder.decode("token").block());
+        assertThrows(BadJwtException.class, () -> decoder.decode("token").block());
+        verify(reactiveDelegate, times(2)).decode("token");
+    }
+
+    private static Jwt jwt(String subject, Instant issuedAt) {
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject(subject)
+                .issuedAt(issuedAt)
+                .expiresAt(issuedAt.plusSeconds(3600))
+                .build();
+    }
+}